@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.Map;
+
+/**
+ * ISuspicionCounterDAO Interface
+ */
+public interface ISuspicionCounterDAO
+{
+    /**
+     * Add the given delta to a slot of the counter of the rule, creating the slot if needed.
+     *
+     * @param nRuleId
+     *            the identifier of the duplicate rule
+     * @param nSlot
+     *            the slot of the counter
+     * @param nDelta
+     *            the number of created suspicions, negative for removed suspicions
+     * @param plugin
+     *            the Plugin
+     */
+    void add( int nRuleId, int nSlot, int nDelta, Plugin plugin );
+
+    /**
+     * Load the number of suspicions of the rule
+     *
+     * @param nRuleId
+     *            the identifier of the duplicate rule
+     * @param plugin
+     *            the Plugin
+     * @return the number of suspicions of the rule
+     */
+    int select( int nRuleId, Plugin plugin );
+
+    /**
+     * Load the number of suspicions of all the rules
+     *
+     * @param plugin
+     *            the Plugin
+     * @return the total number of suspicions
+     */
+    int selectTotal( Plugin plugin );
+
+    /**
+     * Load the number of suspicions of each rule having suspicions
+     *
+     * @param plugin
+     *            the Plugin
+     * @return the number of suspicions by rule code, ordered by rule code
+     */
+    Map<String, Integer> selectByRuleCode( Plugin plugin );
+
+    /**
+     * Delete the counter of the rule
+     *
+     * @param nRuleId
+     *            the identifier of the duplicate rule
+     * @param plugin
+     *            the Plugin
+     */
+    void delete( int nRuleId, Plugin plugin );
+
+    /**
+     * Delete the counters of all the rules
+     *
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteAll( Plugin plugin );
+
+    /**
+     * Recompute the counters from the suspicions table. Must be called within a transaction : the existing counters are locked until it ends, so that the
+     * changes running meanwhile wait for the recount. A slot created meanwhile may be miscounted until the next recount.
+     *
+     * @param plugin
+     *            the Plugin
+     */
+    void recount( Plugin plugin );
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * ISuspicionEventDAO Interface
+ */
+public interface ISuspicionEventDAO
+{
+    /**
+     * Insert a new record in the table.
+     *
+     * @param event
+     *            instance of the SuspicionEvent object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( SuspicionEvent event, Plugin plugin );
+
+    /**
+     * Load the records whose identifier is greater than the given one
+     *
+     * @param nAfterId
+     *            the identifier after which the records are loaded, exclusive
+     * @param nLimit
+     *            the maximum number of records to load
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the events, in the order of their identifier
+     */
+    List<SuspicionEvent> selectAfter( int nAfterId, int nLimit, Plugin plugin );
+
+    /**
+     * Load the smallest identifier of the records
+     *
+     * @param plugin
+     *            the Plugin
+     * @return the smallest identifier, 0 if there is no record
+     */
+    int selectMinId( Plugin plugin );
+
+    /**
+     * Delete the records created before the given date
+     *
+     * @param before
+     *            the date limit
+     * @param plugin
+     *            the Plugin
+     * @return the number of deleted records
+     */
+    int deleteBefore( Timestamp before, Plugin plugin );
+}
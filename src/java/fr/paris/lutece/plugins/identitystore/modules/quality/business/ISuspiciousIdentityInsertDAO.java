@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.Collection;
+
+/**
+ * ISuspiciousIdentityInsertDAO Interface
+ */
+public interface ISuspiciousIdentityInsertDAO
+{
+    /**
+     * Locks the creation of the suspicions of the given customer IDs until the end of the current transaction
+     *
+     * @param customerIds
+     *            the customer IDs
+     * @param plugin
+     *            the Plugin
+     */
+    void lock( Collection<String> customerIds, Plugin plugin );
+
+    /**
+     * Insert a new record in the table, unless one of the given customer IDs is already suspicious. The creations of the suspicions of these customer IDs
+     * are locked until the end of the current transaction, so that concurrent inserts of the same customer ID create a single record : this method must be
+     * called within a transaction.
+     *
+     * @param suspiciousIdentity
+     *            instance of the SuspiciousIdentity object to insert, its identifier is set if it is inserted
+     * @param customerIds
+     *            the customer IDs that must not be suspicious yet, the one of the suspicious identity included
+     * @param plugin
+     *            the Plugin
+     * @return <code>true</code> if the record has been inserted
+     */
+    boolean insertIfAbsent( SuspiciousIdentity suspiciousIdentity, Collection<String> customerIds, Plugin plugin );
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ISuspiciousIdentityLockDAO Interface
+ */
+public interface ISuspiciousIdentityLockDAO
+{
+    /**
+     * Load the oldest suspicious identities of the rule that are not locked, or whose lock has expired.<br/>
+     * When <code>bSkipLocked</code> is set, the rows are locked until the end of the current transaction (<code>FOR UPDATE SKIP LOCKED</code>) : rows
+     * already locked by another transaction are skipped instead of waited for. This must be called within a transaction.
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule
+     * @param now
+     *            the current date, to tell expired locks
+     * @param nLimit
+     *            the maximum number of suspicious identities to load
+     * @param bSkipLocked
+     *            <code>true</code> to lock the rows and skip the rows locked by other transactions
+     * @param plugin
+     *            the Plugin
+     * @return The list of the unlocked suspicious identities, oldest first
+     */
+    List<SuspiciousIdentity> selectUnlocked( String strRuleCode, Timestamp now, int nLimit, boolean bSkipLocked, Plugin plugin );
+
+    /**
+     * Lock the suspicious identities that are still not locked, or whose lock has expired, in a single statement.
+     *
+     * @param ids
+     *            the identifiers of the suspicious identities
+     * @param now
+     *            the current date, to tell expired locks
+     * @param lockEndDate
+     *            the end date of the new locks
+     * @param strAuthorType
+     *            the type of the author of the locks
+     * @param strAuthorName
+     *            the name of the author of the locks
+     * @param plugin
+     *            the Plugin
+     * @return the number of locked suspicious identities
+     */
+    int lock( Collection<Integer> ids, Timestamp now, Timestamp lockEndDate, String strAuthorType, String strAuthorName, Plugin plugin );
+
+    /**
+     * Unlock the suspicious identities locked by the given author. The locked rows are selected <code>FOR UPDATE</code> before being released, so this must
+     * be called within a transaction.
+     *
+     * @param customerIds
+     *            the customer IDs of the suspicious identities
+     * @param strAuthorType
+     *            the type of the author of the locks
+     * @param strAuthorName
+     *            the name of the author of the locks
+     * @param plugin
+     *            the Plugin
+     * @return the customer IDs of the unlocked suspicious identities
+     */
+    List<String> unlock( Collection<String> customerIds, String strAuthorType, String strAuthorName, Plugin plugin );
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.SearchAttribute;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ISuspiciousIdentitySearchDAO Interface
+ */
+public interface ISuspiciousIdentitySearchDAO
+{
+    /**
+     * Count the suspicious identities matching the filters
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param attributes
+     *            the attribute values the suspicious identities must have, can be null
+     * @param nRulePriority
+     *            the maximum priority level of the duplicate rule, can be null
+     * @param plugin
+     *            the Plugin
+     * @return the number of matching suspicious identities
+     */
+    int count( String strRuleCode, List<SearchAttribute> attributes, Integer nRulePriority, Plugin plugin );
+
+    /**
+     * Load a page of the suspicious identities matching the filters, in the (creation date, id) order
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param attributes
+     *            the attribute values the suspicious identities must have, can be null
+     * @param nRulePriority
+     *            the maximum priority level of the duplicate rule, can be null
+     * @param nOffset
+     *            the number of suspicious identities to skip
+     * @param nLimit
+     *            the maximum number of suspicious identities to load
+     * @param plugin
+     *            the Plugin
+     * @return The list of the suspicious identities of the page
+     */
+    List<SuspiciousIdentity> select( String strRuleCode, List<SearchAttribute> attributes, Integer nRulePriority, int nOffset, int nLimit, Plugin plugin );
+
+    /**
+     * Load the suspicious identities matching the filters that come after the cursor in the (creation date, id) order
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param attributes
+     *            the attribute values the suspicious identities must have, can be null
+     * @param nRulePriority
+     *            the maximum priority level of the duplicate rule, can be null
+     * @param cursor
+     *            the position after which the suspicious identities are loaded, null to start from the first one
+     * @param nLimit
+     *            the maximum number of suspicious identities to load
+     * @param plugin
+     *            the Plugin
+     * @return The list of the suspicious identities following the cursor
+     */
+    List<SuspiciousIdentity> selectAfter( String strRuleCode, List<SearchAttribute> attributes, Integer nRulePriority, SuspiciousIdentityCursor cursor,
+            int nLimit, Plugin plugin );
+
+    /**
+     * Reads all the suspicious identities matching the filters, ordered by creation date, through a database cursor. The suspicious identities are handed to
+     * the consumer as they are read, so that they do not need to be held in memory.
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param dateFrom
+     *            the minimum creation date (inclusive), can be null
+     * @param dateTo
+     *            the maximum creation date (exclusive), can be null
+     * @param consumer
+     *            the consumer of the suspicious identities
+     * @param plugin
+     *            the Plugin
+     */
+    void export( String strRuleCode, Timestamp dateFrom, Timestamp dateTo, Consumer<SuspiciousIdentity> consumer, Plugin plugin );
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods to look up many identities at once
+ */
+public final class IdentityLookupDAO implements IIdentityLookupDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_BY_CUSTOMER_IDS = "SELECT id_identity, customer_id, connection_id, date_create, last_update_date FROM identitystore_identity WHERE customer_id IN ( ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Identity> selectByCustomerIds( final Collection<String> customerIds, final Plugin plugin )
+    {
+        final List<Identity> identities = new ArrayList<>( );
+        if ( customerIds.isEmpty( ) )
+        {
+            return identities;
+        }
+
+        final String strQuery = SQL_QUERY_SELECT_BY_CUSTOMER_IDS + String.join( ", ", Collections.nCopies( customerIds.size( ), "?" ) ) + " )";
+        try ( final DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = 1;
+            for ( final String strCustomerId : customerIds )
+            {
+                daoUtil.setString( nIndex++, strCustomerId );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                nIndex = 1;
+                final Identity identity = new Identity( );
+                identity.setId( daoUtil.getInt( nIndex++ ) );
+                identity.setCustomerId( daoUtil.getString( nIndex++ ) );
+                identity.setConnectionId( daoUtil.getString( nIndex++ ) );
+                identity.setCreationDate( daoUtil.getTimestamp( nIndex++ ) );
+                identity.setLastUpdateDate( daoUtil.getTimestamp( nIndex ) );
+                identities.add( identity );
+            }
+        }
+        return identities;
+    }
+}
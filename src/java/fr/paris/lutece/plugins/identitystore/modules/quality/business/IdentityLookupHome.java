@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class provides bulk lookup methods for Identity objects
+ */
+public final class IdentityLookupHome
+{
+    /* Keeps the IN lists below the bind parameters limit of the databases */
+    private static final int MAX_CUSTOMER_IDS_PER_QUERY = 500;
+
+    // Static variable pointed at the DAO instance
+    private static final IIdentityLookupDAO _dao = SpringContextService.getBean( "identitystore-quality.identityLookupDAO" );
+    private static final Plugin _plugin = PluginService.getPlugin( "identitystore-quality" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private IdentityLookupHome( )
+    {
+    }
+
+    /**
+     * Find the identities having the given customer IDs, with one query per {@value #MAX_CUSTOMER_IDS_PER_QUERY} customer IDs. Only the main fields of the
+     * identities are loaded (no attribute).
+     *
+     * @param customerIds
+     *            the customer IDs
+     * @return the identities found, by customer ID
+     */
+    public static Map<String, Identity> findByCustomerIds( final Collection<String> customerIds )
+    {
+        final Map<String, Identity> identities = new HashMap<>( );
+        final List<String> chunk = new ArrayList<>( MAX_CUSTOMER_IDS_PER_QUERY );
+        for ( final String strCustomerId : customerIds )
+        {
+            chunk.add( strCustomerId );
+            if ( chunk.size( ) == MAX_CUSTOMER_IDS_PER_QUERY )
+            {
+                _dao.selectByCustomerIds( chunk, _plugin ).forEach( identity -> identities.put( identity.getCustomerId( ), identity ) );
+                chunk.clear( );
+            }
+        }
+        _dao.selectByCustomerIds( chunk, _plugin ).forEach( identity -> identities.put( identity.getCustomerId( ), identity ) );
+        return identities;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for MergeJournalEntry objects
+ */
+public final class MergeJournalDAO implements IMergeJournalDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO identitystore_quality_merge_journal ( suspicious_customer_id, primary_customer_id, candidate_customer_id, rule_code, status, date_create, date_update ) VALUES ( ?, ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_UPDATE_STATUS = "UPDATE identitystore_quality_merge_journal SET status = ?, date_update = ? WHERE id_merge_journal = ?";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM identitystore_quality_merge_journal WHERE id_merge_journal = ? ";
+    private static final String SQL_QUERY_DELETE_COMPLETED = "DELETE FROM identitystore_quality_merge_journal WHERE status = ? AND date_update < ? ";
+    private static final String SQL_QUERY_SELECT_UNFINISHED = "SELECT id_merge_journal, suspicious_customer_id, primary_customer_id, candidate_customer_id, rule_code, status, date_create, date_update FROM identitystore_quality_merge_journal WHERE status <> ? AND date_update < ? ORDER BY id_merge_journal";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( final MergeJournalEntry entry, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            final Timestamp now = Timestamp.from( Instant.now( ) );
+            entry.setDateCreate( now );
+            entry.setDateUpdate( now );
+
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, entry.getSuspiciousCustomerId( ) );
+            daoUtil.setString( nIndex++, entry.getPrimaryCustomerId( ) );
+            daoUtil.setString( nIndex++, entry.getCandidateCustomerId( ) );
+            daoUtil.setString( nIndex++, entry.getRuleCode( ) );
+            daoUtil.setString( nIndex++, entry.getStatus( ).name( ) );
+            daoUtil.setTimestamp( nIndex++, entry.getDateCreate( ) );
+            daoUtil.setTimestamp( nIndex, entry.getDateUpdate( ) );
+
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                entry.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void updateStatus( final MergeJournalEntry entry, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_STATUS, plugin ) )
+        {
+            entry.setDateUpdate( Timestamp.from( Instant.now( ) ) );
+
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, entry.getStatus( ).name( ) );
+            daoUtil.setTimestamp( nIndex++, entry.getDateUpdate( ) );
+            daoUtil.setInt( nIndex, entry.getId( ) );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void delete( final int nKey, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nKey );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int deleteCompleted( final Timestamp before, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_COMPLETED, plugin ) )
+        {
+            daoUtil.setString( 1, MergeJournalStatus.UNLOCKED.name( ) );
+            daoUtil.setTimestamp( 2, before );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<MergeJournalEntry> selectUnfinished( final Timestamp before, final Plugin plugin )
+    {
+        final List<MergeJournalEntry> entries = new ArrayList<>( );
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_UNFINISHED, plugin ) )
+        {
+            daoUtil.setString( 1, MergeJournalStatus.UNLOCKED.name( ) );
+            daoUtil.setTimestamp( 2, before );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                int nIndex = 1;
+                final MergeJournalEntry entry = new MergeJournalEntry( );
+                entry.setId( daoUtil.getInt( nIndex++ ) );
+                entry.setSuspiciousCustomerId( daoUtil.getString( nIndex++ ) );
+                entry.setPrimaryCustomerId( daoUtil.getString( nIndex++ ) );
+                entry.setCandidateCustomerId( daoUtil.getString( nIndex++ ) );
+                entry.setRuleCode( daoUtil.getString( nIndex++ ) );
+                entry.setStatus( MergeJournalStatus.valueOf( daoUtil.getString( nIndex++ ) ) );
+                entry.setDateCreate( daoUtil.getTimestamp( nIndex++ ) );
+                entry.setDateUpdate( daoUtil.getTimestamp( nIndex ) );
+                entries.add( entry );
+            }
+        }
+        return entries;
+    }
+}
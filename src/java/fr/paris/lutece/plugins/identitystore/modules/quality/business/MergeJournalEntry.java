@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import java.sql.Timestamp;
+
+/**
+ * This is the business class for the object MergeJournalEntry.<br/>
+ * An entry tracks one automatic merge of a candidate identity into a primary identity, from the lock of the suspicion to its release.
+ */
+public class MergeJournalEntry
+{
+    private int _nId;
+    private String _strSuspiciousCustomerId;
+    private String _strPrimaryCustomerId;
+    private String _strCandidateCustomerId;
+    private String _strRuleCode;
+    private MergeJournalStatus _status;
+    private Timestamp _dateCreate;
+    private Timestamp _dateUpdate;
+
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    public void setId( final int nId )
+    {
+        _nId = nId;
+    }
+
+    public String getSuspiciousCustomerId( )
+    {
+        return _strSuspiciousCustomerId;
+    }
+
+    public void setSuspiciousCustomerId( final String strSuspiciousCustomerId )
+    {
+        _strSuspiciousCustomerId = strSuspiciousCustomerId;
+    }
+
+    public String getPrimaryCustomerId( )
+    {
+        return _strPrimaryCustomerId;
+    }
+
+    public void setPrimaryCustomerId( final String strPrimaryCustomerId )
+    {
+        _strPrimaryCustomerId = strPrimaryCustomerId;
+    }
+
+    public String getCandidateCustomerId( )
+    {
+        return _strCandidateCustomerId;
+    }
+
+    public void setCandidateCustomerId( final String strCandidateCustomerId )
+    {
+        _strCandidateCustomerId = strCandidateCustomerId;
+    }
+
+    public String getRuleCode( )
+    {
+        return _strRuleCode;
+    }
+
+    public void setRuleCode( final String strRuleCode )
+    {
+        _strRuleCode = strRuleCode;
+    }
+
+    public MergeJournalStatus getStatus( )
+    {
+        return _status;
+    }
+
+    public void setStatus( final MergeJournalStatus status )
+    {
+        _status = status;
+    }
+
+    public Timestamp getDateCreate( )
+    {
+        return _dateCreate;
+    }
+
+    public void setDateCreate( final Timestamp dateCreate )
+    {
+        _dateCreate = dateCreate;
+    }
+
+    public Timestamp getDateUpdate( )
+    {
+        return _dateUpdate;
+    }
+
+    public void setDateUpdate( final Timestamp dateUpdate )
+    {
+        _dateUpdate = dateUpdate;
+    }
+}
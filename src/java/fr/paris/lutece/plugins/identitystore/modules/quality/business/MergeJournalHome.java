@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * This class provides instances management methods (create, find, ...) for MergeJournalEntry objects
+ */
+public final class MergeJournalHome
+{
+    // Static variable pointed at the DAO instance
+    private static final IMergeJournalDAO _dao = SpringContextService.getBean( "identitystore-quality.mergeJournalDAO" );
+    private static final Plugin _plugin = PluginService.getPlugin( "identitystore-quality" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private MergeJournalHome( )
+    {
+    }
+
+    /**
+     * Records a planned merge, before the suspicion is locked.
+     *
+     * @param strSuspiciousCustomerId
+     *            the customer ID of the suspicion that will be locked
+     * @param strPrimaryCustomerId
+     *            the customer ID of the identity kept by the merge
+     * @param strCandidateCustomerId
+     *            the customer ID of the identity merged into the primary identity
+     * @param strRuleCode
+     *            the code of the rule being processed
+     * @return the created entry, with status {@link MergeJournalStatus#PLANNED}
+     */
+    public static MergeJournalEntry plan( final String strSuspiciousCustomerId, final String strPrimaryCustomerId, final String strCandidateCustomerId,
+            final String strRuleCode )
+    {
+        final MergeJournalEntry entry = new MergeJournalEntry( );
+        entry.setSuspiciousCustomerId( strSuspiciousCustomerId );
+        entry.setPrimaryCustomerId( strPrimaryCustomerId );
+        entry.setCandidateCustomerId( strCandidateCustomerId );
+        entry.setRuleCode( strRuleCode );
+        entry.setStatus( MergeJournalStatus.PLANNED );
+        _dao.insert( entry, _plugin );
+        return entry;
+    }
+
+    /**
+     * Moves the entry to the given status.
+     *
+     * @param entry
+     *            the journal entry
+     * @param status
+     *            the new status
+     */
+    public static void updateStatus( final MergeJournalEntry entry, final MergeJournalStatus status )
+    {
+        entry.setStatus( status );
+        _dao.updateStatus( entry, _plugin );
+    }
+
+    /**
+     * Remove the entry whose identifier is specified in parameter
+     *
+     * @param nKey
+     *            The entry Id
+     */
+    public static void remove( final int nKey )
+    {
+        _dao.delete( nKey, _plugin );
+    }
+
+    /**
+     * Remove the completed entries that were last updated before the given date
+     *
+     * @param before
+     *            the date limit
+     * @return the number of removed entries
+     */
+    public static int purgeCompleted( final Timestamp before )
+    {
+        return _dao.deleteCompleted( before, _plugin );
+    }
+
+    /**
+     * Load the entries that did not reach the {@link MergeJournalStatus#UNLOCKED} status and were last updated before the given date
+     *
+     * @param before
+     *            the date limit
+     * @return the list of unfinished entries, oldest first
+     */
+    public static List<MergeJournalEntry> findUnfinished( final Timestamp before )
+    {
+        return _dao.selectUnfinished( before, _plugin );
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class provides Data Access methods for the suspicion counters.<br/>
+ * Only portable SQL is used : a slot is updated through its identifier, and created by a plain insert when missing.
+ */
+public final class SuspicionCounterDAO implements ISuspicionCounterDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_SLOT = "SELECT MIN( id_suspicion_counter ) FROM identitystore_quality_suspicion_counter WHERE id_duplicate_rule = ? AND slot = ? ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE identitystore_quality_suspicion_counter SET suspicion_count = suspicion_count + ? WHERE id_suspicion_counter = ? ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO identitystore_quality_suspicion_counter ( id_duplicate_rule, slot, suspicion_count ) VALUES ( ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT = "SELECT COALESCE( SUM( suspicion_count ), 0 ) FROM identitystore_quality_suspicion_counter WHERE id_duplicate_rule = ? ";
+    private static final String SQL_QUERY_SELECT_TOTAL = "SELECT COALESCE( SUM( suspicion_count ), 0 ) FROM identitystore_quality_suspicion_counter";
+    private static final String SQL_QUERY_SELECT_BY_RULE_CODE = "SELECT b.code, SUM( a.suspicion_count ) FROM identitystore_quality_suspicion_counter a JOIN identitystore_duplicate_rule b ON a.id_duplicate_rule = b.id_rule GROUP BY b.code HAVING SUM( a.suspicion_count ) > 0 ORDER BY b.code";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM identitystore_quality_suspicion_counter WHERE id_duplicate_rule = ? ";
+    private static final String SQL_QUERY_DELETE_ALL = "DELETE FROM identitystore_quality_suspicion_counter";
+    private static final String SQL_QUERY_LOCK = "SELECT id_suspicion_counter FROM identitystore_quality_suspicion_counter FOR UPDATE";
+    private static final String SQL_QUERY_RECOUNT = "INSERT INTO identitystore_quality_suspicion_counter ( id_duplicate_rule, slot, suspicion_count ) SELECT id_duplicate_rule, 0, COUNT(*) FROM identitystore_quality_suspicious_identity GROUP BY id_duplicate_rule";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void add( final int nRuleId, final int nSlot, final int nDelta, final Plugin plugin )
+    {
+        /* A slot created twice by concurrent transactions only gives two rows, added up by the selects : a single one is updated afterwards */
+        Integer nSlotId = null;
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_SLOT, plugin ) )
+        {
+            daoUtil.setInt( 1, nRuleId );
+            daoUtil.setInt( 2, nSlot );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nSlotId = daoUtil.getInt( 1 );
+            }
+        }
+
+        if ( nSlotId != null && nSlotId > 0 )
+        {
+            try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+            {
+                daoUtil.setInt( 1, nDelta );
+                daoUtil.setInt( 2, nSlotId );
+                if ( daoUtil.executeUpdate( ) > 0 )
+                {
+                    return;
+                }
+            }
+        }
+
+        // The slot does not exist yet, or it has just been removed by a recount
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nRuleId );
+            daoUtil.setInt( nIndex++, nSlot );
+            daoUtil.setInt( nIndex, nDelta );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int select( final int nRuleId, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setInt( 1, nRuleId );
+            daoUtil.executeQuery( );
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int selectTotal( final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_TOTAL, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Map<String, Integer> selectByRuleCode( final Plugin plugin )
+    {
+        final Map<String, Integer> counts = new LinkedHashMap<>( );
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_RULE_CODE, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                counts.put( daoUtil.getString( 1 ), daoUtil.getInt( 2 ) );
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void delete( final int nRuleId, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nRuleId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void deleteAll( final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_ALL, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void recount( final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_LOCK, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                // The rows are locked as they are read
+            }
+        }
+        this.deleteAll( plugin );
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RECOUNT, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class provides instances management methods for the number of suspicions of each duplicate rule.<br/>
+ * The counters are updated within the transaction creating or removing the suspicions, so that the counts are read without scanning the suspicions.
+ * Each counter is split into slots updated at random, so that concurrent transactions of the same rule seldom wait for each other's row lock.
+ */
+public final class SuspicionCounterHome
+{
+    private static final int SLOTS = 16;
+
+    // Static variable pointed at the DAO instance
+    private static final ISuspicionCounterDAO _dao = SpringContextService.getBean( "identitystore-quality.suspicionCounterDAO" );
+    private static final Plugin _plugin = PluginService.getPlugin( "identitystore-quality" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SuspicionCounterHome( )
+    {
+    }
+
+    /**
+     * Updates the counter of the rule
+     *
+     * @param nRuleId
+     *            the identifier of the duplicate rule
+     * @param nDelta
+     *            the number of created suspicions, negative for removed suspicions
+     */
+    public static void add( final int nRuleId, final int nDelta )
+    {
+        if ( nDelta != 0 )
+        {
+            _dao.add( nRuleId, ThreadLocalRandom.current( ).nextInt( SLOTS ), nDelta, _plugin );
+        }
+    }
+
+    /**
+     * Gets the number of suspicions of the rule
+     *
+     * @param nRuleId
+     *            the identifier of the duplicate rule
+     * @return the number of suspicions
+     */
+    public static int count( final int nRuleId )
+    {
+        return _dao.select( nRuleId, _plugin );
+    }
+
+    /**
+     * Gets the number of suspicions of all the rules
+     *
+     * @return the total number of suspicions
+     */
+    public static int countAll( )
+    {
+        return _dao.selectTotal( _plugin );
+    }
+
+    /**
+     * Gets the number of suspicions of each rule having suspicions
+     *
+     * @return the number of suspicions by rule code, ordered by rule code
+     */
+    public static Map<String, Integer> countByRuleCode( )
+    {
+        return _dao.selectByRuleCode( _plugin );
+    }
+
+    /**
+     * Resets the counter of the rule, or of all the rules, once their suspicions are purged
+     *
+     * @param nRuleId
+     *            the identifier of the duplicate rule, null for all the rules
+     */
+    public static void reset( final Integer nRuleId )
+    {
+        if ( nRuleId == null )
+        {
+            _dao.deleteAll( _plugin );
+        }
+        else
+        {
+            _dao.delete( nRuleId, _plugin );
+        }
+    }
+
+    /**
+     * Recomputes the counters from the suspicions, to take into account the suspicions created or removed outside this module. Must be called within a
+     * transaction.
+     */
+    public static void recount( )
+    {
+        _dao.recount( _plugin );
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for SuspicionEvent objects
+ */
+public final class SuspicionEventDAO implements ISuspicionEventDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO identitystore_quality_suspicion_event ( event_type, customer_id, rule_code, related_customer_id, author_type, author_name, date_create ) VALUES ( ?, ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT_AFTER = "SELECT id_suspicion_event, event_type, customer_id, rule_code, related_customer_id, author_type, author_name, date_create FROM identitystore_quality_suspicion_event WHERE id_suspicion_event > ? ORDER BY id_suspicion_event LIMIT ?";
+    private static final String SQL_QUERY_SELECT_MIN_ID = "SELECT MIN( id_suspicion_event ) FROM identitystore_quality_suspicion_event";
+    private static final String SQL_QUERY_DELETE_BEFORE = "DELETE FROM identitystore_quality_suspicion_event WHERE date_create < ? ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( final SuspicionEvent event, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            event.setDateCreate( Timestamp.from( Instant.now( ) ) );
+
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, event.getType( ).name( ) );
+            daoUtil.setString( nIndex++, event.getCustomerId( ) );
+            daoUtil.setString( nIndex++, event.getRuleCode( ) );
+            daoUtil.setString( nIndex++, event.getRelatedCustomerId( ) );
+            daoUtil.setString( nIndex++, event.getAuthorType( ) );
+            daoUtil.setString( nIndex++, event.getAuthorName( ) );
+            daoUtil.setTimestamp( nIndex, event.getDateCreate( ) );
+
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                event.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<SuspicionEvent> selectAfter( final int nAfterId, final int nLimit, final Plugin plugin )
+    {
+        final List<SuspicionEvent> events = new ArrayList<>( );
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_AFTER, plugin ) )
+        {
+            daoUtil.setInt( 1, nAfterId );
+            daoUtil.setInt( 2, nLimit );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                int nIndex = 1;
+                final SuspicionEvent event = new SuspicionEvent( );
+                event.setId( daoUtil.getInt( nIndex++ ) );
+                event.setType( SuspicionEventType.valueOf( daoUtil.getString( nIndex++ ) ) );
+                event.setCustomerId( daoUtil.getString( nIndex++ ) );
+                event.setRuleCode( daoUtil.getString( nIndex++ ) );
+                event.setRelatedCustomerId( daoUtil.getString( nIndex++ ) );
+                event.setAuthorType( daoUtil.getString( nIndex++ ) );
+                event.setAuthorName( daoUtil.getString( nIndex++ ) );
+                event.setDateCreate( daoUtil.getTimestamp( nIndex ) );
+                events.add( event );
+            }
+        }
+        return events;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int selectMinId( final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_MIN_ID, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int deleteBefore( final Timestamp before, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BEFORE, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, before );
+            return daoUtil.executeUpdate( );
+        }
+    }
+}
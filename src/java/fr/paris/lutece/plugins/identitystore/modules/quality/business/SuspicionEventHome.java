@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * This class provides instances management methods (create, find, ...) for SuspicionEvent objects.<br/>
+ * The events are appended within the current transaction, if any, so that they are only visible once the change they record is committed.
+ */
+public final class SuspicionEventHome
+{
+    // Static variable pointed at the DAO instance
+    private static final ISuspicionEventDAO _dao = SpringContextService.getBean( "identitystore-quality.suspicionEventDAO" );
+    private static final Plugin _plugin = PluginService.getPlugin( "identitystore-quality" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SuspicionEventHome( )
+    {
+    }
+
+    /**
+     * Appends an event to the log.
+     *
+     * @param type
+     *            the type of the event
+     * @param strCustomerId
+     *            the customer ID of the suspicious identity
+     * @param strRuleCode
+     *            the code of the duplicate rule of the suspicion, can be null
+     * @param strRelatedCustomerId
+     *            the customer ID of the other identity of an exclusion, can be null
+     * @param strAuthorType
+     *            the type of the author of the change
+     * @param strAuthorName
+     *            the name of the author of the change
+     * @return the appended event
+     */
+    public static SuspicionEvent append( final SuspicionEventType type, final String strCustomerId, final String strRuleCode,
+            final String strRelatedCustomerId, final String strAuthorType, final String strAuthorName )
+    {
+        final SuspicionEvent event = new SuspicionEvent( );
+        event.setType( type );
+        event.setCustomerId( strCustomerId );
+        event.setRuleCode( strRuleCode );
+        event.setRelatedCustomerId( strRelatedCustomerId );
+        event.setAuthorType( strAuthorType );
+        event.setAuthorName( strAuthorName );
+        _dao.insert( event, _plugin );
+        return event;
+    }
+
+    /**
+     * Load the events whose identifier is greater than the given one
+     *
+     * @param nAfterId
+     *            the identifier after which the events are loaded, exclusive
+     * @param nLimit
+     *            the maximum number of events to load
+     * @return the list of events, in the order of their identifier
+     */
+    public static List<SuspicionEvent> findAfter( final int nAfterId, final int nLimit )
+    {
+        return _dao.selectAfter( nAfterId, nLimit, _plugin );
+    }
+
+    /**
+     * Load the identifier of the oldest retained event
+     *
+     * @return the smallest identifier of the events, 0 if there is no event
+     */
+    public static int findOldestId( )
+    {
+        return _dao.selectMinId( _plugin );
+    }
+
+    /**
+     * Remove the events created before the given date
+     *
+     * @param before
+     *            the date limit
+     * @return the number of removed events
+     */
+    public static int purge( final Timestamp before )
+    {
+        return _dao.deleteBefore( before, _plugin );
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of a suspicious identity in the (creation date, id) order, used to page through the suspicious identities without offset.<br/>
+ * The cursor is exchanged with clients as an opaque string.
+ */
+public final class SuspiciousIdentityCursor
+{
+    private static final String SEPARATOR = "|";
+
+    private final Timestamp _dateCreate;
+    private final int _nId;
+
+    private SuspiciousIdentityCursor( final Timestamp dateCreate, final int nId )
+    {
+        _dateCreate = dateCreate;
+        _nId = nId;
+    }
+
+    /**
+     * Builds the cursor positioned on the given suspicious identity
+     *
+     * @param suspiciousIdentity
+     *            the suspicious identity
+     * @return the cursor
+     */
+    public static SuspiciousIdentityCursor of( final SuspiciousIdentity suspiciousIdentity )
+    {
+        return new SuspiciousIdentityCursor( suspiciousIdentity.getCreationDate( ), suspiciousIdentity.getId( ) );
+    }
+
+    /**
+     * Decodes a cursor
+     *
+     * @param strCursor
+     *            the opaque cursor
+     * @return the cursor
+     * @throws IllegalArgumentException
+     *             if the cursor is malformed
+     */
+    public static SuspiciousIdentityCursor decode( final String strCursor )
+    {
+        try
+        {
+            final String strDecoded = new String( Base64.getUrlDecoder( ).decode( strCursor ), StandardCharsets.UTF_8 );
+            final int nSeparator = strDecoded.indexOf( SEPARATOR );
+            if ( nSeparator < 0 )
+            {
+                throw new IllegalArgumentException( "Malformed cursor" );
+            }
+            return new SuspiciousIdentityCursor( Timestamp.from( Instant.parse( strDecoded.substring( 0, nSeparator ) ) ),
+                    Integer.parseInt( strDecoded.substring( nSeparator + 1 ) ) );
+        }
+        catch( final DateTimeParseException e )
+        {
+            throw new IllegalArgumentException( "Malformed cursor", e );
+        }
+    }
+
+    /**
+     * @return the opaque cursor
+     */
+    public String encode( )
+    {
+        final String strCursor = _dateCreate.toInstant( ).toString( ) + SEPARATOR + _nId;
+        return Base64.getUrlEncoder( ).withoutPadding( ).encodeToString( strCursor.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * @return the creation date of the suspicious identity the cursor is positioned on
+     */
+    public Timestamp getDateCreate( )
+    {
+        return _dateCreate;
+    }
+
+    /**
+     * @return the id of the suspicious identity the cursor is positioned on
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+}
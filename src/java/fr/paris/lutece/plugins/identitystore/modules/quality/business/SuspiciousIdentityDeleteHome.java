@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides the removal of SuspiciousIdentity objects, telling whether they were removed : the callers only update the counters and record the
+ * events of the suspicions actually removed, concurrent removals of the same suspicion being counted once.
+ */
+public final class SuspiciousIdentityDeleteHome
+{
+    // Static variable pointed at the DAO instance
+    private static final ISuspiciousIdentityDeleteDAO _dao = SpringContextService.getBean( "identitystore-quality.suspiciousIdentityDeleteDAO" );
+    private static final Plugin _plugin = PluginService.getPlugin( "identitystore-quality" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SuspiciousIdentityDeleteHome( )
+    {
+    }
+
+    /**
+     * Remove the suspicious identity of the given customer ID
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @return <code>true</code> if the suspicious identity has been removed
+     */
+    public static boolean removeByCustomerId( final String strCustomerId )
+    {
+        return _dao.deleteByCustomerId( strCustomerId, _plugin ) > 0;
+    }
+
+    /**
+     * Remove the suspicious identity whose identifier is specified in parameter
+     *
+     * @param nId
+     *            the identifier of the suspicious identity
+     * @return <code>true</code> if the suspicious identity has been removed
+     */
+    public static boolean remove( final int nId )
+    {
+        return _dao.delete( nId, _plugin ) > 0;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * This class provides Data Access methods to create SuspiciousIdentity objects without check-then-create races.<br/>
+ * The creations are serialized by locking rows of the identitystore_quality_suspicion_lock table, chosen from the hash of the customer IDs : the
+ * identitystore_quality_suspicious_identity table is left as is, and only portable SQL is used.
+ */
+public final class SuspiciousIdentityInsertDAO implements ISuspiciousIdentityInsertDAO
+{
+    // Constants
+    /** Number of rows of the identitystore_quality_suspicion_lock table, as created by the SQL scripts */
+    private static final int NB_LOCKS = 16;
+    private static final String SQL_QUERY_LOCK = "SELECT id_suspicion_lock FROM identitystore_quality_suspicion_lock WHERE id_suspicion_lock = ? FOR UPDATE";
+    private static final String SQL_QUERY_SELECT_EXISTING = "SELECT customer_id FROM identitystore_quality_suspicious_identity WHERE customer_id IN ( ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO identitystore_quality_suspicious_identity ( customer_id, id_duplicate_rule, date_create, last_update_date ) "
+            + "VALUES ( ?, ?, ?, ? )";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void lock( final Collection<String> customerIds, final Plugin plugin )
+    {
+        // The locks are always taken in the same order, so that concurrent transactions cannot wait for each other
+        final SortedSet<Integer> locks = new TreeSet<>( );
+        customerIds.forEach( strCustomerId -> locks.add( Math.floorMod( strCustomerId.hashCode( ), NB_LOCKS ) ) );
+        for ( final Integer nLock : locks )
+        {
+            try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_LOCK, plugin ) )
+            {
+                daoUtil.setInt( 1, nLock );
+                daoUtil.executeQuery( );
+                if ( !daoUtil.next( ) )
+                {
+                    throw new AppException( "Missing row " + nLock + " in table identitystore_quality_suspicion_lock" );
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean insertIfAbsent( final SuspiciousIdentity suspiciousIdentity, final Collection<String> customerIds, final Plugin plugin )
+    {
+        this.lock( customerIds, plugin );
+
+        final String strSelectQuery = SQL_QUERY_SELECT_EXISTING + String.join( ", ", Collections.nCopies( customerIds.size( ), "?" ) ) + " )";
+        try ( final DAOUtil daoUtil = new DAOUtil( strSelectQuery, plugin ) )
+        {
+            int nIndex = 1;
+            for ( final String strCustomerId : customerIds )
+            {
+                daoUtil.setString( nIndex++, strCustomerId );
+            }
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                return false;
+            }
+        }
+
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, suspiciousIdentity.getCustomerId( ) );
+            daoUtil.setInt( nIndex++, suspiciousIdentity.getIdDuplicateRule( ) );
+            daoUtil.setTimestamp( nIndex++, suspiciousIdentity.getCreationDate( ) );
+            daoUtil.setTimestamp( nIndex, suspiciousIdentity.getLastUpdateDate( ) );
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                suspiciousIdentity.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+            return true;
+        }
+    }
+}
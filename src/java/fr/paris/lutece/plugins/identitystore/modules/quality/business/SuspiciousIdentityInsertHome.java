@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.Collection;
+
+/**
+ * This class provides the atomic creation of SuspiciousIdentity objects
+ */
+public final class SuspiciousIdentityInsertHome
+{
+    // Static variable pointed at the DAO instance
+    private static final ISuspiciousIdentityInsertDAO _dao = SpringContextService.getBean( "identitystore-quality.suspiciousIdentityInsertDAO" );
+    private static final Plugin _plugin = PluginService.getPlugin( "identitystore-quality" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SuspiciousIdentityInsertHome( )
+    {
+    }
+
+    /**
+     * Lock the creation of the suspicions of the given customer IDs until the end of the current transaction
+     *
+     * @param customerIds
+     *            the customer IDs
+     */
+    public static void lock( final Collection<String> customerIds )
+    {
+        _dao.lock( customerIds, _plugin );
+    }
+
+    /**
+     * Create the suspicious identity unless one of the given customer IDs is already suspicious. Must be called within a transaction.
+     *
+     * @param suspiciousIdentity
+     *            the suspicious identity, its identifier is set if it is created
+     * @param customerIds
+     *            the customer IDs that must not be suspicious yet, the one of the suspicious identity included
+     * @return <code>true</code> if the suspicious identity has been created
+     */
+    public static boolean createIfAbsent( final SuspiciousIdentity suspiciousIdentity, final Collection<String> customerIds )
+    {
+        return _dao.insertIfAbsent( suspiciousIdentity, customerIds, _plugin );
+    }
+}
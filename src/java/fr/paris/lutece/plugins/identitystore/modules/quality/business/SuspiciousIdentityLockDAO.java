@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods to lock many SuspiciousIdentity objects at once
+ */
+public final class SuspiciousIdentityLockDAO implements ISuspiciousIdentityLockDAO
+{
+    // Constants
+    private static final String SQL_FILTER_UNLOCKED = "( a.is_locked = ? OR a.date_lock_end IS NULL OR a.date_lock_end < ? )";
+    private static final String SQL_QUERY_SELECT_UNLOCKED = SuspiciousIdentitySearchDAO.SQL_QUERY_SELECT + "WHERE b.code = ? AND " + SQL_FILTER_UNLOCKED
+            + " ORDER BY a.date_create, a.id_suspicious_identity LIMIT ?";
+    private static final String SQL_SKIP_LOCKED = " FOR UPDATE OF a SKIP LOCKED";
+    private static final String SQL_QUERY_LOCK = "UPDATE identitystore_quality_suspicious_identity a SET is_locked = ?, date_lock_end = ?, author_type = ?, author_name = ? WHERE "
+            + SQL_FILTER_UNLOCKED + " AND a.id_suspicious_identity IN ( ";
+    private static final String SQL_QUERY_SELECT_LOCKED_BY = "SELECT customer_id FROM identitystore_quality_suspicious_identity WHERE is_locked = ? AND author_type = ? AND author_name = ? AND customer_id IN ( ";
+    private static final String SQL_FOR_UPDATE = " ) FOR UPDATE";
+    private static final String SQL_QUERY_UNLOCK = "UPDATE identitystore_quality_suspicious_identity SET is_locked = ?, date_lock_end = NULL, author_type = NULL, author_name = NULL WHERE customer_id IN ( ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<SuspiciousIdentity> selectUnlocked( final String strRuleCode, final Timestamp now, final int nLimit, final boolean bSkipLocked,
+            final Plugin plugin )
+    {
+        final List<SuspiciousIdentity> suspiciousIdentities = new ArrayList<>( );
+        try ( final DAOUtil daoUtil = new DAOUtil( bSkipLocked ? SQL_QUERY_SELECT_UNLOCKED + SQL_SKIP_LOCKED : SQL_QUERY_SELECT_UNLOCKED, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, strRuleCode );
+            daoUtil.setBoolean( nIndex++, false );
+            daoUtil.setTimestamp( nIndex++, now );
+            daoUtil.setInt( nIndex, nLimit );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                suspiciousIdentities.add( SuspiciousIdentitySearchDAO.load( daoUtil ) );
+            }
+        }
+        return suspiciousIdentities;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int lock( final Collection<Integer> ids, final Timestamp now, final Timestamp lockEndDate, final String strAuthorType, final String strAuthorName,
+            final Plugin plugin )
+    {
+        if ( ids.isEmpty( ) )
+        {
+            return 0;
+        }
+        final String strQuery = SQL_QUERY_LOCK + String.join( ", ", Collections.nCopies( ids.size( ), "?" ) ) + " )";
+        try ( final DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setBoolean( nIndex++, true );
+            daoUtil.setTimestamp( nIndex++, lockEndDate );
+            daoUtil.setString( nIndex++, strAuthorType );
+            daoUtil.setString( nIndex++, strAuthorName );
+            daoUtil.setBoolean( nIndex++, false );
+            daoUtil.setTimestamp( nIndex++, now );
+            for ( final Integer nId : ids )
+            {
+                daoUtil.setInt( nIndex++, nId );
+            }
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     * <br/>
+     * The locks of the author are first selected <code>FOR UPDATE</code>, then released by their customer IDs, so that the released suspicious identities
+     * are known without relying on <code>UPDATE ... RETURNING</code>.
+     */
+    @Override
+    public List<String> unlock( final Collection<String> customerIds, final String strAuthorType, final String strAuthorName, final Plugin plugin )
+    {
+        final List<String> unlockedCustomerIds = new ArrayList<>( );
+        if ( customerIds.isEmpty( ) )
+        {
+            return unlockedCustomerIds;
+        }
+        final String strSelectQuery = SQL_QUERY_SELECT_LOCKED_BY + String.join( ", ", Collections.nCopies( customerIds.size( ), "?" ) ) + SQL_FOR_UPDATE;
+        try ( final DAOUtil daoUtil = new DAOUtil( strSelectQuery, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setBoolean( nIndex++, true );
+            daoUtil.setString( nIndex++, strAuthorType );
+            daoUtil.setString( nIndex++, strAuthorName );
+            for ( final String strCustomerId : customerIds )
+            {
+                daoUtil.setString( nIndex++, strCustomerId );
+            }
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                unlockedCustomerIds.add( daoUtil.getString( 1 ) );
+            }
+        }
+        if ( unlockedCustomerIds.isEmpty( ) )
+        {
+            return unlockedCustomerIds;
+        }
+
+        final String strUpdateQuery = SQL_QUERY_UNLOCK + String.join( ", ", Collections.nCopies( unlockedCustomerIds.size( ), "?" ) ) + " )";
+        try ( final DAOUtil daoUtil = new DAOUtil( strUpdateQuery, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setBoolean( nIndex++, false );
+            for ( final String strCustomerId : unlockedCustomerIds )
+            {
+                daoUtil.setString( nIndex++, strCustomerId );
+            }
+            daoUtil.executeUpdate( );
+        }
+        return unlockedCustomerIds;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class provides bulk lock management methods for SuspiciousIdentity objects
+ */
+public final class SuspiciousIdentityLockHome
+{
+    // Static variable pointed at the DAO instance
+    private static final ISuspiciousIdentityLockDAO _dao = SpringContextService.getBean( "identitystore-quality.suspiciousIdentityLockDAO" );
+    private static final Plugin _plugin = PluginService.getPlugin( "identitystore-quality" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SuspiciousIdentityLockHome( )
+    {
+    }
+
+    /**
+     * Find the oldest suspicious identities of the rule that are not locked, or whose lock has expired. Must be called within a transaction when
+     * <code>bSkipLocked</code> is set.
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule
+     * @param now
+     *            the current date, to tell expired locks
+     * @param nLimit
+     *            the maximum number of suspicious identities
+     * @param bSkipLocked
+     *            <code>true</code> to lock the rows until the end of the transaction, skipping the rows locked by other transactions
+     * @return the unlocked suspicious identities, oldest first
+     */
+    public static List<SuspiciousIdentity> findUnlocked( final String strRuleCode, final Timestamp now, final int nLimit, final boolean bSkipLocked )
+    {
+        return _dao.selectUnlocked( strRuleCode, now, nLimit, bSkipLocked, _plugin );
+    }
+
+    /**
+     * Lock the suspicious identities that are still unlocked
+     *
+     * @param ids
+     *            the identifiers of the suspicious identities
+     * @param now
+     *            the current date, to tell expired locks
+     * @param lockEndDate
+     *            the end date of the locks
+     * @param strAuthorType
+     *            the type of the author of the locks
+     * @param strAuthorName
+     *            the name of the author of the locks
+     * @return the number of locked suspicious identities
+     */
+    public static int lock( final Collection<Integer> ids, final Timestamp now, final Timestamp lockEndDate, final String strAuthorType,
+            final String strAuthorName )
+    {
+        return _dao.lock( ids, now, lockEndDate, strAuthorType, strAuthorName, _plugin );
+    }
+
+    /**
+     * Lock the suspicious identity if it is still unlocked
+     *
+     * @param nId
+     *            the identifier of the suspicious identity
+     * @param now
+     *            the current date, to tell expired locks
+     * @param lockEndDate
+     *            the end date of the lock
+     * @param strAuthorType
+     *            the type of the author of the lock
+     * @param strAuthorName
+     *            the name of the author of the lock
+     * @return <code>true</code> if the suspicious identity has been locked, <code>false</code> if it was locked meanwhile
+     */
+    public static boolean lock( final int nId, final Timestamp now, final Timestamp lockEndDate, final String strAuthorType, final String strAuthorName )
+    {
+        return _dao.lock( Collections.singletonList( nId ), now, lockEndDate, strAuthorType, strAuthorName, _plugin ) == 1;
+    }
+
+    /**
+     * Unlock the suspicious identities locked by the given author
+     *
+     * @param customerIds
+     *            the customer IDs of the suspicious identities
+     * @param strAuthorType
+     *            the type of the author of the locks
+     * @param strAuthorName
+     *            the name of the author of the locks
+     * @return the customer IDs of the unlocked suspicious identities
+     */
+    public static List<String> unlock( final Collection<String> customerIds, final String strAuthorType, final String strAuthorName )
+    {
+        return _dao.unlock( customerIds, strAuthorType, strAuthorName, _plugin );
+    }
+}
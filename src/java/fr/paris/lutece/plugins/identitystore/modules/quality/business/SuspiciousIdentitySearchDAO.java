@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityLock;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.SearchAttribute;
+import fr.paris.lutece.portal.service.database.PluginConnectionService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.DAOUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * This class provides Data Access methods to search SuspiciousIdentity objects page by page
+ */
+public final class SuspiciousIdentitySearchDAO implements ISuspiciousIdentitySearchDAO
+{
+    // Constants
+    static final String SQL_QUERY_SELECT = "SELECT a.id_suspicious_identity, a.customer_id, a.id_duplicate_rule, b.code, a.date_create, a.last_update_date, a.is_locked, a.date_lock_end, a.author_type, a.author_name, a.metadata FROM identitystore_quality_suspicious_identity a JOIN identitystore_duplicate_rule b ON a.id_duplicate_rule = b.id_rule ";
+    private static final String SQL_QUERY_COUNT = "SELECT COUNT(*) FROM identitystore_quality_suspicious_identity a JOIN identitystore_duplicate_rule b ON a.id_duplicate_rule = b.id_rule ";
+    private static final String SQL_FILTER_RULE_CODE = "b.code = ?";
+    private static final String SQL_FILTER_RULE_PRIORITY = "b.priority <= ?";
+    private static final String SQL_FILTER_ATTRIBUTE = "EXISTS ( SELECT 1 FROM identitystore_identity i JOIN identitystore_identity_attribute ia ON ia.id_identity = i.id_identity JOIN identitystore_ref_attribute ra ON ra.id_attribute = ia.id_attribute WHERE i.customer_id = a.customer_id AND ra.key_name = ? AND ia.attribute_value = ? )";
+    private static final String SQL_FILTER_AFTER_CURSOR = "( a.date_create > ? OR ( a.date_create = ? AND a.id_suspicious_identity > ? ) )";
+    private static final String SQL_FILTER_DATE_FROM = "a.date_create >= ?";
+    private static final String SQL_FILTER_DATE_TO = "a.date_create < ?";
+    private static final String SQL_WHERE = "WHERE ";
+    private static final String SQL_AND = " AND ";
+    private static final String SQL_ORDER_BY = " ORDER BY a.date_create, a.id_suspicious_identity";
+    private static final String SQL_LIMIT = " LIMIT ? OFFSET ?";
+    private static final String SQL_LIMIT_ONLY = " LIMIT ?";
+
+    private static final int EXPORT_FETCH_SIZE = AppPropertiesService.getPropertyInt( "identitystore-quality.suspicions.export.fetch.size", 500 );
+
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int count( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT + this.buildWhereClause( strRuleCode, attributes, nRulePriority, null ), plugin ) )
+        {
+            this.setFilterValues( daoUtil, strRuleCode, attributes, nRulePriority );
+            daoUtil.executeQuery( );
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<SuspiciousIdentity> select( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority, final int nOffset,
+            final int nLimit, final Plugin plugin )
+    {
+        final List<SuspiciousIdentity> suspiciousIdentities = new ArrayList<>( );
+        final String strQuery = SQL_QUERY_SELECT + this.buildWhereClause( strRuleCode, attributes, nRulePriority, null ) + SQL_ORDER_BY + SQL_LIMIT;
+        try ( final DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = this.setFilterValues( daoUtil, strRuleCode, attributes, nRulePriority );
+            daoUtil.setInt( nIndex++, nLimit );
+            daoUtil.setInt( nIndex, nOffset );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                suspiciousIdentities.add( load( daoUtil ) );
+            }
+        }
+        return suspiciousIdentities;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<SuspiciousIdentity> selectAfter( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority,
+            final SuspiciousIdentityCursor cursor, final int nLimit, final Plugin plugin )
+    {
+        final List<SuspiciousIdentity> suspiciousIdentities = new ArrayList<>( );
+        final String strQuery = SQL_QUERY_SELECT + this.buildWhereClause( strRuleCode, attributes, nRulePriority, cursor ) + SQL_ORDER_BY + SQL_LIMIT_ONLY;
+        try ( final DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = this.setFilterValues( daoUtil, strRuleCode, attributes, nRulePriority );
+            if ( cursor != null )
+            {
+                daoUtil.setTimestamp( nIndex++, cursor.getDateCreate( ) );
+                daoUtil.setTimestamp( nIndex++, cursor.getDateCreate( ) );
+                daoUtil.setInt( nIndex++, cursor.getId( ) );
+            }
+            daoUtil.setInt( nIndex, nLimit );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                suspiciousIdentities.add( load( daoUtil ) );
+            }
+        }
+        return suspiciousIdentities;
+    }
+
+    /**
+     * {@inheritDoc }
+     * <br/>
+     * The rows are read with a plain JDBC statement, as {@link DAOUtil} does not allow to set the fetch size. Auto-commit is disabled while reading so that
+     * PostgreSQL uses a server side cursor (MySQL requires <code>useCursorFetch=true</code> on the connection URL).
+     */
+    @Override
+    public void export( final String strRuleCode, final Timestamp dateFrom, final Timestamp dateTo, final Consumer<SuspiciousIdentity> consumer,
+            final Plugin plugin )
+    {
+        final List<String> filters = new ArrayList<>( );
+        if ( StringUtils.isNotEmpty( strRuleCode ) )
+        {
+            filters.add( SQL_FILTER_RULE_CODE );
+        }
+        if ( dateFrom != null )
+        {
+            filters.add( SQL_FILTER_DATE_FROM );
+        }
+        if ( dateTo != null )
+        {
+            filters.add( SQL_FILTER_DATE_TO );
+        }
+        final String strQuery = SQL_QUERY_SELECT + ( filters.isEmpty( ) ? StringUtils.EMPTY : SQL_WHERE + String.join( SQL_AND, filters ) ) + SQL_ORDER_BY;
+
+        final PluginConnectionService connectionService = plugin.getConnectionService( );
+        final Connection connection = connectionService.getConnection( );
+        try
+        {
+            final boolean bAutoCommit = connection.getAutoCommit( );
+            connection.setAutoCommit( false );
+            try ( final PreparedStatement statement = connection.prepareStatement( strQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( EXPORT_FETCH_SIZE );
+                int nIndex = 1;
+                if ( StringUtils.isNotEmpty( strRuleCode ) )
+                {
+                    statement.setString( nIndex++, strRuleCode );
+                }
+                if ( dateFrom != null )
+                {
+                    statement.setTimestamp( nIndex++, dateFrom );
+                }
+                if ( dateTo != null )
+                {
+                    statement.setTimestamp( nIndex, dateTo );
+                }
+                try ( final ResultSet resultSet = statement.executeQuery( ) )
+                {
+                    while ( resultSet.next( ) )
+                    {
+                        consumer.accept( load( resultSet ) );
+                    }
+                }
+            }
+            finally
+            {
+                /* Read only : nothing to commit */
+                connection.rollback( );
+                connection.setAutoCommit( bAutoCommit );
+            }
+        }
+        catch( final SQLException e )
+        {
+            throw new AppException( "Error while exporting suspicious identities : " + e.getMessage( ), e );
+        }
+        finally
+        {
+            connectionService.freeConnection( connection );
+        }
+    }
+
+    /**
+     * Builds the where clause of the filters. The cursor filter, if any, comes last.
+     */
+    private String buildWhereClause( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority,
+            final SuspiciousIdentityCursor cursor )
+    {
+        final List<String> filters = new ArrayList<>( );
+        if ( StringUtils.isNotEmpty( strRuleCode ) )
+        {
+            filters.add( SQL_FILTER_RULE_CODE );
+        }
+        if ( nRulePriority != null )
+        {
+            filters.add( SQL_FILTER_RULE_PRIORITY );
+        }
+        if ( attributes != null )
+        {
+            attributes.forEach( attribute -> filters.add( SQL_FILTER_ATTRIBUTE ) );
+        }
+        if ( cursor != null )
+        {
+            filters.add( SQL_FILTER_AFTER_CURSOR );
+        }
+        return filters.isEmpty( ) ? StringUtils.EMPTY : SQL_WHERE + String.join( SQL_AND, filters );
+    }
+
+    /**
+     * Sets the values of the filters built by {@link #buildWhereClause(String, List, Integer, SuspiciousIdentityCursor)}, except the cursor
+     *
+     * @return the index of the next parameter
+     */
+    private int setFilterValues( final DAOUtil daoUtil, final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority )
+    {
+        int nIndex = 1;
+        if ( StringUtils.isNotEmpty( strRuleCode ) )
+        {
+            daoUtil.setString( nIndex++, strRuleCode );
+        }
+        if ( nRulePriority != null )
+        {
+            daoUtil.setInt( nIndex++, nRulePriority );
+        }
+        if ( attributes != null )
+        {
+            for ( final SearchAttribute attribute : attributes )
+            {
+                daoUtil.setString( nIndex++, attribute.getKey( ) );
+                daoUtil.setString( nIndex++, attribute.getValue( ) );
+            }
+        }
+        return nIndex;
+    }
+
+    /**
+     * Loads a suspicious identity from the current row of a query built on {@link #SQL_QUERY_SELECT}
+     *
+     * @param daoUtil
+     *            the DAOUtil positioned on the row
+     * @return the suspicious identity
+     */
+    static SuspiciousIdentity load( final DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+        suspiciousIdentity.setId( daoUtil.getInt( nIndex++ ) );
+        suspiciousIdentity.setCustomerId( daoUtil.getString( nIndex++ ) );
+        suspiciousIdentity.setIdDuplicateRule( daoUtil.getInt( nIndex++ ) );
+        suspiciousIdentity.setDuplicateRuleCode( daoUtil.getString( nIndex++ ) );
+        suspiciousIdentity.setCreationDate( daoUtil.getTimestamp( nIndex++ ) );
+        suspiciousIdentity.setLastUpdateDate( daoUtil.getTimestamp( nIndex++ ) );
+
+        final SuspiciousIdentityLock lock = new SuspiciousIdentityLock( );
+        lock.setLocked( daoUtil.getBoolean( nIndex++ ) );
+        lock.setLockEndDate( daoUtil.getTimestamp( nIndex++ ) );
+        lock.setAuthorType( daoUtil.getString( nIndex++ ) );
+        lock.setAuthorName( daoUtil.getString( nIndex++ ) );
+        suspiciousIdentity.setLock( lock );
+
+        readMetadata( suspiciousIdentity, daoUtil.getString( nIndex ) );
+        return suspiciousIdentity;
+    }
+
+    /**
+     * Loads a suspicious identity from the current row of a result set of a query built on {@link #SQL_QUERY_SELECT}
+     *
+     * @param resultSet
+     *            the result set positioned on the row
+     * @return the suspicious identity
+     * @throws SQLException
+     *             if the row cannot be read
+     */
+    private static SuspiciousIdentity load( final ResultSet resultSet ) throws SQLException
+    {
+        int nIndex = 1;
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+        suspiciousIdentity.setId( resultSet.getInt( nIndex++ ) );
+        suspiciousIdentity.setCustomerId( resultSet.getString( nIndex++ ) );
+        suspiciousIdentity.setIdDuplicateRule( resultSet.getInt( nIndex++ ) );
+        suspiciousIdentity.setDuplicateRuleCode( resultSet.getString( nIndex++ ) );
+        suspiciousIdentity.setCreationDate( resultSet.getTimestamp( nIndex++ ) );
+        suspiciousIdentity.setLastUpdateDate( resultSet.getTimestamp( nIndex++ ) );
+
+        final SuspiciousIdentityLock lock = new SuspiciousIdentityLock( );
+        lock.setLocked( resultSet.getBoolean( nIndex++ ) );
+        lock.setLockEndDate( resultSet.getTimestamp( nIndex++ ) );
+        lock.setAuthorType( resultSet.getString( nIndex++ ) );
+        lock.setAuthorName( resultSet.getString( nIndex++ ) );
+        suspiciousIdentity.setLock( lock );
+
+        readMetadata( suspiciousIdentity, resultSet.getString( nIndex ) );
+        return suspiciousIdentity;
+    }
+
+    private static void readMetadata( final SuspiciousIdentity suspiciousIdentity, final String strMetadata )
+    {
+        if ( StringUtils.isNotEmpty( strMetadata ) )
+        {
+            try
+            {
+                final Map<String, String> metadata = _mapper.readValue( strMetadata, new TypeReference<Map<String, String>>( )
+                {
+                } );
+                suspiciousIdentity.getMetadata( ).putAll( metadata );
+            }
+            catch( final JsonProcessingException e )
+            {
+                AppLogService.error( "Unable to read the metadata of suspicious identity " + suspiciousIdentity.getCustomerId( ), e );
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.SearchAttribute;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This class provides search methods for SuspiciousIdentity objects, read page by page in the (creation date, id) order. Filtering, counting and
+ * paging are done by the database.
+ */
+public final class SuspiciousIdentitySearchHome
+{
+    // Static variable pointed at the DAO instance
+    private static final ISuspiciousIdentitySearchDAO _dao = SpringContextService.getBean( "identitystore-quality.suspiciousIdentitySearchDAO" );
+    private static final Plugin _plugin = PluginService.getPlugin( "identitystore-quality" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private SuspiciousIdentitySearchHome( )
+    {
+    }
+
+    /**
+     * Count the suspicious identities matching the filters
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param attributes
+     *            the attribute values the suspicious identities must have, can be null
+     * @param nRulePriority
+     *            the maximum priority level of the duplicate rule, can be null
+     * @return the number of matching suspicious identities
+     */
+    public static int count( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority )
+    {
+        return _dao.count( strRuleCode, attributes, nRulePriority, _plugin );
+    }
+
+    /**
+     * Load a page of the suspicious identities matching the filters, in the (creation date, id) order
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param attributes
+     *            the attribute values the suspicious identities must have, can be null
+     * @param nRulePriority
+     *            the maximum priority level of the duplicate rule, can be null
+     * @param nOffset
+     *            the number of suspicious identities to skip
+     * @param nLimit
+     *            the maximum number of suspicious identities to load
+     * @return the list of the suspicious identities of the page
+     */
+    public static List<SuspiciousIdentity> search( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority,
+            final int nOffset, final int nLimit )
+    {
+        return _dao.select( strRuleCode, attributes, nRulePriority, nOffset, nLimit, _plugin );
+    }
+
+    /**
+     * Load the suspicious identities matching the filters that come after the cursor in the (creation date, id) order
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param attributes
+     *            the attribute values the suspicious identities must have, can be null
+     * @param nRulePriority
+     *            the maximum priority level of the duplicate rule, can be null
+     * @param cursor
+     *            the position after which the suspicious identities are loaded, null to start from the first one
+     * @param nLimit
+     *            the maximum number of suspicious identities to load
+     * @return the list of the suspicious identities following the cursor
+     */
+    public static List<SuspiciousIdentity> searchAfter( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority,
+            final SuspiciousIdentityCursor cursor, final int nLimit )
+    {
+        return _dao.selectAfter( strRuleCode, attributes, nRulePriority, cursor, nLimit, _plugin );
+    }
+
+    /**
+     * Reads all the suspicious identities matching the filters, ordered by creation date, without holding them in memory.
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param dateFrom
+     *            the minimum creation date (inclusive), can be null
+     * @param dateTo
+     *            the maximum creation date (exclusive), can be null
+     * @param consumer
+     *            the consumer of the suspicious identities, called for each one as it is read
+     */
+    public static void export( final String strRuleCode, final Timestamp dateFrom, final Timestamp dateTo, final Consumer<SuspiciousIdentity> consumer )
+    {
+        _dao.export( strRuleCode, dateFrom, dateTo, consumer, _plugin );
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.rs;
+
+/**
+ * REST paths and message keys that are specific to the quality module. The shared ones are in the identitystore Constants class.
+ */
+public final class QualityRestConstants
+{
+    // Paths
+    public static final String EXPORT_PATH = "/export";
+    public static final String BULK_PATH = "/bulk";
+    public static final String CLAIM_PATH = "/claim";
+    public static final String RELEASE_PATH = "/release";
+    public static final String CACHE_METRICS_PATH = "/cache/metrics";
+    public static final String BACKEND_METRICS_PATH = "/backend/metrics";
+    public static final String RATE_LIMIT_USAGE_PATH = "/ratelimit/usage";
+    public static final String EVENTS_PATH = "/events";
+    public static final String STATS_PATH = "/stats";
+
+    // Parameters
+    public static final String PARAM_DATE_FROM = "date_from";
+    public static final String PARAM_DATE_TO = "date_to";
+    public static final String PARAM_OFFSET = "offset";
+    public static final String PARAM_LIMIT = "limit";
+    public static final String PARAM_WAIT = "wait";
+
+    // Metadata
+    public static final String METADATA_PARTIAL_RESULT = "partial_result";
+    public static final String METADATA_TIMED_OUT_RULE_CODES = "timed_out_rule_codes";
+
+    // Media types
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
+    // Message keys
+    public static final String PROPERTY_REST_ERROR_INVALID_CURSOR = "module.identitystore.quality.rest.error.invalid.cursor";
+    public static final String PROPERTY_REST_ERROR_INVALID_DATE = "module.identitystore.quality.rest.error.invalid.date";
+    public static final String PROPERTY_REST_ERROR_BULK_SIZE = "module.identitystore.quality.rest.error.bulk.size";
+    public static final String PROPERTY_REST_ERROR_DUPLICATE_RULE_NOT_FOUND = "module.identitystore.quality.rest.error.duplicate.rule.not.found";
+    public static final String PROPERTY_REST_ERROR_BULK_NO_CREATION = "module.identitystore.quality.rest.error.bulk.no.creation";
+    public static final String PROPERTY_REST_ERROR_BULK_NOTHING_DONE = "module.identitystore.quality.rest.error.bulk.nothing.done";
+    public static final String PROPERTY_REST_ERROR_INVALID_CLAIM = "module.identitystore.quality.rest.error.invalid.claim";
+    public static final String PROPERTY_REST_ERROR_BULK_NO_SEARCH = "module.identitystore.quality.rest.error.bulk.no.search";
+    public static final String PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE = "module.identitystore.quality.rest.error.search.unavailable";
+    public static final String PROPERTY_REST_ERROR_RATE_LIMITED = "module.identitystore.quality.rest.error.rate.limited";
+    public static final String PROPERTY_REST_ERROR_INVALID_EVENT_OFFSET = "module.identitystore.quality.rest.error.invalid.event.offset";
+    public static final String PROPERTY_REST_INFO_PARTIAL_DUPLICATE_SEARCH = "module.identitystore.quality.rest.info.partial.duplicate.search";
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private QualityRestConstants( )
+    {
+    }
+}
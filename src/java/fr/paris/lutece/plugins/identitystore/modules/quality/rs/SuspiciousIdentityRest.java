@@ -33,34 +33,72 @@
  */
 package fr.paris.lutece.plugins.identitystore.modules.quality.rs;
 
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateBulkSearchRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateBulkSearchResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateSearchBackendMetricsResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateSearchCacheMetricsResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.RateLimitUsageResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspicionEventFeedResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspicionStatsResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkChangeRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkChangeResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkExcludeRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkExcludeResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityClaimRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityClaimResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityCursorSearchRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityCursorSearchResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityExportResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityReleaseRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityReleaseResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.ClientRateLimiter;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchExecutor;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspicionEventFeed;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreBulkFindDuplicatesRequest;
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreDuplicateRuleGetRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreDuplicateSearchBackendMetricsRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreDuplicateSearchCacheMetricsRequest;
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreFindDuplicatesRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreRateLimitUsageRequest;
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSearchDuplicatesRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspicionEventFeedRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspicionStatsRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousBulkCreateRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousBulkExcludeRequest;
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousCancelExclusionRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousClaimRequest;
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousCreateRequest;
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousExcludeRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousExportRequest;
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousLockRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousReleaseRequest;
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousSearchRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.IRestService;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatus;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityChangeRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityExcludeRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityExcludeResponse;
-import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentitySearchRequest;
-import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentitySearchResponse;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.duplicate.DuplicateRuleSummarySearchResponse;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.lock.SuspiciousIdentityLockRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.DuplicateSearchRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.DuplicateSearchResponse;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.swagger.SwaggerConstants;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
 import fr.paris.lutece.plugins.rest.service.RestConstants;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -71,6 +109,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -83,6 +125,11 @@ public class SuspiciousIdentityRest implements IRestService
 {
     protected static final String ERROR_NO_OBJECT_FOUND = "No object found";
     protected static final String ERROR_DURING_TREATMENT = "An error occurred during the treatment.";
+    protected static final String ERROR_SEARCH_UNAVAILABLE = "Too many searches running, or the search timed out; retry after the given delay";
+    protected static final String ERROR_RATE_LIMITED = "Too many requests for this client code; retry after the given delay";
+    private static final String BEAN_DUPLICATE_SEARCH_EXECUTOR = "identitystore-quality.duplicateSearchExecutor";
+    private static final String BEAN_SUSPICION_EVENT_FEED = "identitystore-quality.suspicionEventFeed";
+    private static final int FEED_TIMEOUT_MARGIN = 5;
 
     /**
      * Get SuspiciousIdentity List
@@ -93,16 +140,17 @@ public class SuspiciousIdentityRest implements IRestService
     @Path( Constants.SUSPICIONS_PATH + Constants.SEARCH_IDENTITIES_PATH )
     @Consumes( MediaType.APPLICATION_JSON )
     @Produces( MediaType.APPLICATION_JSON )
-    @ApiOperation( value = "Get a paginated list of suspicions, according to criteria specified in the request", response = SuspiciousIdentitySearchResponse.class )
+    @ApiOperation( value = "Get a paginated list of suspicions, according to criteria specified in the request", notes = "Deep pages can be reached at constant cost by setting a cursor in the request (empty for the first page), then the next_cursor of each response.", response = SuspiciousIdentityCursorSearchResponse.class )
     @ApiResponses( value = {
             @ApiResponse( code = 200, message = "The request has succeeded." ),
             @ApiResponse( code = 400, message = "The request could not be understood by the server due to incorrect syntax. The client SHOULD NOT repeat the request without modifications." ),
             @ApiResponse( code = 401, message = "The request requires user authentication information. The client MAY repeat the request with a suitable Authorization header field." ),
             @ApiResponse( code = 403, message = "Failure" ), @ApiResponse( code = 404, message = "No resource matching the request coud be found" ),
-            @ApiResponse( code = 409, message = "Conflict" ), @ApiResponse( code = 500, message = "Conflict" )
+            @ApiResponse( code = 409, message = "Conflict" ), @ApiResponse( code = 429, message = ERROR_RATE_LIMITED ),
+            @ApiResponse( code = 500, message = "Conflict" )
     } )
     public Response searchSuspiciousIdentityList(
-            @ApiParam( name = "Request body.", value = "The suspicious identity search request", type = "SuspiciousIdentitySearchRequest" ) SuspiciousIdentitySearchRequest searchRequest,
+            @ApiParam( name = "Request body.", value = "The suspicious identity search request", type = "SuspiciousIdentityCursorSearchRequest" ) SuspiciousIdentityCursorSearchRequest searchRequest,
             @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientCode,
             @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
             @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
@@ -111,6 +159,131 @@ public class SuspiciousIdentityRest implements IRestService
     {
         final IdentityStoreSuspiciousSearchRequest request = new IdentityStoreSuspiciousSearchRequest( searchRequest, strHeaderClientCode, strHeaderAppCode,
                 authorName, authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new SuspiciousIdentityCursorSearchResponse( ) );
+        if ( rateLimited != null )
+        {
+            return rateLimited;
+        }
+        return this.buildJsonResponse( request.doRequest( ) );
+    }
+
+    /**
+     * Export the suspicions as NDJSON
+     *
+     * @return the suspicions, one JSON document per line
+     */
+    @GET
+    @Path( Constants.SUSPICIONS_PATH + QualityRestConstants.EXPORT_PATH )
+    @Produces( QualityRestConstants.MEDIA_TYPE_NDJSON )
+    @ApiOperation( value = "Export all the suspicions matching the optional rule and creation date filters, as newline delimited JSON", notes = "The suspicions are streamed from the database while the response is written, oldest first. Dates are either days (yyyy-MM-dd) or ISO-8601 instants, date_to is exclusive." )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 403, message = "Failure" ), @ApiResponse( code = 429, message = ERROR_RATE_LIMITED )
+    } )
+    public Response exportSuspiciousIdentities(
+            @ApiParam( name = Constants.PARAM_RULE_CODE, value = "the code of the rule" ) @QueryParam( Constants.PARAM_RULE_CODE ) final String ruleCode,
+            @ApiParam( name = QualityRestConstants.PARAM_DATE_FROM, value = "the minimum creation date, inclusive" ) @QueryParam( QualityRestConstants.PARAM_DATE_FROM ) final String dateFrom,
+            @ApiParam( name = QualityRestConstants.PARAM_DATE_TO, value = "the maximum creation date, exclusive" ) @QueryParam( QualityRestConstants.PARAM_DATE_TO ) final String dateTo,
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreSuspiciousExportRequest request = new IdentityStoreSuspiciousExportRequest( ruleCode, dateFrom, dateTo, strHeaderClientCode,
+                strHeaderAppCode, authorName, authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new SuspiciousIdentityExportResponse( ) );
+        if ( rateLimited != null )
+        {
+            return rateLimited;
+        }
+        final SuspiciousIdentityExportResponse response = (SuspiciousIdentityExportResponse) request.doRequest( );
+        return Response.ok( response.getOutput( ), QualityRestConstants.MEDIA_TYPE_NDJSON ).build( );
+    }
+
+    /**
+     * Read the suspicion events following an offset, waiting for them if none is available yet
+     *
+     * @return the events and the offset of the last one
+     */
+    @GET
+    @Path( Constants.SUSPICIONS_PATH + QualityRestConstants.EVENTS_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Read the suspicion events (created, removed, locked, unlocked, excluded, exclusion cancelled) following the given offset", notes = "The events are ordered by offset. Give the next_offset of the response to read the following events. With wait, the response is sent as soon as events are available, or once the wait is over with no event.", response = SuspicionEventFeedResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 403, message = "Failure" ), @ApiResponse( code = 429, message = ERROR_RATE_LIMITED )
+    } )
+    public void getSuspicionEvents(
+            @ApiParam( name = QualityRestConstants.PARAM_OFFSET, value = "the offset of the last event read, 0 to read from the oldest retained event" ) @QueryParam( QualityRestConstants.PARAM_OFFSET ) final Integer offset,
+            @ApiParam( name = QualityRestConstants.PARAM_LIMIT, value = "the maximum number of events to read" ) @QueryParam( QualityRestConstants.PARAM_LIMIT ) final Integer limit,
+            @ApiParam( name = QualityRestConstants.PARAM_WAIT, value = "the maximum number of seconds to wait for events, capped by the server" ) @QueryParam( QualityRestConstants.PARAM_WAIT ) final Integer wait,
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode,
+            @Suspended final AsyncResponse asyncResponse ) throws IdentityStoreException
+    {
+        /* Looked up at each call, this resource is instantiated while the Spring context is being built */
+        final SuspicionEventFeed feed = SpringContextService.getBean( BEAN_SUSPICION_EVENT_FEED );
+        final IdentityStoreSuspicionEventFeedRequest request = new IdentityStoreSuspicionEventFeedRequest( feed, offset, limit, strHeaderClientCode,
+                strHeaderAppCode, authorName, authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new SuspicionEventFeedResponse( ) );
+        if ( rateLimited != null )
+        {
+            asyncResponse.resume( rateLimited );
+            return;
+        }
+        /* The long-poll completes by itself at the end of the wait, the timeout only guards against a stalled or shut down feed */
+        asyncResponse.setTimeout( feed.getMaxWait( ) + FEED_TIMEOUT_MARGIN, TimeUnit.SECONDS );
+        asyncResponse.setTimeoutHandler( response -> response.resume( this.buildFeedUnavailableResponse( ) ) );
+        try
+        {
+            feed.await( offset != null ? Math.max( 0, offset ) : 0, wait != null ? wait : 0 ).whenComplete( ( result, error ) -> {
+                try
+                {
+                    asyncResponse.resume( this.buildJsonResponse( request.doRequest( ) ) );
+                }
+                catch( final Exception e )
+                {
+                    /* Mapped as for a synchronous call */
+                    asyncResponse.resume( e );
+                }
+            } );
+        }
+        catch( final RejectedExecutionException e )
+        {
+            asyncResponse.resume( this.buildFeedUnavailableResponse( ) );
+        }
+    }
+
+    /**
+     * Get the number of suspicions of each duplicate rule
+     *
+     * @return the number of suspicions by rule code, and their total
+     */
+    @GET
+    @Path( Constants.SUSPICIONS_PATH + QualityRestConstants.STATS_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Get the number of suspicions of each duplicate rule", notes = "The counts are maintained along with the suspicions, the rules without suspicion are omitted.", response = SuspicionStatsResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 403, message = "Failure" ),
+            @ApiResponse( code = 429, message = ERROR_RATE_LIMITED )
+    } )
+    public Response getSuspicionStats(
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreSuspicionStatsRequest request = new IdentityStoreSuspicionStatsRequest( strHeaderClientCode, strHeaderAppCode, authorName,
+                authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new SuspicionStatsResponse( ) );
+        if ( rateLimited != null )
+        {
+            return rateLimited;
+        }
         return this.buildJsonResponse( request.doRequest( ) );
     }
 
@@ -136,6 +309,28 @@ public class SuspiciousIdentityRest implements IRestService
         return this.buildJsonResponse( request.doRequest( ) );
     }
 
+    @POST
+    @Path( Constants.SUSPICIONS_PATH + QualityRestConstants.BULK_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Create many Suspicious Identities at once", notes = "The change requests are validated together and the accepted ones are created within a single transaction. The response holds the result of each change request, in the order of the request.", response = SuspiciousIdentityBulkChangeResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 201, message = "Success" ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 403, message = "Failure" ), @ApiResponse( code = 409, message = "Conflict" )
+    } )
+    public Response createSuspiciousIdentities(
+            @ApiParam( name = "Request body", value = "A bulk of Identity Change Requests" ) SuspiciousIdentityBulkChangeRequest bulkChangeRequest,
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreSuspiciousBulkCreateRequest request = new IdentityStoreSuspiciousBulkCreateRequest( bulkChangeRequest, strHeaderClientCode,
+                strHeaderAppCode, authorName, authorType );
+        return this.buildJsonResponse( request.doRequest( ) );
+    }
+
     @PUT
     @Path( Constants.EXCLUSION_PATH )
     @Consumes( MediaType.APPLICATION_JSON )
@@ -176,6 +371,50 @@ public class SuspiciousIdentityRest implements IRestService
         return this.buildJsonResponse( request.doRequest( ) );
     }
 
+    @PUT
+    @Path( Constants.EXCLUSION_PATH + QualityRestConstants.BULK_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Exclude many pairs of identities", notes = "Exclude many pairs of identities from duplicate suspicions within a single transaction. The response holds the result of each pair, in the order of the request.", response = SuspiciousIdentityBulkExcludeResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 201, message = "Success" ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 403, message = "Failure" )
+    } )
+    public Response excludeSuspiciousIdentities(
+            @ApiParam( name = "Request body", value = "A bulk of Identity exclusion requests" ) SuspiciousIdentityBulkExcludeRequest bulkExcludeRequest,
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreSuspiciousBulkExcludeRequest request = new IdentityStoreSuspiciousBulkExcludeRequest( bulkExcludeRequest, false,
+                strHeaderClientCode, strHeaderAppCode, authorName, authorType );
+        return this.buildJsonResponse( request.doRequest( ) );
+    }
+
+    @POST
+    @Path( Constants.CANCEL_IDENTITIES_EXCLUSION_PATH + QualityRestConstants.BULK_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Cancel the exclusion of many pairs of identities", notes = "Cancel the exclusion of many pairs of identities from duplicate suspicions within a single transaction. The response holds the result of each pair, in the order of the request.", response = SuspiciousIdentityBulkExcludeResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 201, message = "Success" ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 403, message = "Failure" )
+    } )
+    public Response cancelSuspiciousIdentityExclusions(
+            @ApiParam( name = "Request body", value = "A bulk of Identity exclusion cancel requests" ) SuspiciousIdentityBulkExcludeRequest bulkExcludeRequest,
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreSuspiciousBulkExcludeRequest request = new IdentityStoreSuspiciousBulkExcludeRequest( bulkExcludeRequest, true,
+                strHeaderClientCode, strHeaderAppCode, authorName, authorType );
+        return this.buildJsonResponse( request.doRequest( ) );
+    }
+
     /**
      * Get SuspiciousIdentity List
      *
@@ -186,19 +425,27 @@ public class SuspiciousIdentityRest implements IRestService
     @Produces( MediaType.APPLICATION_JSON )
     @ApiOperation( value = "Get full list of duplicate rules", response = DuplicateRuleSummarySearchResponse.class )
     @ApiResponses( value = {
-            @ApiResponse( code = 200, message = "Rules Found" ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 200, message = "Rules Found" ), @ApiResponse( code = 304, message = "Rules not modified since the given entity tag" ),
+            @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
             @ApiResponse( code = 403, message = "Failure" ), @ApiResponse( code = 404, message = ERROR_NO_OBJECT_FOUND )
     } )
     public Response getDuplicateRules( @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
             @QueryParam( Constants.PARAM_CLIENT_CODE ) final String strQueryClientCode, @QueryParam( Constants.PARAM_RULE_PRIORITY ) final Integer priority,
+            @ApiParam( name = HttpHeaders.IF_NONE_MATCH, value = "the entity tag of the rules already known by the client" ) @HeaderParam( HttpHeaders.IF_NONE_MATCH ) final String strIfNoneMatch,
             @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
             @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
             @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
             throws IdentityStoreException
     {
-        final IdentityStoreDuplicateRuleGetRequest request = new IdentityStoreDuplicateRuleGetRequest( priority, strHeaderClientCode, strHeaderAppCode,
-                authorName, authorType );
-        return this.buildJsonResponse( request.doRequest( ) );
+        final IdentityStoreDuplicateRuleGetRequest request = new IdentityStoreDuplicateRuleGetRequest( priority, strIfNoneMatch, strHeaderClientCode,
+                strHeaderAppCode, authorName, authorType );
+        final DuplicateRuleSummarySearchResponse response = (DuplicateRuleSummarySearchResponse) request.doRequest( );
+        final EntityTag eTag = new EntityTag( request.getETag( ) );
+        if ( request.isNotModified( ) )
+        {
+            return Response.notModified( eTag ).build( );
+        }
+        return Response.fromResponse( this.buildJsonResponse( response ) ).tag( eTag ).build( );
     }
 
     /**
@@ -211,16 +458,117 @@ public class SuspiciousIdentityRest implements IRestService
     @Consumes( MediaType.APPLICATION_JSON )
     @Produces( MediaType.APPLICATION_JSON )
     @ApiOperation( value = "Get list of identities that are duplicates of the provided customer_id's identity, according to the provided rule ID.", response = DuplicateSearchResponse.class )
-    public Response findDuplicates( @ApiParam( name = "customer_id", value = "the id of the customer" ) @PathParam( "customer_id" ) final String customer_id,
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 404, message = ERROR_NO_OBJECT_FOUND ), @ApiResponse( code = 429, message = ERROR_RATE_LIMITED ),
+            @ApiResponse( code = 503, message = ERROR_SEARCH_UNAVAILABLE )
+    } )
+    public void findDuplicates( @ApiParam( name = "customer_id", value = "the id of the customer" ) @PathParam( "customer_id" ) final String customer_id,
             @ApiParam( name = Constants.PARAM_RULE_CODE, value = "the code of the rule" ) @QueryParam( Constants.PARAM_RULE_CODE ) final String ruleCode,
             @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
             @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
             @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
-            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
-            throws IdentityStoreException
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode,
+            @Suspended final AsyncResponse asyncResponse ) throws IdentityStoreException
     {
         final IdentityStoreFindDuplicatesRequest request = new IdentityStoreFindDuplicatesRequest( strHeaderClientCode, strHeaderAppCode, ruleCode, customer_id,
                 authorName, authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new DuplicateSearchResponse( ) );
+        if ( rateLimited != null )
+        {
+            asyncResponse.resume( rateLimited );
+            return;
+        }
+        this.resumeWithSearch( asyncResponse, ( ) -> this.buildJsonResponse( request.doRequest( ) ) );
+    }
+
+    /**
+     * Get the metrics of the duplicate search cache
+     *
+     * @return the metrics of the cache of the node serving the request
+     */
+    @GET
+    @Path( Constants.DUPLICATE_PATH + QualityRestConstants.CACHE_METRICS_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Get the hit, miss, eviction and invalidation counters of the duplicate search cache of this node", response = DuplicateSearchCacheMetricsResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 403, message = "Failure" ),
+            @ApiResponse( code = 429, message = ERROR_RATE_LIMITED )
+    } )
+    public Response getDuplicateSearchCacheMetrics(
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreDuplicateSearchCacheMetricsRequest request = new IdentityStoreDuplicateSearchCacheMetricsRequest( strHeaderClientCode,
+                strHeaderAppCode, authorName, authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new DuplicateSearchCacheMetricsResponse( ) );
+        if ( rateLimited != null )
+        {
+            return rateLimited;
+        }
+        return this.buildJsonResponse( request.doRequest( ) );
+    }
+
+    /**
+     * Get the circuit breaker and hedging metrics of the duplicate searches
+     *
+     * @return the metrics of the node serving the request
+     */
+    @GET
+    @Path( Constants.DUPLICATE_PATH + QualityRestConstants.BACKEND_METRICS_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Get the circuit breaker state and the hedged search counters of the duplicate searches of this node", response = DuplicateSearchBackendMetricsResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 403, message = "Failure" ),
+            @ApiResponse( code = 429, message = ERROR_RATE_LIMITED )
+    } )
+    public Response getDuplicateSearchBackendMetrics(
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreDuplicateSearchBackendMetricsRequest request = new IdentityStoreDuplicateSearchBackendMetricsRequest( strHeaderClientCode,
+                strHeaderAppCode, authorName, authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new DuplicateSearchBackendMetricsResponse( ) );
+        if ( rateLimited != null )
+        {
+            return rateLimited;
+        }
+        return this.buildJsonResponse( request.doRequest( ) );
+    }
+
+    /**
+     * Get the rate limit usage of each client code
+     *
+     * @return the usage of the node serving the request
+     */
+    @GET
+    @Path( QualityRestConstants.RATE_LIMIT_USAGE_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Get the accepted and rejected request counters and the available tokens of each client code on this node", response = RateLimitUsageResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 403, message = "Failure" ),
+            @ApiResponse( code = 429, message = ERROR_RATE_LIMITED )
+    } )
+    public Response getRateLimitUsage(
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreRateLimitUsageRequest request = new IdentityStoreRateLimitUsageRequest( strHeaderClientCode, strHeaderAppCode, authorName,
+                authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new RateLimitUsageResponse( ) );
+        if ( rateLimited != null )
+        {
+            return rateLimited;
+        }
         return this.buildJsonResponse( request.doRequest( ) );
     }
 
@@ -234,16 +582,147 @@ public class SuspiciousIdentityRest implements IRestService
     @Consumes( MediaType.APPLICATION_JSON )
     @Produces( MediaType.APPLICATION_JSON )
     @ApiOperation( value = "Get list of identities that are duplicates of the provided customer_id's identity, according to the provided rule ID.", response = DuplicateSearchResponse.class )
-    public Response searchDuplicates( final DuplicateSearchRequest duplicateSearchRequest,
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 404, message = ERROR_NO_OBJECT_FOUND ), @ApiResponse( code = 429, message = ERROR_RATE_LIMITED ),
+            @ApiResponse( code = 503, message = ERROR_SEARCH_UNAVAILABLE )
+    } )
+    public void searchDuplicates( final DuplicateSearchRequest duplicateSearchRequest,
             @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
             @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
             @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
-            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
-            throws IdentityStoreException
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode,
+            @Suspended final AsyncResponse asyncResponse ) throws IdentityStoreException
     {
         final IdentityStoreSearchDuplicatesRequest request = new IdentityStoreSearchDuplicatesRequest( strHeaderClientCode, strHeaderAppCode,
                 duplicateSearchRequest, authorName, authorType );
-        return this.buildJsonResponse( request.doRequest( ) );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, 1, new DuplicateSearchResponse( ) );
+        if ( rateLimited != null )
+        {
+            asyncResponse.resume( rateLimited );
+            return;
+        }
+        this.resumeWithSearch( asyncResponse, ( ) -> this.buildJsonResponse( request.doRequest( ) ) );
+    }
+
+    /**
+     * Get the duplicates of many identities
+     *
+     * @return the duplicates of each identity, by customer ID
+     */
+    @POST
+    @Path( Constants.DUPLICATE_PATH + QualityRestConstants.BULK_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Get the duplicates of each of the provided customer_ids' identities, according to the provided rule code.", notes = "The identities are searched in parallel, each customer ID gets its own result and status.", response = DuplicateBulkSearchResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "The request has succeeded." ), @ApiResponse( code = 206, message = "Some identities could not be searched" ),
+            @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 404, message = ERROR_NO_OBJECT_FOUND ), @ApiResponse( code = 429, message = ERROR_RATE_LIMITED ),
+            @ApiResponse( code = 503, message = ERROR_SEARCH_UNAVAILABLE )
+    } )
+    public void findDuplicatesInBulk( @ApiParam( name = "Request body", value = "The customer IDs and the rule code" ) final DuplicateBulkSearchRequest bulkSearchRequest,
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode,
+            @Suspended final AsyncResponse asyncResponse ) throws IdentityStoreException
+    {
+        /* Each customer ID is a search of its own */
+        final int nCost = bulkSearchRequest != null && bulkSearchRequest.getCustomerIds( ) != null ? bulkSearchRequest.getCustomerIds( ).size( ) : 1;
+        final IdentityStoreBulkFindDuplicatesRequest request = new IdentityStoreBulkFindDuplicatesRequest( bulkSearchRequest, strHeaderClientCode,
+                strHeaderAppCode, authorName, authorType );
+        final Response rateLimited = this.checkRateLimit( strHeaderClientCode, nCost, new DuplicateBulkSearchResponse( ) );
+        if ( rateLimited != null )
+        {
+            asyncResponse.resume( rateLimited );
+            return;
+        }
+        this.resumeWithSearch( asyncResponse, ( ) -> this.buildJsonResponse( request.doRequest( ) ) );
+    }
+
+    /**
+     * Runs the search on the {@link DuplicateSearchExecutor} and resumes the suspended response with its result, so that the container thread is released
+     * during the search. The response is resumed with a 503 if the executor is saturated or if the search times out.
+     *
+     * @param asyncResponse
+     *            the suspended response
+     * @param search
+     *            the search, giving the response to send
+     */
+    private void resumeWithSearch( final AsyncResponse asyncResponse, final Callable<Response> search )
+    {
+        /* Looked up at each call, this resource is instantiated while the Spring context is being built */
+        final DuplicateSearchExecutor executor = SpringContextService.getBean( BEAN_DUPLICATE_SEARCH_EXECUTOR );
+        asyncResponse.setTimeout( executor.getTimeout( ), TimeUnit.SECONDS );
+        asyncResponse.setTimeoutHandler(
+                response -> response.resume( this.buildUnavailableResponse( "The duplicate search timed out.", executor.getRetryAfter( ) ) ) );
+        try
+        {
+            executor.execute( ( ) -> {
+                try
+                {
+                    asyncResponse.resume( search.call( ) );
+                }
+                catch( final Exception e )
+                {
+                    /* Mapped as for a synchronous call */
+                    asyncResponse.resume( e );
+                }
+            } );
+        }
+        catch( final RejectedExecutionException e )
+        {
+            asyncResponse.resume( this.buildUnavailableResponse( "Too many duplicate searches are running.", executor.getRetryAfter( ) ) );
+        }
+    }
+
+    private Response buildUnavailableResponse( final String strMessage, final int nRetryAfter )
+    {
+        final ResponseStatus status = ResponseStatusFactory.internalServerError( ).setMessage( strMessage )
+                .setMessageKey( QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE );
+        status.setHttpCode( Response.Status.SERVICE_UNAVAILABLE.getStatusCode( ) );
+        return this.buildRetryLaterResponse( new DuplicateSearchResponse( ), status, nRetryAfter );
+    }
+
+    private Response buildFeedUnavailableResponse( )
+    {
+        final ResponseStatus status = ResponseStatusFactory.internalServerError( ).setMessage( "The suspicion event feed is unavailable." )
+                .setMessageKey( Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        status.setHttpCode( Response.Status.SERVICE_UNAVAILABLE.getStatusCode( ) );
+        return this.buildRetryLaterResponse( new SuspicionEventFeedResponse( ), status, FEED_TIMEOUT_MARGIN );
+    }
+
+    /**
+     * Takes the cost of the request from the rate limit of the client code. It is called once the request is built, so that its headers are validated
+     * first.
+     *
+     * @param strHeaderClientCode
+     *            the client code
+     * @param nCost
+     *            the number of searches run by the request
+     * @param entity
+     *            the empty response of the endpoint, sent with the rejection status
+     * @return <code>null</code> if the request is accepted, otherwise the 429 response to send
+     */
+    private Response checkRateLimit( final String strHeaderClientCode, final int nCost, final ResponseDto entity )
+    {
+        final long lRetryAfter = ClientRateLimiter.instance( ).tryAcquire( strHeaderClientCode, nCost );
+        if ( lRetryAfter == 0 )
+        {
+            return null;
+        }
+        final ResponseStatus status = ResponseStatusFactory.badRequest( ).setMessage( "Too many requests for this client code." )
+                .setMessageKey( QualityRestConstants.PROPERTY_REST_ERROR_RATE_LIMITED );
+        status.setHttpCode( Response.Status.TOO_MANY_REQUESTS.getStatusCode( ) );
+        return this.buildRetryLaterResponse( entity, status, lRetryAfter );
+    }
+
+    private Response buildRetryLaterResponse( final ResponseDto entity, final ResponseStatus status, final long lRetryAfter )
+    {
+        entity.setStatus( status );
+        return Response.status( status.getHttpCode( ) ).header( HttpHeaders.RETRY_AFTER, lRetryAfter ).type( MediaType.APPLICATION_JSON_TYPE ).entity( entity )
+                .build( );
     }
 
     @POST
@@ -266,4 +745,46 @@ public class SuspiciousIdentityRest implements IRestService
         return this.buildJsonResponse( request.doRequest( ) );
     }
 
+    @POST
+    @Path( Constants.LOCK_PATH + QualityRestConstants.CLAIM_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Lock the next unlocked Suspicious Identities of a rule", notes = "The oldest unlocked suspicions of the rule are locked for the author in one go. Concurrent callers are never given the same suspicions; less suspicions than requested may be returned.", response = SuspiciousIdentityClaimResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "Success" ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 403, message = "Failure" ), @ApiResponse( code = 404, message = ERROR_NO_OBJECT_FOUND )
+    } )
+    public Response claim( @ApiParam( name = "Request body", value = "A claim request" ) final SuspiciousIdentityClaimRequest claimRequest,
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreSuspiciousClaimRequest request = new IdentityStoreSuspiciousClaimRequest( claimRequest, strHeaderClientCode, strHeaderAppCode,
+                authorName, authorType );
+        return this.buildJsonResponse( request.doRequest( ) );
+    }
+
+    @POST
+    @Path( Constants.LOCK_PATH + QualityRestConstants.RELEASE_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Unlock many Suspicious Identities", notes = "Only the suspicions locked by the author are unlocked, the others are ignored.", response = SuspiciousIdentityReleaseResponse.class )
+    @ApiResponses( value = {
+            @ApiResponse( code = 201, message = "Success" ), @ApiResponse( code = 400, message = ERROR_DURING_TREATMENT + " with explanation message" ),
+            @ApiResponse( code = 403, message = "Failure" )
+    } )
+    public Response release( @ApiParam( name = "Request body", value = "A release request" ) final SuspiciousIdentityReleaseRequest releaseRequest,
+            @ApiParam( name = Constants.PARAM_CLIENT_CODE, value = SwaggerConstants.PARAM_CLIENT_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_CLIENT_CODE ) final String strHeaderClientCode,
+            @ApiParam( name = Constants.PARAM_AUTHOR_NAME, value = SwaggerConstants.PARAM_AUTHOR_NAME_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_NAME ) String authorName,
+            @ApiParam( name = Constants.PARAM_AUTHOR_TYPE, value = SwaggerConstants.PARAM_AUTHOR_TYPE_DESCRIPTION ) @HeaderParam( Constants.PARAM_AUTHOR_TYPE ) String authorType,
+            @ApiParam( name = Constants.PARAM_APPLICATION_CODE, value = SwaggerConstants.PARAM_APPLICATION_CODE_DESCRIPTION ) @HeaderParam( Constants.PARAM_APPLICATION_CODE ) @DefaultValue( "" ) String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        final IdentityStoreSuspiciousReleaseRequest request = new IdentityStoreSuspiciousReleaseRequest( releaseRequest, strHeaderClientCode, strHeaderAppCode,
+                authorName, authorType );
+        return this.buildJsonResponse( request.doRequest( ) );
+    }
+
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseDto;
+
+/**
+ * Response holding the state of the circuit breaker and the hedging counters of the duplicate searches of the node that served the request.
+ */
+public class DuplicateSearchBackendMetricsResponse extends ResponseDto
+{
+    @JsonProperty( "breaker_enabled" )
+    private boolean breakerEnabled;
+
+    @JsonProperty( "breaker_state" )
+    private String breakerState;
+
+    @JsonProperty( "breaker_openings" )
+    private long breakerOpenings;
+
+    @JsonProperty( "breaker_rejections" )
+    private long breakerRejections;
+
+    @JsonProperty( "hedging_enabled" )
+    private boolean hedgingEnabled;
+
+    @JsonProperty( "hedge_delay" )
+    private long hedgeDelay;
+
+    @JsonProperty( "searches" )
+    private long searches;
+
+    @JsonProperty( "hedged" )
+    private long hedged;
+
+    @JsonProperty( "hedge_wins" )
+    private long hedgeWins;
+
+    @JsonProperty( "hedge_rate" )
+    private double hedgeRate;
+
+    public boolean isBreakerEnabled( )
+    {
+        return breakerEnabled;
+    }
+
+    public void setBreakerEnabled( final boolean breakerEnabled )
+    {
+        this.breakerEnabled = breakerEnabled;
+    }
+
+    public String getBreakerState( )
+    {
+        return breakerState;
+    }
+
+    public void setBreakerState( final String breakerState )
+    {
+        this.breakerState = breakerState;
+    }
+
+    public long getBreakerOpenings( )
+    {
+        return breakerOpenings;
+    }
+
+    public void setBreakerOpenings( final long breakerOpenings )
+    {
+        this.breakerOpenings = breakerOpenings;
+    }
+
+    public long getBreakerRejections( )
+    {
+        return breakerRejections;
+    }
+
+    public void setBreakerRejections( final long breakerRejections )
+    {
+        this.breakerRejections = breakerRejections;
+    }
+
+    public boolean isHedgingEnabled( )
+    {
+        return hedgingEnabled;
+    }
+
+    public void setHedgingEnabled( final boolean hedgingEnabled )
+    {
+        this.hedgingEnabled = hedgingEnabled;
+    }
+
+    public long getHedgeDelay( )
+    {
+        return hedgeDelay;
+    }
+
+    public void setHedgeDelay( final long hedgeDelay )
+    {
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    public long getSearches( )
+    {
+        return searches;
+    }
+
+    public void setSearches( final long searches )
+    {
+        this.searches = searches;
+    }
+
+    public long getHedged( )
+    {
+        return hedged;
+    }
+
+    public void setHedged( final long hedged )
+    {
+        this.hedged = hedged;
+    }
+
+    public long getHedgeWins( )
+    {
+        return hedgeWins;
+    }
+
+    public void setHedgeWins( final long hedgeWins )
+    {
+        this.hedgeWins = hedgeWins;
+    }
+
+    public double getHedgeRate( )
+    {
+        return hedgeRate;
+    }
+
+    public void setHedgeRate( final double hedgeRate )
+    {
+        this.hedgeRate = hedgeRate;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseDto;
+
+/**
+ * Response holding the metrics of the duplicate search cache of the node that served the request.
+ */
+public class DuplicateSearchCacheMetricsResponse extends ResponseDto
+{
+    @JsonProperty( "enabled" )
+    private boolean enabled;
+
+    @JsonProperty( "hits" )
+    private long hits;
+
+    @JsonProperty( "misses" )
+    private long misses;
+
+    @JsonProperty( "evictions" )
+    private long evictions;
+
+    @JsonProperty( "invalidations" )
+    private long invalidations;
+
+    @JsonProperty( "size" )
+    private int size;
+
+    @JsonProperty( "max_size" )
+    private int maxSize;
+
+    public boolean isEnabled( )
+    {
+        return enabled;
+    }
+
+    public void setEnabled( final boolean enabled )
+    {
+        this.enabled = enabled;
+    }
+
+    public long getHits( )
+    {
+        return hits;
+    }
+
+    public void setHits( final long hits )
+    {
+        this.hits = hits;
+    }
+
+    public long getMisses( )
+    {
+        return misses;
+    }
+
+    public void setMisses( final long misses )
+    {
+        this.misses = misses;
+    }
+
+    public long getEvictions( )
+    {
+        return evictions;
+    }
+
+    public void setEvictions( final long evictions )
+    {
+        this.evictions = evictions;
+    }
+
+    public long getInvalidations( )
+    {
+        return invalidations;
+    }
+
+    public void setInvalidations( final long invalidations )
+    {
+        this.invalidations = invalidations;
+    }
+
+    public int getSize( )
+    {
+        return size;
+    }
+
+    public void setSize( final int size )
+    {
+        this.size = size;
+    }
+
+    public int getMaxSize( )
+    {
+        return maxSize;
+    }
+
+    public void setMaxSize( final int maxSize )
+    {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.sql.Timestamp;
+
+/**
+ * One event of the suspicion event feed.
+ */
+public class SuspicionEventDto
+{
+    @JsonProperty( "offset" )
+    private int offset;
+
+    @JsonProperty( "event_type" )
+    private String eventType;
+
+    @JsonProperty( "customer_id" )
+    private String customerId;
+
+    @JsonProperty( "duplication_rule_code" )
+    @JsonInclude( JsonInclude.Include.NON_NULL )
+    private String ruleCode;
+
+    @JsonProperty( "related_customer_id" )
+    @JsonInclude( JsonInclude.Include.NON_NULL )
+    private String relatedCustomerId;
+
+    @JsonProperty( "author_type" )
+    private String authorType;
+
+    @JsonProperty( "author_name" )
+    private String authorName;
+
+    @JsonProperty( "date" )
+    private Timestamp date;
+
+    public int getOffset( )
+    {
+        return offset;
+    }
+
+    public void setOffset( final int offset )
+    {
+        this.offset = offset;
+    }
+
+    public String getEventType( )
+    {
+        return eventType;
+    }
+
+    public void setEventType( final String eventType )
+    {
+        this.eventType = eventType;
+    }
+
+    public String getCustomerId( )
+    {
+        return customerId;
+    }
+
+    public void setCustomerId( final String customerId )
+    {
+        this.customerId = customerId;
+    }
+
+    public String getRuleCode( )
+    {
+        return ruleCode;
+    }
+
+    public void setRuleCode( final String ruleCode )
+    {
+        this.ruleCode = ruleCode;
+    }
+
+    public String getRelatedCustomerId( )
+    {
+        return relatedCustomerId;
+    }
+
+    public void setRelatedCustomerId( final String relatedCustomerId )
+    {
+        this.relatedCustomerId = relatedCustomerId;
+    }
+
+    public String getAuthorType( )
+    {
+        return authorType;
+    }
+
+    public void setAuthorType( final String authorType )
+    {
+        this.authorType = authorType;
+    }
+
+    public String getAuthorName( )
+    {
+        return authorName;
+    }
+
+    public void setAuthorName( final String authorName )
+    {
+        this.authorName = authorName;
+    }
+
+    public Timestamp getDate( )
+    {
+        return date;
+    }
+
+    public void setDate( final Timestamp date )
+    {
+        this.date = date;
+    }
+}
@@ -31,35 +31,29 @@
  *
  * License 1.0
  */
-package fr.paris.lutece.plugins.identitystore.modules.quality.web.validator;
+package fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto;
 
-import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityChangeRequest;
-import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
-import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
 
-public class CreateSuspiciousIdentityValidator
-{
-    private static CreateSuspiciousIdentityValidator instance;
+import java.util.ArrayList;
+import java.util.List;
 
-    public static CreateSuspiciousIdentityValidator instance( )
-    {
-        if ( instance == null )
-        {
-            instance = new CreateSuspiciousIdentityValidator( );
-        }
-        return instance;
-    }
+/**
+ * Bulk suspicious identity creation request, holding many suspicious identity change requests.
+ */
+public class SuspiciousIdentityBulkChangeRequest
+{
+    @JsonProperty( "suspicious_identity_change_requests" )
+    private List<SuspiciousIdentityChangeRequest> suspiciousIdentityChangeRequests = new ArrayList<>( );
 
-    private CreateSuspiciousIdentityValidator( )
+    public List<SuspiciousIdentityChangeRequest> getSuspiciousIdentityChangeRequests( )
     {
+        return suspiciousIdentityChangeRequests;
     }
 
-    public void checkIfNotAlreadyReported( final SuspiciousIdentityChangeRequest request ) throws ResourceConsistencyException
+    public void setSuspiciousIdentityChangeRequests( final List<SuspiciousIdentityChangeRequest> suspiciousIdentityChangeRequests )
     {
-        if ( SuspiciousIdentityHome.selectByCustomerID( request.getSuspiciousIdentity( ).getCustomerId( ) ) != null )
-        {
-            throw new ResourceConsistencyException( "Identity already reported", Constants.PROPERTY_REST_ERROR_IDENTITY_ALREADY_SUSPICIOUS );
-        }
+        this.suspiciousIdentityChangeRequests = suspiciousIdentityChangeRequests;
     }
 }
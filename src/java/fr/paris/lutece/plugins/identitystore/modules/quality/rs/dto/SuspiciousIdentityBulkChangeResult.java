@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatus;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityDto;
+
+/**
+ * Result of one of the suspicious identity change requests of a bulk creation request.
+ */
+public class SuspiciousIdentityBulkChangeResult
+{
+    @JsonProperty( "index" )
+    private int index;
+
+    @JsonProperty( "customer_id" )
+    private String customerId;
+
+    @JsonProperty( "status" )
+    private ResponseStatus status;
+
+    @JsonProperty( "suspicious_identity" )
+    @JsonInclude( JsonInclude.Include.NON_NULL )
+    private SuspiciousIdentityDto suspiciousIdentity;
+
+    /**
+     * @return the position of the change request in the bulk request
+     */
+    public int getIndex( )
+    {
+        return index;
+    }
+
+    public void setIndex( final int index )
+    {
+        this.index = index;
+    }
+
+    public String getCustomerId( )
+    {
+        return customerId;
+    }
+
+    public void setCustomerId( final String customerId )
+    {
+        this.customerId = customerId;
+    }
+
+    public ResponseStatus getStatus( )
+    {
+        return status;
+    }
+
+    public void setStatus( final ResponseStatus status )
+    {
+        this.status = status;
+    }
+
+    /**
+     * @return the created suspicious identity, null if the creation failed
+     */
+    public SuspiciousIdentityDto getSuspiciousIdentity( )
+    {
+        return suspiciousIdentity;
+    }
+
+    public void setSuspiciousIdentity( final SuspiciousIdentityDto suspiciousIdentity )
+    {
+        this.suspiciousIdentity = suspiciousIdentity;
+    }
+}
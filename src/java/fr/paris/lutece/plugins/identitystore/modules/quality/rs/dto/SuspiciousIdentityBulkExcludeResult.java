@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatus;
+
+/**
+ * Result of one of the pairs of a bulk exclusion (or exclusion cancellation) request.
+ */
+public class SuspiciousIdentityBulkExcludeResult
+{
+    @JsonProperty( "index" )
+    private int index;
+
+    @JsonProperty( "identity_cuid_1" )
+    private String identityCuid1;
+
+    @JsonProperty( "identity_cuid_2" )
+    private String identityCuid2;
+
+    @JsonProperty( "status" )
+    private ResponseStatus status;
+
+    /**
+     * @return the position of the pair in the bulk request
+     */
+    public int getIndex( )
+    {
+        return index;
+    }
+
+    public void setIndex( final int index )
+    {
+        this.index = index;
+    }
+
+    public String getIdentityCuid1( )
+    {
+        return identityCuid1;
+    }
+
+    public void setIdentityCuid1( final String identityCuid1 )
+    {
+        this.identityCuid1 = identityCuid1;
+    }
+
+    public String getIdentityCuid2( )
+    {
+        return identityCuid2;
+    }
+
+    public void setIdentityCuid2( final String identityCuid2 )
+    {
+        this.identityCuid2 = identityCuid2;
+    }
+
+    public ResponseStatus getStatus( )
+    {
+        return status;
+    }
+
+    public void setStatus( final ResponseStatus status )
+    {
+        this.status = status;
+    }
+}
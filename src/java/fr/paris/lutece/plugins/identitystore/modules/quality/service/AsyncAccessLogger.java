@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.api.user.User;
+import fr.paris.lutece.portal.service.security.AccessLogService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes access log events on a background thread, so that the request threads do not wait for the access log appenders.<br/>
+ * No event is ever dropped : when the queue is full, or once the logger is shut down, the events are written on the calling thread. On shutdown (when the
+ * Spring context is closed), the pending events are flushed before the logger stops.
+ */
+public class AsyncAccessLogger
+{
+    private static final String PROPERTY_QUEUE_SIZE = "identitystore-quality.accesslog.async.queue.size";
+    private static final String PROPERTY_SHUTDOWN_TIMEOUT = "identitystore-quality.accesslog.async.shutdown.timeout";
+    private static final String THREAD_NAME = "identitystore-quality-access-log";
+
+    private final ThreadPoolExecutor _writer;
+
+    /**
+     * Constructor
+     */
+    public AsyncAccessLogger( )
+    {
+        this( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, 10000 ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param nQueueSize
+     *            the maximum number of pending events
+     */
+    AsyncAccessLogger( final int nQueueSize )
+    {
+        _writer = new ThreadPoolExecutor( 1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( Math.max( 1, nQueueSize ) ), runnable -> {
+            final Thread thread = new Thread( runnable, THREAD_NAME );
+            thread.setDaemon( true );
+            return thread;
+        }, ( runnable, executor ) -> runnable.run( ) );
+    }
+
+    /**
+     * Records an access log event of level info
+     *
+     * @param strEventType
+     *            the event type
+     * @param strAppEventCode
+     *            the event code
+     * @param connectedUser
+     *            the user, resolved on the calling thread
+     * @param data
+     *            the data of the event, must not be modified afterwards
+     * @param strSpecificOrigin
+     *            the origin of the event
+     */
+    public void info( final String strEventType, final String strAppEventCode, final User connectedUser, final Object data, final String strSpecificOrigin )
+    {
+        this.write( ( ) -> AccessLogService.getInstance( ).info( strEventType, strAppEventCode, connectedUser, data, strSpecificOrigin ) );
+    }
+
+    /**
+     * Writes an event on the background thread, or on the calling thread when the queue is full or the logger is shut down
+     *
+     * @param event
+     *            the writing of the event
+     */
+    void write( final Runnable event )
+    {
+        _writer.execute( event );
+    }
+
+    /**
+     * Stops the background thread once the pending events are written. The events that could not be written before the timeout are written on the calling
+     * thread.
+     */
+    public void shutdown( )
+    {
+        _writer.shutdown( );
+        try
+        {
+            if ( !_writer.awaitTermination( AppPropertiesService.getPropertyInt( PROPERTY_SHUTDOWN_TIMEOUT, 30 ), TimeUnit.SECONDS ) )
+            {
+                final List<Runnable> pendingEvents = _writer.shutdownNow( );
+                AppLogService.info( "Writing the " + pendingEvents.size( ) + " pending access log events on shutdown" );
+                pendingEvents.forEach( Runnable::run );
+            }
+        }
+        catch( final InterruptedException e )
+        {
+            _writer.shutdownNow( ).forEach( Runnable::run );
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
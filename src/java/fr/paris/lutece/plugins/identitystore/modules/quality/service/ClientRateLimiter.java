@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.service.contract.ServiceContractService;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Token bucket rate limiter of the Elasticsearch backed endpoints, by client code.<br/>
+ * Each client gets a bucket of <code>capacity</code> tokens, refilled at <code>refill.per.second</code> tokens per second. The defaults can be overridden
+ * for a client with the <code>identitystore-quality.ratelimit.client.&lt;client code&gt;.</code> prefix. The buckets and the usage counters are lock-free.<br/>
+ * Only the client codes having an active service contract get a bucket of their own, up to <code>max.clients</code> buckets : the other requests share a
+ * single bucket, so that a client code cannot be drained by requests sent under other names, and unknown client codes do not fill the memory. The client
+ * codes found without an active service contract are remembered for <code>denied.ttl</code> seconds, up to <code>denied.max.size</code> codes, so that
+ * the service contract of a code is looked up at most once per period : past that size, the codes not looked up yet share the bucket until the
+ * remembered ones expire.
+ */
+public final class ClientRateLimiter
+{
+    private static final String PROPERTY_PREFIX = "identitystore-quality.ratelimit.";
+    private static final String PROPERTY_ENABLED = PROPERTY_PREFIX + "enabled";
+    private static final String PROPERTY_CLIENT_PREFIX = PROPERTY_PREFIX + "client.";
+    private static final String KEY_CAPACITY = "capacity";
+    private static final String KEY_REFILL_PER_SECOND = "refill.per.second";
+    private static final String PROPERTY_MAX_CLIENTS = PROPERTY_PREFIX + "max.clients";
+    private static final String PROPERTY_DENIED_MAX_SIZE = PROPERTY_PREFIX + "denied.max.size";
+    private static final String PROPERTY_DENIED_TTL = PROPERTY_PREFIX + "denied.ttl";
+    private static final int DEFAULT_DENIED_MAX_SIZE = 10000;
+    private static final int DEFAULT_DENIED_TTL = 60;
+    private static final String UNKNOWN_CLIENT_CODE = "-";
+
+    private static ClientRateLimiter _instance;
+
+    private final boolean _bEnabled;
+    private final int _nMaxClients;
+    private final Predicate<String> _knownClient;
+    private final Function<String, Bucket> _bucketFactory;
+    private final Map<String, Bucket> _buckets = new ConcurrentHashMap<>( );
+    private final Bucket _unknownClientsBucket;
+    private final int _nDeniedMaxSize;
+    private final long _lDeniedTtl;
+    private final LongSupplier _clock;
+    /* Expiry of the decision, by client code denied a bucket, in nanoseconds of the clock */
+    private final Map<String, Long> _deniedClients = new ConcurrentHashMap<>( );
+    private final AtomicLong _lNextPurge = new AtomicLong( );
+
+    /**
+     * The bucket and the usage counters of a client
+     */
+    public static final class Bucket
+    {
+        private final long _lCapacity;
+        private final double _dRefillPerNano;
+        private final AtomicReference<State> _state;
+        private final LongAdder _lAccepted = new LongAdder( );
+        private final LongAdder _lRejected = new LongAdder( );
+
+        Bucket( final long lCapacity, final double dRefillPerSecond )
+        {
+            _lCapacity = lCapacity;
+            _dRefillPerNano = dRefillPerSecond / TimeUnit.SECONDS.toNanos( 1 );
+            _state = new AtomicReference<>( new State( lCapacity, System.nanoTime( ) ) );
+        }
+
+        /**
+         * Takes the tokens if they are available.
+         *
+         * @return 0 if the tokens were taken, otherwise the number of seconds after which they will be available
+         */
+        long tryAcquire( final long lTokens )
+        {
+            while ( true )
+            {
+                final State current = _state.get( );
+                final long lNow = System.nanoTime( );
+                final double dAvailable = Math.min( _lCapacity, current._dTokens + ( lNow - current._lTime ) * _dRefillPerNano );
+                if ( dAvailable < lTokens )
+                {
+                    _lRejected.increment( );
+                    return Math.max( 1, (long) Math.ceil( ( lTokens - dAvailable ) / _dRefillPerNano / TimeUnit.SECONDS.toNanos( 1 ) ) );
+                }
+                if ( _state.compareAndSet( current, new State( dAvailable - lTokens, lNow ) ) )
+                {
+                    _lAccepted.increment( );
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * @return the number of accepted requests
+         */
+        public long getAccepted( )
+        {
+            return _lAccepted.sum( );
+        }
+
+        /**
+         * @return the number of rejected requests
+         */
+        public long getRejected( )
+        {
+            return _lRejected.sum( );
+        }
+
+        /**
+         * @return the number of tokens available, as of the last request
+         */
+        public long getAvailable( )
+        {
+            return (long) _state.get( )._dTokens;
+        }
+
+        /**
+         * @return the maximum number of tokens of the bucket
+         */
+        public long getCapacity( )
+        {
+            return _lCapacity;
+        }
+    }
+
+    private static final class State
+    {
+        private final double _dTokens;
+        private final long _lTime;
+
+        private State( final double dTokens, final long lTime )
+        {
+            _dTokens = dTokens;
+            _lTime = lTime;
+        }
+    }
+
+    private ClientRateLimiter( )
+    {
+        this( AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false ), AppPropertiesService.getPropertyInt( PROPERTY_MAX_CLIENTS, 1000 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_DENIED_MAX_SIZE, DEFAULT_DENIED_MAX_SIZE ),
+                TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_DENIED_TTL, DEFAULT_DENIED_TTL ) ),
+                ClientRateLimiter::hasActiveServiceContract, ClientRateLimiter::createBucket, System::nanoTime );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param bEnabled
+     *            <code>true</code> if the requests are limited
+     * @param nMaxClients
+     *            the maximum number of client codes getting a bucket of their own
+     * @param knownClient
+     *            tells if a client code may get a bucket of its own
+     * @param bucketFactory
+     *            creates the bucket of a client code
+     */
+    ClientRateLimiter( final boolean bEnabled, final int nMaxClients, final Predicate<String> knownClient, final Function<String, Bucket> bucketFactory )
+    {
+        this( bEnabled, nMaxClients, DEFAULT_DENIED_MAX_SIZE, TimeUnit.SECONDS.toMillis( DEFAULT_DENIED_TTL ), knownClient, bucketFactory, System::nanoTime );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param bEnabled
+     *            <code>true</code> if the requests are limited
+     * @param nMaxClients
+     *            the maximum number of client codes getting a bucket of their own
+     * @param nDeniedMaxSize
+     *            the maximum number of client codes remembered as denied a bucket of their own
+     * @param lDeniedTtl
+     *            the time a client code is remembered as denied a bucket of its own, in milliseconds
+     * @param knownClient
+     *            tells if a client code may get a bucket of its own
+     * @param bucketFactory
+     *            creates the bucket of a client code
+     * @param clock
+     *            the clock, in nanoseconds
+     */
+    ClientRateLimiter( final boolean bEnabled, final int nMaxClients, final int nDeniedMaxSize, final long lDeniedTtl, final Predicate<String> knownClient,
+            final Function<String, Bucket> bucketFactory, final LongSupplier clock )
+    {
+        _bEnabled = bEnabled;
+        _nMaxClients = Math.max( 0, nMaxClients );
+        _nDeniedMaxSize = Math.max( 0, nDeniedMaxSize );
+        _lDeniedTtl = TimeUnit.MILLISECONDS.toNanos( Math.max( 0, lDeniedTtl ) );
+        _knownClient = knownClient;
+        _bucketFactory = bucketFactory;
+        _clock = clock;
+        _unknownClientsBucket = bucketFactory.apply( UNKNOWN_CLIENT_CODE );
+    }
+
+    public static ClientRateLimiter instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new ClientRateLimiter( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Takes tokens from the bucket of the client. A request costing more than the capacity of the bucket only needs a full bucket.
+     *
+     * @param strClientCode
+     *            the client code
+     * @param nCost
+     *            the number of tokens of the request
+     * @return 0 if the request is accepted, otherwise the number of seconds after which it can be retried
+     */
+    public long tryAcquire( final String strClientCode, final int nCost )
+    {
+        if ( !_bEnabled )
+        {
+            return 0;
+        }
+        final Bucket bucket = this.getBucket( strClientCode );
+        return bucket.tryAcquire( Math.max( 1, Math.min( nCost, bucket._lCapacity ) ) );
+    }
+
+    private Bucket getBucket( final String strClientCode )
+    {
+        if ( StringUtils.isBlank( strClientCode ) )
+        {
+            return _unknownClientsBucket;
+        }
+        final Bucket bucket = _buckets.get( strClientCode );
+        if ( bucket != null )
+        {
+            return bucket;
+        }
+        /* The size checks are not atomic : a few buckets or denied codes more than the maximum may be added by concurrent requests */
+        if ( _buckets.size( ) >= _nMaxClients || this.isDenied( strClientCode ) )
+        {
+            return _unknownClientsBucket;
+        }
+        if ( !_knownClient.test( strClientCode ) )
+        {
+            _deniedClients.put( strClientCode, _clock.getAsLong( ) + _lDeniedTtl );
+            return _unknownClientsBucket;
+        }
+        return _buckets.computeIfAbsent( strClientCode, _bucketFactory );
+    }
+
+    /**
+     * Tells if the client code has been denied a bucket of its own recently, or if no more codes can be remembered as denied
+     */
+    private boolean isDenied( final String strClientCode )
+    {
+        final long lNow = _clock.getAsLong( );
+        final Long lExpiry = _deniedClients.get( strClientCode );
+        if ( lExpiry != null )
+        {
+            if ( lNow - lExpiry < 0 )
+            {
+                return true;
+            }
+            _deniedClients.remove( strClientCode, lExpiry );
+        }
+        if ( _deniedClients.size( ) < _nDeniedMaxSize )
+        {
+            return false;
+        }
+        /* The expired codes are purged at most once per period, by a single request */
+        final long lNextPurge = _lNextPurge.get( );
+        if ( lNow - lNextPurge >= 0 && _lNextPurge.compareAndSet( lNextPurge, lNow + _lDeniedTtl ) )
+        {
+            _deniedClients.values( ).removeIf( lDeniedExpiry -> lNow - lDeniedExpiry >= 0 );
+        }
+        return _deniedClients.size( ) >= _nDeniedMaxSize;
+    }
+
+    /**
+     * @return <code>true</code> if the requests are limited
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * @return the bucket of each client that sent a request since the startup, by client code, the bucket shared by the other requests being under
+     *         <code>-</code>
+     */
+    public Map<String, Bucket> getBuckets( )
+    {
+        final Map<String, Bucket> buckets = new TreeMap<>( _buckets );
+        buckets.put( UNKNOWN_CLIENT_CODE, _unknownClientsBucket );
+        return buckets;
+    }
+
+    private static boolean hasActiveServiceContract( final String strClientCode )
+    {
+        try
+        {
+            return ServiceContractService.instance( ).getActiveServiceContract( strClientCode ) != null;
+        }
+        catch( final IdentityStoreException e )
+        {
+            return false;
+        }
+    }
+
+    private static Bucket createBucket( final String strClientCode )
+    {
+        final long lCapacity = Math.max( 1, getClientProperty( strClientCode, KEY_CAPACITY, 50 ) );
+        final double dRefillPerSecond = Math.max( 1, getClientProperty( strClientCode, KEY_REFILL_PER_SECOND, 20 ) );
+        return new Bucket( lCapacity, dRefillPerSecond );
+    }
+
+    private static int getClientProperty( final String strClientCode, final String strKey, final int nDefault )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_CLIENT_PREFIX + strClientCode + "." + strKey,
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + strKey, nDefault ) );
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups suspicious identities and their duplicates into connected components (union-find over the customer IDs).<br/>
+ * Each component is anchored on the first suspicion that was added to it, which is the one locked while the component is resolved.<br/>
+ * Only the customer IDs are kept, the identities are read again when the component is resolved.<br/>
+ * This class is thread safe.
+ */
+public class DuplicateClusters
+{
+    private final Map<String, String> _parents = new LinkedHashMap<>( );
+    private final Map<String, Integer> _sizes = new HashMap<>( );
+    private final Map<String, SuspiciousIdentity> _anchors = new LinkedHashMap<>( );
+    private final Map<String, Integer> _duplicateCounts = new HashMap<>( );
+
+    /**
+     * A connected component of duplicate identities.
+     */
+    public static final class Cluster
+    {
+        private final SuspiciousIdentity _anchor;
+        private final int _nAnchorDuplicateCount;
+        private final List<String> _customerIds = new ArrayList<>( );
+
+        private Cluster( final SuspiciousIdentity anchor, final int nAnchorDuplicateCount )
+        {
+            _anchor = anchor;
+            _nAnchorDuplicateCount = nAnchorDuplicateCount;
+        }
+
+        /**
+         * @return the suspicion the cluster was built from
+         */
+        public SuspiciousIdentity getAnchor( )
+        {
+            return _anchor;
+        }
+
+        /**
+         * @return the number of duplicates found for the identity of the anchor suspicion itself, whatever the size of the cluster
+         */
+        public int getAnchorDuplicateCount( )
+        {
+            return _nAnchorDuplicateCount;
+        }
+
+        /**
+         * @return the customer IDs of all the identities of the cluster, the anchor one included
+         */
+        public List<String> getCustomerIds( )
+        {
+            return _customerIds;
+        }
+    }
+
+    /**
+     * Tells if the customer ID already belongs to a cluster, in which case its duplicates do not need to be searched again.
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @return <code>true</code> if the customer ID belongs to a cluster
+     */
+    public synchronized boolean contains( final String strCustomerId )
+    {
+        return _parents.containsKey( strCustomerId );
+    }
+
+    /**
+     * Adds a suspicion and its duplicates, merging every cluster they already belong to.
+     *
+     * @param suspiciousIdentity
+     *            the suspicion
+     * @param duplicateCustomerIds
+     *            the customer IDs of the duplicates of the suspicious identity
+     */
+    public synchronized void add( final SuspiciousIdentity suspiciousIdentity, final Collection<String> duplicateCustomerIds )
+    {
+        final String strCustomerId = suspiciousIdentity.getCustomerId( );
+        if ( _anchors.putIfAbsent( strCustomerId, suspiciousIdentity ) == null )
+        {
+            _duplicateCounts.put( strCustomerId, new HashSet<>( duplicateCustomerIds ).size( ) );
+        }
+        this.register( strCustomerId );
+        for ( final String strDuplicateCustomerId : duplicateCustomerIds )
+        {
+            this.register( strDuplicateCustomerId );
+            this.union( strCustomerId, strDuplicateCustomerId );
+        }
+    }
+
+    /**
+     * @return the clusters, in the order their anchor suspicion was added
+     */
+    public synchronized List<Cluster> getClusters( )
+    {
+        final Map<String, Cluster> clusters = new LinkedHashMap<>( );
+        _anchors.forEach( ( strCustomerId, anchor ) -> clusters.computeIfAbsent( this.find( strCustomerId ),
+                root -> new Cluster( anchor, _duplicateCounts.get( strCustomerId ) ) ) );
+        new ArrayList<>( _parents.keySet( ) ).forEach( strCustomerId -> clusters.get( this.find( strCustomerId ) )._customerIds.add( strCustomerId ) );
+        return new ArrayList<>( clusters.values( ) );
+    }
+
+    private void register( final String strCustomerId )
+    {
+        if ( _parents.putIfAbsent( strCustomerId, strCustomerId ) == null )
+        {
+            _sizes.put( strCustomerId, 1 );
+        }
+    }
+
+    private String find( final String strCustomerId )
+    {
+        String strRoot = strCustomerId;
+        while ( !strRoot.equals( _parents.get( strRoot ) ) )
+        {
+            /* Path halving */
+            final String strGrandParent = _parents.get( _parents.get( strRoot ) );
+            _parents.put( strRoot, strGrandParent );
+            strRoot = strGrandParent;
+        }
+        return strRoot;
+    }
+
+    private void union( final String strFirstCustomerId, final String strSecondCustomerId )
+    {
+        final String strFirstRoot = this.find( strFirstCustomerId );
+        final String strSecondRoot = this.find( strSecondCustomerId );
+        if ( strFirstRoot.equals( strSecondRoot ) )
+        {
+            return;
+        }
+        /* Union by size */
+        final int nFirstSize = _sizes.get( strFirstRoot );
+        final int nSecondSize = _sizes.get( strSecondRoot );
+        if ( nFirstSize < nSecondSize )
+        {
+            _parents.put( strFirstRoot, strSecondRoot );
+            _sizes.put( strSecondRoot, nFirstSize + nSecondSize );
+        }
+        else
+        {
+            _parents.put( strSecondRoot, strFirstRoot );
+            _sizes.put( strFirstRoot, nFirstSize + nSecondSize );
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.duplicate.DuplicateRuleSummaryDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of the duplicate rule summaries, by priority filter.<br/>
+ * The cache is versioned : {@link #invalidate()} must be called when a rule is modified by this module, the entries built before are then reloaded on the
+ * next access. The rules modified elsewhere (back office of the identity store) are reloaded once the entries are older than the configured TTL.<br/>
+ * Each entry carries an entity tag computed from its content, so that the clients can poll the rules with conditional requests.
+ */
+public final class DuplicateRuleSummaryCache
+{
+    private static final String PROPERTY_TTL = "identitystore-quality.rules.summaries.cache.ttl";
+    private static final String KEY_ALL_PRIORITIES = "*";
+
+    private static DuplicateRuleSummaryCache _instance;
+
+    private final ObjectMapper _mapper = new ObjectMapper( );
+    private final Map<String, CachedSummaries> _entries = new ConcurrentHashMap<>( );
+    private final AtomicLong _version = new AtomicLong( );
+
+    /**
+     * The rule summaries of a priority filter, as loaded at a given version of the cache
+     */
+    public static final class CachedSummaries
+    {
+        private final List<DuplicateRuleSummaryDto> _summaries;
+        private final String _strETag;
+        private final long _lVersion;
+        private final long _lLoadTime;
+
+        private CachedSummaries( final List<DuplicateRuleSummaryDto> summaries, final String strETag, final long lVersion )
+        {
+            _summaries = Collections.unmodifiableList( summaries );
+            _strETag = strETag;
+            _lVersion = lVersion;
+            _lLoadTime = System.currentTimeMillis( );
+        }
+
+        /**
+         * @return the rule summaries, must not be modified
+         */
+        public List<DuplicateRuleSummaryDto> getSummaries( )
+        {
+            return _summaries;
+        }
+
+        /**
+         * @return the entity tag of the summaries (not quoted), identical on every node as long as the rules are identical
+         */
+        public String getETag( )
+        {
+            return _strETag;
+        }
+    }
+
+    private DuplicateRuleSummaryCache( )
+    {
+    }
+
+    public static DuplicateRuleSummaryCache instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new DuplicateRuleSummaryCache( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Gets the summaries of the rules, loading them if they are not cached, outdated, or expired.
+     *
+     * @param nPriority
+     *            the priority filter, null for all the rules
+     * @return the cached summaries
+     * @throws IdentityStoreException
+     *             if the rules cannot be loaded
+     */
+    public CachedSummaries get( final Integer nPriority ) throws IdentityStoreException
+    {
+        final String strKey = nPriority == null ? KEY_ALL_PRIORITIES : nPriority.toString( );
+        final long lTtl = AppPropertiesService.getPropertyInt( PROPERTY_TTL, 60 ) * 1000L;
+        final CachedSummaries cached = _entries.get( strKey );
+        if ( cached != null && cached._lVersion == _version.get( ) && System.currentTimeMillis( ) - cached._lLoadTime < lTtl )
+        {
+            return cached;
+        }
+
+        /* The version is read before loading, so that an invalidation during the load makes the loaded entry outdated */
+        final long lVersion = _version.get( );
+        final List<DuplicateRuleSummaryDto> summaries = new ArrayList<>( DuplicateRuleService.instance( ).findSummaries( nPriority ) );
+        final CachedSummaries loaded = new CachedSummaries( summaries, this.computeETag( summaries ), lVersion );
+        if ( lTtl > 0 )
+        {
+            _entries.put( strKey, loaded );
+        }
+        return loaded;
+    }
+
+    /**
+     * Invalidates all the cached summaries
+     */
+    public void invalidate( )
+    {
+        _version.incrementAndGet( );
+        _entries.clear( );
+    }
+
+    private String computeETag( final List<DuplicateRuleSummaryDto> summaries )
+    {
+        try
+        {
+            final byte [ ] digest = MessageDigest.getInstance( "SHA-256" ).digest( _mapper.writeValueAsString( summaries ).getBytes( StandardCharsets.UTF_8 ) );
+            final StringBuilder sbETag = new StringBuilder( );
+            for ( int i = 0; i < 16; i++ )
+            {
+                sbETag.append( String.format( "%02x", digest [i] ) );
+            }
+            return sbETag.toString( );
+        }
+        catch( final NoSuchAlgorithmException | JsonProcessingException e )
+        {
+            throw new AppException( "Unable to compute the entity tag of the duplicate rules : " + e.getMessage( ), e );
+        }
+    }
+}
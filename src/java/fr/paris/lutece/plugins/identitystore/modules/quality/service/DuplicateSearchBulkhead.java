@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Separate concurrency limits of the duplicate searches sent to Elasticsearch by the interactive callers (REST, back office) and by the daemons.<br/>
+ * The interactive searches get their own permits and a bounded waiting queue : a search that cannot get a permit in time, or that finds the queue full, is
+ * rejected. The daemon searches share a smaller number of permits, and yield as long as interactive searches are waiting for a permit, within a maximum
+ * delay so that the daemons are never starved.
+ */
+public final class DuplicateSearchBulkhead
+{
+    private static final String PROPERTY_PREFIX = "identitystore-quality.duplicates.bulkhead.";
+
+    private static DuplicateSearchBulkhead _instance;
+
+    private final boolean _bEnabled;
+    private final Semaphore _interactivePermits;
+    private final int _nInteractiveQueueSize;
+    private final long _lInteractiveWait;
+    private final Semaphore _daemonPermits;
+    private final int _nDaemonYieldThreshold;
+    private final long _lDaemonYieldPause;
+    private final long _lDaemonYieldMax;
+    private final AtomicInteger _nInteractiveWaiting = new AtomicInteger( );
+
+    /**
+     * The origin of a search
+     */
+    public enum Caller
+    {
+        INTERACTIVE,
+        DAEMON
+    }
+
+    /**
+     * A search run within the bulkhead
+     */
+    @FunctionalInterface
+    public interface Search<T>
+    {
+        /**
+         * Runs the search
+         *
+         * @return the result of the search
+         * @throws IdentityStoreException
+         *             in case of error
+         */
+        T run( ) throws IdentityStoreException;
+    }
+
+    private DuplicateSearchBulkhead( )
+    {
+        this( AppPropertiesService.getPropertyBoolean( PROPERTY_PREFIX + "enabled", true ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "interactive.permits", 20 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "interactive.queue.size", 100 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "interactive.wait", 5000 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "daemon.permits", 4 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "daemon.yield.threshold", 1 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "daemon.yield.pause", 50 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "daemon.yield.max", 30000 ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param bEnabled
+     *            <code>true</code> if the searches are limited
+     * @param nInteractivePermits
+     *            the number of interactive searches running at the same time
+     * @param nInteractiveQueueSize
+     *            the number of interactive searches waiting for a permit
+     * @param lInteractiveWait
+     *            the maximum wait of an interactive search for a permit, in milliseconds
+     * @param nDaemonPermits
+     *            the number of daemon searches running at the same time
+     * @param nDaemonYieldThreshold
+     *            the number of waiting interactive searches from which the daemon searches yield
+     * @param lDaemonYieldPause
+     *            the pause of a yielding daemon search, in milliseconds
+     * @param lDaemonYieldMax
+     *            the maximum time a daemon search yields, in milliseconds
+     */
+    DuplicateSearchBulkhead( final boolean bEnabled, final int nInteractivePermits, final int nInteractiveQueueSize, final long lInteractiveWait,
+            final int nDaemonPermits, final int nDaemonYieldThreshold, final long lDaemonYieldPause, final long lDaemonYieldMax )
+    {
+        _bEnabled = bEnabled;
+        _interactivePermits = new Semaphore( Math.max( 1, nInteractivePermits ), true );
+        _nInteractiveQueueSize = Math.max( 0, nInteractiveQueueSize );
+        _lInteractiveWait = Math.max( 0, lInteractiveWait );
+        _daemonPermits = new Semaphore( Math.max( 1, nDaemonPermits ), true );
+        _nDaemonYieldThreshold = Math.max( 1, nDaemonYieldThreshold );
+        _lDaemonYieldPause = Math.max( 1, lDaemonYieldPause );
+        _lDaemonYieldMax = Math.max( 0, lDaemonYieldMax );
+    }
+
+    public static DuplicateSearchBulkhead instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new DuplicateSearchBulkhead( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Runs the search once a permit of the caller is available
+     *
+     * @param caller
+     *            the origin of the search
+     * @param search
+     *            the search
+     * @return the result of the search
+     * @throws IdentityStoreException
+     *             if the search fails, or if it could not get a permit
+     */
+    public <T> T execute( final Caller caller, final Search<T> search ) throws IdentityStoreException
+    {
+        if ( !_bEnabled )
+        {
+            return search.run( );
+        }
+        final Semaphore permits = caller == Caller.DAEMON ? this.acquireDaemonPermit( ) : this.acquireInteractivePermit( );
+        try
+        {
+            return search.run( );
+        }
+        finally
+        {
+            permits.release( );
+        }
+    }
+
+    private Semaphore acquireInteractivePermit( ) throws IdentityStoreException
+    {
+        if ( _interactivePermits.tryAcquire( ) )
+        {
+            return _interactivePermits;
+        }
+        if ( _nInteractiveWaiting.incrementAndGet( ) > _nInteractiveQueueSize )
+        {
+            _nInteractiveWaiting.decrementAndGet( );
+            throw new IdentityStoreException( "Too many duplicate searches are waiting", QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE );
+        }
+        try
+        {
+            if ( !_interactivePermits.tryAcquire( _lInteractiveWait, TimeUnit.MILLISECONDS ) )
+            {
+                throw new IdentityStoreException( "No duplicate search permit available in time", QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE );
+            }
+            return _interactivePermits;
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityStoreException( "Interrupted while waiting for a duplicate search permit", QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE );
+        }
+        finally
+        {
+            _nInteractiveWaiting.decrementAndGet( );
+        }
+    }
+
+    private Semaphore acquireDaemonPermit( ) throws IdentityStoreException
+    {
+        try
+        {
+            final long lYieldDeadline = System.currentTimeMillis( ) + _lDaemonYieldMax;
+            while ( _nInteractiveWaiting.get( ) >= _nDaemonYieldThreshold && System.currentTimeMillis( ) < lYieldDeadline )
+            {
+                Thread.sleep( _lDaemonYieldPause );
+            }
+            _daemonPermits.acquire( );
+            return _daemonPermits;
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityStoreException( "Interrupted while waiting for a duplicate search permit", QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE );
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.QualifiedIdentitySearchResult;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the duplicate searches of an identity, by (customer ID, rule code, identity version).<br/>
+ * The identity version is its last update date : an updated identity never hits the entries of its previous version. The entries are also invalidated
+ * when a change of the searched identity or of one of its duplicates is notified on this node. The other changes (e.g. a new identity that would be a
+ * duplicate) are visible once the entry expires, the TTL must therefore stay short.<br/>
+ * The least recently used entries are evicted once the maximum size is reached. This class is thread safe.
+ */
+public final class DuplicateSearchCache
+{
+    private static final String PROPERTY_MAX_SIZE = "identitystore-quality.duplicates.cache.max.size";
+    private static final String PROPERTY_TTL = "identitystore-quality.duplicates.cache.ttl";
+    private static final char KEY_SEPARATOR = '|';
+
+    private static DuplicateSearchCache _instance;
+
+    private final int _nMaxSize;
+    private final long _lTtl;
+    private final Map<String, Entry> _entries = new LinkedHashMap<>( 16, 0.75f, true );
+    private final Map<String, Set<String>> _keysByCustomerId = new HashMap<>( );
+    private final AtomicLong _lHits = new AtomicLong( );
+    private final AtomicLong _lMisses = new AtomicLong( );
+    private final AtomicLong _lEvictions = new AtomicLong( );
+    private final AtomicLong _lInvalidations = new AtomicLong( );
+
+    private static final class Entry
+    {
+        private final Map<String, QualifiedIdentitySearchResult> _duplicates;
+        private final Set<String> _customerIds;
+        private final long _lExpiration;
+
+        private Entry( final Map<String, QualifiedIdentitySearchResult> duplicates, final Set<String> customerIds, final long lExpiration )
+        {
+            _duplicates = Collections.unmodifiableMap( duplicates );
+            _customerIds = customerIds;
+            _lExpiration = lExpiration;
+        }
+    }
+
+    private DuplicateSearchCache( )
+    {
+        this( AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, 10000 ), AppPropertiesService.getPropertyInt( PROPERTY_TTL, 30 ) * 1000L );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param nMaxSize
+     *            the maximum number of entries, 0 to disable the cache
+     * @param lTtl
+     *            the time to live of the entries, in milliseconds, 0 to disable the cache
+     */
+    DuplicateSearchCache( final int nMaxSize, final long lTtl )
+    {
+        _nMaxSize = Math.max( 0, nMaxSize );
+        _lTtl = Math.max( 0, lTtl );
+    }
+
+    public static DuplicateSearchCache instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new DuplicateSearchCache( );
+        }
+        return _instance;
+    }
+
+    /**
+     * @return <code>true</code> if the cache is enabled (non zero size and TTL)
+     */
+    public boolean isEnabled( )
+    {
+        return _nMaxSize > 0 && _lTtl > 0;
+    }
+
+    /**
+     * Gets the duplicates of the identity found with the rule, if they are cached for the current version of the identity.
+     *
+     * @param identity
+     *            the identity
+     * @param strRuleCode
+     *            the duplicate rule code
+     * @return the duplicates by rule code, which must not be modified, or null if they are not cached
+     */
+    public Map<String, QualifiedIdentitySearchResult> get( final Identity identity, final String strRuleCode )
+    {
+        if ( !this.isEnabled( ) )
+        {
+            return null;
+        }
+        final String strKey = getKey( identity, strRuleCode );
+        synchronized( this )
+        {
+            final Entry entry = _entries.get( strKey );
+            if ( entry != null && entry._lExpiration > System.currentTimeMillis( ) )
+            {
+                _lHits.incrementAndGet( );
+                return entry._duplicates;
+            }
+            if ( entry != null )
+            {
+                this.remove( strKey );
+            }
+        }
+        _lMisses.incrementAndGet( );
+        return null;
+    }
+
+    /**
+     * Caches the duplicates of the identity found with the rule.
+     *
+     * @param identity
+     *            the identity
+     * @param strRuleCode
+     *            the duplicate rule code
+     * @param duplicates
+     *            the duplicates by rule code, which must not be modified afterwards
+     */
+    public void put( final Identity identity, final String strRuleCode, final Map<String, QualifiedIdentitySearchResult> duplicates )
+    {
+        if ( !this.isEnabled( ) )
+        {
+            return;
+        }
+        final String strKey = getKey( identity, strRuleCode );
+        final Set<String> customerIds = new HashSet<>( );
+        customerIds.add( identity.getCustomerId( ) );
+        duplicates.values( ).forEach( result -> result.getQualifiedIdentities( ).stream( ).map( IdentityDto::getCustomerId ).forEach( customerIds::add ) );
+        final Entry entry = new Entry( duplicates, customerIds, System.currentTimeMillis( ) + _lTtl );
+
+        synchronized( this )
+        {
+            this.remove( strKey );
+            _entries.put( strKey, entry );
+            customerIds.forEach( strCustomerId -> _keysByCustomerId.computeIfAbsent( strCustomerId, k -> new HashSet<>( ) ).add( strKey ) );
+            while ( _entries.size( ) > _nMaxSize )
+            {
+                /* The first key is the least recently accessed one */
+                this.remove( _entries.keySet( ).iterator( ).next( ) );
+                _lEvictions.incrementAndGet( );
+            }
+        }
+    }
+
+    /**
+     * Invalidates the entries of the identity, and the entries in which the identity is a duplicate.
+     *
+     * @param strCustomerId
+     *            the customer ID of the changed identity
+     */
+    public void invalidate( final String strCustomerId )
+    {
+        if ( !this.isEnabled( ) )
+        {
+            return;
+        }
+        synchronized( this )
+        {
+            final Set<String> keys = _keysByCustomerId.get( strCustomerId );
+            if ( keys != null )
+            {
+                for ( final String strKey : new HashSet<>( keys ) )
+                {
+                    this.remove( strKey );
+                    _lInvalidations.incrementAndGet( );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of searches served from the cache
+     */
+    public long getHits( )
+    {
+        return _lHits.get( );
+    }
+
+    /**
+     * @return the number of searches not found in the cache (missing or expired entry)
+     */
+    public long getMisses( )
+    {
+        return _lMisses.get( );
+    }
+
+    /**
+     * @return the number of entries evicted because the cache was full
+     */
+    public long getEvictions( )
+    {
+        return _lEvictions.get( );
+    }
+
+    /**
+     * @return the number of entries invalidated by identity changes
+     */
+    public long getInvalidations( )
+    {
+        return _lInvalidations.get( );
+    }
+
+    /**
+     * @return the number of cached entries, expired ones included until they are accessed or evicted
+     */
+    public synchronized int getSize( )
+    {
+        return _entries.size( );
+    }
+
+    /**
+     * @return the maximum number of entries
+     */
+    public int getMaxSize( )
+    {
+        return _nMaxSize;
+    }
+
+    private void remove( final String strKey )
+    {
+        final Entry entry = _entries.remove( strKey );
+        if ( entry != null )
+        {
+            this.unindex( strKey, entry );
+        }
+    }
+
+    private void unindex( final String strKey, final Entry entry )
+    {
+        for ( final String strCustomerId : entry._customerIds )
+        {
+            final Set<String> keys = _keysByCustomerId.get( strCustomerId );
+            if ( keys != null && keys.remove( strKey ) && keys.isEmpty( ) )
+            {
+                _keysByCustomerId.remove( strCustomerId );
+            }
+        }
+    }
+
+    private static String getKey( final Identity identity, final String strRuleCode )
+    {
+        final long lVersion = identity.getLastUpdateDate( ) != null ? identity.getLastUpdateDate( ).getTime( ) : 0L;
+        return identity.getCustomerId( ) + KEY_SEPARATOR + strRuleCode + KEY_SEPARATOR + lVersion;
+    }
+}
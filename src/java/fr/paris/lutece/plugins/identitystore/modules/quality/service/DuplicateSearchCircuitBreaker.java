@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchBulkhead.Search;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker of the duplicate searches sent to Elasticsearch.<br/>
+ * The circuit opens after a number of consecutive failed searches : the searches then fail immediately, without reaching Elasticsearch. Once the open
+ * duration is elapsed, the circuit is half open and a single probe search is let through : the circuit closes if it succeeds, and opens again otherwise.
+ */
+public final class DuplicateSearchCircuitBreaker
+{
+    private static final String PROPERTY_PREFIX = "identitystore-quality.duplicates.breaker.";
+
+    private static DuplicateSearchCircuitBreaker _instance;
+
+    private final boolean _bEnabled;
+    private final int _nFailureThreshold;
+    private final long _lOpenDuration;
+    private final AtomicReference<State> _state = new AtomicReference<>( State.CLOSED );
+    private final AtomicInteger _nConsecutiveFailures = new AtomicInteger( );
+    private final AtomicLong _lOpenedAt = new AtomicLong( );
+    private final AtomicBoolean _bProbing = new AtomicBoolean( );
+    private final AtomicLong _lOpenings = new AtomicLong( );
+    private final AtomicLong _lRejections = new AtomicLong( );
+
+    /**
+     * The state of the circuit
+     */
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private DuplicateSearchCircuitBreaker( )
+    {
+        this( AppPropertiesService.getPropertyBoolean( PROPERTY_PREFIX + "enabled", true ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "failure.threshold", 5 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "open.duration", 30 ) * 1000L );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param bEnabled
+     *            <code>true</code> if the circuit breaker is enabled
+     * @param nFailureThreshold
+     *            the number of consecutive failed searches opening the circuit
+     * @param lOpenDuration
+     *            the time during which the circuit stays open, in milliseconds
+     */
+    DuplicateSearchCircuitBreaker( final boolean bEnabled, final int nFailureThreshold, final long lOpenDuration )
+    {
+        _bEnabled = bEnabled;
+        _nFailureThreshold = Math.max( 1, nFailureThreshold );
+        _lOpenDuration = Math.max( 0, lOpenDuration );
+    }
+
+    public static DuplicateSearchCircuitBreaker instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new DuplicateSearchCircuitBreaker( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Runs the search if the circuit lets it through
+     *
+     * @param search
+     *            the search
+     * @return the result of the search
+     * @throws IdentityStoreException
+     *             if the search fails, or if the circuit is open
+     */
+    public <T> T execute( final Search<T> search ) throws IdentityStoreException
+    {
+        if ( !_bEnabled )
+        {
+            return search.run( );
+        }
+        final boolean bProbe = this.acquire( );
+        try
+        {
+            final T result = search.run( );
+            this.onSuccess( bProbe );
+            return result;
+        }
+        catch( final IdentityStoreException | RuntimeException e )
+        {
+            this.onFailure( bProbe );
+            throw e;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the search is the probe of a half open circuit
+     */
+    private boolean acquire( ) throws IdentityStoreException
+    {
+        if ( _state.get( ) == State.OPEN && System.currentTimeMillis( ) - _lOpenedAt.get( ) >= _lOpenDuration )
+        {
+            _state.compareAndSet( State.OPEN, State.HALF_OPEN );
+        }
+        final State state = _state.get( );
+        if ( state == State.CLOSED )
+        {
+            return false;
+        }
+        if ( state == State.HALF_OPEN && _bProbing.compareAndSet( false, true ) )
+        {
+            return true;
+        }
+        _lRejections.incrementAndGet( );
+        throw new IdentityStoreException( "The duplicate search backend is unavailable", QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE );
+    }
+
+    private void onSuccess( final boolean bProbe )
+    {
+        _nConsecutiveFailures.set( 0 );
+        if ( bProbe )
+        {
+            _state.set( State.CLOSED );
+            _bProbing.set( false );
+            AppLogService.info( "Duplicate search circuit closed" );
+        }
+    }
+
+    private void onFailure( final boolean bProbe )
+    {
+        if ( bProbe || _nConsecutiveFailures.incrementAndGet( ) >= _nFailureThreshold )
+        {
+            this.open( );
+        }
+        if ( bProbe )
+        {
+            _bProbing.set( false );
+        }
+    }
+
+    private void open( )
+    {
+        _lOpenedAt.set( System.currentTimeMillis( ) );
+        if ( _state.getAndSet( State.OPEN ) != State.OPEN )
+        {
+            _lOpenings.incrementAndGet( );
+            AppLogService.error( "Duplicate search circuit opened for " + _lOpenDuration + " ms after failed searches" );
+        }
+        _nConsecutiveFailures.set( 0 );
+    }
+
+    /**
+     * @return <code>true</code> if the circuit breaker is enabled
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * @return the current state of the circuit
+     */
+    public State getState( )
+    {
+        return _state.get( );
+    }
+
+    /**
+     * @return the number of times the circuit opened since the startup
+     */
+    public long getOpenings( )
+    {
+        return _lOpenings.get( );
+    }
+
+    /**
+     * @return the number of searches rejected by the open circuit since the startup
+     */
+    public long getRejections( )
+    {
+        return _lRejections.get( );
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchBulkhead.Search;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.QualifiedIdentitySearchResult;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs identical duplicate searches once : a search started while an identical one is in flight waits for it, and fails with the same exception. The wait
+ * is bounded : past it, the waiting search fails without waiting for the search in flight to end.<br/>
+ * The callers own the returned result and may enrich its identities : when callers have joined it, the search that runs publishes a serialized snapshot of
+ * its result, from which each waiting caller gets its own copy. A search nobody joined is not serialized.
+ *
+ * @param <K>
+ *            the key identifying identical searches
+ */
+final class DuplicateSearchCoalescer<K>
+{
+    private static final TypeReference<Map<String, QualifiedIdentitySearchResult>> RESULT_TYPE = new TypeReference<Map<String, QualifiedIdentitySearchResult>>( )
+    {
+    };
+
+    private final Map<K, InFlightSearch> _inFlightSearches = new ConcurrentHashMap<>( );
+    private final ObjectMapper _mapper = new ObjectMapper( );
+    private final long _lMaxWait;
+
+    /**
+     * Constructor
+     *
+     * @param lMaxWait
+     *            the maximum time a search waits for the identical search in flight, in milliseconds
+     */
+    DuplicateSearchCoalescer( final long lMaxWait )
+    {
+        _lMaxWait = Math.max( 0, lMaxWait );
+    }
+
+    /**
+     * Runs the search, or waits for the identical search already in flight and returns a copy of its result
+     *
+     * @param key
+     *            the key of the search
+     * @param search
+     *            the search
+     * @return the duplicates by rule code
+     * @throws IdentityStoreException
+     *             if the search, or the search waited for, fails, or if the search waited for does not end in time
+     */
+    Map<String, QualifiedIdentitySearchResult> execute( final K key, final Search<Map<String, QualifiedIdentitySearchResult>> search )
+            throws IdentityStoreException
+    {
+        final InFlightSearch ownSearch = new InFlightSearch( );
+        final InFlightSearch inFlightSearch = _inFlightSearches.putIfAbsent( key, ownSearch );
+        if ( inFlightSearch == null )
+        {
+            final Map<String, QualifiedIdentitySearchResult> duplicates;
+            try
+            {
+                duplicates = search.run( );
+            }
+            catch( final IdentityStoreException | RuntimeException e )
+            {
+                ownSearch.end( );
+                ownSearch._snapshot.completeExceptionally( e );
+                throw e;
+            }
+            finally
+            {
+                _inFlightSearches.remove( key, ownSearch );
+            }
+            if ( ownSearch.end( ) )
+            {
+                ownSearch._snapshot.complete( this.snapshot( duplicates ) );
+            }
+            return duplicates;
+        }
+
+        if ( !inFlightSearch.join( ) )
+        {
+            /* The search in flight ended meanwhile */
+            _inFlightSearches.remove( key, inFlightSearch );
+            return this.execute( key, search );
+        }
+        return this.await( inFlightSearch._snapshot, search );
+    }
+
+    /**
+     * Waits for the identical search in flight in the joined coalescer, if any, or else runs the search, or waits for the identical search already in flight
+     * in this coalescer. The searches of the joined coalescer never wait for the searches of this one.
+     *
+     * @param key
+     *            the key of the search
+     * @param search
+     *            the search
+     * @param joined
+     *            the coalescer whose searches in flight are joined first
+     * @return the duplicates by rule code
+     * @throws IdentityStoreException
+     *             if the search, or the search waited for, fails, or if the search waited for does not end in time
+     */
+    Map<String, QualifiedIdentitySearchResult> execute( final K key, final Search<Map<String, QualifiedIdentitySearchResult>> search,
+            final DuplicateSearchCoalescer<K> joined ) throws IdentityStoreException
+    {
+        final InFlightSearch inFlightSearch = joined._inFlightSearches.get( key );
+        if ( inFlightSearch != null && inFlightSearch.join( ) )
+        {
+            return this.await( inFlightSearch._snapshot, search );
+        }
+        return this.execute( key, search );
+    }
+
+    /**
+     * Waits for the search in flight and returns a copy of its result
+     */
+    private Map<String, QualifiedIdentitySearchResult> await( final CompletableFuture<byte [ ]> inFlightSearch,
+            final Search<Map<String, QualifiedIdentitySearchResult>> search ) throws IdentityStoreException
+    {
+        final byte [ ] snapshot;
+        try
+        {
+            /* The timeout applies to a copy, the search in flight is still shared with the other waiting searches */
+            snapshot = inFlightSearch.copy( ).orTimeout( _lMaxWait, TimeUnit.MILLISECONDS ).join( );
+        }
+        catch( final CompletionException e )
+        {
+            if ( e.getCause( ) instanceof TimeoutException )
+            {
+                throw new IdentityStoreException( "The identical duplicate search in flight did not end in time",
+                        QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE );
+            }
+            if ( e.getCause( ) instanceof IdentityStoreException )
+            {
+                throw (IdentityStoreException) e.getCause( );
+            }
+            throw e.getCause( ) instanceof RuntimeException ? (RuntimeException) e.getCause( ) : e;
+        }
+        if ( snapshot != null )
+        {
+            try
+            {
+                return _mapper.readValue( snapshot, RESULT_TYPE );
+            }
+            catch( final IOException e )
+            {
+                AppLogService.error( "Unable to read the shared duplicate search result : " + e.getMessage( ), e );
+            }
+        }
+        return search.run( );
+    }
+
+    /**
+     * @return the number of searches in flight
+     */
+    int getInFlightCount( )
+    {
+        return _inFlightSearches.size( );
+    }
+
+    /**
+     * @return the serialized result, or null if it cannot be serialized, in which case the waiting callers run their own search
+     */
+    private byte [ ] snapshot( final Map<String, QualifiedIdentitySearchResult> duplicates )
+    {
+        try
+        {
+            return _mapper.writeValueAsBytes( duplicates );
+        }
+        catch( final IOException e )
+        {
+            AppLogService.error( "Unable to share the duplicate search result : " + e.getMessage( ), e );
+            return null;
+        }
+    }
+
+    /**
+     * A search in flight, and the callers that joined it
+     */
+    private static final class InFlightSearch
+    {
+        private final CompletableFuture<byte [ ]> _snapshot = new CompletableFuture<>( );
+        private int _nWaiters;
+        private boolean _bEnded;
+
+        /**
+         * @return <code>true</code> if the caller has joined the search, <code>false</code> if the search has already ended
+         */
+        private synchronized boolean join( )
+        {
+            if ( _bEnded )
+            {
+                return false;
+            }
+            _nWaiters++;
+            return true;
+        }
+
+        /**
+         * @return <code>true</code> if callers have joined the search
+         */
+        private synchronized boolean end( )
+        {
+            _bEnded = true;
+            return _nWaiters > 0;
+        }
+    }
+}
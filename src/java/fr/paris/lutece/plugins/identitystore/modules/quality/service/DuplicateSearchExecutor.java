@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor running the duplicate searches of the REST API, so that the container threads are released while Elasticsearch answers.<br/>
+ * The searches are rejected once all the threads are busy and the queue is full, the callers are then expected to answer with a 503.
+ */
+public class DuplicateSearchExecutor
+{
+    private static final String PROPERTY_THREADS = "identitystore-quality.duplicates.async.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "identitystore-quality.duplicates.async.queue.size";
+    private static final String PROPERTY_TIMEOUT = "identitystore-quality.duplicates.async.timeout";
+    private static final String PROPERTY_RETRY_AFTER = "identitystore-quality.duplicates.async.retry.after";
+    private static final String THREAD_NAME_PREFIX = "identitystore-quality-duplicate-search-";
+
+    private final ThreadPoolExecutor _executor;
+    private final int _nTimeout;
+    private final int _nRetryAfter;
+
+    /**
+     * Constructor
+     */
+    public DuplicateSearchExecutor( )
+    {
+        this( AppPropertiesService.getPropertyInt( PROPERTY_THREADS, 20 ), AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, 100 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_TIMEOUT, 30 ), AppPropertiesService.getPropertyInt( PROPERTY_RETRY_AFTER, 5 ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param nThreads
+     *            the number of threads
+     * @param nQueueSize
+     *            the number of searches waiting for a thread
+     * @param nTimeout
+     *            the maximum duration of a search, in seconds
+     * @param nRetryAfter
+     *            the delay after which a rejected search may be retried, in seconds
+     */
+    DuplicateSearchExecutor( final int nThreads, final int nQueueSize, final int nTimeout, final int nRetryAfter )
+    {
+        final AtomicInteger threadNumber = new AtomicInteger( );
+        _executor = new ThreadPoolExecutor( Math.max( 1, nThreads ), Math.max( 1, nThreads ), 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>( Math.max( 1, nQueueSize ) ), runnable -> {
+                    final Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        _executor.allowCoreThreadTimeOut( true );
+        _nTimeout = Math.max( 1, nTimeout );
+        _nRetryAfter = Math.max( 1, nRetryAfter );
+    }
+
+    /**
+     * Submits a search
+     *
+     * @param search
+     *            the search
+     * @throws RejectedExecutionException
+     *             if the executor is saturated or shut down
+     */
+    public void execute( final Runnable search )
+    {
+        _executor.execute( search );
+    }
+
+    /**
+     * @return the maximum duration of a search, in seconds, queuing included
+     */
+    public int getTimeout( )
+    {
+        return _nTimeout;
+    }
+
+    /**
+     * @return the delay after which a rejected search may be retried, in seconds
+     */
+    public int getRetryAfter( )
+    {
+        return _nRetryAfter;
+    }
+
+    /**
+     * Stops accepting searches, and waits for the running ones during the search timeout
+     */
+    public void shutdown( )
+    {
+        _executor.shutdown( );
+        try
+        {
+            if ( !_executor.awaitTermination( _nTimeout, TimeUnit.SECONDS ) )
+            {
+                AppLogService.info( "Interrupting the " + _executor.getActiveCount( ) + " duplicate searches still running on shutdown" );
+                _executor.shutdownNow( );
+            }
+        }
+        catch( final InterruptedException e )
+        {
+            _executor.shutdownNow( );
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bounded executor running in parallel the elementary searches of a single request (one search per identity, per rule, etc.).<br/>
+ * It is distinct from the {@link DuplicateSearchExecutor} running the requests themselves, so that a request never waits for a thread of its own pool.
+ * When all the threads are busy and the queue is full, or once the executor is shut down, a submitted search runs on the calling thread : the parallelism
+ * is bounded, and no search is rejected or left without result. The searches run with a deadline are not run on the calling thread : they are reported as
+ * not answered in time instead.
+ */
+public class DuplicateSearchFanOutExecutor
+{
+    private static final String PROPERTY_THREADS = "identitystore-quality.duplicates.fanout.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "identitystore-quality.duplicates.fanout.queue.size";
+    private static final String THREAD_NAME_PREFIX = "identitystore-quality-duplicate-fanout-";
+
+    private final ThreadPoolExecutor _executor;
+
+    /**
+     * Constructor
+     */
+    public DuplicateSearchFanOutExecutor( )
+    {
+        this( AppPropertiesService.getPropertyInt( PROPERTY_THREADS, 20 ), AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, 200 ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param nThreads
+     *            the number of threads
+     * @param nQueueSize
+     *            the number of searches waiting for a thread
+     */
+    DuplicateSearchFanOutExecutor( final int nThreads, final int nQueueSize )
+    {
+        final AtomicInteger threadNumber = new AtomicInteger( );
+        _executor = new ThreadPoolExecutor( Math.max( 1, nThreads ), Math.max( 1, nThreads ), 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>( Math.max( 1, nQueueSize ) ), runnable -> {
+                    final Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        _executor.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Submits a search
+     *
+     * @param search
+     *            the search
+     * @return the future result of the search, already completed if the search ran on the calling thread
+     */
+    public <T> Future<T> submit( final Callable<T> search )
+    {
+        try
+        {
+            return _executor.submit( search );
+        }
+        catch( final RejectedExecutionException e )
+        {
+            final FutureTask<T> task = new FutureTask<>( search );
+            task.run( );
+            return task;
+        }
+    }
+
+    /**
+     * Runs the searches in parallel, and waits for them until a shared deadline, counted from the call. The searches not answered in time are left out :
+     * they are cancelled if not started yet, the running ones are not interrupted since identical searches may be waiting for them. The searches that cannot
+     * be queued, because the executor is saturated or shut down, are not run and are left out as well.
+     *
+     * @param searches
+     *            the searches, by key
+     * @param lTimeout
+     *            the time allowed to all the searches, in milliseconds
+     * @return the results of the searches answered in time, in the order of the keys, and the keys of the searches not answered in time
+     * @throws ExecutionException
+     *             if a search answered in time failed
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting
+     */
+    public <K, T> Pair<Map<K, T>, List<K>> invokeAll( final Map<K, Callable<T>> searches, final long lTimeout ) throws ExecutionException, InterruptedException
+    {
+        final long lDeadline = System.currentTimeMillis( ) + lTimeout;
+        /* A rejected search has no future */
+        final Map<K, Future<T>> futures = new LinkedHashMap<>( );
+        for ( final Map.Entry<K, Callable<T>> search : searches.entrySet( ) )
+        {
+            Future<T> future;
+            try
+            {
+                future = _executor.submit( search.getValue( ) );
+            }
+            catch( final RejectedExecutionException e )
+            {
+                future = null;
+            }
+            futures.put( search.getKey( ), future );
+        }
+
+        final Map<K, T> results = new LinkedHashMap<>( );
+        final List<K> timedOutKeys = new ArrayList<>( );
+        try
+        {
+            for ( final Map.Entry<K, Future<T>> future : futures.entrySet( ) )
+            {
+                if ( future.getValue( ) == null )
+                {
+                    timedOutKeys.add( future.getKey( ) );
+                    continue;
+                }
+                try
+                {
+                    results.put( future.getKey( ), future.getValue( ).get( Math.max( 0, lDeadline - System.currentTimeMillis( ) ), TimeUnit.MILLISECONDS ) );
+                }
+                catch( final TimeoutException e )
+                {
+                    timedOutKeys.add( future.getKey( ) );
+                }
+            }
+        }
+        finally
+        {
+            futures.values( ).stream( ).filter( Objects::nonNull ).forEach( future -> future.cancel( false ) );
+        }
+        return Pair.of( results, timedOutKeys );
+    }
+
+    /**
+     * Runs an action on each item in parallel, and waits for all of them
+     *
+     * @param items
+     *            the items
+     * @param action
+     *            the action
+     * @throws ExecutionException
+     *             if the action fails on an item
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting
+     */
+    public <T> void forEach( final Collection<T> items, final Consumer<T> action ) throws ExecutionException, InterruptedException
+    {
+        final List<Future<?>> futures = new ArrayList<>( items.size( ) );
+        items.forEach( item -> futures.add( this.submit( ( ) -> {
+            action.accept( item );
+            return null;
+        } ) ) );
+        for ( final Future<?> future : futures )
+        {
+            future.get( );
+        }
+    }
+
+    /**
+     * Stops accepting searches and interrupts the running ones
+     */
+    public void shutdown( )
+    {
+        _executor.shutdownNow( );
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchBulkhead.Search;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedged duplicate searches : when a search takes longer than the given percentile of the latencies of the recent searches, an identical second search is
+ * sent, and the result of the first one to end is used.<br/>
+ * The latencies are kept in a fixed size window, and the hedge delay is recomputed periodically from it. No search is hedged until the window holds enough
+ * latencies.<br/>
+ * The searches run on a pool of their own, without queue, so that they never wait for the threads of the requests or of the fan-out : when the pool is
+ * busy, the first search runs on the calling thread and is not hedged, and the second search is not sent. Each search is a full attempt, going through the
+ * bulkhead and the circuit breaker on its own.
+ */
+public final class DuplicateSearchHedging
+{
+    private static final String PROPERTY_PREFIX = "identitystore-quality.duplicates.hedging.";
+    private static final String THREAD_NAME_PREFIX = "identitystore-quality-duplicate-hedging-";
+    private static final int DELAY_REFRESH_PERIOD = 64;
+
+    private static DuplicateSearchHedging _instance;
+
+    private final boolean _bEnabled;
+    private final int _nPercentile;
+    private final long _lMinDelay;
+    private final int _nMinSamples;
+    private final AtomicLongArray _latencies;
+    private final ThreadPoolExecutor _executor;
+    private final AtomicLong _lSamples = new AtomicLong( );
+    private final AtomicLong _lHedgeDelay = new AtomicLong( -1 );
+    private final AtomicLong _lSearches = new AtomicLong( );
+    private final AtomicLong _lHedged = new AtomicLong( );
+    private final AtomicLong _lHedgeWins = new AtomicLong( );
+
+    private DuplicateSearchHedging( )
+    {
+        this( AppPropertiesService.getPropertyBoolean( PROPERTY_PREFIX + "enabled", false ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "percentile", 95 ), AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "min.delay", 50 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "min.samples", 100 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "window.size", 1000 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + "threads", 20 ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param bEnabled
+     *            <code>true</code> if the searches are hedged
+     * @param nPercentile
+     *            the percentile of the recent latencies after which a search is hedged
+     * @param lMinDelay
+     *            the minimum delay after which a search is hedged, in milliseconds
+     * @param nMinSamples
+     *            the number of latencies required before hedging
+     * @param nWindowSize
+     *            the number of recent latencies kept
+     * @param nThreads
+     *            the number of threads running the searches
+     */
+    DuplicateSearchHedging( final boolean bEnabled, final int nPercentile, final long lMinDelay, final int nMinSamples, final int nWindowSize,
+            final int nThreads )
+    {
+        _bEnabled = bEnabled;
+        _nPercentile = Math.min( 100, Math.max( 1, nPercentile ) );
+        _lMinDelay = Math.max( 1, lMinDelay );
+        _nMinSamples = Math.max( 1, nMinSamples );
+        _latencies = new AtomicLongArray( Math.max( _nMinSamples, nWindowSize ) );
+        final AtomicInteger threadNumber = new AtomicInteger( );
+        _executor = new ThreadPoolExecutor( Math.max( 1, nThreads ), Math.max( 1, nThreads ), 60L, TimeUnit.SECONDS, new SynchronousQueue<>( ), runnable -> {
+            final Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        _executor.allowCoreThreadTimeOut( true );
+    }
+
+    public static DuplicateSearchHedging instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new DuplicateSearchHedging( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Runs the search, and a second identical search if the first one is too slow
+     *
+     * @param search
+     *            the search
+     * @return the result of the first search to end successfully
+     * @throws IdentityStoreException
+     *             if both searches fail
+     */
+    public <T> T execute( final Search<T> search ) throws IdentityStoreException
+    {
+        if ( !_bEnabled )
+        {
+            return search.run( );
+        }
+        _lSearches.incrementAndGet( );
+        final long lHedgeDelay = _lHedgeDelay.get( );
+        if ( lHedgeDelay < 0 )
+        {
+            return this.timed( search );
+        }
+
+        final HedgedSearch<T> hedgedSearch = new HedgedSearch<>( );
+        try
+        {
+            _executor.execute( ( ) -> this.attempt( search, hedgedSearch, false ) );
+        }
+        catch( final RejectedExecutionException e )
+        {
+            return this.timed( search );
+        }
+        try
+        {
+            return hedgedSearch._result.get( lHedgeDelay, TimeUnit.MILLISECONDS );
+        }
+        catch( final TimeoutException e )
+        {
+            if ( hedgedSearch.addAttempt( ) )
+            {
+                try
+                {
+                    _executor.execute( ( ) -> this.attempt( search, hedgedSearch, true ) );
+                    _lHedged.incrementAndGet( );
+                }
+                catch( final RejectedExecutionException re )
+                {
+                    hedgedSearch.endAttempt( null );
+                }
+            }
+            return this.join( hedgedSearch._result );
+        }
+        catch( final ExecutionException e )
+        {
+            throw unwrap( e );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityStoreException( "The duplicate search was interrupted", Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+    }
+
+    /**
+     * Runs one of the searches, and completes the result with it unless the other search already did
+     */
+    private <T> void attempt( final Search<T> search, final HedgedSearch<T> hedgedSearch, final boolean bHedge )
+    {
+        try
+        {
+            if ( hedgedSearch._result.complete( this.timed( search ) ) && bHedge )
+            {
+                _lHedgeWins.incrementAndGet( );
+            }
+        }
+        catch( final IdentityStoreException | RuntimeException e )
+        {
+            hedgedSearch.endAttempt( e );
+        }
+    }
+
+    private <T> T join( final CompletableFuture<T> firstResult ) throws IdentityStoreException
+    {
+        try
+        {
+            return firstResult.get( );
+        }
+        catch( final ExecutionException e )
+        {
+            throw unwrap( e );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityStoreException( "The duplicate search was interrupted", Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+    }
+
+    private static IdentityStoreException unwrap( final ExecutionException e )
+    {
+        if ( e.getCause( ) instanceof IdentityStoreException )
+        {
+            return (IdentityStoreException) e.getCause( );
+        }
+        if ( e.getCause( ) instanceof RuntimeException )
+        {
+            throw (RuntimeException) e.getCause( );
+        }
+        return new IdentityStoreException( e.getCause( ).getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+    }
+
+    /**
+     * Runs the search and records its latency if it succeeds
+     */
+    private <T> T timed( final Search<T> search ) throws IdentityStoreException
+    {
+        final long lStart = System.nanoTime( );
+        final T result = search.run( );
+        this.record( TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - lStart ) );
+        return result;
+    }
+
+    private void record( final long lLatency )
+    {
+        final long lSample = _lSamples.getAndIncrement( );
+        _latencies.set( (int) ( lSample % _latencies.length( ) ), lLatency );
+        if ( lSample + 1 >= _nMinSamples && ( lSample + 1 ) % DELAY_REFRESH_PERIOD == 0 )
+        {
+            final int nSize = (int) Math.min( lSample + 1, _latencies.length( ) );
+            final long [ ] latencies = new long [ nSize];
+            for ( int i = 0; i < nSize; i++ )
+            {
+                latencies [i] = _latencies.get( i );
+            }
+            Arrays.sort( latencies );
+            final int nIndex = Math.min( nSize - 1, (int) Math.ceil( nSize * _nPercentile / 100.0 ) - 1 );
+            _lHedgeDelay.set( Math.max( _lMinDelay, latencies [Math.max( 0, nIndex )] ) );
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the searches are hedged
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * @return the current delay after which a search is hedged, in milliseconds, or -1 while the latency window is not filled enough
+     */
+    public long getHedgeDelay( )
+    {
+        return _lHedgeDelay.get( );
+    }
+
+    /**
+     * @return the number of searches run through the hedging since the startup
+     */
+    public long getSearches( )
+    {
+        return _lSearches.get( );
+    }
+
+    /**
+     * @return the number of searches that were hedged since the startup
+     */
+    public long getHedged( )
+    {
+        return _lHedged.get( );
+    }
+
+    /**
+     * @return the number of hedged searches whose second search ended first
+     */
+    public long getHedgeWins( )
+    {
+        return _lHedgeWins.get( );
+    }
+
+    /**
+     * Stops the threads running the searches
+     */
+    void shutdown( )
+    {
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * The attempts of a hedged search. A failure is only reported once no attempt is running anymore, and it is the failure of the first attempt that
+     * failed.
+     */
+    private static final class HedgedSearch<T>
+    {
+        private final CompletableFuture<T> _result = new CompletableFuture<>( );
+        private final AtomicInteger _nRunningAttempts = new AtomicInteger( 1 );
+        private final AtomicReference<Exception> _failure = new AtomicReference<>( );
+
+        /**
+         * @return <code>true</code> if a second attempt can be sent, the first one being still running
+         */
+        private boolean addAttempt( )
+        {
+            return _nRunningAttempts.getAndUpdate( nRunning -> nRunning > 0 ? nRunning + 1 : nRunning ) > 0;
+        }
+
+        /**
+         * Ends an attempt without result
+         *
+         * @param e
+         *            the failure of the attempt, or <code>null</code> if it was not run
+         */
+        private void endAttempt( final Exception e )
+        {
+            if ( e != null )
+            {
+                _failure.compareAndSet( null, e );
+            }
+            if ( _nRunningAttempts.decrementAndGet( ) == 0 )
+            {
+                _result.completeExceptionally( _failure.get( ) );
+            }
+        }
+    }
+}
@@ -40,6 +40,8 @@ import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRuleHome;
 import fr.paris.lutece.plugins.identitystore.modules.quality.business.DuplicatesDaemonLimitationMode;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionCounterHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchBulkhead.Caller;
 import fr.paris.lutece.plugins.identitystore.service.daemon.LoggingDaemon;
 import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
 import fr.paris.lutece.plugins.identitystore.service.identity.IdentityService;
@@ -145,6 +147,7 @@ public class IdentityDuplicatesDaemon extends LoggingDaemon
             rule.setDaemonLastExecDate( Timestamp.from( ZonedDateTime.now( ZoneId.systemDefault( ) ).toInstant( ) ) );
             DuplicateRuleHome.update( rule );
         }
+        DuplicateRuleSummaryCache.instance( ).invalidate( );
 
         stopWatch.stop( );
         final String duration = DurationFormatUtils.formatDurationWords( stopWatch.getTime( ), true, true );
@@ -167,7 +170,7 @@ public class IdentityDuplicatesDaemon extends LoggingDaemon
             switch ( limitationMode )
             {
                 case GLOBAL:
-                    final int bddSuspicious = SuspiciousIdentityHome.countSuspiciousIdentity( rule.getId() );
+                    final int bddSuspicious = SuspicionCounterHome.count( rule.getId( ) );
                     if( rule.getDetectionLimit( ) > 0 && bddSuspicious >= rule.getDetectionLimit( ) )
                     {
                         this.info( "Limitation mode is set to GLOBAL. Rule detection limit (" + rule.getDetectionLimit( ) + ") exceeded. Detection count : " + bddSuspicious );
@@ -212,7 +215,7 @@ public class IdentityDuplicatesDaemon extends LoggingDaemon
                 if ( !higherPrioRulesDetectedCuids.contains( identity.getCustomerId( ) ) && !detectedCuids.contains( identity.getCustomerId( ) ) )
                 {
                     try {
-                        final Map<String, QualifiedIdentitySearchResult> result = this.delayedNetworkService.call(() -> SearchDuplicatesService.instance().findDuplicates(identity, Collections.singletonList( rule ), Collections.singletonList( "customerId" ), true), "Find duplicates", this);
+                        final Map<String, QualifiedIdentitySearchResult> result = this.delayedNetworkService.call(() -> SearchDuplicatesService.instance().findDuplicates(identity, Collections.singletonList( rule ), Collections.singletonList( "customerId" ), true, Caller.DAEMON), "Find duplicates", this);
                         final QualifiedIdentitySearchResult duplicates = result.get(rule.getCode());
                         final int duplicateCount = duplicates != null ? duplicates.getQualifiedIdentities().size( ) : 0;
                         if ( duplicateCount > 0 )
@@ -231,19 +234,20 @@ public class IdentityDuplicatesDaemon extends LoggingDaemon
                                     if ( rule.getPriority() < existingDuplicateRule.getPriority() ) // Higher priority means that priority level is lower
                                     {
                                         this.info("Incremental mode: removing suspicion [rule-code: " + suspiciousIdentityDto.getDuplicationRuleCode() + "][cuid: " + suspiciousIdentityDto.getCustomerId() + "] with lower rule priority [rule-priority: " + existingDuplicateRule.getPriority() + "]");
-                                        SuspiciousIdentityHome.remove( suspiciousIdentityDto.getCustomerId() );
+                                        SuspiciousIdentityService.instance( ).remove( suspiciousIdentityDto.getCustomerId( ), existingDuplicateRule, author );
                                     }
                                 }
                             }
 
-                            if ( !SuspiciousIdentityService.instance( ).hasSuspicious( customerIds ) )
+                            final SuspiciousIdentityChangeRequest request = new SuspiciousIdentityChangeRequest( );
+                            request.setSuspiciousIdentity( new SuspiciousIdentityDto( ) );
+                            request.getSuspiciousIdentity( ).setCustomerId( identity.getCustomerId( ) );
+                            request.getSuspiciousIdentity( ).setDuplicationRuleCode( rule.getCode( ) );
+                            request.getSuspiciousIdentity( ).getMetadata( ).putAll( duplicates.getMetadata( ) );
+                            // Only created if none of the identities is already suspicious, in a single statement
+                            if ( SuspiciousIdentityService.instance( ).createIfAbsent( request, DtoConverter.convertDtoToIdentity(identity), rule, customerIds,
+                                    clientCode, author ) != null )
                             {
-                                final SuspiciousIdentityChangeRequest request = new SuspiciousIdentityChangeRequest( );
-                                request.setSuspiciousIdentity( new SuspiciousIdentityDto( ) );
-                                request.getSuspiciousIdentity( ).setCustomerId( identity.getCustomerId( ) );
-                                request.getSuspiciousIdentity( ).setDuplicationRuleCode( rule.getCode( ) );
-                                request.getSuspiciousIdentity( ).getMetadata( ).putAll( duplicates.getMetadata( ) );
-                                SuspiciousIdentityService.instance( ).create( request, DtoConverter.convertDtoToIdentity(identity), rule, clientCode, author );
                                 this.info( "Identity " + identity.getCustomerId( ) + " has been marked suspicious." );
                                 suspicionsCounter++;
                             }
@@ -275,7 +279,7 @@ public class IdentityDuplicatesDaemon extends LoggingDaemon
         this.info( "Starting purge suspicions process..." );
 
         final List<SuspiciousIdentity> suspiciousIdentitysList = SuspiciousIdentityHome.getSuspiciousIdentitysList( null, purgeSize, null );
-        final int suspiciousIdentitiesTotalCount = SuspiciousIdentityHome.countSuspiciousIdentity();
+        final int suspiciousIdentitiesTotalCount = SuspicionCounterHome.countAll( );
         int purgeCount = 0;
         for ( final SuspiciousIdentity suspicious : suspiciousIdentitysList )
         {
@@ -283,12 +287,12 @@ public class IdentityDuplicatesDaemon extends LoggingDaemon
             final DuplicateRule rule = DuplicateRuleService.instance().get(suspicious.getDuplicateRuleCode());
             if(identity != null)
             {
-                final Map<String, QualifiedIdentitySearchResult> result = this.delayedNetworkService.call(() -> SearchDuplicatesService.instance().findDuplicates(identity, Collections.singletonList(rule), Collections.emptyList()), "Find duplicates", this);
+                final Map<String, QualifiedIdentitySearchResult> result = this.delayedNetworkService.call(() -> SearchDuplicatesService.instance().findDuplicates(identity, Collections.singletonList(rule), Collections.emptyList(), true, Caller.DAEMON), "Find duplicates", this);
 
                 final QualifiedIdentitySearchResult duplicates = result.isEmpty() ? null : result.get(rule.getCode());
                 if ( duplicates == null || duplicates.getQualifiedIdentities( ).isEmpty( ) )
                 {
-                    SuspiciousIdentityHome.remove( suspicious.getCustomerId( ) );
+                    SuspiciousIdentityService.instance( ).remove( suspicious.getCustomerId( ), rule, author );
                     purgeCount++;
                 }
             }
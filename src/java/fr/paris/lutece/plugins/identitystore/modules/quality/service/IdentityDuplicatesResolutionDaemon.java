@@ -37,7 +37,17 @@ import fr.paris.lutece.plugins.identitystore.business.attribute.AttributeKey;
 import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
 import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
 import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.plugins.identitystore.business.identity.IdentityHome;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.MergeJournalEntry;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.MergeJournalHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.MergeJournalStatus;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.ResolutionDecision;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspiciousIdentityDeleteHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionCounterHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEventHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEventType;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchBulkhead.Caller;
 import fr.paris.lutece.plugins.identitystore.service.attribute.IdentityAttributeService;
 import fr.paris.lutece.plugins.identitystore.service.daemon.LoggingDaemon;
 import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
@@ -61,42 +71,169 @@ import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundExcep
 import fr.paris.lutece.plugins.taskstack.dto.TaskDto;
 import fr.paris.lutece.plugins.taskstack.exception.TaskStackException;
 import fr.paris.lutece.plugins.taskstack.service.TaskService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateFormatUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
- * This task attempts to automatically resolve duplicates.
+ * This task attempts to automatically resolve duplicates.<br/>
+ * Each merge is recorded in a journal (planned, applied, unlocked) so that a merge interrupted by a crash can be rolled forward by a later execution.<br/>
+ * In plan-only mode, nothing is modified : the decisions are written to a report file instead.<br/>
+ * Suspicions are first grouped into clusters of mutual duplicates, so that each cluster is searched and resolved only once.<br/>
+ * Several rules can be resolved, each one with its own settings and schedule (see {@link ResolutionRule}).
  */
 public class IdentityDuplicatesResolutionDaemon extends LoggingDaemon
 {
     private final String clientCode = AppPropertiesService.getProperty( "daemon.identityDuplicatesResolutionDaemon.client.code" );
     private final String authorName = AppPropertiesService.getProperty( "daemon.identityDuplicatesResolutionDaemon.author.name" );
-    private final String ruleCode = AppPropertiesService.getProperty( "daemon.identityDuplicatesResolutionDaemon.rule.code" );
-    private final boolean MERGE_STRICT_CONNECTED = AppPropertiesService.getPropertyBoolean("daemon.identityDuplicatesResolutionDaemon.merge.strict.connected", false);
-    private final boolean MERGE_STRICT_CONNECTED_AND_UNCONNECTED = AppPropertiesService.getPropertyBoolean("daemon.identityDuplicatesResolutionDaemon.merge.strict.connectedAndNot", false);
+    private final int journalRecoveryDelay = AppPropertiesService.getPropertyInt( "daemon.identityDuplicatesResolutionDaemon.journal.recovery.delay.minutes", 30 );
+    private final int journalRetention = AppPropertiesService.getPropertyInt( "daemon.identityDuplicatesResolutionDaemon.journal.retention.days", 30 );
     private final DelayedNetworkService<IdentityDto> identityDtoDelayedNetworkService = new DelayedNetworkService<>();
     private final DelayedNetworkService<Map<String, QualifiedIdentitySearchResult>> duplicateSearchResponseDelayedNetworkService = new DelayedNetworkService<>();
 
-    private int nbIdentitiesMerged = 0;
+    private final boolean planOnly = AppPropertiesService.getPropertyBoolean( "daemon.identityDuplicatesResolutionDaemon.plan.only", false );
+    private final String planReportDirectory = StringUtils.defaultIfBlank(
+            AppPropertiesService.getProperty( "daemon.identityDuplicatesResolutionDaemon.plan.report.directory" ), System.getProperty( "java.io.tmpdir" ) );
+    private final ResolutionPlanReport.Format planReportFormat = ResolutionPlanReport.Format
+            .getFormat( AppPropertiesService.getProperty( "daemon.identityDuplicatesResolutionDaemon.plan.report.format" ) );
 
+    private final List<ResolutionRule> resolutionRules = ResolutionRule.loadAll( );
+    private final ResolutionRuleExecutor ruleExecutor = SpringContextService.getBean( "identitystore-quality.resolutionRuleExecutor" );
+    private final Map<String, String> ruleSummaries = new ConcurrentHashMap<>( );
+    private final Map<String, Long> ruleLastStarts = new ConcurrentHashMap<>( );
+
+    /**
+     * State of the resolution of one rule
+     */
+    private static final class RuleRun
+    {
+        private final ResolutionRule _rule;
+        private final ResolutionPlanReport _report;
+        private final RuleLog _log;
+        private final AtomicInteger _nbIdentitiesMerged = new AtomicInteger( );
+
+        private RuleRun( final ResolutionRule rule, final ResolutionPlanReport report, final RuleLog log )
+        {
+            _rule = rule;
+            _report = report;
+            _log = log;
+        }
+    }
+
+    /**
+     * Log of one resolution of a rule. It is written by the threads resolving the rule, straight to the application log with the rule code as prefix : only
+     * the summary of the resolution is copied into the daemon log, by the daemon thread.
+     */
+    private static final class RuleLog
+    {
+        private final String _strPrefix;
+        private final AtomicInteger _nbErrors = new AtomicInteger( );
+
+        private RuleLog( final String strRuleCode )
+        {
+            _strPrefix = "[IdentityDuplicatesResolutionDaemon][" + strRuleCode + "] ";
+        }
+
+        private void info( final String message )
+        {
+            AppLogService.info( _strPrefix + message );
+        }
+
+        private void error( final String message )
+        {
+            _nbErrors.incrementAndGet( );
+            AppLogService.error( _strPrefix + message );
+        }
+    }
+
+    /**
+     * Dispatches the configured rules : each rule that is due and not already running is resolved on its own thread, so that a slow rule does not hold
+     * back the others.<br/>
+     * The summaries of the resolutions ended since the previous execution are copied into the log of this execution, the details being in the application
+     * log.
+     */
     @Override
     public void doTask( )
+    {
+        final String startingMessage = "Starting IdentityDuplicatesResolutionDaemon" + ( planOnly ? " in plan-only mode..." : "..." );
+        this.info( startingMessage );
+        this.collectRuleSummaries( );
+
+        if ( resolutionRules.isEmpty( ) )
+        {
+            this.info( "No rule to process" );
+            return;
+        }
+
+        if ( !planOnly && ruleExecutor.isIdle( ) )
+        {
+            this.recoverMergeJournal( );
+        }
+
+        final long now = System.currentTimeMillis( );
+        for ( final ResolutionRule rule : resolutionRules )
+        {
+            if ( ruleExecutor.isRunning( rule.getCode( ) ) )
+            {
+                this.info( "Rule " + rule.getCode( ) + " is still being processed" );
+                continue;
+            }
+            final Long lastStart = ruleLastStarts.get( rule.getCode( ) );
+            if ( lastStart != null && now - lastStart < TimeUnit.SECONDS.toMillis( rule.getInterval( ) ) )
+            {
+                continue;
+            }
+            final RuleLog log = new RuleLog( rule.getCode( ) );
+            if ( ruleExecutor.submit( rule.getCode( ), ( ) -> this.resolveRule( rule, log ) ) )
+            {
+                ruleLastStarts.put( rule.getCode( ), now );
+            }
+        }
+    }
+
+    /**
+     * Copies the summaries of the ended resolutions into the log of the daemon. Only the daemon thread writes the log of the daemon, and only the last
+     * summary of each rule is kept.
+     */
+    private void collectRuleSummaries( )
+    {
+        for ( final String code : ruleSummaries.keySet( ) )
+        {
+            final String summary = ruleSummaries.remove( code );
+            if ( summary != null )
+            {
+                this.info( "[" + code + "] " + summary );
+            }
+        }
+    }
+
+    private void resolveRule( final ResolutionRule rule, final RuleLog log )
     {
         final StopWatch stopWatch = new StopWatch( );
         stopWatch.start( );
         final RequestAuthor author = this.buildAuthor( stopWatch.getStartTime( ) );
-        final String startingMessage = "Starting IdentityDuplicatesResolutionDaemon...";
-        this.info( startingMessage );
-
-        nbIdentitiesMerged = 0;
+        final String ruleCode = rule.getCode( );
+        int nbIdentitiesMerged = 0;
 
         try
         {
@@ -104,78 +241,375 @@ public class IdentityDuplicatesResolutionDaemon extends LoggingDaemon
             final DuplicateRule processedRule = DuplicateRuleService.instance( ).get( ruleCode );
             if ( processedRule != null )
             {
-                this.info( "Processing rule " + ruleCode );
+                log.info( "Processing rule " + ruleCode + " with " + rule.getWorkers( ) + " worker(s)" );
 
                 /* Get a batch of suspicious identities that match the rule */
                 final List<SuspiciousIdentity> listSuspiciousIdentities = SuspiciousIdentityHome.getSuspiciousIdentitysList( processedRule.getCode( ), 0,
                         null );
-                for ( final SuspiciousIdentity suspiciousIdentity : listSuspiciousIdentities )
+                try ( final ResolutionPlanReport report = planOnly ? ResolutionPlanReport.open( planReportDirectory, ruleCode, planReportFormat ) : null )
                 {
-                    /* Ignore locked suspicions */
-                    if ( suspiciousIdentity.getLock( ) == null || !suspiciousIdentity.getLock( ).isLocked( ) )
+                    if ( report != null )
+                    {
+                        log.info( "Writing resolution plan to " + report.getPath( ) );
+                    }
+                    final RuleRun run = new RuleRun( rule, report, log );
+                    try
                     {
-                        /* Get and sort identities to process */
-                        final IdentityDto identity = identityDtoDelayedNetworkService.call(() -> IdentityService.instance().search(suspiciousIdentity.getCustomerId()), "Get qualified identity " + suspiciousIdentity.getCustomerId(), this);
-                        final Map<String, QualifiedIdentitySearchResult> result = duplicateSearchResponseDelayedNetworkService.call(() -> SearchDuplicatesService.instance( ).findDuplicates( identity,
-                                Collections.singletonList( processedRule ), Collections.emptyList( ) ), "Get duplicates for identity " + suspiciousIdentity.getCustomerId(), this );
-                        final QualifiedIdentitySearchResult duplicates = result.get(processedRule.getCode());
-                        final List<IdentityDto> processedIdentities = new ArrayList<>(duplicates.getQualifiedIdentities());
-                        processedIdentities.add( identity );
-
-                        if ( processedIdentities.size( ) >= 2 )
-                        {
-                            /* Order identity list by connected identities, then best quality */
-                            final Comparator<IdentityDto> connectedComparator = Comparator.comparing( IdentityDto::isMonParisActive ).reversed( );
-                            final Comparator<QualityDefinition> qualityComparator = Comparator.comparingDouble( QualityDefinition::getQuality ).reversed( );
-                            final Comparator<IdentityDto> orderingComparator = connectedComparator.thenComparing( IdentityDto::getQuality, qualityComparator );
-
-                            processedIdentities.sort( orderingComparator );
-
-                            this.info( "Found " + processedIdentities.size( ) + " to process" );
-
-                            /* The first identity of the list is the base identity */
-                            final IdentityDto primaryIdentity = processedIdentities.get( 0 );
-                            processedIdentities.remove( 0 );
-
-                            /* Then find the first identity in the list that is not connected */
-                            /* Try to merge */
-                            for ( final IdentityDto candidate : processedIdentities )
-                            {
-                                this.merge( primaryIdentity, candidate, suspiciousIdentity.getCustomerId( ), author, processedIdentities.size() );
-                            }
-                        }
-                        else
-                        {
-                            final String log = "There is no duplicates to process for suspicious identity with customer ID "
-                                    + suspiciousIdentity.getCustomerId( ) + ". Suspicious identity removed from database";
-                            this.info( log );
-                            SuspiciousIdentityHome.remove( suspiciousIdentity.getId( ) );
-                        }
+                        this.processSuspicions( listSuspiciousIdentities, processedRule, author, run );
                     }
-                    else
+                    finally
                     {
-                        this.info( "Suspicious identity with customer ID " + suspiciousIdentity.getCustomerId( ) + " is locked" );
+                        nbIdentitiesMerged = run._nbIdentitiesMerged.get( );
                     }
                 }
             }
             else
             {
-                this.info( "No rule found with name " + ruleCode );
+                log.info( "No rule found with name " + ruleCode );
             }
         }
         catch( final ResourceNotFoundException e )
         {
-            this.info( "Could not fetch rule " + ruleCode + " :" + e.getMessage( ) );
+            log.info( "Could not fetch rule " + ruleCode + " :" + e.getMessage( ) );
         }
-        catch( final IdentityStoreException e )
+        catch( final IOException e )
         {
-            this.info( "Could not resolve suspicious identity :" + e.getMessage( ) );
+            log.error( "Could not write resolution plan report :" + e.getMessage( ) );
+        }
+        catch( final InterruptedException e )
+        {
+            log.error( "Resolution interrupted :" + e.getMessage( ) );
+            Thread.currentThread( ).interrupt( );
+        }
+        catch( final RuntimeException e )
+        {
+            AppLogService.error( "Error while processing rule " + ruleCode, e );
+            log.error( "Error while processing rule " + ruleCode + " :" + e.getMessage( ) );
         }
 
         stopWatch.stop( );
         final String duration = DurationFormatUtils.formatDurationWords( stopWatch.getTime( ), true, true );
-        this.info( nbIdentitiesMerged + " identities merged. Execution time " + duration );
+        final String summary = "Rule " + ruleCode + " started at " + new Timestamp( stopWatch.getStartTime( ) ) + " : "
+                + ( planOnly ? nbIdentitiesMerged + " identities would be merged." : nbIdentitiesMerged + " identities merged." ) + " "
+                + log._nbErrors.get( ) + " error(s). Execution time " + duration;
+        log.info( summary );
+        ruleSummaries.put( ruleCode, summary );
+    }
 
+    /**
+     * Resolves the suspicions in two passes run on the workers :
+     * <ol>
+     * <li>the duplicates of each suspicion are searched and grouped into clusters. Suspicions whose identity already belongs to a cluster are not searched
+     * again. Only the customer IDs are kept.</li>
+     * <li>each cluster is resolved once, around its best identity. Its identities are read again at that time.</li>
+     * </ol>
+     *
+     * @param listSuspiciousIdentities
+     *            the suspicions to resolve
+     * @param processedRule
+     *            the processed rule
+     * @param author
+     *            the author of the merges
+     * @param run
+     *            the state of the resolution of the rule
+     * @throws InterruptedException
+     *             if the daemon is interrupted while waiting for the workers
+     */
+    private void processSuspicions( final List<SuspiciousIdentity> listSuspiciousIdentities, final DuplicateRule processedRule,
+            final RequestAuthor author, final RuleRun run ) throws InterruptedException
+    {
+        final RuleLog log = run._log;
+        final DuplicateClusters clusters = new DuplicateClusters( );
+        final AtomicInteger nbSkippedSearches = new AtomicInteger( );
+        runOnWorkers( run._rule.getWorkers( ), listSuspiciousIdentities, suspiciousIdentity -> {
+            if ( clusters.contains( suspiciousIdentity.getCustomerId( ) ) )
+            {
+                nbSkippedSearches.incrementAndGet( );
+            }
+            else
+            {
+                this.cluster( suspiciousIdentity, processedRule, clusters, log );
+            }
+        }, ( suspiciousIdentity, e ) -> {
+            if ( e instanceof IdentityStoreException )
+            {
+                log.info( "Could not search duplicates of suspicious identity " + suspiciousIdentity.getCustomerId( ) + " :" + e.getMessage( ) );
+            }
+            else
+            {
+                AppLogService.error( "Error while searching duplicates of suspicious identity " + suspiciousIdentity.getCustomerId( ), e );
+                log.error( "Could not search duplicates of suspicious identity " + suspiciousIdentity.getCustomerId( ) + " :" + e.getMessage( ) );
+            }
+        } );
+
+        final List<DuplicateClusters.Cluster> listClusters = clusters.getClusters( );
+        log.info( listClusters.size( ) + " cluster(s) to process, " + nbSkippedSearches + " duplicates search(es) saved" );
+
+        /* Each merge commits on its own : the merge services roll back the whole current transaction when they fail */
+        runOnWorkers( run._rule.getWorkers( ), listClusters, cluster -> this.resolve( cluster, author, run ), ( cluster, e ) -> {
+            if ( e instanceof IdentityStoreException || e instanceof IOException )
+            {
+                log.info( "Could not resolve suspicious identity " + cluster.getAnchor( ).getCustomerId( ) + " :" + e.getMessage( ) );
+            }
+            else
+            {
+                AppLogService.error( "Error while resolving suspicious identity " + cluster.getAnchor( ).getCustomerId( ), e );
+                log.error( "Could not resolve suspicious identity " + cluster.getAnchor( ).getCustomerId( ) + " :" + e.getMessage( ) );
+            }
+        } );
+    }
+
+    /**
+     * An action run on an item by the workers
+     */
+    @FunctionalInterface
+    interface WorkerAction<T>
+    {
+        /**
+         * Runs the action
+         *
+         * @param item
+         *            the item
+         * @throws Exception
+         *             in case of error
+         */
+        void run( T item ) throws Exception;
+    }
+
+    /**
+     * Runs the action on each item with the workers. The queue of pending items is bounded: when it is full, the dispatching thread runs the action itself.
+     * <br/>
+     * The items are independent of each other : the failure of an item is reported to the error handler and does not stop the others, even when it runs
+     * on the dispatching thread.
+     *
+     * @param nbWorkers
+     *            the number of workers
+     * @param items
+     *            the items
+     * @param action
+     *            the action
+     * @param errorHandler
+     *            the handler of the failures of the action
+     * @throws InterruptedException
+     *             if the daemon is interrupted while waiting for the workers
+     */
+    static <T> void runOnWorkers( final int nbWorkers, final Collection<T> items, final WorkerAction<T> action,
+            final BiConsumer<T, Exception> errorHandler ) throws InterruptedException
+    {
+        final ThreadPoolExecutor workers = new ThreadPoolExecutor( nbWorkers, nbWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>( nbWorkers * 2 ), new ThreadPoolExecutor.CallerRunsPolicy( ) );
+        try
+        {
+            for ( final T item : items )
+            {
+                workers.execute( ( ) -> {
+                    try
+                    {
+                        action.run( item );
+                    }
+                    catch( final Exception e )
+                    {
+                        errorHandler.accept( item, e );
+                    }
+                } );
+            }
+        }
+        finally
+        {
+            workers.shutdown( );
+            workers.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    private void cluster( final SuspiciousIdentity suspiciousIdentity, final DuplicateRule processedRule, final DuplicateClusters clusters,
+            final RuleLog log ) throws IdentityStoreException
+    {
+        /* Ignore locked suspicions */
+        if ( suspiciousIdentity.getLock( ) == null || !suspiciousIdentity.getLock( ).isLocked( ) )
+        {
+            final IdentityDto identity = identityDtoDelayedNetworkService.call(() -> IdentityService.instance().search(suspiciousIdentity.getCustomerId()), "Get qualified identity " + suspiciousIdentity.getCustomerId(), log);
+            final Map<String, QualifiedIdentitySearchResult> result = duplicateSearchResponseDelayedNetworkService.call(() -> SearchDuplicatesService.instance( ).findDuplicates( identity,
+                    Collections.singletonList( processedRule ), Collections.emptyList( ), true, Caller.DAEMON ), "Get duplicates for identity " + suspiciousIdentity.getCustomerId(), log );
+            final QualifiedIdentitySearchResult duplicates = result.get(processedRule.getCode());
+            clusters.add( suspiciousIdentity, duplicates.getQualifiedIdentities( ).stream( ).map( IdentityDto::getCustomerId ).collect( Collectors.toList( ) ) );
+        }
+        else
+        {
+            log.info( "Suspicious identity with customer ID " + suspiciousIdentity.getCustomerId( ) + " is locked" );
+        }
+    }
+
+    /**
+     * Resolves a cluster. Its identities are read again, so that the decisions are taken on their current state and not on the one they had when the
+     * clusters were built.<br/>
+     * As when each suspicion was resolved on its own, a merge task can only be created when a single duplicate was found for the anchor suspicion.
+     *
+     * @return the number of merges applied
+     */
+    private int resolve( final DuplicateClusters.Cluster cluster, final RequestAuthor author, final RuleRun run )
+            throws IdentityStoreException, IOException
+    {
+        final RuleLog log = run._log;
+        final SuspiciousIdentity suspiciousIdentity = cluster.getAnchor( );
+        final List<IdentityDto> processedIdentities = this.readIdentities( cluster.getCustomerIds( ), log );
+
+        if ( processedIdentities.size( ) >= 2 )
+        {
+            /* Order identity list by connected identities, then best quality */
+            final Comparator<IdentityDto> connectedComparator = Comparator.comparing( IdentityDto::isMonParisActive ).reversed( );
+            final Comparator<QualityDefinition> qualityComparator = Comparator.comparingDouble( QualityDefinition::getQuality ).reversed( );
+            final Comparator<IdentityDto> orderingComparator = connectedComparator.thenComparing( IdentityDto::getQuality, qualityComparator );
+
+            processedIdentities.sort( orderingComparator );
+
+            log.info( "Found " + processedIdentities.size( ) + " to process in the cluster of suspicious identity with customer ID "
+                    + suspiciousIdentity.getCustomerId( ) );
+
+            /* The first identity of the list is the base identity */
+            final IdentityDto primaryIdentity = processedIdentities.get( 0 );
+            processedIdentities.remove( 0 );
+
+            /* Then decide for each candidate, merges are applied together under a single lock */
+            final List<IdentityDto> candidatesToMerge = new ArrayList<>( );
+            for ( final IdentityDto candidate : processedIdentities )
+            {
+                final ResolutionDecision decision = this.decide( run._rule, primaryIdentity, candidate, cluster.getAnchorDuplicateCount( ) );
+                if ( run._report != null )
+                {
+                    this.plan( primaryIdentity, candidate, suspiciousIdentity.getCustomerId( ), decision, run );
+                }
+                else if ( decision == ResolutionDecision.MERGE )
+                {
+                    candidatesToMerge.add( candidate );
+                }
+                else if ( decision == ResolutionDecision.TASK )
+                {
+                    this.createMergeTask( primaryIdentity, candidate, suspiciousIdentity.getCustomerId( ), author, log );
+                }
+                if ( decision == ResolutionDecision.INELIGIBLE )
+                {
+                    log.info( "Candidate identity with customer ID " + candidate.getCustomerId( ) + " is not eligible to automatic merge." );
+                }
+            }
+            if ( !candidatesToMerge.isEmpty( ) )
+            {
+                this.merge( primaryIdentity, candidatesToMerge, suspiciousIdentity.getCustomerId( ), author, run );
+                return candidatesToMerge.size( );
+            }
+        }
+        else if ( run._report != null )
+        {
+            log.info( "There is no duplicates to process for suspicious identity with customer ID " + suspiciousIdentity.getCustomerId( )
+                    + ". Suspicious identity would be removed from database" );
+        }
+        else
+        {
+            final String message = "There is no duplicates to process for suspicious identity with customer ID "
+                    + suspiciousIdentity.getCustomerId( ) + ". Suspicious identity removed from database";
+            log.info( message );
+            this.remove( suspiciousIdentity, author );
+        }
+        return 0;
+    }
+
+    /**
+     * Removes a suspicion in a single transaction, together with the update of the counter of its rule and the removal event, unless it was removed
+     * meanwhile
+     */
+    private void remove( final SuspiciousIdentity suspiciousIdentity, final RequestAuthor author ) throws IdentityStoreException
+    {
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            if ( SuspiciousIdentityDeleteHome.remove( suspiciousIdentity.getId( ) ) )
+            {
+                SuspicionCounterHome.add( suspiciousIdentity.getIdDuplicateRule( ), -1 );
+                SuspicionEventHome.append( SuspicionEventType.REMOVED, suspiciousIdentity.getCustomerId( ), suspiciousIdentity.getDuplicateRuleCode( ), null,
+                        author.getType( ).name( ), author.getName( ) );
+            }
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new IdentityStoreException( e.getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+    }
+
+    /**
+     * Reads the identities of a cluster. The identities that no longer exist are left out, and an identity merged in the meantime is only read once.
+     */
+    private List<IdentityDto> readIdentities( final List<String> customerIds, final RuleLog log ) throws IdentityStoreException
+    {
+        final Map<String, IdentityDto> identities = new LinkedHashMap<>( );
+        for ( final String customerId : customerIds )
+        {
+            try
+            {
+                final IdentityDto identity = identityDtoDelayedNetworkService.call( ( ) -> IdentityService.instance( ).search( customerId ),
+                        "Get qualified identity " + customerId, log );
+                identities.putIfAbsent( identity.getCustomerId( ), identity );
+            }
+            catch( final ResourceNotFoundException e )
+            {
+                log.info( "Identity with customer ID " + customerId + " no longer exists :" + e.getMessage( ) );
+            }
+        }
+        return new ArrayList<>( identities.values( ) );
+    }
+
+    /**
+     * Completes the merges that were interrupted (node crash, shutdown...) between the lock and the unlock of their suspicion.<br/>
+     * Only entries that have not been updated for <code>journal.recovery.delay.minutes</code> are considered, so that merges still running on another node
+     * are left alone.
+     * <ul>
+     * <li>PLANNED entries whose candidate identity has been merged are rolled forward to APPLIED.</li>
+     * <li>PLANNED entries whose candidate identity has not been merged are dropped and their suspicion unlocked, it will be replayed by the next pass.</li>
+     * <li>APPLIED entries get their suspicion unlocked.</li>
+     * </ul>
+     */
+    private void recoverMergeJournal( )
+    {
+        final Instant now = Instant.now( );
+        final List<MergeJournalEntry> unfinishedEntries = MergeJournalHome
+                .findUnfinished( Timestamp.from( now.minus( Duration.ofMinutes( journalRecoveryDelay ) ) ) );
+        if ( !unfinishedEntries.isEmpty( ) )
+        {
+            this.info( "Recovering " + unfinishedEntries.size( ) + " unfinished merge(s) from journal" );
+        }
+        for ( final MergeJournalEntry entry : unfinishedEntries )
+        {
+            try
+            {
+                if ( entry.getStatus( ) == MergeJournalStatus.PLANNED )
+                {
+                    final Identity candidate = IdentityHome.findByCustomerId( entry.getCandidateCustomerId( ) );
+                    if ( candidate == null || !candidate.isMerged( ) )
+                    {
+                        SuspiciousIdentityHome.manageLock( entry.getSuspiciousCustomerId( ), "IdentityDuplicatesResolutionDaemon", AuthorType.admin.name( ), false );
+                        MergeJournalHome.remove( entry.getId( ) );
+                        this.info( "Merge of " + entry.getCandidateCustomerId( ) + " into " + entry.getPrimaryCustomerId( )
+                                + " was not applied. Suspicious identity with customer ID " + entry.getSuspiciousCustomerId( ) + " released for replay" );
+                        continue;
+                    }
+                    MergeJournalHome.updateStatus( entry, MergeJournalStatus.APPLIED );
+                }
+                SuspiciousIdentityHome.manageLock( entry.getSuspiciousCustomerId( ), "IdentityDuplicatesResolutionDaemon", AuthorType.admin.name( ), false );
+                MergeJournalHome.updateStatus( entry, MergeJournalStatus.UNLOCKED );
+                this.info( "Merge of " + entry.getCandidateCustomerId( ) + " into " + entry.getPrimaryCustomerId( )
+                        + " rolled forward. Unlock suspicious identity with customer ID " + entry.getSuspiciousCustomerId( ) );
+            }
+            catch( final Exception e )
+            {
+                this.error( "Could not recover merge journal entry " + entry.getId( ) + " : " + e.getMessage( ) );
+            }
+        }
+
+        final int nbPurged = MergeJournalHome.purgeCompleted( Timestamp.from( now.minus( Duration.ofDays( journalRetention ) ) ) );
+        if ( nbPurged > 0 )
+        {
+            this.info( nbPurged + " completed merge journal entries purged" );
+        }
     }
 
     private RequestAuthor buildAuthor( long time )
@@ -186,77 +620,167 @@ public class IdentityDuplicatesResolutionDaemon extends LoggingDaemon
         return author;
     }
 
-    private void merge( final IdentityDto primaryIdentity, final IdentityDto candidate, final String suspiciousCustomerId, final RequestAuthor author, final int duplicateListSize )
-            throws IdentityStoreException
+    private void plan( final IdentityDto primaryIdentity, final IdentityDto candidate, final String suspiciousCustomerId, final ResolutionDecision decision,
+            final RuleRun run ) throws IOException
+    {
+        if ( decision == ResolutionDecision.MERGE )
+        {
+            run._report.write( suspiciousCustomerId, run._rule.getCode( ), primaryIdentity.getCustomerId( ), candidate.getCustomerId( ), decision,
+                    this.getAttributesToCreate( primaryIdentity, candidate ), this.getAttributesToOverride( primaryIdentity, candidate ) );
+            run._nbIdentitiesMerged.incrementAndGet( );
+        }
+        else
+        {
+            run._report.write( suspiciousCustomerId, run._rule.getCode( ), primaryIdentity.getCustomerId( ), candidate.getCustomerId( ), decision, Collections.emptyList( ),
+                    Collections.emptyList( ) );
+        }
+    }
+
+    private ResolutionDecision decide( final ResolutionRule rule, final IdentityDto primaryIdentity, final IdentityDto candidate, final int duplicateListSize )
     {
         /* Cannot merge connected identity */
         if ( this.canMerge( primaryIdentity, candidate ) )
         {
-            /* Lock current */
-            SuspiciousIdentityHome.manageLock( suspiciousCustomerId, "IdentityDuplicatesResolutionDaemon", AuthorType.admin.name( ), true );
-            this.info( "Lock suspicious identity with customer ID " + suspiciousCustomerId );
-
-            /* Get all attributes of secondary that do not exist in primary */
-            final Predicate<AttributeDto> selectNonExistingAttribute = candidateAttribute -> primaryIdentity.getAttributes( ).stream( )
-                    .noneMatch( primaryAttribute -> Objects.equals( primaryAttribute.getKey( ), candidateAttribute.getKey( ) ) );
-            final List<AttributeDto> attributesToCreate = candidate.getAttributes( ).stream( ).filter( selectNonExistingAttribute )
-                    .collect( Collectors.toList( ) );
-            if ( !attributesToCreate.isEmpty( ) )
+            return ResolutionDecision.MERGE;
+        }
+        if ( ( rule.isMergeStrictConnected( ) || rule.isMergeStrictConnectedAndUnconnected( ) ) && duplicateListSize == 1 && this.isStrictDuplicate( primaryIdentity, candidate ) )
+        {
+            return ResolutionDecision.TASK;
+        }
+        return ResolutionDecision.INELIGIBLE;
+    }
+
+    /* Get all attributes of secondary that do not exist in primary */
+    private List<AttributeDto> getAttributesToCreate( final IdentityDto primaryIdentity, final IdentityDto candidate )
+    {
+        final Predicate<AttributeDto> selectNonExistingAttribute = candidateAttribute -> primaryIdentity.getAttributes( ).stream( )
+                .noneMatch( primaryAttribute -> Objects.equals( primaryAttribute.getKey( ), candidateAttribute.getKey( ) ) );
+        return candidate.getAttributes( ).stream( ).filter( selectNonExistingAttribute ).collect( Collectors.toList( ) );
+    }
+
+    /* Get all attributes of secondary that exist with higher certificate */
+    private List<AttributeDto> getAttributesToOverride( final IdentityDto primaryIdentity, final IdentityDto candidate )
+    {
+        final Predicate<AttributeDto> selectAttributesToOverride = candidateAttribute -> primaryIdentity.getAttributes( ).stream( )
+                .anyMatch( primaryAttribute -> primaryAttribute.getKey( ).equals( candidateAttribute.getKey( ) )
+                        && primaryAttribute.getValue( ).equalsIgnoreCase( candidateAttribute.getValue( ) )
+                        && primaryAttribute.getCertificationLevel( ) < candidateAttribute.getCertificationLevel( ) );
+        return candidate.getAttributes( ).stream( ).filter( selectAttributesToOverride ).collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Merges the candidates of a cluster into its primary identity. Every merge is journalized, then the suspicion is locked once for the whole cluster.
+     */
+    private void merge( final IdentityDto primaryIdentity, final List<IdentityDto> candidates, final String suspiciousCustomerId, final RequestAuthor author,
+            final RuleRun run ) throws IdentityStoreException
+    {
+        final RuleLog log = run._log;
+        /* Journalize then lock current, in a single transaction. Each merge then commits on its own */
+        final List<Pair<IdentityDto, MergeJournalEntry>> plannedMerges = new ArrayList<>( );
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            for ( final IdentityDto candidate : candidates )
             {
-                final String log = "Attribute list to create " + attributesToCreate.stream( ).map( AttributeDto::getKey ).collect( Collectors.joining( "," ) );
-                this.info( log );
+                plannedMerges.add( Pair.of( candidate, MergeJournalHome.plan( suspiciousCustomerId, primaryIdentity.getCustomerId( ),
+                        candidate.getCustomerId( ), run._rule.getCode( ) ) ) );
             }
+            SuspiciousIdentityHome.manageLock( suspiciousCustomerId, "IdentityDuplicatesResolutionDaemon", AuthorType.admin.name( ), true );
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new IdentityStoreException( e.getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+        log.info( "Lock suspicious identity with customer ID " + suspiciousCustomerId );
 
-            /* Get all attributes of secondary that exist with higher certificate */
-            final Predicate<AttributeDto> selectAttributesToOverride = candidateAttribute -> primaryIdentity.getAttributes( ).stream( )
-                    .anyMatch( primaryAttribute -> primaryAttribute.getKey( ).equals( candidateAttribute.getKey( ) )
-                            && primaryAttribute.getValue( ).equalsIgnoreCase( candidateAttribute.getValue( ) )
-                            && primaryAttribute.getCertificationLevel( ) < candidateAttribute.getCertificationLevel( ) );
-            final List<AttributeDto> attributesToOverride = candidate.getAttributes( ).stream( ).filter( selectAttributesToOverride )
-                    .collect( Collectors.toList( ) );
-            if ( !attributesToOverride.isEmpty( ) )
+        try
+        {
+            for ( final Pair<IdentityDto, MergeJournalEntry> plannedMerge : plannedMerges )
             {
-                final String log = "Attribute list to create "
-                        + attributesToOverride.stream( ).map( AttributeDto::getKey ).collect( Collectors.joining( "," ) );
-                this.info( log );
+                this.applyMerge( primaryIdentity, plannedMerge.getKey( ), author, run );
+                MergeJournalHome.updateStatus( plannedMerge.getValue( ), MergeJournalStatus.APPLIED );
             }
+        }
+        finally
+        {
+            this.unlock( suspiciousCustomerId, plannedMerges, log );
+        }
+    }
 
-            final IdentityDto identity;
-            if ( !attributesToCreate.isEmpty( ) || !attributesToOverride.isEmpty( ) )
+    /**
+     * Unlocks the suspicion of a cluster and completes its journal entries in a single transaction. Merges that were not applied are released so that they
+     * can be processed again. If this fails, the journal entries are left as they are, to be recovered by a later execution.
+     */
+    private void unlock( final String suspiciousCustomerId, final List<Pair<IdentityDto, MergeJournalEntry>> plannedMerges, final RuleLog log )
+    {
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            SuspiciousIdentityHome.manageLock( suspiciousCustomerId, "IdentityDuplicatesResolutionDaemon", AuthorType.admin.name( ), false );
+            for ( final Pair<IdentityDto, MergeJournalEntry> plannedMerge : plannedMerges )
             {
-                identity = new IdentityDto( );
-                identity.getAttributes( ).addAll( attributesToCreate );
-                identity.getAttributes( ).addAll( attributesToOverride );
-            } else {
-                identity = null;
+                if ( plannedMerge.getValue( ).getStatus( ) == MergeJournalStatus.APPLIED )
+                {
+                    MergeJournalHome.updateStatus( plannedMerge.getValue( ), MergeJournalStatus.UNLOCKED );
+                }
+                else
+                {
+                    MergeJournalHome.remove( plannedMerge.getValue( ).getId( ) );
+                }
             }
-            final Pair<Identity, List<AttributeStatus>> mergeResult =
-                    IdentityService.instance().merge(DtoConverter.convertDtoToIdentity(primaryIdentity), DtoConverter.convertDtoToIdentity(candidate), identity,
-                            ruleCode, author, clientCode, false, Collections.emptyList( ) );
-            nbIdentitiesMerged++;
-
-            final boolean fullSuccess = mergeResult.getValue( ).stream( ).map( AttributeStatus::getStatus )
-                    .allMatch( status -> status.getType( ) == AttributeChangeStatusType.SUCCESS );
-            this.info( "Identities merged with status " + ( fullSuccess ? ResponseStatusType.SUCCESS : ResponseStatusType.INCOMPLETE_SUCCESS ) );
+            TransactionManager.commitTransaction( null );
+            log.info( "Unlock suspicious identity with customer ID " + suspiciousCustomerId );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            AppLogService.error( "Error while unlocking suspicious identity with customer ID " + suspiciousCustomerId, e );
+            log.error( "Could not unlock suspicious identity with customer ID " + suspiciousCustomerId + ", it is left to the journal recovery :"
+                    + e.getMessage( ) );
+        }
+    }
 
-            /* Unlock current */
-            SuspiciousIdentityHome.manageLock( suspiciousCustomerId, "IdentityDuplicatesResolutionDaemon", AuthorType.admin.name( ), false );
-            this.info( "Unlock suspicious identity with customer ID " + suspiciousCustomerId );
+    private void applyMerge( final IdentityDto primaryIdentity, final IdentityDto candidate, final RequestAuthor author, final RuleRun run )
+            throws IdentityStoreException
+    {
+        final RuleLog log = run._log;
+        final List<AttributeDto> attributesToCreate = this.getAttributesToCreate( primaryIdentity, candidate );
+        final List<AttributeDto> attributesToOverride = this.getAttributesToOverride( primaryIdentity, candidate );
+        if ( !attributesToCreate.isEmpty( ) )
+        {
+            final String message = "Attribute list to create " + attributesToCreate.stream( ).map( AttributeDto::getKey ).collect( Collectors.joining( "," ) );
+            log.info( message );
         }
-        else if((MERGE_STRICT_CONNECTED || MERGE_STRICT_CONNECTED_AND_UNCONNECTED) && duplicateListSize == 1 && this.isStrictDuplicate(primaryIdentity, candidate))
+        if ( !attributesToOverride.isEmpty( ) )
         {
-            this.createMergeTask(primaryIdentity, candidate, suspiciousCustomerId, author);
+            final String message = "Attribute list to create "
+                    + attributesToOverride.stream( ).map( AttributeDto::getKey ).collect( Collectors.joining( "," ) );
+            log.info( message );
         }
-        else
+
+        final IdentityDto identity;
+        if ( !attributesToCreate.isEmpty( ) || !attributesToOverride.isEmpty( ) )
         {
-            final String err = "Candidate identity with customer ID " + candidate.getCustomerId( ) + " is not eligible to automatic merge.";
-            this.info( err );
+            identity = new IdentityDto( );
+            identity.getAttributes( ).addAll( attributesToCreate );
+            identity.getAttributes( ).addAll( attributesToOverride );
+        } else {
+            identity = null;
         }
+        final Pair<Identity, List<AttributeStatus>> mergeResult = IdentityService.instance().merge(DtoConverter.convertDtoToIdentity(primaryIdentity), DtoConverter.convertDtoToIdentity(candidate), identity,
+                run._rule.getCode( ), author, clientCode, false, Collections.emptyList( ) );
+        run._nbIdentitiesMerged.incrementAndGet( );
+
+        final boolean fullSuccess = mergeResult.getValue( ).stream( ).map( AttributeStatus::getStatus )
+                .allMatch( status -> status.getType( ) == AttributeChangeStatusType.SUCCESS );
+        log.info( "Identities merged with status " + ( fullSuccess ? ResponseStatusType.SUCCESS : ResponseStatusType.INCOMPLETE_SUCCESS ) );
     }
 
     //creation of a merge task with notification of the identity
     private void createMergeTask(final IdentityDto primaryIdentity, final IdentityDto candidate, final String suspiciousCustomerId,
-                                 final RequestAuthor author) throws IdentityStoreException
+                                 final RequestAuthor author, final RuleLog log) throws IdentityStoreException
     {
         final String taskType = primaryIdentity.isMonParisActive() && candidate.isMonParisActive() ?
                 IdentityTaskType.ACCOUNT_MERGE_REQUEST.name() : IdentityTaskType.ACCOUNT_IDENTITY_MERGE_REQUEST.name();
@@ -270,7 +794,7 @@ public class IdentityDuplicatesResolutionDaemon extends LoggingDaemon
         } catch (TaskStackException e)
         {
             AppLogService.error( "Error while trying to retrieve task list for identity [customerId = " + primaryIdentity.getCustomerId() + "].", e );
-            this.error( e.getMessage( ) );
+            log.error( e.getMessage( ) );
         }
         try
         {
@@ -278,7 +802,7 @@ public class IdentityDuplicatesResolutionDaemon extends LoggingDaemon
         } catch (TaskStackException e)
         {
             AppLogService.error( "Error while trying to retrieve task list for identity [customerId = " + candidate.getCustomerId() + "].", e );
-            this.error( e.getMessage( ) );
+            log.error( e.getMessage( ) );
         }
         if(responsePrimaryList.isEmpty() && responseCandidateList.isEmpty())
         {
@@ -298,8 +822,8 @@ public class IdentityDuplicatesResolutionDaemon extends LoggingDaemon
             catch( final TaskStackException e )
             {
                 AppLogService.error( "Error while trying to create " + taskType + " for identity [customerId = " + primaryIdentity.getCustomerId() + "].", e );
-                this.error( "An error occured while noticing the user" );
-                this.error( e.getMessage( ) );
+                log.error( "An error occured while noticing the user" );
+                log.error( e.getMessage( ) );
             }
         }
         else
@@ -307,7 +831,7 @@ public class IdentityDuplicatesResolutionDaemon extends LoggingDaemon
             final String err = "Candidate identity with customer ID " +
                     (responsePrimaryList.isEmpty() ? primaryIdentity.getCustomerId( ) : candidate.getCustomerId( )) +
                     " already have a merge task.";
-            this.info( err );
+            log.info( err );
         }
     }
 
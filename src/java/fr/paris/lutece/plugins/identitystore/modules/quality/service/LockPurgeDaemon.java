@@ -34,16 +34,53 @@
 package fr.paris.lutece.plugins.identitystore.modules.quality.service;
 
 import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionCounterHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEventHome;
 import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 
 /**
- * This task removes all pending duplicates so that we only have up-to-date suspicions.
+ * This task removes all pending duplicates so that we only have up-to-date suspicions.<br/>
+ * It also purges the suspicion events older than <code>identitystore-quality.suspicions.events.retention.days</code>, and recounts the suspicions of each
+ * rule when <code>identitystore-quality.suspicions.counters.recount</code> is enabled, to take into account the suspicions created or removed by the
+ * identity store itself.
  */
 public class LockPurgeDaemon extends Daemon
 {
+    private static final String PROPERTY_EVENTS_RETENTION = "identitystore-quality.suspicions.events.retention.days";
+    private static final String PROPERTY_COUNTERS_RECOUNT = "identitystore-quality.suspicions.counters.recount";
+
     @Override
     public void run( )
     {
         SuspiciousIdentityHome.purgeLocks( );
+
+        final int nRetention = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_EVENTS_RETENTION, 30 ) );
+        final int nbPurged = SuspicionEventHome.purge( Timestamp.from( Instant.now( ).minus( Duration.ofDays( nRetention ) ) ) );
+        final StringBuilder sbLogs = new StringBuilder( nbPurged + " suspicion events purged" );
+
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_COUNTERS_RECOUNT, true ) )
+        {
+            TransactionManager.beginTransaction( null );
+            try
+            {
+                SuspicionCounterHome.recount( );
+                TransactionManager.commitTransaction( null );
+                sbLogs.append( ", suspicion counters recounted" );
+            }
+            catch( final Exception e )
+            {
+                TransactionManager.rollBack( null );
+                AppLogService.error( "Unable to recount the suspicions : " + e.getMessage( ), e );
+                sbLogs.append( ", suspicion counters could not be recounted" );
+            }
+        }
+        setLastRunLogs( sbLogs.toString( ) );
     }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.ResolutionDecision;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Report of the decisions the resolution daemon would take, written one line per candidate pair when the daemon runs in plan-only mode.<br/>
+ * Lines are written to the file as soon as they are produced, so the memory used does not depend on the number of processed suspicions.
+ */
+public class ResolutionPlanReport implements Closeable
+{
+    private static final String CSV_HEADER = "suspicious_customer_id,rule_code,primary_customer_id,candidate_customer_id,decision,attributes_to_create,attributes_to_override";
+    private static final String CSV_SEPARATOR = ",";
+    private static final String KEY_SEPARATOR = "|";
+
+    /**
+     * Available report formats
+     */
+    public enum Format
+    {
+        CSV,
+        NDJSON;
+
+        /**
+         * Returns the format associated to the given key. If there is no value matching the key, the default format is CSV.
+         * @param key the key to be found
+         * @return the {@link Format} matching the given key
+         */
+        public static Format getFormat( final String key )
+        {
+            return Arrays.stream( values( ) ).filter( format -> format.name( ).equalsIgnoreCase( key ) ).findFirst( ).orElse( CSV );
+        }
+    }
+
+    private final ObjectMapper _mapper = new ObjectMapper( );
+    private final Format _format;
+    private final Path _path;
+    private final BufferedWriter _writer;
+
+    private ResolutionPlanReport( final Path path, final Format format ) throws IOException
+    {
+        _path = path;
+        _format = format;
+        _writer = Files.newBufferedWriter( path, StandardCharsets.UTF_8 );
+        if ( _format == Format.CSV )
+        {
+            _writer.write( CSV_HEADER );
+            _writer.newLine( );
+        }
+    }
+
+    /**
+     * Creates a new report file in the given directory.
+     *
+     * @param strDirectory
+     *            the directory of the report
+     * @param strRuleCode
+     *            the code of the processed rule, used in the file name
+     * @param format
+     *            the format of the report
+     * @return the opened report
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    public static ResolutionPlanReport open( final String strDirectory, final String strRuleCode, final Format format ) throws IOException
+    {
+        final String strFileName = "identity-duplicates-resolution-plan-" + strRuleCode + "-"
+                + LocalDateTime.now( ).format( DateTimeFormatter.ofPattern( "yyyyMMddHHmmss" ) ) + "." + format.name( ).toLowerCase( );
+        final Path directory = Paths.get( strDirectory );
+        Files.createDirectories( directory );
+        return new ResolutionPlanReport( directory.resolve( strFileName ), format );
+    }
+
+    /**
+     * @return the path of the report file
+     */
+    public Path getPath( )
+    {
+        return _path;
+    }
+
+    /**
+     * Writes the decision taken for a candidate pair.
+     *
+     * @param strSuspiciousCustomerId
+     *            the customer ID of the processed suspicion
+     * @param strRuleCode
+     *            the code of the processed rule
+     * @param strPrimaryCustomerId
+     *            the customer ID of the primary identity
+     * @param strCandidateCustomerId
+     *            the customer ID of the candidate identity
+     * @param decision
+     *            the decision
+     * @param attributesToCreate
+     *            the attributes that would be created on the primary identity
+     * @param attributesToOverride
+     *            the attributes that would be overridden on the primary identity
+     * @throws IOException
+     *             if the line cannot be written
+     */
+    public synchronized void write( final String strSuspiciousCustomerId, final String strRuleCode, final String strPrimaryCustomerId,
+            final String strCandidateCustomerId, final ResolutionDecision decision, final List<AttributeDto> attributesToCreate,
+            final List<AttributeDto> attributesToOverride ) throws IOException
+    {
+        final String strAttributesToCreate = attributesToCreate.stream( ).map( AttributeDto::getKey ).collect( Collectors.joining( KEY_SEPARATOR ) );
+        final String strAttributesToOverride = attributesToOverride.stream( ).map( AttributeDto::getKey ).collect( Collectors.joining( KEY_SEPARATOR ) );
+        if ( _format == Format.NDJSON )
+        {
+            final ObjectNode line = _mapper.createObjectNode( );
+            line.put( "suspicious_customer_id", strSuspiciousCustomerId );
+            line.put( "rule_code", strRuleCode );
+            line.put( "primary_customer_id", strPrimaryCustomerId );
+            line.put( "candidate_customer_id", strCandidateCustomerId );
+            line.put( "decision", decision.name( ) );
+            final ArrayNode createdKeys = line.putArray( "attributes_to_create" );
+            attributesToCreate.forEach( attribute -> createdKeys.add( attribute.getKey( ) ) );
+            final ArrayNode overriddenKeys = line.putArray( "attributes_to_override" );
+            attributesToOverride.forEach( attribute -> overriddenKeys.add( attribute.getKey( ) ) );
+            _writer.write( _mapper.writeValueAsString( line ) );
+        }
+        else
+        {
+            _writer.write( String.join( CSV_SEPARATOR, escape( strSuspiciousCustomerId ), escape( strRuleCode ), escape( strPrimaryCustomerId ),
+                    escape( strCandidateCustomerId ), decision.name( ), escape( strAttributesToCreate ), escape( strAttributesToOverride ) ) );
+        }
+        _writer.newLine( );
+    }
+
+    private static String escape( final String strValue )
+    {
+        if ( strValue == null )
+        {
+            return StringUtils.EMPTY;
+        }
+        if ( StringUtils.containsAny( strValue, CSV_SEPARATOR, "\"", "\n", "\r" ) )
+        {
+            return "\"" + strValue.replace( "\"", "\"\"" ) + "\"";
+        }
+        return strValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close( ) throws IOException
+    {
+        _writer.close( );
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Configuration of the automatic resolution of one duplicate rule.<br/>
+ * The rules are listed in <code>daemon.identityDuplicatesResolutionDaemon.rule.codes</code>, each value can be overridden for a rule with the
+ * <code>daemon.identityDuplicatesResolutionDaemon.rule.&lt;code&gt;.</code> prefix and otherwise falls back to the daemon-wide property.
+ */
+public final class ResolutionRule
+{
+    private static final String PROPERTY_PREFIX = "daemon.identityDuplicatesResolutionDaemon.";
+    private static final String PROPERTY_RULE_CODES = PROPERTY_PREFIX + "rule.codes";
+    private static final String PROPERTY_RULE_CODE = PROPERTY_PREFIX + "rule.code";
+    private static final String PROPERTY_RULE_PREFIX = PROPERTY_PREFIX + "rule.";
+    private static final String KEY_INTERVAL = "interval";
+    private static final String KEY_WORKERS = "workers";
+    private static final String KEY_MERGE_STRICT_CONNECTED = "merge.strict.connected";
+    private static final String KEY_MERGE_STRICT_CONNECTED_AND_UNCONNECTED = "merge.strict.connectedAndNot";
+
+    private final String _strCode;
+    private final long _lInterval;
+    private final int _nWorkers;
+    private final boolean _bMergeStrictConnected;
+    private final boolean _bMergeStrictConnectedAndUnconnected;
+
+    private ResolutionRule( final String strCode )
+    {
+        _strCode = strCode;
+        /* The daemon-wide interval is the dispatch period of the daemon itself, it is not inherited */
+        _lInterval = Math.max( 0, AppPropertiesService.getPropertyInt( PROPERTY_RULE_PREFIX + strCode + "." + KEY_INTERVAL, 0 ) );
+        _nWorkers = Math.max( 1, getRuleProperty( strCode, KEY_WORKERS, 1 ) );
+        _bMergeStrictConnected = getRuleProperty( strCode, KEY_MERGE_STRICT_CONNECTED, false );
+        _bMergeStrictConnectedAndUnconnected = getRuleProperty( strCode, KEY_MERGE_STRICT_CONNECTED_AND_UNCONNECTED, false );
+    }
+
+    /**
+     * Loads the configuration of the rules to resolve. When <code>rule.codes</code> is not set, the single <code>rule.code</code> is used.
+     *
+     * @return the rules to resolve
+     */
+    public static List<ResolutionRule> loadAll( )
+    {
+        final String strCodes = StringUtils.defaultIfBlank( AppPropertiesService.getProperty( PROPERTY_RULE_CODES ),
+                AppPropertiesService.getProperty( PROPERTY_RULE_CODE, StringUtils.EMPTY ) );
+        return Arrays.stream( strCodes.split( "," ) ).map( String::trim ).filter( StringUtils::isNotEmpty ).distinct( ).map( ResolutionRule::new )
+                .collect( Collectors.toList( ) );
+    }
+
+    private static int getRuleProperty( final String strCode, final String strKey, final int nDefault )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_RULE_PREFIX + strCode + "." + strKey,
+                AppPropertiesService.getPropertyInt( PROPERTY_PREFIX + strKey, nDefault ) );
+    }
+
+    private static boolean getRuleProperty( final String strCode, final String strKey, final boolean bDefault )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_RULE_PREFIX + strCode + "." + strKey,
+                AppPropertiesService.getPropertyBoolean( PROPERTY_PREFIX + strKey, bDefault ) );
+    }
+
+    /**
+     * @return the code of the duplicate rule
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * @return the minimum delay between two resolutions of the rule, in seconds. 0 means the rule is resolved at each execution of the daemon
+     */
+    public long getInterval( )
+    {
+        return _lInterval;
+    }
+
+    /**
+     * @return the number of suspicions of the rule resolved in parallel
+     */
+    public int getWorkers( )
+    {
+        return _nWorkers;
+    }
+
+    /**
+     * @return <code>true</code> if strict duplicates involving connected identities give merge tasks
+     */
+    public boolean isMergeStrictConnected( )
+    {
+        return _bMergeStrictConnected;
+    }
+
+    /**
+     * @return <code>true</code> if strict duplicates between a connected and an unconnected identity give merge tasks
+     */
+    public boolean isMergeStrictConnectedAndUnconnected( )
+    {
+        return _bMergeStrictConnectedAndUnconnected;
+    }
+}
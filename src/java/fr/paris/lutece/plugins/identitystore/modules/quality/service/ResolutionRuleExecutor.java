@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the resolution of each duplicate rule on its own thread, so that a slow rule does not hold back the others.<br/>
+ * The threads belong to this bean and not to the daemon, so that they are stopped with the application context and not left running when the daemon is
+ * created again.
+ */
+public class ResolutionRuleExecutor
+{
+    private static final String THREAD_NAME_PREFIX = "identity-duplicates-resolution-";
+
+    private final Map<String, ExecutorService> _executors = new ConcurrentHashMap<>( );
+    private final Map<String, Future<?>> _runs = new ConcurrentHashMap<>( );
+    private volatile boolean _bShutdown;
+
+    /**
+     * Tells if the resolution of the rule is running
+     *
+     * @param strRuleCode
+     *            the code of the rule
+     * @return <code>true</code> if the resolution of the rule is running
+     */
+    public boolean isRunning( final String strRuleCode )
+    {
+        final Future<?> run = _runs.get( strRuleCode );
+        return run != null && !run.isDone( );
+    }
+
+    /**
+     * @return <code>true</code> if no resolution is running
+     */
+    public boolean isIdle( )
+    {
+        return _runs.values( ).stream( ).allMatch( Future::isDone );
+    }
+
+    /**
+     * Starts the resolution of a rule, unless it is still running
+     *
+     * @param strRuleCode
+     *            the code of the rule
+     * @param resolution
+     *            the resolution
+     * @return <code>true</code> if the resolution has been started
+     */
+    public synchronized boolean submit( final String strRuleCode, final Runnable resolution )
+    {
+        if ( _bShutdown || this.isRunning( strRuleCode ) )
+        {
+            return false;
+        }
+        try
+        {
+            _runs.put( strRuleCode, this.getExecutor( strRuleCode ).submit( resolution ) );
+            return true;
+        }
+        catch( final RejectedExecutionException e )
+        {
+            return false;
+        }
+    }
+
+    private ExecutorService getExecutor( final String strRuleCode )
+    {
+        return _executors.computeIfAbsent( strRuleCode, code -> Executors.newSingleThreadExecutor( runnable -> {
+            final Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + code );
+            thread.setDaemon( true );
+            return thread;
+        } ) );
+    }
+
+    /**
+     * Stops accepting resolutions and interrupts the running ones
+     */
+    public synchronized void shutdown( )
+    {
+        _bShutdown = true;
+        _executors.values( ).forEach( ExecutorService::shutdownNow );
+        _executors.clear( );
+    }
+}
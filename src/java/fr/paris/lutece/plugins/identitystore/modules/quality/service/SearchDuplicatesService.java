@@ -33,7 +33,10 @@
  */
 package fr.paris.lutece.plugins.identitystore.modules.quality.service;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchBulkhead.Caller;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchBulkhead.Search;
 import fr.paris.lutece.plugins.identitystore.service.duplicate.IDuplicateService;
+import fr.paris.lutece.plugins.identitystore.utils.Maps;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.QualifiedIdentitySearchResult;
@@ -41,16 +44,31 @@ import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
 import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 public class SearchDuplicatesService
 {
     private static SearchDuplicatesService instance;
+    private static final boolean COALESCING_ENABLED = AppPropertiesService.getPropertyBoolean( "identitystore-quality.duplicates.search.coalescing.enabled",
+            true );
+    private static final String BEAN_FAN_OUT_EXECUTOR = "identitystore-quality.duplicateSearchFanOutExecutor";
     private final IDuplicateService _duplicateServiceElasticSearch = SpringContextService.getBean( "identitystore.duplicateService.elasticsearch" );
+    private static final int COALESCING_WAIT = AppPropertiesService.getPropertyInt( "identitystore-quality.duplicates.search.coalescing.wait", 10000 );
+    private final DuplicateSearchCoalescer<SearchKey> _interactiveCoalescer = new DuplicateSearchCoalescer<>( COALESCING_WAIT );
+    private final DuplicateSearchCoalescer<SearchKey> _daemonCoalescer = new DuplicateSearchCoalescer<>( COALESCING_WAIT );
 
     /**
      * get instance
@@ -94,11 +112,29 @@ public class SearchDuplicatesService
      */
     public final Map<String, QualifiedIdentitySearchResult> findDuplicates( final IdentityDto identity, final List<DuplicateRule> rules,
             final List<String> attributesFilter, final boolean allowEmptyResponse ) throws IdentityStoreException
+    {
+        return this.findDuplicates( identity, rules, attributesFilter, allowEmptyResponse, Caller.INTERACTIVE );
+    }
+
+    /**
+     * find duplicates from an identity
+     * 
+     * @param identity
+     * @param rules
+     * @param attributesFilter
+     * @param allowEmptyResponse
+     * @param caller
+     *            the origin of the search, which gives the concurrency limit it is subject to
+     * @return
+     * @throws IdentityStoreException
+     */
+    public final Map<String, QualifiedIdentitySearchResult> findDuplicates( final IdentityDto identity, final List<DuplicateRule> rules,
+            final List<String> attributesFilter, final boolean allowEmptyResponse, final Caller caller ) throws IdentityStoreException
     {
         final Map<String, String> attributeMap = identity.getAttributes( ).stream( )
                 .filter( attributeDto -> StringUtils.isNotBlank( attributeDto.getValue( ) ) ).collect( Collectors.toMap( AttributeDto::getKey, AttributeDto::getValue ) );
         
-        return findDuplicates ( attributeMap, identity.getCustomerId( ), rules, attributesFilter, allowEmptyResponse);
+        return findDuplicates ( attributeMap, identity.getCustomerId( ), rules, attributesFilter, allowEmptyResponse, caller );
     }
 
     /**
@@ -131,8 +167,27 @@ public class SearchDuplicatesService
     public final Map<String, QualifiedIdentitySearchResult> findDuplicates( final Map<String, String> attributeValues, String strCustomerID, final List<DuplicateRule> rules,
             final List<String> attributesFilter, final boolean allowEmptyResponse ) throws IdentityStoreException
     {
-        final Map<String, QualifiedIdentitySearchResult> duplicates = _duplicateServiceElasticSearch.findDuplicates( attributeValues, strCustomerID, rules,
-                attributesFilter );
+        return findDuplicates( attributeValues, strCustomerID, rules, attributesFilter, allowEmptyResponse, Caller.INTERACTIVE );
+    }
+
+    /**
+     * find duplicates
+     * 
+     * @param attributeValues
+     * @param strCustomerID
+     * @param rules
+     * @param attributesFilter
+     * @param allowEmptyResponse
+     * @param caller
+     *            the origin of the search, which gives the concurrency limit it is subject to
+     * @return
+     * @throws IdentityStoreException
+     */
+    public final Map<String, QualifiedIdentitySearchResult> findDuplicates( final Map<String, String> attributeValues, String strCustomerID, final List<DuplicateRule> rules,
+            final List<String> attributesFilter, final boolean allowEmptyResponse, final Caller caller ) throws IdentityStoreException
+    {
+        final Map<String, QualifiedIdentitySearchResult> duplicates = COALESCING_ENABLED ? this.searchOnce( attributeValues, strCustomerID, rules,
+                attributesFilter, caller ) : this.search( attributeValues, strCustomerID, rules, attributesFilter, caller );
         
         if ( !allowEmptyResponse && ( duplicates == null || duplicates.values( ).stream( ).allMatch( r -> r.getQualifiedIdentities( ).isEmpty( ) ) ) )
         {
@@ -144,4 +199,144 @@ public class SearchDuplicatesService
 
         return duplicates;
     }
+
+    /**
+     * find duplicates from an attribute list, running the search of each rule in parallel on the {@link DuplicateSearchFanOutExecutor}
+     * (allow empty response)
+     * 
+     * @param attributeValues
+     * @param rules
+     * @param attributesFilter
+     * @param lTimeout
+     *            the time given to all the searches, in milliseconds
+     * @return the duplicates by rule code, and the codes of the rules whose search did not end in time (their duplicates are missing)
+     * @throws IdentityStoreException
+     *             if the search of a rule fails
+     */
+    public final Pair<Map<String, QualifiedIdentitySearchResult>, List<String>> findDuplicatesByRule( final Map<String, String> attributeValues,
+            final List<DuplicateRule> rules, final List<String> attributesFilter, final long lTimeout ) throws IdentityStoreException
+    {
+        final DuplicateSearchFanOutExecutor executor = SpringContextService.getBean( BEAN_FAN_OUT_EXECUTOR );
+        final Map<DuplicateRule, Callable<Map<String, QualifiedIdentitySearchResult>>> searches = new LinkedHashMap<>( );
+        for ( final DuplicateRule rule : rules )
+        {
+            searches.put( rule, ( ) -> this.findDuplicates( attributeValues, StringUtils.EMPTY, Collections.singletonList( rule ), attributesFilter, true ) );
+        }
+
+        final Pair<Map<DuplicateRule, Map<String, QualifiedIdentitySearchResult>>, List<DuplicateRule>> results;
+        try
+        {
+            results = executor.invokeAll( searches, lTimeout );
+        }
+        catch( final ExecutionException e )
+        {
+            if ( e.getCause( ) instanceof IdentityStoreException )
+            {
+                throw (IdentityStoreException) e.getCause( );
+            }
+            throw new IdentityStoreException( e.getCause( ).getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityStoreException( "The duplicate searches were interrupted", Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+
+        final Map<String, QualifiedIdentitySearchResult> duplicates = new LinkedHashMap<>( );
+        results.getLeft( ).values( ).stream( ).filter( Objects::nonNull ).forEach( duplicates::putAll );
+        return Pair.of( duplicates, results.getRight( ).stream( ).map( DuplicateRule::getCode ).collect( Collectors.toList( ) ) );
+    }
+
+    /**
+     * Merges the results of several rules : an identity found by several rules is returned once, in the order it was first found
+     *
+     * @param duplicates
+     *            the duplicates by rule code
+     * @param metadata
+     *            the metadata into which the metadata of each result is merged
+     * @return the identities, by customer ID
+     */
+    public static List<IdentityDto> mergeByCustomerId( final Map<String, QualifiedIdentitySearchResult> duplicates, final Map<String, String> metadata )
+    {
+        final Map<String, IdentityDto> identities = new LinkedHashMap<>( );
+        for ( final QualifiedIdentitySearchResult result : duplicates.values( ) )
+        {
+            Maps.mergeStringMap( metadata, result.getMetadata( ) );
+            result.getQualifiedIdentities( ).forEach( identity -> identities.putIfAbsent( identity.getCustomerId( ), identity ) );
+        }
+        return new ArrayList<>( identities.values( ) );
+    }
+
+    /**
+     * Runs the search, or waits for the identical search already in flight and returns a copy of its result. Only the search that runs takes a permit of the
+     * bulkhead. A daemon search joins the identical interactive search in flight, but an interactive search never waits for a daemon search, which may be
+     * yielding to the interactive ones.
+     */
+    private Map<String, QualifiedIdentitySearchResult> searchOnce( final Map<String, String> attributeValues, final String strCustomerID,
+            final List<DuplicateRule> rules, final List<String> attributesFilter, final Caller caller ) throws IdentityStoreException
+    {
+        final SearchKey key = new SearchKey( attributeValues, strCustomerID, rules, attributesFilter );
+        final Search<Map<String, QualifiedIdentitySearchResult>> search = ( ) -> this.search( attributeValues, strCustomerID, rules, attributesFilter, caller );
+        if ( caller == Caller.INTERACTIVE )
+        {
+            return _interactiveCoalescer.execute( key, search );
+        }
+        return _daemonCoalescer.execute( key, search, _interactiveCoalescer );
+    }
+
+    /**
+     * Runs the search on Elasticsearch within the {@link DuplicateSearchBulkhead} of the caller, through the {@link DuplicateSearchCircuitBreaker}. The
+     * interactive searches are also hedged by {@link DuplicateSearchHedging} : each of the hedged searches goes through the bulkhead and the circuit breaker.
+     */
+    private Map<String, QualifiedIdentitySearchResult> search( final Map<String, String> attributeValues, final String strCustomerID,
+            final List<DuplicateRule> rules, final List<String> attributesFilter, final Caller caller ) throws IdentityStoreException
+    {
+        final Search<Map<String, QualifiedIdentitySearchResult>> search = ( ) -> _duplicateServiceElasticSearch.findDuplicates( attributeValues, strCustomerID,
+                rules, attributesFilter );
+        final Search<Map<String, QualifiedIdentitySearchResult>> attempt = ( ) -> DuplicateSearchBulkhead.instance( ).execute( caller,
+                ( ) -> DuplicateSearchCircuitBreaker.instance( ).execute( search ) );
+        return caller == Caller.INTERACTIVE ? DuplicateSearchHedging.instance( ).execute( attempt ) : attempt.run( );
+    }
+
+    /**
+     * Identifies a duplicate search : the attribute values (whatever their order), the customer ID to exclude, the rules and the attribute filter
+     */
+    private static final class SearchKey
+    {
+        private final Map<String, String> _attributeValues;
+        private final String _strCustomerId;
+        private final List<String> _ruleCodes;
+        private final List<String> _attributesFilter;
+
+        private SearchKey( final Map<String, String> attributeValues, final String strCustomerId, final List<DuplicateRule> rules,
+                final List<String> attributesFilter )
+        {
+            _attributeValues = attributeValues != null ? new TreeMap<>( attributeValues ) : Collections.emptyMap( );
+            _strCustomerId = strCustomerId;
+            _ruleCodes = rules.stream( ).map( DuplicateRule::getCode ).collect( Collectors.toList( ) );
+            _attributesFilter = attributesFilter != null ? new ArrayList<>( attributesFilter ) : Collections.emptyList( );
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof SearchKey ) )
+            {
+                return false;
+            }
+            final SearchKey other = (SearchKey) o;
+            return _attributeValues.equals( other._attributeValues ) && Objects.equals( _strCustomerId, other._strCustomerId )
+                    && _ruleCodes.equals( other._ruleCodes ) && _attributesFilter.equals( other._attributesFilter );
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return Objects.hash( _attributeValues, _strCustomerId, _ruleCodes, _attributesFilter );
+        }
+    }
 }
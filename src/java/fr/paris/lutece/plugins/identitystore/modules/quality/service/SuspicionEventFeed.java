@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEvent;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEventHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Reads the suspicion event log as a feed : clients give the sequence number of the last event they read, and get the following ones.<br/>
+ * The sequence numbers are allocated when the events are inserted, but the events only become visible when their transaction commits : an event may
+ * appear after an event with a greater sequence number. The feed therefore stops before any missing sequence number, and only skips it once it has been
+ * missing for <code>identitystore-quality.suspicions.events.settle.delay</code> seconds (rolled back transactions leave gaps for good). The gaps are
+ * tracked by their first missing sequence number, from the moment this node first saw them, with its own monotonic clock : the dates of the events,
+ * written by any node, are not compared. The delay must be longer than the transactions recording suspicion events. The sequence numbers before the
+ * oldest retained event have been purged : they are never waited for.<br/>
+ * Long-polls re-read the log every <code>identitystore-quality.suspicions.events.poll.interval</code> milliseconds on a scheduler, so that the events
+ * recorded by any node are seen, without holding a container thread.
+ */
+public class SuspicionEventFeed
+{
+    private static final String PROPERTY_SETTLE_DELAY = "identitystore-quality.suspicions.events.settle.delay";
+    private static final String PROPERTY_POLL_INTERVAL = "identitystore-quality.suspicions.events.poll.interval";
+    private static final String PROPERTY_THREADS = "identitystore-quality.suspicions.events.threads";
+    private static final String PROPERTY_MAX_WAIT = "identitystore-quality.suspicions.events.max.wait";
+    private static final String PROPERTY_MAX_SIZE = "identitystore-quality.suspicions.events.max.size";
+    private static final String THREAD_NAME_PREFIX = "identitystore-quality-suspicion-event-feed-";
+    /** The skipped gaps are remembered for a while, so that the clients reading behind do not wait for them again */
+    private static final long GAP_RETENTION = TimeUnit.HOURS.toMillis( 1 );
+
+    private final ScheduledThreadPoolExecutor _scheduler;
+    private final long _lSettleDelay;
+    private final int _nPollInterval;
+    private final int _nMaxWait;
+    private final int _nMaxSize;
+    private final BiFunction<Integer, Integer, List<SuspicionEvent>> _finder;
+    private final IntSupplier _oldestIdFinder;
+    private final LongSupplier _clock;
+    private final Map<Integer, Long> _gaps = new ConcurrentHashMap<>( );
+
+    /**
+     * Constructor
+     */
+    public SuspicionEventFeed( )
+    {
+        this( AppPropertiesService.getPropertyInt( PROPERTY_SETTLE_DELAY, 10 ) * 1000L, AppPropertiesService.getPropertyInt( PROPERTY_POLL_INTERVAL, 1000 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_THREADS, 2 ), AppPropertiesService.getPropertyInt( PROPERTY_MAX_WAIT, 30 ),
+                AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, 1000 ), SuspicionEventHome::findAfter, SuspicionEventHome::findOldestId,
+                ( ) -> TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) ) );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param lSettleDelay
+     *            the time after which a missing sequence number is skipped, in milliseconds
+     * @param nPollInterval
+     *            the interval between two reads of a long-poll, in milliseconds
+     * @param nThreads
+     *            the number of threads running the long-polls
+     * @param nMaxWait
+     *            the maximum duration of a long-poll, in seconds
+     * @param nMaxSize
+     *            the maximum number of events read at once
+     * @param finder
+     *            reads the events following a sequence number, up to a number of events
+     * @param oldestIdFinder
+     *            reads the sequence number of the oldest retained event
+     * @param clock
+     *            the monotonic clock measuring the age of the gaps, in milliseconds
+     */
+    SuspicionEventFeed( final long lSettleDelay, final int nPollInterval, final int nThreads, final int nMaxWait, final int nMaxSize,
+            final BiFunction<Integer, Integer, List<SuspicionEvent>> finder, final IntSupplier oldestIdFinder, final LongSupplier clock )
+    {
+        _lSettleDelay = Math.max( 0, lSettleDelay );
+        _nPollInterval = Math.max( 100, nPollInterval );
+        _nMaxWait = Math.max( 0, nMaxWait );
+        _nMaxSize = Math.max( 1, nMaxSize );
+        _finder = finder;
+        _oldestIdFinder = oldestIdFinder;
+        _clock = clock;
+        final AtomicInteger threadNumber = new AtomicInteger( );
+        _scheduler = new ScheduledThreadPoolExecutor( Math.max( 1, nThreads ), runnable -> {
+            final Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        _scheduler.setRemoveOnCancelPolicy( true );
+    }
+
+    /**
+     * Reads the events following the given sequence number, without waiting.
+     *
+     * @param nOffset
+     *            the sequence number of the last event read by the client, 0 to read from the oldest retained event
+     * @param nLimit
+     *            the maximum number of events to read
+     * @return the events, in the order of their sequence number, possibly empty
+     */
+    public List<SuspicionEvent> read( final int nOffset, final int nLimit )
+    {
+        final List<SuspicionEvent> events = _finder.apply( nOffset, nLimit );
+        final long lNow = _clock.getAsLong( );
+        _gaps.values( ).removeIf( lFirstSeen -> lNow - lFirstSeen > Math.max( GAP_RETENTION, _lSettleDelay ) );
+
+        final List<SuspicionEvent> settledEvents = new ArrayList<>( events.size( ) );
+        int nExpectedId = nOffset + 1;
+        for ( final SuspicionEvent event : events )
+        {
+            /* A missing sequence number may belong to a transaction still running, unless it comes before the oldest retained event */
+            if ( event.getId( ) != nExpectedId && !( settledEvents.isEmpty( ) && this.isOldest( nOffset, event ) )
+                    && lNow - _gaps.computeIfAbsent( nExpectedId, nId -> lNow ) < _lSettleDelay )
+            {
+                break;
+            }
+            settledEvents.add( event );
+            nExpectedId = event.getId( ) + 1;
+        }
+        return settledEvents;
+    }
+
+    /**
+     * Tells if the first event read after the offset is the oldest retained event : the sequence numbers before it have been purged, or were never used
+     */
+    private boolean isOldest( final int nOffset, final SuspicionEvent event )
+    {
+        return nOffset == 0 || event.getId( ) <= _oldestIdFinder.getAsInt( );
+    }
+
+    /**
+     * Waits until events follow the given sequence number.
+     *
+     * @param nOffset
+     *            the sequence number of the last event read by the client
+     * @param nWait
+     *            the maximum duration of the wait, in seconds, capped by <code>identitystore-quality.suspicions.events.max.wait</code>
+     * @return a future completed once events can be read, or once the wait is over
+     * @throws RejectedExecutionException
+     *             if the feed is shut down
+     */
+    public CompletableFuture<Void> await( final int nOffset, final int nWait )
+    {
+        final CompletableFuture<Void> result = new CompletableFuture<>( );
+        final long lDeadline = System.currentTimeMillis( ) + TimeUnit.SECONDS.toMillis( Math.max( 0, Math.min( nWait, _nMaxWait ) ) );
+        _scheduler.execute( ( ) -> this.poll( result, nOffset, lDeadline ) );
+        return result;
+    }
+
+    private void poll( final CompletableFuture<Void> result, final int nOffset, final long lDeadline )
+    {
+        try
+        {
+            final long lRemaining = lDeadline - System.currentTimeMillis( );
+            if ( !this.read( nOffset, 1 ).isEmpty( ) || lRemaining <= 0 )
+            {
+                result.complete( null );
+                return;
+            }
+            _scheduler.schedule( ( ) -> this.poll( result, nOffset, lDeadline ), Math.min( _nPollInterval, lRemaining ), TimeUnit.MILLISECONDS );
+        }
+        catch( final RuntimeException e )
+        {
+            result.completeExceptionally( e );
+        }
+    }
+
+    /**
+     * @return the maximum duration of a long-poll, in seconds
+     */
+    public int getMaxWait( )
+    {
+        return _nMaxWait;
+    }
+
+    /**
+     * @return the maximum number of events read at once
+     */
+    public int getMaxSize( )
+    {
+        return _nMaxSize;
+    }
+
+    /**
+     * Stops the long-polls, the pending ones are answered by the timeout of their response
+     */
+    public void shutdown( )
+    {
+        _scheduler.shutdownNow( );
+    }
+}
@@ -33,12 +33,26 @@
  */
 package fr.paris.lutece.plugins.identitystore.modules.quality.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.paris.lutece.plugins.identitystore.business.application.ClientApplication;
 import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
 import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
 import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspiciousIdentityDeleteHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionCounterHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEventHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEventType;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspiciousIdentityCursor;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspiciousIdentityInsertHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspiciousIdentityLockHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspiciousIdentitySearchHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
 import fr.paris.lutece.plugins.identitystore.modules.quality.rs.SuspiciousIdentityMapper;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkExcludeRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityCursorSearchRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityReleaseRequest;
 import fr.paris.lutece.plugins.identitystore.service.listeners.IdentityStoreNotifyListenerService;
 import fr.paris.lutece.plugins.identitystore.service.user.InternalUserService;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.Page;
@@ -53,17 +67,32 @@ import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.lock.SuspiciousIdenti
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
 import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
 import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
 import fr.paris.lutece.portal.service.security.AccessLogService;
 import fr.paris.lutece.portal.service.security.AccessLoggerConstants;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.sql.TransactionManager;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class SuspiciousIdentityService
@@ -75,11 +104,20 @@ public class SuspiciousIdentityService
     private static final String UNLOCK_SUSPICIOUS_IDENTITY_EVENT_CODE = "UNLOCK_SUSPICIOUS_IDENTITY";
     private static final String EXCLUDE_SUSPICIOUS_IDENTITY_EVENT_CODE = "EXCLUDE_SUSPICIOUS_IDENTITY";
     private static final String ACCESS_SUSPICIOUS_IDENTITY_LOCK_STATUS = "ACCESS_SUSPICIOUS_IDENTITY_LOCK_STATUS";
+    private static final String EXPORT_SUSPICIOUS_IDENTITY_EVENT_CODE = "EXPORT_SUSPICIOUS_IDENTITY";
     private static final String SPECIFIC_ORIGIN = "BO";
 
+    // PROPERTIES
+    private static final String PROPERTY_CLAIM_SKIP_LOCKED = "identitystore-quality.suspicions.claim.skip.locked";
+    private static final String PROPERTY_CLAIM_LOCK_DURATION = "identitystore-quality.suspicions.claim.lock.duration";
+    private static final String PROPERTY_SEARCH_ACCESS_LOG_MODE = "identitystore-quality.accesslog.search.mode";
+    private static final String ACCESS_LOG_MODE_AGGREGATED = "AGGREGATED";
+
     // SERVICES
     private final IdentityStoreNotifyListenerService _identityStoreNotifyListenerService = IdentityStoreNotifyListenerService.instance( );
     private final InternalUserService _internalUserService = InternalUserService.getInstance( );
+    private final AsyncAccessLogger _asyncAccessLogger = SpringContextService.getBean( "identitystore-quality.asyncAccessLogger" );
+    private final ObjectMapper _mapper = new ObjectMapper( ).disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
     private static SuspiciousIdentityService _instance;
 
     public static SuspiciousIdentityService instance( )
@@ -105,25 +143,65 @@ public class SuspiciousIdentityService
      * @param author
      *            the author
      * @return the created {@link SuspiciousIdentityDto}
+     * @throws ResourceConsistencyException
+     *             if the identity is already suspicious
      * @throws IdentityStoreException
      *             in case of error
      */
     public SuspiciousIdentityDto create( final SuspiciousIdentityChangeRequest request, final Identity identity, final DuplicateRule duplicateRule,
             final String clientCode, final RequestAuthor author ) throws IdentityStoreException
     {
-        TransactionManager.beginTransaction( null );
-        try
+        final SuspiciousIdentityDto suspiciousIdentity = this.createIfAbsent( request, identity, duplicateRule,
+                Collections.singletonList( identity.getCustomerId( ) ), clientCode, author );
+        if ( suspiciousIdentity == null )
         {
-            final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
-
-            suspiciousIdentity.setDuplicateRuleCode( duplicateRule.getCode( ) );
-            suspiciousIdentity.setIdDuplicateRule( duplicateRule.getId( ) );
-            suspiciousIdentity.setCustomerId( identity.getCustomerId( ) );
-            suspiciousIdentity.setCreationDate( Timestamp.from( Instant.now( ) ) );
-            suspiciousIdentity.setLastUpdateDate( identity.getLastUpdateDate( ) );
+            throw new ResourceConsistencyException( "Identity already reported", Constants.PROPERTY_REST_ERROR_IDENTITY_ALREADY_SUSPICIOUS );
+        }
+        return suspiciousIdentity;
+    }
 
-            SuspiciousIdentityHome.create( suspiciousIdentity );
+    /**
+     * Creates a new {@link SuspiciousIdentity} according to the given parameters, unless the identity or one of the given identities is already suspicious.
+     * The check and the creation are done under a lock of these identities : concurrent callers cannot create two suspicions of the same identity.
+     *
+     * @param request
+     *            the {@link SuspiciousIdentityChangeRequest} holding the parameters of the suspicious identity change request
+     * @param identity
+     *            the {@link Identity} wanted to be marked as suspicious
+     * @param duplicateRule
+     *            the {@link DuplicateRule} used to mark the suspicious identity
+     * @param customerIds
+     *            the customer IDs that must not be suspicious yet (e.g. the identity and its duplicates), the one of the identity included
+     * @param clientCode
+     *            code of the {@link ClientApplication} requesting the change
+     * @param author
+     *            the author
+     * @return the created {@link SuspiciousIdentityDto}, or null if one of the identities is already suspicious
+     * @throws IdentityStoreException
+     *             in case of error
+     */
+    public SuspiciousIdentityDto createIfAbsent( final SuspiciousIdentityChangeRequest request, final Identity identity, final DuplicateRule duplicateRule,
+            final Collection<String> customerIds, final String clientCode, final RequestAuthor author ) throws IdentityStoreException
+    {
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+        suspiciousIdentity.setDuplicateRuleCode( duplicateRule.getCode( ) );
+        suspiciousIdentity.setIdDuplicateRule( duplicateRule.getId( ) );
+        suspiciousIdentity.setCustomerId( identity.getCustomerId( ) );
+        suspiciousIdentity.setCreationDate( Timestamp.from( Instant.now( ) ) );
+        suspiciousIdentity.setLastUpdateDate( identity.getLastUpdateDate( ) );
 
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            final Set<String> checkedCustomerIds = new LinkedHashSet<>( customerIds );
+            checkedCustomerIds.add( identity.getCustomerId( ) );
+            if ( !SuspiciousIdentityInsertHome.createIfAbsent( suspiciousIdentity, checkedCustomerIds ) )
+            {
+                TransactionManager.commitTransaction( null );
+                return null;
+            }
+            SuspicionCounterHome.add( duplicateRule.getId( ), 1 );
+            appendEvent( SuspicionEventType.CREATED, suspiciousIdentity.getCustomerId( ), duplicateRule.getCode( ), null, author );
             TransactionManager.commitTransaction( null );
 
             final Map<String, String> metadata = new HashMap<>( request.getSuspiciousIdentity( ).getMetadata( ) );
@@ -143,13 +221,122 @@ public class SuspiciousIdentityService
         }
     }
 
+    /**
+     * Creates many {@link SuspiciousIdentity} within a single transaction. The identities already suspicious, or made suspicious meanwhile by a concurrent
+     * caller, are skipped. The others are either all created, or none.
+     *
+     * @param creations
+     *            the suspicious identities to create, each one given by its change request, the {@link Identity} wanted to be marked as suspicious and the
+     *            {@link DuplicateRule} used to mark it
+     * @param clientCode
+     *            code of the {@link ClientApplication} requesting the changes
+     * @param author
+     *            the author
+     * @return the created {@link SuspiciousIdentityDto}, in the order of the creations, <code>null</code> for the skipped identities
+     * @throws IdentityStoreException
+     *             in case of error, nothing is created
+     */
+    public List<SuspiciousIdentityDto> createAll( final List<Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule>> creations,
+            final String clientCode, final RequestAuthor author ) throws IdentityStoreException
+    {
+        final List<SuspiciousIdentity> suspiciousIdentities = new ArrayList<>( creations.size( ) );
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            /* All the locks are taken at once, in the same order as any other creation */
+            SuspiciousIdentityInsertHome.lock( creations.stream( ).map( creation -> creation.getMiddle( ).getCustomerId( ) ).collect( Collectors.toList( ) ) );
+            final Timestamp creationDate = Timestamp.from( Instant.now( ) );
+            final Map<Integer, Integer> createdByRule = new HashMap<>( );
+            for ( final Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule> creation : creations )
+            {
+                final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+                suspiciousIdentity.setDuplicateRuleCode( creation.getRight( ).getCode( ) );
+                suspiciousIdentity.setIdDuplicateRule( creation.getRight( ).getId( ) );
+                suspiciousIdentity.setCustomerId( creation.getMiddle( ).getCustomerId( ) );
+                suspiciousIdentity.setCreationDate( creationDate );
+                suspiciousIdentity.setLastUpdateDate( creation.getMiddle( ).getLastUpdateDate( ) );
+
+                if ( !SuspiciousIdentityInsertHome.createIfAbsent( suspiciousIdentity, Collections.singletonList( suspiciousIdentity.getCustomerId( ) ) ) )
+                {
+                    suspiciousIdentities.add( null );
+                    continue;
+                }
+                appendEvent( SuspicionEventType.CREATED, suspiciousIdentity.getCustomerId( ), suspiciousIdentity.getDuplicateRuleCode( ), null, author );
+                createdByRule.merge( suspiciousIdentity.getIdDuplicateRule( ), 1, Integer::sum );
+                suspiciousIdentities.add( suspiciousIdentity );
+            }
+            createdByRule.forEach( SuspicionCounterHome::add );
+
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new IdentityStoreException( e.getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+
+        /* Notifications and access logs are only sent once everything is committed */
+        for ( int i = 0; i < creations.size( ); i++ )
+        {
+            if ( suspiciousIdentities.get( i ) == null )
+            {
+                continue;
+            }
+            final Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule> creation = creations.get( i );
+            final Map<String, String> metadata = new HashMap<>( creation.getLeft( ).getSuspiciousIdentity( ).getMetadata( ) );
+            metadata.put( Constants.METADATA_DUPLICATE_RULE_CODE, creation.getRight( ).getCode( ) );
+            _identityStoreNotifyListenerService.notifyListenersIdentityChange( IdentityChangeType.MARKED_SUSPICIOUS, creation.getMiddle( ),
+                    ResponseStatusType.SUCCESS.name( ), ResponseStatusType.SUCCESS.name( ), author, clientCode, metadata );
+
+            AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_CREATE, CREATE_SUSPICIOUS_IDENTITY_EVENT_CODE,
+                    _internalUserService.getApiUser( author, clientCode ), creation.getLeft( ), SPECIFIC_ORIGIN );
+        }
+
+        return suspiciousIdentities.stream( ).map( suspiciousIdentity -> suspiciousIdentity != null ? SuspiciousIdentityMapper.toDto( suspiciousIdentity ) : null )
+                .collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Removes the suspicion of the identity within a single transaction, together with the update of the counter of its rule and the removal event. Nothing
+     * is counted nor recorded if the suspicion was removed meanwhile.
+     *
+     * @param strCustomerId
+     *            the customer ID of the suspicious identity
+     * @param duplicateRule
+     *            the {@link DuplicateRule} of the suspicion
+     * @param author
+     *            the author
+     * @throws IdentityStoreException
+     *             in case of error, nothing is removed
+     */
+    public void remove( final String strCustomerId, final DuplicateRule duplicateRule, final RequestAuthor author ) throws IdentityStoreException
+    {
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            if ( SuspiciousIdentityDeleteHome.removeByCustomerId( strCustomerId ) )
+            {
+                SuspicionCounterHome.add( duplicateRule.getId( ), -1 );
+                appendEvent( SuspicionEventType.REMOVED, strCustomerId, duplicateRule.getCode( ), null, author );
+            }
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new IdentityStoreException( e.getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+    }
+
     public Pair<List<SuspiciousIdentityDto>, Page> search( final SuspiciousIdentitySearchRequest request, final String clientCode, final RequestAuthor author )
             throws IdentityStoreException
     {
-        final List<SuspiciousIdentity> fullSuspiciousList = SuspiciousIdentityHome.getSuspiciousIdentitysList( request.getRuleCode( ), request.getAttributes( ),
-                request.getMax( ), request.getRulePriority( ) );
+        /* Filtering, counting and paging are done by the database, max caps the whole result set */
+        final int max = request.getMax( ) != null && request.getMax( ) > 0 ? request.getMax( ) : Integer.MAX_VALUE;
+        final int totalRecords = Math.min( max,
+                SuspiciousIdentitySearchHome.count( request.getRuleCode( ), request.getAttributes( ), request.getRulePriority( ) ) );
 
-        if ( fullSuspiciousList == null || fullSuspiciousList.isEmpty( ) )
+        if ( totalRecords == 0 )
         {
             throw new ResourceNotFoundException( "No suspicious identity found", Constants.PROPERTY_REST_ERROR_NO_SUSPICIOUS_IDENTITY_FOUND );
         }
@@ -158,7 +345,6 @@ public class SuspiciousIdentityService
         final Page pagination;
         if ( request.getPage( ) != null && request.getSize( ) != null )
         {
-            final int totalRecords = fullSuspiciousList.size( );
             final int totalPages = (int) Math.ceil( (double) totalRecords / request.getSize( ) );
 
             if ( totalPages > 0 && request.getPage( ) > totalPages )
@@ -168,8 +354,9 @@ public class SuspiciousIdentityService
 
             final int start = ( request.getPage( ) - 1 ) * request.getSize( );
             final int end = Math.min( start + request.getSize( ), totalRecords );
-            suspiciousIdentitiesToReturn = fullSuspiciousList.subList( start, end ).stream( ).map( SuspiciousIdentityMapper::toDto )
-                    .collect( Collectors.toList( ) );
+            suspiciousIdentitiesToReturn = SuspiciousIdentitySearchHome
+                    .search( request.getRuleCode( ), request.getAttributes( ), request.getRulePriority( ), start, end - start ).stream( )
+                    .map( SuspiciousIdentityMapper::toDto ).collect( Collectors.toList( ) );
 
             pagination = new Page( );
             pagination.setTotalPages( totalPages );
@@ -183,16 +370,163 @@ public class SuspiciousIdentityService
         }
         else
         {
-            suspiciousIdentitiesToReturn = fullSuspiciousList.stream( ).map( SuspiciousIdentityMapper::toDto ).collect( Collectors.toList( ) );
+            suspiciousIdentitiesToReturn = SuspiciousIdentitySearchHome
+                    .search( request.getRuleCode( ), request.getAttributes( ), request.getRulePriority( ), 0, totalRecords ).stream( )
+                    .map( SuspiciousIdentityMapper::toDto ).collect( Collectors.toList( ) );
             pagination = null;
         }
 
-        for ( final SuspiciousIdentityDto suspiciousIdentity : suspiciousIdentitiesToReturn )
+        this.logSearch( request.getRuleCode( ), suspiciousIdentitiesToReturn, clientCode, author );
+        return Pair.of( suspiciousIdentitiesToReturn, pagination );
+    }
+
+    /**
+     * Searches a page of suspicious identities following the cursor of the request, in the (creation date, id) order. The cost of a page does not depend on
+     * its depth.
+     *
+     * @param request
+     *            the search request, holding the cursor (empty for the first page) and the page size
+     * @param clientCode
+     *            code of the client application
+     * @param author
+     *            the author
+     * @return the suspicious identities of the page and the cursor of the next page, null if this is the last page
+     * @throws IdentityStoreException
+     *             if the cursor is malformed, or if there is no suspicious identity at all
+     */
+    public Pair<List<SuspiciousIdentityDto>, String> searchAfter( final SuspiciousIdentityCursorSearchRequest request, final String clientCode,
+            final RequestAuthor author ) throws IdentityStoreException
+    {
+        if ( request.getSize( ) == null || request.getSize( ) <= 0 )
         {
-            AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_READ, SEARCH_SUSPICIOUS_IDENTITY_EVENT_CODE,
-                    _internalUserService.getApiUser( author, clientCode ), suspiciousIdentity, SPECIFIC_ORIGIN );
+            throw new RequestFormatException( "The page size is required when searching with a cursor.", QualityRestConstants.PROPERTY_REST_ERROR_INVALID_CURSOR );
         }
-        return Pair.of( suspiciousIdentitiesToReturn, pagination );
+        final SuspiciousIdentityCursor cursor;
+        try
+        {
+            cursor = StringUtils.isEmpty( request.getCursor( ) ) ? null : SuspiciousIdentityCursor.decode( request.getCursor( ) );
+        }
+        catch( final IllegalArgumentException e )
+        {
+            throw new RequestFormatException( "The cursor is malformed.", QualityRestConstants.PROPERTY_REST_ERROR_INVALID_CURSOR );
+        }
+
+        /* One more record is loaded to know if there is a next page */
+        final List<SuspiciousIdentity> suspiciousIdentities = SuspiciousIdentitySearchHome.searchAfter( request.getRuleCode( ), request.getAttributes( ),
+                request.getRulePriority( ), cursor, request.getSize( ) + 1 );
+        if ( cursor == null && suspiciousIdentities.isEmpty( ) )
+        {
+            throw new ResourceNotFoundException( "No suspicious identity found", Constants.PROPERTY_REST_ERROR_NO_SUSPICIOUS_IDENTITY_FOUND );
+        }
+
+        final String nextCursor;
+        if ( suspiciousIdentities.size( ) > request.getSize( ) )
+        {
+            suspiciousIdentities.remove( suspiciousIdentities.size( ) - 1 );
+            nextCursor = SuspiciousIdentityCursor.of( suspiciousIdentities.get( suspiciousIdentities.size( ) - 1 ) ).encode( );
+        }
+        else
+        {
+            nextCursor = null;
+        }
+
+        final List<SuspiciousIdentityDto> suspiciousIdentitiesToReturn = suspiciousIdentities.stream( ).map( SuspiciousIdentityMapper::toDto )
+                .collect( Collectors.toList( ) );
+        this.logSearch( request.getRuleCode( ), suspiciousIdentitiesToReturn, clientCode, author );
+        return Pair.of( suspiciousIdentitiesToReturn, nextCursor );
+    }
+
+    /**
+     * Records the access to the suspicious identities returned by a search. In <code>DETAILED</code> mode, one event is written per suspicious identity on the
+     * request thread. In <code>AGGREGATED</code> mode, a single event listing the customer IDs is handed to the {@link AsyncAccessLogger}.
+     *
+     * @param ruleCode
+     *            the duplicate rule code filter of the search, may be null
+     * @param suspiciousIdentities
+     *            the returned suspicious identities
+     * @param clientCode
+     *            code of the client application
+     * @param author
+     *            the author
+     */
+    private void logSearch( final String ruleCode, final List<SuspiciousIdentityDto> suspiciousIdentities, final String clientCode,
+            final RequestAuthor author )
+    {
+        if ( ACCESS_LOG_MODE_AGGREGATED.equalsIgnoreCase( AppPropertiesService.getProperty( PROPERTY_SEARCH_ACCESS_LOG_MODE, StringUtils.EMPTY ) ) )
+        {
+            final Map<String, Object> searchSummary = new LinkedHashMap<>( );
+            searchSummary.put( "rule_code", ruleCode );
+            searchSummary.put( "count", suspiciousIdentities.size( ) );
+            searchSummary.put( "customer_ids",
+                    suspiciousIdentities.stream( ).map( SuspiciousIdentityDto::getCustomerId ).collect( Collectors.toList( ) ) );
+            _asyncAccessLogger.info( AccessLoggerConstants.EVENT_TYPE_READ, SEARCH_SUSPICIOUS_IDENTITY_EVENT_CODE,
+                    _internalUserService.getApiUser( author, clientCode ), searchSummary, SPECIFIC_ORIGIN );
+        }
+        else
+        {
+            for ( final SuspiciousIdentityDto suspiciousIdentity : suspiciousIdentities )
+            {
+                AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_READ, SEARCH_SUSPICIOUS_IDENTITY_EVENT_CODE,
+                        _internalUserService.getApiUser( author, clientCode ), suspiciousIdentity, SPECIFIC_ORIGIN );
+            }
+        }
+    }
+
+    /**
+     * Writes the suspicious identities matching the filters to the output stream, one JSON document per line (NDJSON), as they are read from the database.
+     * The suspicious identities are never loaded all at once, whatever their number.
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule, can be null
+     * @param dateFrom
+     *            the minimum creation date (inclusive), can be null
+     * @param dateTo
+     *            the maximum creation date (exclusive), can be null
+     * @param outputStream
+     *            the output stream, left open
+     * @param clientCode
+     *            code of the client application
+     * @param author
+     *            the author
+     * @return the number of exported suspicious identities
+     * @throws IOException
+     *             if the output stream cannot be written
+     */
+    public int export( final String strRuleCode, final Timestamp dateFrom, final Timestamp dateTo, final OutputStream outputStream, final String clientCode,
+            final RequestAuthor author ) throws IOException
+    {
+        final AtomicInteger nbExported = new AtomicInteger( );
+        try
+        {
+            SuspiciousIdentitySearchHome.export( strRuleCode, dateFrom, dateTo, suspiciousIdentity -> {
+                try
+                {
+                    _mapper.writeValue( outputStream, SuspiciousIdentityMapper.toDto( suspiciousIdentity ) );
+                    outputStream.write( '\n' );
+                    nbExported.incrementAndGet( );
+                }
+                catch( final IOException e )
+                {
+                    throw new UncheckedIOException( e );
+                }
+            } );
+        }
+        catch( final UncheckedIOException e )
+        {
+            throw e.getCause( );
+        }
+        finally
+        {
+            outputStream.flush( );
+            final Map<String, Object> exportSummary = new LinkedHashMap<>( );
+            exportSummary.put( Constants.PARAM_RULE_CODE, strRuleCode );
+            exportSummary.put( QualityRestConstants.PARAM_DATE_FROM, dateFrom );
+            exportSummary.put( QualityRestConstants.PARAM_DATE_TO, dateTo );
+            exportSummary.put( "exported", nbExported.get( ) );
+            AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_READ, EXPORT_SUSPICIOUS_IDENTITY_EVENT_CODE,
+                    _internalUserService.getApiUser( author, clientCode ), exportSummary, SPECIFIC_ORIGIN );
+        }
+        return nbExported.get( );
     }
 
     public boolean lock( final SuspiciousIdentityLockRequest request, final SuspiciousIdentity suspiciousIdentity, final String strClientCode,
@@ -202,6 +536,11 @@ public class SuspiciousIdentityService
         try
         {
             final boolean locked = SuspiciousIdentityHome.manageLock( suspiciousIdentity.getCustomerId(), author.getName( ), author.getType( ).name( ), request.isLocked( ) );
+            if ( locked )
+            {
+                appendEvent( request.isLocked( ) ? SuspicionEventType.LOCKED : SuspicionEventType.UNLOCKED, suspiciousIdentity.getCustomerId( ),
+                        suspiciousIdentity.getDuplicateRuleCode( ), null, author );
+            }
             TransactionManager.commitTransaction( null );
             AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_MODIFY,
                     request.isLocked( ) ? LOCK_SUSPICIOUS_IDENTITY_EVENT_CODE : UNLOCK_SUSPICIOUS_IDENTITY_EVENT_CODE,
@@ -215,6 +554,120 @@ public class SuspiciousIdentityService
         }
     }
 
+    /**
+     * Locks the oldest unlocked suspicious identities of the rule for the author, so that concurrent agents are never given the same suspicions.<br/>
+     * With <code>identitystore-quality.suspicions.claim.skip.locked</code> (the default), the suspicions are selected with
+     * <code>FOR UPDATE SKIP LOCKED</code> and locked with a single statement. Otherwise each one is claimed with its own conditional update, and the ones
+     * claimed meanwhile by another agent are left out.
+     *
+     * @param strRuleCode
+     *            the code of the duplicate rule
+     * @param nSize
+     *            the maximum number of suspicious identities to claim
+     * @param clientCode
+     *            code of the client application
+     * @param author
+     *            the author, who becomes the owner of the locks
+     * @return the claimed suspicious identities, oldest first, possibly less than requested
+     * @throws IdentityStoreException
+     *             in case of error, nothing is claimed
+     */
+    public List<SuspiciousIdentityDto> claim( final String strRuleCode, final int nSize, final String clientCode, final RequestAuthor author )
+            throws IdentityStoreException
+    {
+        final boolean bSkipLocked = AppPropertiesService.getPropertyBoolean( PROPERTY_CLAIM_SKIP_LOCKED, true );
+        final Instant now = Instant.now( );
+        final Timestamp lockEndDate = Timestamp.from( now.plusSeconds( AppPropertiesService.getPropertyInt( PROPERTY_CLAIM_LOCK_DURATION, 1800 ) ) );
+        final List<SuspiciousIdentity> claimed;
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            final List<SuspiciousIdentity> candidates = SuspiciousIdentityLockHome.findUnlocked( strRuleCode, Timestamp.from( now ), nSize, bSkipLocked );
+            if ( bSkipLocked )
+            {
+                SuspiciousIdentityLockHome.lock( candidates.stream( ).map( SuspiciousIdentity::getId ).collect( Collectors.toList( ) ), Timestamp.from( now ),
+                        lockEndDate, author.getType( ).name( ), author.getName( ) );
+                claimed = candidates;
+            }
+            else
+            {
+                claimed = new ArrayList<>( );
+                for ( final SuspiciousIdentity candidate : candidates )
+                {
+                    if ( SuspiciousIdentityLockHome.lock( candidate.getId( ), Timestamp.from( now ), lockEndDate, author.getType( ).name( ),
+                            author.getName( ) ) )
+                    {
+                        claimed.add( candidate );
+                    }
+                }
+            }
+            for ( final SuspiciousIdentity suspiciousIdentity : claimed )
+            {
+                appendEvent( SuspicionEventType.LOCKED, suspiciousIdentity.getCustomerId( ), suspiciousIdentity.getDuplicateRuleCode( ), null, author );
+            }
+
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new IdentityStoreException( e.getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+
+        final List<SuspiciousIdentityDto> claimedDtos = new ArrayList<>( claimed.size( ) );
+        for ( final SuspiciousIdentity suspiciousIdentity : claimed )
+        {
+            suspiciousIdentity.getLock( ).setLocked( true );
+            suspiciousIdentity.getLock( ).setLockEndDate( lockEndDate );
+            suspiciousIdentity.getLock( ).setAuthorType( author.getType( ).name( ) );
+            suspiciousIdentity.getLock( ).setAuthorName( author.getName( ) );
+            final SuspiciousIdentityDto suspiciousIdentityDto = SuspiciousIdentityMapper.toDto( suspiciousIdentity );
+            AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_MODIFY, LOCK_SUSPICIOUS_IDENTITY_EVENT_CODE,
+                    _internalUserService.getApiUser( author, clientCode ), suspiciousIdentityDto, SPECIFIC_ORIGIN );
+            claimedDtos.add( suspiciousIdentityDto );
+        }
+        return claimedDtos;
+    }
+
+    /**
+     * Unlocks the suspicious identities locked by the author, within a single transaction. The suspicious identities that are not locked by the author are
+     * ignored.
+     *
+     * @param request
+     *            the release request, for access logging
+     * @param customerIds
+     *            the customer IDs of the suspicious identities
+     * @param clientCode
+     *            code of the client application
+     * @param author
+     *            the author, owner of the locks
+     * @return the number of unlocked suspicious identities
+     * @throws IdentityStoreException
+     *             in case of error
+     */
+    public int release( final SuspiciousIdentityReleaseRequest request, final List<String> customerIds, final String clientCode,
+            final RequestAuthor author ) throws IdentityStoreException
+    {
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            final List<String> releasedCustomerIds = SuspiciousIdentityLockHome.unlock( customerIds, author.getType( ).name( ), author.getName( ) );
+            for ( final String strCustomerId : releasedCustomerIds )
+            {
+                appendEvent( SuspicionEventType.UNLOCKED, strCustomerId, null, null, author );
+            }
+            TransactionManager.commitTransaction( null );
+            AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_MODIFY, UNLOCK_SUSPICIOUS_IDENTITY_EVENT_CODE,
+                    _internalUserService.getApiUser( author, clientCode ), request, SPECIFIC_ORIGIN );
+            return releasedCustomerIds.size( );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new IdentityStoreException( e.getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+    }
+
     public void exclude( final SuspiciousIdentityExcludeRequest request, final Identity firstIdentity, final Identity secondIdentity, final String clientCode,
             final RequestAuthor author ) throws IdentityStoreException
     {
@@ -223,6 +676,7 @@ public class SuspiciousIdentityService
         {
             // flag the 2 identities: manage the list of identities to exclude (supposed to be a field at the identity level)
             SuspiciousIdentityHome.exclude( firstIdentity.getCustomerId( ), secondIdentity.getCustomerId( ), author.getType( ).name( ), author.getName( ) );
+            appendEvent( SuspicionEventType.EXCLUDED, firstIdentity.getCustomerId( ), null, secondIdentity.getCustomerId( ), author );
 
             TransactionManager.commitTransaction( null );
 
@@ -256,6 +710,7 @@ public class SuspiciousIdentityService
         {
             // remove the exclusion
             SuspiciousIdentityHome.removeExcludedIdentities( firstIdentity.getCustomerId( ), secondIdentity.getCustomerId( ) );
+            appendEvent( SuspicionEventType.EXCLUSION_CANCELLED, firstIdentity.getCustomerId( ), null, secondIdentity.getCustomerId( ), author );
 
             TransactionManager.commitTransaction( null );
 
@@ -281,6 +736,117 @@ public class SuspiciousIdentityService
         }
     }
 
+    /**
+     * Excludes many pairs of identities from duplicate suspicions within a single transaction : either all of them are excluded, or none.<br/>
+     * The history is grouped : each identity gets one notification, listing all the identities it was excluded with.
+     *
+     * @param request
+     *            the bulk request, for access logging
+     * @param pairs
+     *            the pairs of identities to exclude
+     * @param clientCode
+     *            code of the client application
+     * @param author
+     *            the author
+     * @throws IdentityStoreException
+     *             in case of error, nothing is excluded
+     */
+    public void excludeAll( final SuspiciousIdentityBulkExcludeRequest request, final List<Pair<Identity, Identity>> pairs, final String clientCode,
+            final RequestAuthor author ) throws IdentityStoreException
+    {
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            for ( final Pair<Identity, Identity> pair : pairs )
+            {
+                SuspiciousIdentityHome.exclude( pair.getLeft( ).getCustomerId( ), pair.getRight( ).getCustomerId( ), author.getType( ).name( ),
+                        author.getName( ) );
+                appendEvent( SuspicionEventType.EXCLUDED, pair.getLeft( ).getCustomerId( ), null, pair.getRight( ).getCustomerId( ), author );
+            }
+
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new IdentityStoreException( e.getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+
+        this.notifyExclusions( IdentityChangeType.EXCLUDED, pairs, clientCode, author );
+        AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_MODIFY, EXCLUDE_SUSPICIOUS_IDENTITY_EVENT_CODE,
+                _internalUserService.getApiUser( author, clientCode ), request, SPECIFIC_ORIGIN );
+    }
+
+    /**
+     * Cancels the exclusion of many pairs of identities within a single transaction : either all of them are cancelled, or none.<br/>
+     * The history is grouped : each identity gets one notification, listing all the identities it is no longer excluded with.
+     *
+     * @param request
+     *            the bulk request, for access logging
+     * @param pairs
+     *            the pairs of identities whose exclusion is cancelled
+     * @param clientCode
+     *            code of the client application
+     * @param author
+     *            the author
+     * @throws IdentityStoreException
+     *             in case of error, nothing is cancelled
+     */
+    public void cancelExclusions( final SuspiciousIdentityBulkExcludeRequest request, final List<Pair<Identity, Identity>> pairs, final String clientCode,
+            final RequestAuthor author ) throws IdentityStoreException
+    {
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            for ( final Pair<Identity, Identity> pair : pairs )
+            {
+                SuspiciousIdentityHome.removeExcludedIdentities( pair.getLeft( ).getCustomerId( ), pair.getRight( ).getCustomerId( ) );
+                appendEvent( SuspicionEventType.EXCLUSION_CANCELLED, pair.getLeft( ).getCustomerId( ), null, pair.getRight( ).getCustomerId( ), author );
+            }
+
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new IdentityStoreException( e.getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+
+        this.notifyExclusions( IdentityChangeType.EXCLUSION_CANCELLED, pairs, clientCode, author );
+        AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_MODIFY, EXCLUDE_SUSPICIOUS_IDENTITY_EVENT_CODE,
+                _internalUserService.getApiUser( author, clientCode ), request, SPECIFIC_ORIGIN );
+    }
+
+    /**
+     * Appends an event to the suspicion event feed, within the current transaction.
+     */
+    private static void appendEvent( final SuspicionEventType type, final String strCustomerId, final String strRuleCode, final String strRelatedCustomerId,
+            final RequestAuthor author )
+    {
+        SuspicionEventHome.append( type, strCustomerId, strRuleCode, strRelatedCustomerId, author.getType( ).name( ), author.getName( ) );
+    }
+
+    private void notifyExclusions( final IdentityChangeType changeType, final List<Pair<Identity, Identity>> pairs, final String clientCode,
+            final RequestAuthor author )
+    {
+        final Map<String, Identity> identities = new LinkedHashMap<>( );
+        final Map<String, List<String>> excludedCuids = new HashMap<>( );
+        for ( final Pair<Identity, Identity> pair : pairs )
+        {
+            identities.putIfAbsent( pair.getLeft( ).getCustomerId( ), pair.getLeft( ) );
+            identities.putIfAbsent( pair.getRight( ).getCustomerId( ), pair.getRight( ) );
+            excludedCuids.computeIfAbsent( pair.getLeft( ).getCustomerId( ), cuid -> new ArrayList<>( ) ).add( pair.getRight( ).getCustomerId( ) );
+            excludedCuids.computeIfAbsent( pair.getRight( ).getCustomerId( ), cuid -> new ArrayList<>( ) ).add( pair.getLeft( ).getCustomerId( ) );
+        }
+        for ( final Identity identity : identities.values( ) )
+        {
+            final Map<String, String> metadata = new HashMap<>( );
+            metadata.put( Constants.METADATA_EXCLUDED_CUID_KEY, String.join( ",", excludedCuids.get( identity.getCustomerId( ) ) ) );
+            _identityStoreNotifyListenerService.notifyListenersIdentityChange( changeType, identity, ResponseStatusType.SUCCESS.name( ),
+                    ResponseStatusType.SUCCESS.name( ), author, clientCode, metadata );
+        }
+    }
+
     public boolean hasSuspicious( final List<String> customerIds )
     {
         return SuspiciousIdentityHome.hasSuspicious( customerIds );
@@ -289,6 +855,7 @@ public class SuspiciousIdentityService
     public List<SuspiciousIdentityDto> getSuspiciousIdentity( final List<String> customerIds )
     {
         final List<SuspiciousIdentity> suspiciousIdentities = SuspiciousIdentityHome.selectByCustomerIDs(customerIds);
-        return suspiciousIdentities.stream( ).map( SuspiciousIdentityMapper::toDto ).collect( Collectors.toList( ) );
+        return suspiciousIdentities.stream( ).map( suspiciousIdentity -> suspiciousIdentity != null ? SuspiciousIdentityMapper.toDto( suspiciousIdentity ) : null )
+                .collect( Collectors.toList( ) );
     }
 }
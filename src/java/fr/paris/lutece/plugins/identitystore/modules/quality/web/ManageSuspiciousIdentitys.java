@@ -42,6 +42,8 @@ import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.Susp
 import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
 import fr.paris.lutece.plugins.identitystore.business.identity.IdentityHome;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspiciousIdentityDeleteHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionCounterHome;
 import fr.paris.lutece.plugins.identitystore.modules.quality.rbac.AccessSuspicionsResource;
 import fr.paris.lutece.plugins.identitystore.modules.quality.service.SearchDuplicatesService;
 import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
@@ -66,6 +68,7 @@ import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
 import fr.paris.lutece.util.html.AbstractPaginator;
+import fr.paris.lutece.util.sql.TransactionManager;
 import fr.paris.lutece.util.url.UrlItem;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -115,6 +118,7 @@ public class ManageSuspiciousIdentitys extends AbstractManageQualityJspBean
     private static final String MARK_EXCLUDED_IDENTITIES_LIST = "excluded_identities_list";
     private static final String MARK_SUSPICIOUSIDENTITY = "suspiciousidentity";
     private static final String MARK_DUPLICATE_RULE_LIST = "duplicate_rule_list";
+    private static final String MARK_SUSPICION_COUNTS = "suspicion_counts";
     private static final String MARK_DUPLICATE_HOLDER_LIST = "duplicate_holder_list";
     private static final String MARK_READABLE_ATTRIBUTES = "readable_attribute_list";
     private static final String MARK_IDENTITY_LIST = "identity_list";
@@ -204,6 +208,7 @@ public class ManageSuspiciousIdentitys extends AbstractManageQualityJspBean
 
         final Map<String, Object> model = getModel( );
         model.put( MARK_DUPLICATE_RULE_LIST, filteredRules );
+        model.put( MARK_SUSPICION_COUNTS, SuspicionCounterHome.countByRuleCode( ) );
 
         return getPage( PROPERTY_PAGE_TITLE_MANAGE_SUSPICIOUSIDENTITYS, TEMPLATE_CHOOSE_DUPLICATE_TYPE, model );
     }
@@ -576,7 +581,18 @@ public class ManageSuspiciousIdentitys extends AbstractManageQualityJspBean
             return redirectView( request, VIEW_CREATE_SUSPICIOUSIDENTITY );
         }
 
-        SuspiciousIdentityHome.create( _suspiciousidentity );
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            SuspiciousIdentityHome.create( _suspiciousidentity );
+            SuspicionCounterHome.add( _suspiciousidentity.getIdDuplicateRule( ), 1 );
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new AppException( "Unable to create the suspicious identity : " + e.getMessage( ), e );
+        }
         addInfo( INFO_SUSPICIOUSIDENTITY_CREATED, getLocale( ) );
         resetListId( );
 
@@ -615,7 +631,24 @@ public class ManageSuspiciousIdentitys extends AbstractManageQualityJspBean
     {
         int nId = Integer.parseInt( request.getParameter( PARAMETER_ID_SUSPICIOUSIDENTITY ) );
 
-        SuspiciousIdentityHome.remove( nId );
+        final Optional<SuspiciousIdentity> suspiciousIdentity = SuspiciousIdentityHome.findByPrimaryKey( nId );
+        if ( suspiciousIdentity.isPresent( ) )
+        {
+            TransactionManager.beginTransaction( null );
+            try
+            {
+                if ( SuspiciousIdentityDeleteHome.remove( nId ) )
+                {
+                    SuspicionCounterHome.add( suspiciousIdentity.get( ).getIdDuplicateRule( ), -1 );
+                }
+                TransactionManager.commitTransaction( null );
+            }
+            catch( final Exception e )
+            {
+                TransactionManager.rollBack( null );
+                throw new AppException( "Unable to remove the suspicious identity : " + e.getMessage( ), e );
+            }
+        }
         addInfo( INFO_SUSPICIOUSIDENTITY_REMOVED, getLocale( ) );
         resetListId( );
 
@@ -641,7 +674,18 @@ public class ManageSuspiciousIdentitys extends AbstractManageQualityJspBean
             throw new AccessDeniedException( "You don't have the right to purge suspicions." );
         }
 
-        SuspiciousIdentityHome.purge( ruleId );
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            SuspiciousIdentityHome.purge( ruleId );
+            SuspicionCounterHome.reset( ruleId );
+            TransactionManager.commitTransaction( null );
+        }
+        catch( final Exception e )
+        {
+            TransactionManager.rollBack( null );
+            throw new AppException( "Unable to purge the suspicious identities : " + e.getMessage( ), e );
+        }
         addInfo( INFO_SUSPICIOUSIDENTITY_PURGED, getLocale( ) );
 
         return redirectView( request, VIEW_CHOOSE_DUPLICATE_TYPE );
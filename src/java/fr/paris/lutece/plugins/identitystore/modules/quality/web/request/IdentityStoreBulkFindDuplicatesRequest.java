@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
+
+import fr.paris.lutece.plugins.identitystore.business.attribute.AttributeKey;
+import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateBulkSearchRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateBulkSearchResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateBulkSearchResult;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchFanOutExecutor;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.SearchDuplicatesService;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.service.identity.IdentityService;
+import fr.paris.lutece.plugins.identitystore.utils.Maps;
+import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.request.validator.DuplicateRuleValidator;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.SuspiciousIdentityRequestValidator;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.QualifiedIdentitySearchResult;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
+import fr.paris.lutece.plugins.identitystore.web.exception.ClientAuthorizationException;
+import fr.paris.lutece.plugins.identitystore.web.exception.DuplicatesConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestContentFormattingException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * This class represents a request of the duplicates of many identities with the same rule, for IdentityStoreRestServive.<br/>
+ * The identities are loaded with a single batched query, then their searches run in parallel. Each customer ID gets its own result.
+ */
+public class IdentityStoreBulkFindDuplicatesRequest extends AbstractIdentityStoreAppCodeRequest
+{
+    private static final int MAX_SIZE = AppPropertiesService.getPropertyInt( "identitystore-quality.duplicates.bulk.max.size", 500 );
+    private static final String BEAN_FAN_OUT_EXECUTOR = "identitystore-quality.duplicateSearchFanOutExecutor";
+
+    private final String _strRuleCode;
+    private final Map<String, DuplicateBulkSearchResult> _results = new LinkedHashMap<>( );
+    private DuplicateRule _rule;
+
+    /**
+     * Constructor of IdentityStoreBulkFindDuplicatesRequest
+     *
+     * @param request
+     *            the dto holding the customer IDs and the rule code
+     */
+    public IdentityStoreBulkFindDuplicatesRequest( final DuplicateBulkSearchRequest request, final String strClientCode, final String strAppCode,
+            final String authorName, final String authorType ) throws IdentityStoreException
+    {
+        super( strClientCode, strAppCode, authorName, authorType );
+        if ( request == null || request.getCustomerIds( ) == null || request.getCustomerIds( ).isEmpty( ) || request.getCustomerIds( ).size( ) > MAX_SIZE )
+        {
+            throw new RequestFormatException( "Provided bulk request must hold between 1 and " + MAX_SIZE + " customer IDs",
+                    QualityRestConstants.PROPERTY_REST_ERROR_BULK_SIZE );
+        }
+        this._strRuleCode = request.getRuleCode( );
+        /* A customer ID requested twice is searched once */
+        request.getCustomerIds( ).stream( ).filter( Objects::nonNull ).distinct( )
+                .forEach( strCustomerId -> _results.put( strCustomerId, new DuplicateBulkSearchResult( ) ) );
+    }
+
+    @Override
+    protected void fetchResources( ) throws ResourceNotFoundException
+    {
+        _rule = DuplicateRuleService.instance( ).get( _strRuleCode );
+    }
+
+    @Override
+    protected void validateRequestFormat( ) throws RequestFormatException
+    {
+        SuspiciousIdentityRequestValidator.instance( ).checkRuleCode( _strRuleCode );
+        for ( final Map.Entry<String, DuplicateBulkSearchResult> result : _results.entrySet( ) )
+        {
+            try
+            {
+                SuspiciousIdentityRequestValidator.instance( ).checkCustomerId( result.getKey( ) );
+            }
+            catch( final RequestFormatException e )
+            {
+                result.getValue( ).setStatus( ResponseStatusFactory.badRequest( ).setMessage( e.getMessage( ) ).setMessageKey( e.getLocaleMessageKey( ) ) );
+            }
+        }
+    }
+
+    @Override
+    protected void validateClientAuthorization( ) throws ClientAuthorizationException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void validateResourcesConsistency( ) throws ResourceConsistencyException
+    {
+        DuplicateRuleValidator.instance( ).validateActive( _rule );
+    }
+
+    @Override
+    protected void formatRequestContent( ) throws RequestContentFormattingException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void checkDuplicatesConsistency( ) throws DuplicatesConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected DuplicateBulkSearchResponse doSpecificRequest( ) throws IdentityStoreException
+    {
+        final DuplicateBulkSearchResponse response = new DuplicateBulkSearchResponse( );
+
+        /* Only the attributes checked by the rule are needed to search the duplicates */
+        final List<String> customerIds = _results.entrySet( ).stream( ).filter( result -> result.getValue( ).getStatus( ) == null ).map( Map.Entry::getKey )
+                .collect( Collectors.toList( ) );
+        final List<String> attributesFilter = _rule.getCheckedAttributes( ).stream( ).map( AttributeKey::getKeyName ).collect( Collectors.toList( ) );
+        final Map<String, IdentityDto> identities = customerIds.isEmpty( ) ? Collections.emptyMap( )
+                : IdentityService.instance( ).search( customerIds, attributesFilter ).stream( ).filter( Objects::nonNull )
+                        .collect( Collectors.toMap( IdentityDto::getCustomerId, identity -> identity, ( first, second ) -> first ) );
+
+        final DuplicateSearchFanOutExecutor executor = SpringContextService.getBean( BEAN_FAN_OUT_EXECUTOR );
+        final Map<String, Future<Map<String, QualifiedIdentitySearchResult>>> searches = new LinkedHashMap<>( );
+        for ( final String strCustomerId : customerIds )
+        {
+            final IdentityDto identity = identities.get( strCustomerId );
+            if ( identity == null )
+            {
+                _results.get( strCustomerId ).setStatus( ResponseStatusFactory.notFound( ).setMessage( "Identity not found" )
+                        .setMessageKey( Constants.PROPERTY_REST_ERROR_IDENTITY_NOT_FOUND ) );
+            }
+            else
+            {
+                searches.put( strCustomerId, executor.submit( ( ) -> SearchDuplicatesService.instance( ).findDuplicates( identity,
+                        Collections.singletonList( _rule ), Collections.emptyList( ) ) ) );
+            }
+        }
+
+        int nSearched = 0;
+        for ( final Map.Entry<String, Future<Map<String, QualifiedIdentitySearchResult>>> search : searches.entrySet( ) )
+        {
+            final DuplicateBulkSearchResult result = _results.get( search.getKey( ) );
+            try
+            {
+                final Map<String, QualifiedIdentitySearchResult> duplicates = search.getValue( ).get( );
+                if ( duplicates != null )
+                {
+                    duplicates.values( ).forEach( r -> {
+                        Maps.mergeStringMap( result.getMetadata( ), r.getMetadata( ) );
+                        result.getIdentities( ).addAll( r.getQualifiedIdentities( ) );
+                    } );
+                }
+                result.setStatus( ResponseStatusFactory.ok( ).setMessage( result.getIdentities( ).size( ) + " potential duplicate(s) found." )
+                        .setMessageKey( result.getIdentities( ).isEmpty( ) ? Constants.PROPERTY_REST_INFO_NO_POTENTIAL_DUPLICATE_FOUND
+                                : Constants.PROPERTY_REST_INFO_POTENTIAL_DUPLICATE_FOUND ) );
+                nSearched++;
+            }
+            catch( final ExecutionException e )
+            {
+                final String strMessageKey = e.getCause( ) instanceof IdentityStoreException ? ( (IdentityStoreException) e.getCause( ) ).getLocaleMessageKey( )
+                        : Constants.PROPERTY_REST_ERROR_DURING_TREATMENT;
+                result.setStatus( ResponseStatusFactory.internalServerError( ).setMessage( e.getCause( ).getMessage( ) ).setMessageKey( strMessageKey ) );
+            }
+            catch( final InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                throw new IdentityStoreException( "The duplicate searches were interrupted", Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+            }
+        }
+        response.setResults( _results );
+
+        if ( nSearched == _results.size( ) )
+        {
+            response.setStatus( ResponseStatusFactory.ok( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+        }
+        else if ( nSearched > 0 )
+        {
+            response.setStatus( ResponseStatusFactory.incompleteSuccess( ).setMessage( nSearched + " of " + _results.size( ) + " identities searched." )
+                    .setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+        }
+        else
+        {
+            response.setStatus( ResponseStatusFactory.badRequest( ).setMessage( "None of the identities could be searched." )
+                    .setMessageKey( QualityRestConstants.PROPERTY_REST_ERROR_BULK_NO_SEARCH ) );
+        }
+
+        return response;
+    }
+}
@@ -33,9 +33,8 @@
  */
 package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
 
-import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateRuleSummaryCache;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
-import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.duplicate.DuplicateRuleSummaryDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.duplicate.DuplicateRuleSummarySearchResponse;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
@@ -47,12 +46,20 @@ import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatExceptio
 import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
 import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 
-import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 public class IdentityStoreDuplicateRuleGetRequest extends AbstractIdentityStoreAppCodeRequest
 {
+    private static final String WEAK_ETAG_PREFIX = "W/";
+    private static final String ANY_ETAG = "*";
+
     private final Integer _nPriority;
+    private final String _strIfNoneMatch;
+    private String _strETag;
+    private boolean _bNotModified;
 
     /**
      * Constructor.
@@ -62,9 +69,42 @@ public class IdentityStoreDuplicateRuleGetRequest extends AbstractIdentityStoreA
      */
     public IdentityStoreDuplicateRuleGetRequest( final Integer _nPriority, final String strClientCode, final String strAppCode, final String authorName,
             final String authorType ) throws IdentityStoreException
+    {
+        this( _nPriority, null, strClientCode, strAppCode, authorName, authorType );
+    }
+
+    /**
+     * Constructor for a conditional request.
+     *
+     * @param nPriority
+     *            the priority filter, may be null
+     * @param strIfNoneMatch
+     *            the value of the <code>If-None-Match</code> header, may be null
+     * @param strClientCode
+     *            the client application Code
+     */
+    public IdentityStoreDuplicateRuleGetRequest( final Integer nPriority, final String strIfNoneMatch, final String strClientCode, final String strAppCode,
+            final String authorName, final String authorType ) throws IdentityStoreException
     {
         super( strClientCode, strAppCode, authorName, authorType );
-        this._nPriority = _nPriority;
+        this._nPriority = nPriority;
+        this._strIfNoneMatch = strIfNoneMatch;
+    }
+
+    /**
+     * @return the entity tag of the returned rules (not quoted), available once the request is done
+     */
+    public String getETag( )
+    {
+        return _strETag;
+    }
+
+    /**
+     * @return <code>true</code> if the rules match the <code>If-None-Match</code> header, in which case the response holds no rule
+     */
+    public boolean isNotModified( )
+    {
+        return _bNotModified;
     }
 
     @Override
@@ -108,14 +148,35 @@ public class IdentityStoreDuplicateRuleGetRequest extends AbstractIdentityStoreA
     {
         final DuplicateRuleSummarySearchResponse response = new DuplicateRuleSummarySearchResponse( );
 
-        final List<DuplicateRuleSummaryDto> rules = DuplicateRuleService.instance( ).findSummaries( _nPriority );
-        if ( CollectionUtils.isEmpty( rules ) )
+        final DuplicateRuleSummaryCache.CachedSummaries rules = DuplicateRuleSummaryCache.instance( ).get( _nPriority );
+        if ( CollectionUtils.isEmpty( rules.getSummaries( ) ) )
         {
             throw new ResourceNotFoundException( "No duplicate rule found", Constants.PROPERTY_REST_ERROR_NO_DUPLICATE_RULE_FOUND );
         }
 
-        response.setDuplicateRuleSummaries( rules );
+        _strETag = rules.getETag( );
+        _bNotModified = this.matches( _strETag );
+        if ( !_bNotModified )
+        {
+            /* The cached list is shared, the response gets its own copy */
+            response.setDuplicateRuleSummaries( new ArrayList<>( rules.getSummaries( ) ) );
+        }
         response.setStatus( ResponseStatusFactory.ok( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
         return response;
     }
+
+    /**
+     * Tells if the entity tag matches one of the tags of the <code>If-None-Match</code> header. As specified for this header, weak tags are compared as
+     * strong ones.
+     */
+    private boolean matches( final String strETag )
+    {
+        if ( StringUtils.isBlank( _strIfNoneMatch ) )
+        {
+            return false;
+        }
+        final String strQuotedETag = "\"" + strETag + "\"";
+        return Arrays.stream( _strIfNoneMatch.split( "," ) ).map( String::trim ).map( tag -> StringUtils.removeStart( tag, WEAK_ETAG_PREFIX ) )
+                .anyMatch( tag -> ANY_ETAG.equals( tag ) || strQuotedETag.equals( tag ) );
+    }
 }
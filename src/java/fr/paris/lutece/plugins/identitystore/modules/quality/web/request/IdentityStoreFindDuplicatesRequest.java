@@ -36,17 +36,16 @@ package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
 import fr.paris.lutece.plugins.identitystore.business.identity.IdentityHome;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchCache;
 import fr.paris.lutece.plugins.identitystore.modules.quality.service.SearchDuplicatesService;
 import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspiciousIdentityService;
 import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
 import fr.paris.lutece.plugins.identitystore.service.identity.IdentityQualityService;
-import fr.paris.lutece.plugins.identitystore.utils.Maps;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.validator.DuplicateRuleValidator;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.validator.IdentityAttributeValidator;
@@ -73,6 +72,7 @@ public class IdentityStoreFindDuplicatesRequest extends AbstractIdentityStoreApp
     private final String _strRuleCode;
     private final String _strCustomerId;
 
+    private Identity identity;
     private IdentityDto qualifiedIdentity;
     private DuplicateRule rule;
 
@@ -87,13 +87,12 @@ public class IdentityStoreFindDuplicatesRequest extends AbstractIdentityStoreApp
     @Override
     protected void fetchResources( ) throws ResourceNotFoundException
     {
-        final Identity identity = IdentityHome.findByCustomerId( _strCustomerId );
+        identity = IdentityHome.findByCustomerId( _strCustomerId );
         if ( identity == null )
         {
             throw new ResourceNotFoundException( "Cannot find identity with CUID = " + _strCustomerId, Constants.PROPERTY_REST_ERROR_IDENTITY_NOT_FOUND );
         }
         qualifiedIdentity = DtoConverter.convertIdentityToDto( identity );
-        IdentityQualityService.instance( ).computeQuality( qualifiedIdentity );
 
         rule = DuplicateRuleService.instance( ).get( _strRuleCode );
     }
@@ -135,15 +134,14 @@ public class IdentityStoreFindDuplicatesRequest extends AbstractIdentityStoreApp
     {
         final DuplicateSearchResponse response = new DuplicateSearchResponse( );
 
-        final Map<String, QualifiedIdentitySearchResult> duplicates = SearchDuplicatesService.instance( ).findDuplicates( qualifiedIdentity,
-                Collections.singletonList( rule ), Collections.emptyList( ) );
-        duplicates.values( ).stream( ).peek( r -> Maps.mergeStringMap( response.getMetadata( ), r.getMetadata( ) ) )
-                .flatMap( r -> r.getQualifiedIdentities( ).stream( ) ).forEach( identity -> {
-                    if ( response.getIdentities( ).stream( ).noneMatch( existing -> Objects.equals( existing.getCustomerId( ), identity.getCustomerId( ) ) ) )
-                    {
-                        response.getIdentities( ).add( identity );
-                    }
-                } );
+        /* The searches of the same identity version are served from the cache, the result is shared and must not be modified */
+        Map<String, QualifiedIdentitySearchResult> duplicates = DuplicateSearchCache.instance( ).get( identity, _strRuleCode );
+        if ( duplicates == null )
+        {
+            duplicates = SearchDuplicatesService.instance( ).findDuplicates( qualifiedIdentity, Collections.singletonList( rule ), Collections.emptyList( ) );
+            DuplicateSearchCache.instance( ).put( identity, _strRuleCode, duplicates );
+        }
+        response.getIdentities( ).addAll( SearchDuplicatesService.mergeByCustomerId( duplicates, response.getMetadata( ) ) );
         final List<String> matchingRuleCodes = duplicates.entrySet( ).stream( ).filter( e -> !e.getValue( ).getQualifiedIdentities( ).isEmpty( ) )
                 .map( Map.Entry::getKey ).collect( Collectors.toList( ) );
         
@@ -167,14 +165,16 @@ public class IdentityStoreFindDuplicatesRequest extends AbstractIdentityStoreApp
                 final List<String> processedIdentitiesCuids =
                         duplicates.values().stream().flatMap( r -> r.getQualifiedIdentities( ).stream( ) ).map(IdentityDto::getCustomerId).collect(Collectors.toList());
                 processedIdentitiesCuids.add( _strCustomerId );
-                if ( !SuspiciousIdentityService.instance().hasSuspicious(processedIdentitiesCuids) )
+                IdentityQualityService.instance( ).computeQuality( qualifiedIdentity );
+                final SuspiciousIdentityChangeRequest request = new SuspiciousIdentityChangeRequest( );
+                request.setSuspiciousIdentity( new SuspiciousIdentityDto( ));
+                request.getSuspiciousIdentity( ).setCustomerId( _strCustomerId );
+                request.getSuspiciousIdentity( ).setDuplicationRuleCode( _strRuleCode );
+                request.getSuspiciousIdentity( ).getMetadata( ).putAll( response.getMetadata( ) );
+                // Only created if none of the identities is already suspicious, in a single statement
+                if ( SuspiciousIdentityService.instance( ).createIfAbsent( request, DtoConverter.convertDtoToIdentity(qualifiedIdentity), rule,
+                        processedIdentitiesCuids, this._strClientCode, this._author ) != null )
                 {
-                    final SuspiciousIdentityChangeRequest request = new SuspiciousIdentityChangeRequest( );
-                    request.setSuspiciousIdentity( new SuspiciousIdentityDto( ));
-                    request.getSuspiciousIdentity( ).setCustomerId( _strCustomerId );
-                    request.getSuspiciousIdentity( ).setDuplicationRuleCode( _strRuleCode );
-                    request.getSuspiciousIdentity( ).getMetadata( ).putAll( response.getMetadata( ) );
-                    SuspiciousIdentityService.instance( ).create( request, DtoConverter.convertDtoToIdentity(qualifiedIdentity), rule, this._strClientCode, this._author );
                     response.getMetadata().put(Constants.METADATA_MARKED_SUSPICIOUS, _strCustomerId);
                 }
             }
@@ -35,18 +35,20 @@ package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
 
 import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchFanOutExecutor;
 import fr.paris.lutece.plugins.identitystore.modules.quality.service.SearchDuplicatesService;
 import fr.paris.lutece.plugins.identitystore.service.attribute.IdentityAttributeFormatterService;
 import fr.paris.lutece.plugins.identitystore.service.contract.ServiceContractService;
 import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
 import fr.paris.lutece.plugins.identitystore.service.identity.IdentityQualityService;
-import fr.paris.lutece.plugins.identitystore.utils.Maps;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.validator.DuplicateRuleValidator;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.validator.IdentityAttributeValidator;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.SuspiciousIdentityRequestValidator;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeStatus;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.DuplicateSearchRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.DuplicateSearchResponse;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
@@ -59,16 +61,26 @@ import fr.paris.lutece.plugins.identitystore.web.exception.RequestContentFormatt
 import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
 import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
 import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.stream.Collectors;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 public class IdentityStoreSearchDuplicatesRequest extends AbstractIdentityStoreAppCodeRequest
 {
+    private static final boolean PARALLEL_RULES = AppPropertiesService.getPropertyBoolean( "identitystore-quality.duplicates.search.parallel.rules", false );
+    private static final long PARALLEL_RULES_TIMEOUT = AppPropertiesService.getPropertyInt( "identitystore-quality.duplicates.search.parallel.rules.timeout",
+            5000 );
+    private static final int PARALLEL_ENRICHMENT_THRESHOLD = AppPropertiesService
+            .getPropertyInt( "identitystore-quality.duplicates.enrichment.parallel.threshold", 20 );
+    private static final String BEAN_FAN_OUT_EXECUTOR = "identitystore-quality.duplicateSearchFanOutExecutor";
 
     private final DuplicateSearchRequest _request;
     private final List<DuplicateRule> rules = new ArrayList<>( );
@@ -135,22 +147,68 @@ public class IdentityStoreSearchDuplicatesRequest extends AbstractIdentityStoreA
     {
         final DuplicateSearchResponse response = new DuplicateSearchResponse( );
 
-        final Map<String, QualifiedIdentitySearchResult> duplicates = SearchDuplicatesService.instance( ).findDuplicates( _request.getAttributes( ), rules,
-                Collections.emptyList( ) );
-        duplicates.values( ).stream( ).peek( r -> Maps.mergeStringMap( response.getMetadata( ), r.getMetadata( ) ) )
-                .flatMap( r -> r.getQualifiedIdentities( ).stream( ) ).forEach( identity -> {
-                    if ( response.getIdentities( ).stream( ).noneMatch( existing -> Objects.equals( existing.getCustomerId( ), identity.getCustomerId( ) ) ) )
-                    {
-                        IdentityQualityService.instance( ).enrich( null, identity, serviceContract, null, false );
-                        response.getIdentities( ).add( identity );
-                    }
-                } );
+        final Map<String, QualifiedIdentitySearchResult> duplicates;
+        final List<String> timedOutRuleCodes;
+        if ( PARALLEL_RULES && rules.size( ) > 1 )
+        {
+            final Pair<Map<String, QualifiedIdentitySearchResult>, List<String>> search = SearchDuplicatesService.instance( )
+                    .findDuplicatesByRule( _request.getAttributes( ), rules, Collections.emptyList( ), PARALLEL_RULES_TIMEOUT );
+            duplicates = search.getLeft( );
+            timedOutRuleCodes = search.getRight( );
+        }
+        else
+        {
+            duplicates = SearchDuplicatesService.instance( ).findDuplicates( _request.getAttributes( ), rules, Collections.emptyList( ) );
+            timedOutRuleCodes = Collections.emptyList( );
+        }
+        final List<IdentityDto> identities = SearchDuplicatesService.mergeByCustomerId( duplicates, response.getMetadata( ) );
+        this.enrich( identities );
+        response.getIdentities( ).addAll( identities );
         final List<String> matchingRuleCodes = duplicates.entrySet( ).stream( ).filter( e -> !e.getValue( ).getQualifiedIdentities( ).isEmpty( ) )
                 .map( Map.Entry::getKey ).collect( Collectors.toList( ) );
 
-        response.setStatus( ResponseStatusFactory.ok( ).setMessage( "Potential duplicate(s) found with rule(s) : " + String.join( ",", matchingRuleCodes ) )
-                .setMessageKey( Constants.PROPERTY_REST_INFO_POTENTIAL_DUPLICATE_FOUND ) );
+        if ( timedOutRuleCodes.isEmpty( ) )
+        {
+            response.setStatus( ResponseStatusFactory.ok( ).setMessage( "Potential duplicate(s) found with rule(s) : " + String.join( ",", matchingRuleCodes ) )
+                    .setMessageKey( Constants.PROPERTY_REST_INFO_POTENTIAL_DUPLICATE_FOUND ) );
+        }
+        else
+        {
+            response.getMetadata( ).put( QualityRestConstants.METADATA_PARTIAL_RESULT, Boolean.TRUE.toString( ) );
+            response.getMetadata( ).put( QualityRestConstants.METADATA_TIMED_OUT_RULE_CODES, String.join( ",", timedOutRuleCodes ) );
+            response.setStatus( ResponseStatusFactory.incompleteSuccess( )
+                    .setMessage( "Potential duplicate(s) found with rule(s) : " + String.join( ",", matchingRuleCodes ) + ". The search timed out for rule(s) : "
+                            + String.join( ",", timedOutRuleCodes ) )
+                    .setMessageKey( QualityRestConstants.PROPERTY_REST_INFO_PARTIAL_DUPLICATE_SEARCH ) );
+        }
         response.getStatus().getAttributeStatuses().addAll( formatStatuses );
         return response;
     }
+
+    /**
+     * Enriches the identities according to the service contract of the client, in parallel on the {@link DuplicateSearchFanOutExecutor} when there are
+     * many of them.
+     */
+    private void enrich( final Collection<IdentityDto> identities ) throws IdentityStoreException
+    {
+        if ( identities.size( ) < PARALLEL_ENRICHMENT_THRESHOLD )
+        {
+            identities.forEach( identity -> IdentityQualityService.instance( ).enrich( null, identity, serviceContract, null, false ) );
+            return;
+        }
+        final DuplicateSearchFanOutExecutor executor = SpringContextService.getBean( BEAN_FAN_OUT_EXECUTOR );
+        try
+        {
+            executor.forEach( identities, identity -> IdentityQualityService.instance( ).enrich( null, identity, serviceContract, null, false ) );
+        }
+        catch( final ExecutionException e )
+        {
+            throw new IdentityStoreException( e.getCause( ).getMessage( ), Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityStoreException( "The enrichment of the duplicates was interrupted", Constants.PROPERTY_REST_ERROR_DURING_TREATMENT );
+        }
+    }
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEvent;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspicionEventDto;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspicionEventFeedResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspicionEventFeed;
+import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
+import fr.paris.lutece.plugins.identitystore.web.exception.ClientAuthorizationException;
+import fr.paris.lutece.plugins.identitystore.web.exception.DuplicatesConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestContentFormattingException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * This class represents a request to read the suspicion events following an offset, for IdentityStoreRestServive
+ */
+public class IdentityStoreSuspicionEventFeedRequest extends AbstractIdentityStoreAppCodeRequest
+{
+    private final SuspicionEventFeed _feed;
+    private final Integer _nOffset;
+    private final Integer _nLimit;
+
+    /**
+     * Constructor of IdentityStoreSuspicionEventFeedRequest
+     *
+     * @param feed
+     *            the suspicion event feed
+     * @param nOffset
+     *            the offset of the last event read by the client, null to read from the oldest retained event
+     * @param nLimit
+     *            the maximum number of events to read, null for the maximum allowed
+     */
+    public IdentityStoreSuspicionEventFeedRequest( final SuspicionEventFeed feed, final Integer nOffset, final Integer nLimit, final String strClientCode,
+            final String strAppCode, final String authorName, final String authorType ) throws IdentityStoreException
+    {
+        super( strClientCode, strAppCode, authorName, authorType );
+        this._feed = feed;
+        this._nOffset = nOffset;
+        this._nLimit = nLimit;
+    }
+
+    @Override
+    protected void fetchResources( ) throws ResourceNotFoundException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void validateRequestFormat( ) throws RequestFormatException
+    {
+        if ( ( _nOffset != null && _nOffset < 0 ) || ( _nLimit != null && ( _nLimit < 1 || _nLimit > _feed.getMaxSize( ) ) ) )
+        {
+            throw new RequestFormatException( "The offset must be positive and the limit between 1 and " + _feed.getMaxSize( ) + ".",
+                    QualityRestConstants.PROPERTY_REST_ERROR_INVALID_EVENT_OFFSET );
+        }
+    }
+
+    @Override
+    protected void validateClientAuthorization( ) throws ClientAuthorizationException
+    {
+        // TODO check if the application has the right to read the suspicion events
+    }
+
+    @Override
+    protected void validateResourcesConsistency( ) throws ResourceConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void formatRequestContent( ) throws RequestContentFormattingException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void checkDuplicatesConsistency( ) throws DuplicatesConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected SuspicionEventFeedResponse doSpecificRequest( ) throws IdentityStoreException
+    {
+        final SuspicionEventFeedResponse response = new SuspicionEventFeedResponse( );
+
+        final int nOffset = _nOffset != null ? _nOffset : 0;
+        final List<SuspicionEvent> events = _feed.read( nOffset, _nLimit != null ? _nLimit : _feed.getMaxSize( ) );
+        response.setEvents( events.stream( ).map( IdentityStoreSuspicionEventFeedRequest::toDto ).collect( Collectors.toList( ) ) );
+        response.setNextOffset( events.isEmpty( ) ? nOffset : events.get( events.size( ) - 1 ).getId( ) );
+        /* No event is not an error : the client is up to date */
+        response.setStatus( ResponseStatusFactory.ok( ).setMessage( events.size( ) + " suspicion events read." )
+                .setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+
+        return response;
+    }
+
+    private static SuspicionEventDto toDto( final SuspicionEvent event )
+    {
+        final SuspicionEventDto dto = new SuspicionEventDto( );
+        dto.setOffset( event.getId( ) );
+        dto.setEventType( event.getType( ).name( ) );
+        dto.setCustomerId( event.getCustomerId( ) );
+        dto.setRuleCode( event.getRuleCode( ) );
+        dto.setRelatedCustomerId( event.getRelatedCustomerId( ) );
+        dto.setAuthorType( event.getAuthorType( ) );
+        dto.setAuthorName( event.getAuthorName( ) );
+        dto.setDate( event.getDateCreate( ) );
+        return dto;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.IdentityLookupHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkChangeRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkChangeResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkChangeResult;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspiciousIdentityService;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.SuspiciousIdentityRequestValidator;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityChangeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
+import fr.paris.lutece.plugins.identitystore.web.exception.ClientAuthorizationException;
+import fr.paris.lutece.plugins.identitystore.web.exception.DuplicatesConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestContentFormattingException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Triple;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * This class represents a bulk create request for IdentityStoreRestServive.<br/>
+ * The change requests are validated together, their identities, rules and existing suspicions are loaded with batched queries, and the accepted ones are
+ * created within a single transaction, skipping the identities reported meanwhile. Each change request gets its own result.
+ */
+public class IdentityStoreSuspiciousBulkCreateRequest extends AbstractIdentityStoreAppCodeRequest
+{
+    private static final int MAX_SIZE = AppPropertiesService.getPropertyInt( "identitystore-quality.suspicions.bulk.max.size", 1000 );
+    private static final String PROPERTY_EXTERNAL_RULE_CODE = "identitystore-quality.external.duplicates.rule.code";
+
+    private final List<SuspiciousIdentityChangeRequest> _changeRequests;
+    private final List<SuspiciousIdentityBulkChangeResult> _results = new ArrayList<>( );
+
+    private Map<String, Identity> _identities = new HashMap<>( );
+    private final Map<String, DuplicateRule> _rules = new HashMap<>( );
+    private final Set<String> _alreadySuspiciousCustomerIds = new HashSet<>( );
+
+    /**
+     * Constructor of IdentityStoreSuspiciousBulkCreateRequest
+     *
+     * @param request
+     *            the dto holding the suspicious identity change requests
+     */
+    public IdentityStoreSuspiciousBulkCreateRequest( final SuspiciousIdentityBulkChangeRequest request, final String strClientCode,
+            final String strAppCode, final String authorName, final String authorType ) throws IdentityStoreException
+    {
+        super( strClientCode, strAppCode, authorName, authorType );
+        if ( request == null || request.getSuspiciousIdentityChangeRequests( ) == null || request.getSuspiciousIdentityChangeRequests( ).isEmpty( )
+                || request.getSuspiciousIdentityChangeRequests( ).size( ) > MAX_SIZE )
+        {
+            throw new RequestFormatException( "Provided bulk request must hold between 1 and " + MAX_SIZE + " suspicious identity change requests",
+                    QualityRestConstants.PROPERTY_REST_ERROR_BULK_SIZE );
+        }
+        this._changeRequests = request.getSuspiciousIdentityChangeRequests( );
+        for ( int i = 0; i < _changeRequests.size( ); i++ )
+        {
+            final SuspiciousIdentityBulkChangeResult result = new SuspiciousIdentityBulkChangeResult( );
+            result.setIndex( i );
+            result.setCustomerId( getCustomerId( _changeRequests.get( i ) ) );
+            _results.add( result );
+        }
+    }
+
+    @Override
+    protected void fetchResources( ) throws ResourceNotFoundException
+    {
+        final Set<String> customerIds = _changeRequests.stream( ).map( IdentityStoreSuspiciousBulkCreateRequest::getCustomerId )
+                .filter( StringUtils::isNotBlank ).collect( Collectors.toCollection( LinkedHashSet::new ) );
+        _identities = IdentityLookupHome.findByCustomerIds( customerIds );
+        SuspiciousIdentityHome.selectByCustomerIDs( new ArrayList<>( customerIds ) ).stream( ).map( SuspiciousIdentity::getCustomerId )
+                .forEach( _alreadySuspiciousCustomerIds::add );
+
+        for ( final String strRuleCode : _changeRequests.stream( ).map( IdentityStoreSuspiciousBulkCreateRequest::getRuleCode ).filter( StringUtils::isNotBlank )
+                .collect( Collectors.toSet( ) ) )
+        {
+            try
+            {
+                final DuplicateRule rule = DuplicateRuleService.instance( ).get( strRuleCode );
+                if ( rule != null )
+                {
+                    _rules.put( strRuleCode, rule );
+                }
+            }
+            catch( final ResourceNotFoundException e )
+            {
+                // The change requests of this rule are rejected in validateResourcesConsistency
+            }
+        }
+    }
+
+    @Override
+    protected void validateRequestFormat( ) throws RequestFormatException
+    {
+        for ( int i = 0; i < _changeRequests.size( ); i++ )
+        {
+            final SuspiciousIdentityChangeRequest changeRequest = _changeRequests.get( i );
+            try
+            {
+                SuspiciousIdentityRequestValidator.instance( ).checkSuspiciousIdentityChange( changeRequest );
+                SuspiciousIdentityRequestValidator.instance( ).checkCustomerId( getCustomerId( changeRequest ) );
+            }
+            catch( final RequestFormatException e )
+            {
+                _results.get( i ).setStatus( ResponseStatusFactory.badRequest( ).setMessage( e.getMessage( ) ).setMessageKey( e.getLocaleMessageKey( ) ) );
+            }
+        }
+    }
+
+    @Override
+    protected void validateClientAuthorization( ) throws ClientAuthorizationException
+    {
+        // TODO check if the application has the right to create a suspicious identity
+    }
+
+    @Override
+    protected void validateResourcesConsistency( ) throws ResourceConsistencyException
+    {
+        final Set<String> acceptedCustomerIds = new HashSet<>( );
+        for ( int i = 0; i < _changeRequests.size( ); i++ )
+        {
+            final SuspiciousIdentityBulkChangeResult result = _results.get( i );
+            if ( result.getStatus( ) != null )
+            {
+                continue;
+            }
+            final String strCustomerId = result.getCustomerId( );
+            if ( !_identities.containsKey( strCustomerId ) )
+            {
+                result.setStatus( ResponseStatusFactory.notFound( ).setMessage( "Identity not found" )
+                        .setMessageKey( Constants.PROPERTY_REST_ERROR_IDENTITY_NOT_FOUND ) );
+            }
+            else if ( !_rules.containsKey( getRuleCode( _changeRequests.get( i ) ) ) )
+            {
+                result.setStatus( ResponseStatusFactory.notFound( ).setMessage( "Duplicate rule not found" )
+                        .setMessageKey( QualityRestConstants.PROPERTY_REST_ERROR_DUPLICATE_RULE_NOT_FOUND ) );
+            }
+            else if ( _alreadySuspiciousCustomerIds.contains( strCustomerId ) || !acceptedCustomerIds.add( strCustomerId ) )
+            {
+                result.setStatus( ResponseStatusFactory.conflict( ).setMessage( "Identity already reported" )
+                        .setMessageKey( Constants.PROPERTY_REST_ERROR_IDENTITY_ALREADY_SUSPICIOUS ) );
+            }
+        }
+    }
+
+    @Override
+    protected void formatRequestContent( ) throws RequestContentFormattingException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void checkDuplicatesConsistency( ) throws DuplicatesConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected SuspiciousIdentityBulkChangeResponse doSpecificRequest( ) throws IdentityStoreException
+    {
+        final SuspiciousIdentityBulkChangeResponse response = new SuspiciousIdentityBulkChangeResponse( );
+
+        final List<SuspiciousIdentityBulkChangeResult> acceptedResults = new ArrayList<>( );
+        final List<Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule>> creations = new ArrayList<>( );
+        int nCreated = 0;
+        for ( int i = 0; i < _changeRequests.size( ); i++ )
+        {
+            final SuspiciousIdentityBulkChangeResult result = _results.get( i );
+            if ( result.getStatus( ) == null )
+            {
+                final SuspiciousIdentityChangeRequest changeRequest = _changeRequests.get( i );
+                acceptedResults.add( result );
+                creations.add( Triple.of( changeRequest, _identities.get( result.getCustomerId( ) ), _rules.get( getRuleCode( changeRequest ) ) ) );
+            }
+        }
+
+        if ( !creations.isEmpty( ) )
+        {
+            final List<SuspiciousIdentityDto> created = SuspiciousIdentityService.instance( ).createAll( creations, _strClientCode, _author );
+            for ( int i = 0; i < acceptedResults.size( ); i++ )
+            {
+                if ( created.get( i ) == null )
+                {
+                    // Reported meanwhile by a concurrent request
+                    acceptedResults.get( i ).setStatus( ResponseStatusFactory.conflict( ).setMessage( "Identity already reported" )
+                            .setMessageKey( Constants.PROPERTY_REST_ERROR_IDENTITY_ALREADY_SUSPICIOUS ) );
+                    continue;
+                }
+                acceptedResults.get( i ).setSuspiciousIdentity( created.get( i ) );
+                acceptedResults.get( i ).setStatus( ResponseStatusFactory.success( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+                nCreated++;
+            }
+        }
+        response.setResults( _results );
+
+        if ( nCreated == _results.size( ) )
+        {
+            response.setStatus( ResponseStatusFactory.success( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+        }
+        else if ( nCreated > 0 )
+        {
+            response.setStatus( ResponseStatusFactory.incompleteSuccess( )
+                    .setMessage( nCreated + " of " + _results.size( ) + " suspicious identities created." )
+                    .setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+        }
+        else
+        {
+            response.setStatus( ResponseStatusFactory.badRequest( ).setMessage( "No suspicious identity could be created." )
+                    .setMessageKey( QualityRestConstants.PROPERTY_REST_ERROR_BULK_NO_CREATION ) );
+        }
+
+        return response;
+    }
+
+    private static String getCustomerId( final SuspiciousIdentityChangeRequest changeRequest )
+    {
+        return changeRequest != null && changeRequest.getSuspiciousIdentity( ) != null ? changeRequest.getSuspiciousIdentity( ).getCustomerId( ) : null;
+    }
+
+    private static String getRuleCode( final SuspiciousIdentityChangeRequest changeRequest )
+    {
+        final String strRuleCode = changeRequest != null && changeRequest.getSuspiciousIdentity( ) != null
+                ? changeRequest.getSuspiciousIdentity( ).getDuplicationRuleCode( )
+                : null;
+        return StringUtils.isNotBlank( strRuleCode ) ? strRuleCode : AppPropertiesService.getProperty( PROPERTY_EXTERNAL_RULE_CODE );
+    }
+}
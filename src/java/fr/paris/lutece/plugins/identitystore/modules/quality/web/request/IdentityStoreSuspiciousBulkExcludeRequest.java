@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.IdentityLookupHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkExcludeRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkExcludeResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkExcludeResult;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspiciousIdentityService;
+import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.SuspiciousIdentityRequestValidator;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityExcludeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
+import fr.paris.lutece.plugins.identitystore.web.exception.ClientAuthorizationException;
+import fr.paris.lutece.plugins.identitystore.web.exception.DuplicatesConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestContentFormattingException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class represents a bulk exclusion, or exclusion cancellation, request for IdentityStoreRestServive.<br/>
+ * The identities of all the pairs are loaded with batched queries, and the accepted pairs are processed within a single transaction. Each pair gets its own
+ * result.
+ */
+public class IdentityStoreSuspiciousBulkExcludeRequest extends AbstractIdentityStoreAppCodeRequest
+{
+    private static final int MAX_SIZE = AppPropertiesService.getPropertyInt( "identitystore-quality.suspicions.bulk.max.size", 1000 );
+
+    private final SuspiciousIdentityBulkExcludeRequest _request;
+    private final boolean _bCancel;
+    private final List<SuspiciousIdentityBulkExcludeResult> _results = new ArrayList<>( );
+
+    private Map<String, Identity> _identities = new HashMap<>( );
+
+    /**
+     * Constructor of IdentityStoreSuspiciousBulkExcludeRequest
+     *
+     * @param request
+     *            the dto holding the pairs of identities
+     * @param bCancel
+     *            <code>true</code> to cancel the exclusions, <code>false</code> to exclude
+     */
+    public IdentityStoreSuspiciousBulkExcludeRequest( final SuspiciousIdentityBulkExcludeRequest request, final boolean bCancel, final String strClientCode,
+            final String strAppCode, final String authorName, final String authorType ) throws IdentityStoreException
+    {
+        super( strClientCode, strAppCode, authorName, authorType );
+        if ( request == null || request.getExclusions( ) == null || request.getExclusions( ).isEmpty( ) || request.getExclusions( ).size( ) > MAX_SIZE )
+        {
+            throw new RequestFormatException( "Provided bulk request must hold between 1 and " + MAX_SIZE + " exclusions",
+                    QualityRestConstants.PROPERTY_REST_ERROR_BULK_SIZE );
+        }
+        this._request = request;
+        this._bCancel = bCancel;
+        for ( int i = 0; i < request.getExclusions( ).size( ); i++ )
+        {
+            final SuspiciousIdentityExcludeRequest exclusion = request.getExclusions( ).get( i );
+            final SuspiciousIdentityBulkExcludeResult result = new SuspiciousIdentityBulkExcludeResult( );
+            result.setIndex( i );
+            if ( exclusion != null )
+            {
+                result.setIdentityCuid1( exclusion.getIdentityCuid1( ) );
+                result.setIdentityCuid2( exclusion.getIdentityCuid2( ) );
+            }
+            _results.add( result );
+        }
+    }
+
+    @Override
+    protected void fetchResources( ) throws ResourceNotFoundException
+    {
+        final Set<String> customerIds = _results.stream( ).flatMap( result -> Stream.of( result.getIdentityCuid1( ), result.getIdentityCuid2( ) ) )
+                .filter( StringUtils::isNotBlank ).collect( Collectors.toSet( ) );
+        _identities = IdentityLookupHome.findByCustomerIds( customerIds );
+    }
+
+    @Override
+    protected void validateRequestFormat( ) throws RequestFormatException
+    {
+        for ( int i = 0; i < _results.size( ); i++ )
+        {
+            try
+            {
+                SuspiciousIdentityRequestValidator.instance( ).checkSuspiciousIdentityExclude( _request.getExclusions( ).get( i ) );
+            }
+            catch( final RequestFormatException e )
+            {
+                _results.get( i ).setStatus( ResponseStatusFactory.badRequest( ).setMessage( e.getMessage( ) ).setMessageKey( e.getLocaleMessageKey( ) ) );
+            }
+        }
+    }
+
+    @Override
+    protected void validateClientAuthorization( ) throws ClientAuthorizationException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void validateResourcesConsistency( ) throws ResourceConsistencyException
+    {
+        final Set<String> acceptedPairs = new HashSet<>( );
+        for ( final SuspiciousIdentityBulkExcludeResult result : _results )
+        {
+            if ( result.getStatus( ) != null )
+            {
+                continue;
+            }
+            final String strMissingCuid = Stream.of( result.getIdentityCuid1( ), result.getIdentityCuid2( ) ).filter( cuid -> !_identities.containsKey( cuid ) )
+                    .findFirst( ).orElse( null );
+            if ( strMissingCuid != null )
+            {
+                result.setStatus( ResponseStatusFactory.notFound( ).setMessage( "Cannot find identity with cuid " + strMissingCuid )
+                        .setMessageKey( Constants.PROPERTY_REST_ERROR_IDENTITY_NOT_FOUND ) );
+            }
+            else if ( !acceptedPairs.add( Stream.of( result.getIdentityCuid1( ), result.getIdentityCuid2( ) ).sorted( ).collect( Collectors.joining( "|" ) ) ) )
+            {
+                result.setStatus( ResponseStatusFactory.conflict( ).setMessage( "The pair is given more than once." )
+                        .setMessageKey( _bCancel ? Constants.PROPERTY_REST_ERROR_NOT_EXCLUDED : Constants.PROPERTY_REST_ERROR_ALREADY_EXCLUDED ) );
+            }
+            else
+            {
+                final boolean bExcluded = SuspiciousIdentityHome.excluded( result.getIdentityCuid1( ), result.getIdentityCuid2( ) );
+                if ( _bCancel && !bExcluded )
+                {
+                    result.setStatus( ResponseStatusFactory.conflict( ).setMessage( "Identities are not excluded from duplicate suspicions." )
+                            .setMessageKey( Constants.PROPERTY_REST_ERROR_NOT_EXCLUDED ) );
+                }
+                else if ( !_bCancel && bExcluded )
+                {
+                    result.setStatus( ResponseStatusFactory.conflict( ).setMessage( "Identities are already excluded from duplicate suspicions." )
+                            .setMessageKey( Constants.PROPERTY_REST_ERROR_ALREADY_EXCLUDED ) );
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void formatRequestContent( ) throws RequestContentFormattingException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void checkDuplicatesConsistency( ) throws DuplicatesConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected SuspiciousIdentityBulkExcludeResponse doSpecificRequest( ) throws IdentityStoreException
+    {
+        final SuspiciousIdentityBulkExcludeResponse response = new SuspiciousIdentityBulkExcludeResponse( );
+
+        final List<SuspiciousIdentityBulkExcludeResult> acceptedResults = _results.stream( ).filter( result -> result.getStatus( ) == null )
+                .collect( Collectors.toList( ) );
+        final List<Pair<Identity, Identity>> pairs = acceptedResults.stream( )
+                .map( result -> Pair.of( _identities.get( result.getIdentityCuid1( ) ), _identities.get( result.getIdentityCuid2( ) ) ) )
+                .collect( Collectors.toList( ) );
+
+        if ( !pairs.isEmpty( ) )
+        {
+            if ( _bCancel )
+            {
+                SuspiciousIdentityService.instance( ).cancelExclusions( _request, pairs, _strClientCode, _author );
+            }
+            else
+            {
+                SuspiciousIdentityService.instance( ).excludeAll( _request, pairs, _strClientCode, _author );
+            }
+            acceptedResults.forEach(
+                    result -> result.setStatus( ResponseStatusFactory.success( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) ) );
+        }
+        response.setResults( _results );
+
+        final String strDone = _bCancel ? "exclusion(s) cancelled." : "pair(s) of identities excluded from duplicate suspicions.";
+        if ( acceptedResults.size( ) == _results.size( ) )
+        {
+            response.setStatus( ResponseStatusFactory.success( ).setMessage( acceptedResults.size( ) + " " + strDone )
+                    .setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+        }
+        else if ( !acceptedResults.isEmpty( ) )
+        {
+            response.setStatus( ResponseStatusFactory.incompleteSuccess( ).setMessage( acceptedResults.size( ) + " of " + _results.size( ) + " " + strDone )
+                    .setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+        }
+        else
+        {
+            response.setStatus( ResponseStatusFactory.badRequest( ).setMessage( "None of the pairs could be processed." )
+                    .setMessageKey( QualityRestConstants.PROPERTY_REST_ERROR_BULK_NOTHING_DONE ) );
+        }
+
+        return response;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityClaimRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityClaimResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspiciousIdentityService;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
+import fr.paris.lutece.plugins.identitystore.web.exception.ClientAuthorizationException;
+import fr.paris.lutece.plugins.identitystore.web.exception.DuplicatesConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestContentFormattingException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * This class represents a request to lock the next unlocked suspicious identities of a rule, for IdentityStoreRestServive
+ */
+public class IdentityStoreSuspiciousClaimRequest extends AbstractIdentityStoreAppCodeRequest
+{
+    private static final int MAX_SIZE = AppPropertiesService.getPropertyInt( "identitystore-quality.suspicions.claim.max.size", 100 );
+
+    private final SuspiciousIdentityClaimRequest _request;
+
+    /**
+     * Constructor of IdentityStoreSuspiciousClaimRequest
+     *
+     * @param request
+     *            the dto holding the rule code and the number of suspicious identities to lock
+     */
+    public IdentityStoreSuspiciousClaimRequest( final SuspiciousIdentityClaimRequest request, final String strClientCode, final String strAppCode,
+            final String authorName, final String authorType ) throws IdentityStoreException
+    {
+        super( strClientCode, strAppCode, authorName, authorType );
+        if ( request == null )
+        {
+            throw new RequestFormatException( "The provided request is null or empty.", QualityRestConstants.PROPERTY_REST_ERROR_INVALID_CLAIM );
+        }
+        this._request = request;
+    }
+
+    @Override
+    protected void fetchResources( ) throws ResourceNotFoundException
+    {
+        if ( StringUtils.isNotBlank( _request.getRuleCode( ) ) && DuplicateRuleService.instance( ).get( _request.getRuleCode( ) ) == null )
+        {
+            throw new ResourceNotFoundException( "Duplicate rule not found", QualityRestConstants.PROPERTY_REST_ERROR_DUPLICATE_RULE_NOT_FOUND );
+        }
+    }
+
+    @Override
+    protected void validateRequestFormat( ) throws RequestFormatException
+    {
+        if ( StringUtils.isBlank( _request.getRuleCode( ) ) || _request.getSize( ) == null || _request.getSize( ) < 1 || _request.getSize( ) > MAX_SIZE )
+        {
+            throw new RequestFormatException( "The rule code and a size between 1 and " + MAX_SIZE + " are required.",
+                    QualityRestConstants.PROPERTY_REST_ERROR_INVALID_CLAIM );
+        }
+    }
+
+    @Override
+    protected void validateClientAuthorization( ) throws ClientAuthorizationException
+    {
+        // TODO check if the application has the right to lock a suspicious identity
+    }
+
+    @Override
+    protected void validateResourcesConsistency( ) throws ResourceConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void formatRequestContent( ) throws RequestContentFormattingException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void checkDuplicatesConsistency( ) throws DuplicatesConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected SuspiciousIdentityClaimResponse doSpecificRequest( ) throws IdentityStoreException
+    {
+        final SuspiciousIdentityClaimResponse response = new SuspiciousIdentityClaimResponse( );
+
+        final List<SuspiciousIdentityDto> claimed = SuspiciousIdentityService.instance( ).claim( _request.getRuleCode( ), _request.getSize( ), _strClientCode,
+                _author );
+        response.setSuspiciousIdentities( claimed );
+        /* An empty batch is not an error : every suspicion of the rule is being processed by other agents */
+        response.setStatus( ResponseStatusFactory.ok( ).setMessage( claimed.size( ) + " suspicious identities locked." )
+                .setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+
+        return response;
+    }
+}
@@ -37,7 +37,6 @@ import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
 import fr.paris.lutece.plugins.identitystore.business.identity.IdentityHome;
 import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
 import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspiciousIdentityService;
-import fr.paris.lutece.plugins.identitystore.modules.quality.web.validator.CreateSuspiciousIdentityValidator;
 import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.SuspiciousIdentityRequestValidator;
@@ -118,7 +117,7 @@ public class IdentityStoreSuspiciousCreateRequest extends AbstractIdentityStoreA
     @Override
     protected void validateResourcesConsistency( ) throws ResourceConsistencyException
     {
-        CreateSuspiciousIdentityValidator.instance( ).checkIfNotAlreadyReported( _request );
+        // An identity already suspicious is reported as a ResourceConsistencyException by SuspiciousIdentityService.create( ), atomically with the insert
     }
 
     @Override
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityExportResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspiciousIdentityService;
+import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
+import fr.paris.lutece.plugins.identitystore.web.exception.ClientAuthorizationException;
+import fr.paris.lutece.plugins.identitystore.web.exception.DuplicatesConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestContentFormattingException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceConsistencyException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * This class represents an export request of the suspicious identities, streamed as NDJSON.
+ */
+public class IdentityStoreSuspiciousExportRequest extends AbstractIdentityStoreAppCodeRequest
+{
+    private final String _strRuleCode;
+    private final String _strDateFrom;
+    private final String _strDateTo;
+    private Timestamp _dateFrom;
+    private Timestamp _dateTo;
+
+    public IdentityStoreSuspiciousExportRequest( final String strRuleCode, final String strDateFrom, final String strDateTo, final String strClientCode,
+            final String strAppCode, final String authorName, final String authorType ) throws IdentityStoreException
+    {
+        super( strClientCode, strAppCode, authorName, authorType );
+        this._strRuleCode = strRuleCode;
+        this._strDateFrom = strDateFrom;
+        this._strDateTo = strDateTo;
+    }
+
+    @Override
+    protected void fetchResources( ) throws ResourceNotFoundException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void validateRequestFormat( ) throws RequestFormatException
+    {
+        _dateFrom = parseDate( _strDateFrom );
+        _dateTo = parseDate( _strDateTo );
+    }
+
+    @Override
+    protected void validateClientAuthorization( ) throws ClientAuthorizationException
+    {
+        // TODO check if the application has the right to search a suspicious identity
+    }
+
+    @Override
+    protected void validateResourcesConsistency( ) throws ResourceConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void formatRequestContent( ) throws RequestContentFormattingException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected void checkDuplicatesConsistency( ) throws DuplicatesConsistencyException
+    {
+        // Do nothing
+    }
+
+    @Override
+    protected SuspiciousIdentityExportResponse doSpecificRequest( ) throws IdentityStoreException
+    {
+        final SuspiciousIdentityExportResponse response = new SuspiciousIdentityExportResponse( );
+        /* The export runs when the response body is written, within the connection of the servlet container */
+        response.setOutput( outputStream -> SuspiciousIdentityService.instance( ).export( _strRuleCode, _dateFrom, _dateTo, outputStream, _strClientCode,
+                _author ) );
+        response.setStatus( ResponseStatusFactory.ok( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+
+        return response;
+    }
+
+    /**
+     * Parses a date filter, given either as a day (yyyy-MM-dd, at the start of the day in the server time zone) or as an ISO-8601 instant.
+     *
+     * @param strDate
+     *            the date, can be empty
+     * @return the date, null if empty
+     * @throws RequestFormatException
+     *             if the date is malformed
+     */
+    private static Timestamp parseDate( final String strDate ) throws RequestFormatException
+    {
+        if ( StringUtils.isBlank( strDate ) )
+        {
+            return null;
+        }
+        try
+        {
+            if ( strDate.contains( "T" ) )
+            {
+                return Timestamp.from( Instant.parse( strDate ) );
+            }
+            return Timestamp.from( LocalDate.parse( strDate ).atStartOfDay( ZoneId.systemDefault( ) ).toInstant( ) );
+        }
+        catch( final DateTimeParseException e )
+        {
+            throw new RequestFormatException( "The date " + strDate + " is malformed.", QualityRestConstants.PROPERTY_REST_ERROR_INVALID_DATE );
+        }
+    }
+}
@@ -33,13 +33,13 @@
  */
 package fr.paris.lutece.plugins.identitystore.modules.quality.web.request;
 
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityCursorSearchRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityCursorSearchResponse;
 import fr.paris.lutece.plugins.identitystore.modules.quality.service.SuspiciousIdentityService;
 import fr.paris.lutece.plugins.identitystore.v3.web.request.AbstractIdentityStoreAppCodeRequest;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.SuspiciousIdentityRequestValidator;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.Page;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityDto;
-import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentitySearchRequest;
-import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentitySearchResponse;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
 import fr.paris.lutece.plugins.identitystore.web.exception.ClientAuthorizationException;
@@ -55,9 +55,9 @@ import java.util.List;
 
 public class IdentityStoreSuspiciousSearchRequest extends AbstractIdentityStoreAppCodeRequest
 {
-    private final SuspiciousIdentitySearchRequest _request;
+    private final SuspiciousIdentityCursorSearchRequest _request;
 
-    public IdentityStoreSuspiciousSearchRequest( final SuspiciousIdentitySearchRequest request, final String strClientCode, final String strAppCode,
+    public IdentityStoreSuspiciousSearchRequest( final SuspiciousIdentityCursorSearchRequest request, final String strClientCode, final String strAppCode,
             final String authorName, final String authorType ) throws IdentityStoreException
     {
         super( strClientCode, strAppCode, authorName, authorType );
@@ -101,14 +101,22 @@ public class IdentityStoreSuspiciousSearchRequest extends AbstractIdentityStoreA
     }
 
     @Override
-    protected SuspiciousIdentitySearchResponse doSpecificRequest( ) throws IdentityStoreException
+    protected SuspiciousIdentityCursorSearchResponse doSpecificRequest( ) throws IdentityStoreException
     {
-        final SuspiciousIdentitySearchResponse response = new SuspiciousIdentitySearchResponse( );
+        final SuspiciousIdentityCursorSearchResponse response = new SuspiciousIdentityCursorSearchResponse( );
 
-        final Pair<List<SuspiciousIdentityDto>, Page> result = SuspiciousIdentityService.instance( ).search( _request, _strClientCode, _author );
-
-        response.setSuspiciousIdentities( result.getKey( ) );
-        response.setPagination( result.getValue( ) );
+        if ( _request.getCursor( ) != null )
+        {
+            final Pair<List<SuspiciousIdentityDto>, String> result = SuspiciousIdentityService.instance( ).searchAfter( _request, _strClientCode, _author );
+            response.setSuspiciousIdentities( result.getKey( ) );
+            response.setNextCursor( result.getValue( ) );
+        }
+        else
+        {
+            final Pair<List<SuspiciousIdentityDto>, Page> result = SuspiciousIdentityService.instance( ).search( _request, _strClientCode, _author );
+            response.setSuspiciousIdentities( result.getKey( ) );
+            response.setPagination( result.getValue( ) );
+        }
         response.setStatus( ResponseStatusFactory.ok( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
 
         return response;
@@ -0,0 +1,46 @@
+-- Merge journal of the duplicates resolution daemon
+CREATE TABLE identitystore_quality_merge_journal (
+    id_merge_journal int AUTO_INCREMENT,
+    suspicious_customer_id varchar(60) NOT NULL,
+    primary_customer_id varchar(60) NOT NULL,
+    candidate_customer_id varchar(60) NOT NULL,
+    rule_code varchar(100) NOT NULL,
+    status varchar(20) NOT NULL,
+    date_create timestamp default CURRENT_TIMESTAMP NOT NULL,
+    date_update timestamp default CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY (id_merge_journal)
+);
+CREATE INDEX identitystore_quality_merge_journal_status_index ON identitystore_quality_merge_journal (status, date_update);
+
+-- Locks serializing the creations of the suspicions of the same identities (one suspicion per identity)
+CREATE TABLE identitystore_quality_suspicion_lock (
+    id_suspicion_lock int NOT NULL,
+    PRIMARY KEY (id_suspicion_lock)
+);
+INSERT INTO identitystore_quality_suspicion_lock (id_suspicion_lock) VALUES (0),(1),(2),(3),(4),(5),(6),(7),(8),(9),(10),(11),(12),(13),(14),(15);
+
+-- Suspicion event feed
+CREATE TABLE identitystore_quality_suspicion_event (
+    id_suspicion_event int AUTO_INCREMENT,
+    event_type varchar(30) NOT NULL,
+    customer_id varchar(60) NOT NULL,
+    rule_code varchar(100) NULL,
+    related_customer_id varchar(60) NULL,
+    author_type varchar(255) NULL,
+    author_name varchar(255) NULL,
+    date_create timestamp default CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY (id_suspicion_event)
+);
+CREATE INDEX identitystore_quality_suspicion_event_date_index ON identitystore_quality_suspicion_event (date_create);
+
+-- Suspicion counters by rule, seeded with the existing suspicions
+CREATE TABLE identitystore_quality_suspicion_counter (
+    id_suspicion_counter int AUTO_INCREMENT,
+    id_duplicate_rule int NOT NULL,
+    slot int NOT NULL,
+    suspicion_count int default 0 NOT NULL,
+    PRIMARY KEY (id_suspicion_counter)
+);
+CREATE INDEX identitystore_quality_suspicion_counter_rule_index ON identitystore_quality_suspicion_counter (id_duplicate_rule, slot);
+INSERT INTO identitystore_quality_suspicion_counter (id_duplicate_rule, slot, suspicion_count)
+    SELECT id_duplicate_rule, 0, COUNT(*) FROM identitystore_quality_suspicious_identity GROUP BY id_duplicate_rule;
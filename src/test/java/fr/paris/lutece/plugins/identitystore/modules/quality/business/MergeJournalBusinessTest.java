@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * This is the business class test for the object MergeJournalEntry
+ */
+public class MergeJournalBusinessTest extends LuteceTestCase
+{
+    private static final String SUSPICIOUS_CUSTOMER_ID = "MergeJournalSuspicious";
+    private static final String PRIMARY_CUSTOMER_ID = "MergeJournalPrimary";
+    private static final String CANDIDATE_CUSTOMER_ID = "MergeJournalCandidate";
+    private static final String RULE_CODE = "RG_TEST";
+
+    /**
+     * test the lifecycle of a journal entry : planned, applied, unlocked then purged
+     */
+    public void testBusiness( )
+    {
+        final Timestamp future = Timestamp.from( Instant.now( ).plus( Duration.ofMinutes( 1 ) ) );
+
+        // Plan test
+        final MergeJournalEntry entry = MergeJournalHome.plan( SUSPICIOUS_CUSTOMER_ID, PRIMARY_CUSTOMER_ID, CANDIDATE_CUSTOMER_ID, RULE_CODE );
+        assertTrue( entry.getId( ) > 0 );
+        assertEquals( MergeJournalStatus.PLANNED, entry.getStatus( ) );
+        MergeJournalEntry entryStored = find( entry.getId( ), future );
+        assertNotNull( entryStored );
+        assertEquals( SUSPICIOUS_CUSTOMER_ID, entryStored.getSuspiciousCustomerId( ) );
+        assertEquals( PRIMARY_CUSTOMER_ID, entryStored.getPrimaryCustomerId( ) );
+        assertEquals( CANDIDATE_CUSTOMER_ID, entryStored.getCandidateCustomerId( ) );
+        assertEquals( RULE_CODE, entryStored.getRuleCode( ) );
+        assertEquals( MergeJournalStatus.PLANNED, entryStored.getStatus( ) );
+
+        // The entries updated after the date limit are left to the node running them
+        assertNull( find( entry.getId( ), Timestamp.from( Instant.now( ).minus( Duration.ofMinutes( 1 ) ) ) ) );
+
+        // Applied entries are still unfinished
+        MergeJournalHome.updateStatus( entry, MergeJournalStatus.APPLIED );
+        entryStored = find( entry.getId( ), future );
+        assertNotNull( entryStored );
+        assertEquals( MergeJournalStatus.APPLIED, entryStored.getStatus( ) );
+
+        // Unlocked entries are completed, and only them are purged
+        MergeJournalHome.updateStatus( entry, MergeJournalStatus.UNLOCKED );
+        assertNull( find( entry.getId( ), future ) );
+        final MergeJournalEntry plannedEntry = MergeJournalHome.plan( SUSPICIOUS_CUSTOMER_ID, PRIMARY_CUSTOMER_ID, CANDIDATE_CUSTOMER_ID, RULE_CODE );
+        assertTrue( MergeJournalHome.purgeCompleted( future ) >= 1 );
+        assertNotNull( find( plannedEntry.getId( ), future ) );
+
+        // Delete test
+        MergeJournalHome.remove( plannedEntry.getId( ) );
+        assertNull( find( plannedEntry.getId( ), future ) );
+    }
+
+    private static MergeJournalEntry find( final int nId, final Timestamp before )
+    {
+        final List<MergeJournalEntry> entries = MergeJournalHome.findUnfinished( before );
+        return entries.stream( ).filter( e -> e.getId( ) == nId ).findFirst( ).orElse( null );
+    }
+}
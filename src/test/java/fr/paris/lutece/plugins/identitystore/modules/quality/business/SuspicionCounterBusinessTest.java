@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * This is the business class test for the counters of suspicions by rule
+ */
+public class SuspicionCounterBusinessTest extends LuteceTestCase
+{
+    /* Identifier of no duplicate rule, so that the counters of the existing rules are left untouched */
+    private static final int RULE_ID = -1;
+    private static final int NB_UPDATES = 50;
+
+    /**
+     * test that the updates of the counter of a rule are summed over its slots, whether they create or update a slot
+     */
+    public void testAdd( )
+    {
+        try
+        {
+            assertEquals( 0, SuspicionCounterHome.count( RULE_ID ) );
+            for ( int i = 0; i < NB_UPDATES; i++ )
+            {
+                SuspicionCounterHome.add( RULE_ID, 2 );
+            }
+            SuspicionCounterHome.add( RULE_ID, -1 );
+            assertEquals( 2 * NB_UPDATES - 1, SuspicionCounterHome.count( RULE_ID ) );
+
+            SuspicionCounterHome.reset( RULE_ID );
+            assertEquals( 0, SuspicionCounterHome.count( RULE_ID ) );
+        }
+        finally
+        {
+            SuspicionCounterHome.reset( RULE_ID );
+        }
+    }
+
+    /**
+     * test that the recount drops the counters of the rules having no suspicions
+     */
+    public void testRecount( )
+    {
+        try
+        {
+            SuspicionCounterHome.add( RULE_ID, 3 );
+            assertEquals( 3, SuspicionCounterHome.count( RULE_ID ) );
+
+            TransactionManager.beginTransaction( null );
+            try
+            {
+                SuspicionCounterHome.recount( );
+                TransactionManager.commitTransaction( null );
+            }
+            catch( final RuntimeException e )
+            {
+                TransactionManager.rollBack( null );
+                throw e;
+            }
+            assertEquals( 0, SuspicionCounterHome.count( RULE_ID ) );
+        }
+        finally
+        {
+            SuspicionCounterHome.reset( RULE_ID );
+        }
+    }
+}
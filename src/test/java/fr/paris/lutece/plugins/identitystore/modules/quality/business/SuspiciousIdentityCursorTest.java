@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * This is the test class for the cursor exchanged with the clients to page through the suspicious identities
+ */
+public class SuspiciousIdentityCursorTest extends LuteceTestCase
+{
+    /**
+     * test that a decoded cursor is positioned on the suspicious identity it was built from, to the nanosecond
+     */
+    public void testEncodeDecode( )
+    {
+        final Timestamp dateCreate = Timestamp.from( Instant.parse( "2024-05-06T07:08:09.123456Z" ) );
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+        suspiciousIdentity.setId( 42 );
+        suspiciousIdentity.setCreationDate( dateCreate );
+
+        final String strCursor = SuspiciousIdentityCursor.of( suspiciousIdentity ).encode( );
+        assertTrue( strCursor.matches( "[A-Za-z0-9_-]+" ) );
+
+        final SuspiciousIdentityCursor cursor = SuspiciousIdentityCursor.decode( strCursor );
+        assertEquals( dateCreate, cursor.getDateCreate( ) );
+        assertEquals( 42, cursor.getId( ) );
+    }
+
+    /**
+     * test that a malformed cursor is rejected
+     */
+    public void testDecodeMalformed( )
+    {
+        // not base64, no separator, no date, no id
+        for ( final String strCursor : Arrays.asList( "not a cursor!", "bm8gc2VwYXJhdG9y", "MjAyNHw0Mg", "MjAyNC0wNS0wNlQwNzowODowOVp8" ) )
+        {
+            try
+            {
+                SuspiciousIdentityCursor.decode( strCursor );
+                fail( "The cursor " + strCursor + " should be rejected" );
+            }
+            catch( final IllegalArgumentException e )
+            {
+                // expected
+            }
+        }
+    }
+}
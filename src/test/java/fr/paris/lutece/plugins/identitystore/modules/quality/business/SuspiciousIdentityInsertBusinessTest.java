@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the business class test for the creation of SuspiciousIdentity objects unless they already exist
+ */
+public class SuspiciousIdentityInsertBusinessTest extends LuteceTestCase
+{
+    private static final String CUSTOMERID_1 = "InsertCustomerId1";
+    private static final String CUSTOMERID_2 = "InsertCustomerId2";
+    private static final int NB_THREADS = 4;
+
+    /**
+     * test that a suspicion is not created when the identity, or one of the given identities, is already suspicious
+     */
+    public void testInsertIfAbsent( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = getRule( );
+        try
+        {
+            final SuspiciousIdentity suspiciousIdentity = suspiciousIdentity( rule, CUSTOMERID_1 );
+            assertTrue( createIfAbsent( suspiciousIdentity, Collections.singletonList( CUSTOMERID_1 ) ) );
+            assertTrue( suspiciousIdentity.getId( ) > 0 );
+            assertEquals( suspiciousIdentity.getId( ), SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_1 ).getId( ) );
+
+            assertFalse( createIfAbsent( suspiciousIdentity( rule, CUSTOMERID_1 ), Collections.singletonList( CUSTOMERID_1 ) ) );
+            assertFalse( createIfAbsent( suspiciousIdentity( rule, CUSTOMERID_2 ), Arrays.asList( CUSTOMERID_2, CUSTOMERID_1 ) ) );
+            assertNull( SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_2 ) );
+        }
+        finally
+        {
+            removeAll( );
+        }
+    }
+
+    /**
+     * test that concurrent creations of the suspicion of the same identity create a single suspicion
+     */
+    public void testConcurrentInserts( ) throws Exception
+    {
+        final DuplicateRule rule = getRule( );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( NB_THREADS );
+        try
+        {
+            final List<Future<Boolean>> futures = new ArrayList<>( );
+            for ( int i = 0; i < NB_THREADS; i++ )
+            {
+                final Callable<Boolean> creation = ( ) -> {
+                    start.await( 5, TimeUnit.SECONDS );
+                    return createIfAbsent( suspiciousIdentity( rule, CUSTOMERID_1 ), Collections.singletonList( CUSTOMERID_1 ) );
+                };
+                futures.add( executor.submit( creation ) );
+            }
+            start.countDown( );
+
+            int nCreated = 0;
+            for ( final Future<Boolean> future : futures )
+            {
+                nCreated += future.get( 30, TimeUnit.SECONDS ) ? 1 : 0;
+            }
+            assertEquals( 1, nCreated );
+            assertEquals( 1, SuspiciousIdentityHome.selectByCustomerIDs( Collections.singletonList( CUSTOMERID_1 ) ).size( ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+            removeAll( );
+        }
+    }
+
+    private static boolean createIfAbsent( final SuspiciousIdentity suspiciousIdentity, final List<String> customerIds )
+    {
+        TransactionManager.beginTransaction( null );
+        try
+        {
+            final boolean bCreated = SuspiciousIdentityInsertHome.createIfAbsent( suspiciousIdentity, customerIds );
+            TransactionManager.commitTransaction( null );
+            return bCreated;
+        }
+        catch( final RuntimeException e )
+        {
+            TransactionManager.rollBack( null );
+            throw e;
+        }
+    }
+
+    private static DuplicateRule getRule( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = DuplicateRuleService.instance( ).findAll( ).stream( ).filter( r -> r != null ).findFirst( ).orElse( null );
+        assertNotNull( "a duplicate rule is required", rule );
+        return rule;
+    }
+
+    private static SuspiciousIdentity suspiciousIdentity( final DuplicateRule rule, final String strCustomerId )
+    {
+        final Timestamp now = Timestamp.from( Instant.now( ) );
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+        suspiciousIdentity.setCustomerId( strCustomerId );
+        suspiciousIdentity.setIdDuplicateRule( rule.getId( ) );
+        suspiciousIdentity.setDuplicateRuleCode( rule.getCode( ) );
+        suspiciousIdentity.setCreationDate( now );
+        suspiciousIdentity.setLastUpdateDate( now );
+        return suspiciousIdentity;
+    }
+
+    private static void removeAll( )
+    {
+        SuspiciousIdentityHome.selectByCustomerIDs( Arrays.asList( CUSTOMERID_1, CUSTOMERID_2 ) )
+                .forEach( suspiciousIdentity -> SuspiciousIdentityHome.remove( suspiciousIdentity.getId( ) ) );
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This is the business class test for the locks taken on many SuspiciousIdentity objects at once
+ */
+public class SuspiciousIdentityLockBusinessTest extends LuteceTestCase
+{
+    private static final String CUSTOMERID_PREFIX = "LockCustomerId";
+    private static final String AUTHOR_TYPE = "admin";
+    private static final String AUTHOR_NAME_1 = "agent1";
+    private static final String AUTHOR_NAME_2 = "agent2";
+
+    /**
+     * test that only the locks of the author are released, and that the released customer IDs are returned
+     */
+    public void testUnlock( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = DuplicateRuleService.instance( ).findAll( ).stream( ).filter( r -> r != null ).findFirst( ).orElse( null );
+        assertNotNull( "a duplicate rule is required", rule );
+
+        final Timestamp now = Timestamp.from( Instant.now( ) );
+        final Timestamp lockEndDate = Timestamp.from( now.toInstant( ).plusSeconds( 600 ) );
+        final List<SuspiciousIdentity> created = new ArrayList<>( );
+        try
+        {
+            for ( int i = 0; i < 3; i++ )
+            {
+                final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+                suspiciousIdentity.setCustomerId( CUSTOMERID_PREFIX + i );
+                suspiciousIdentity.setIdDuplicateRule( rule.getId( ) );
+                suspiciousIdentity.setDuplicateRuleCode( rule.getCode( ) );
+                suspiciousIdentity.setCreationDate( now );
+                suspiciousIdentity.setLastUpdateDate( now );
+                SuspiciousIdentityHome.create( suspiciousIdentity );
+                created.add( suspiciousIdentity );
+            }
+            // The first two suspicions are locked by agent 1, the third one by agent 2
+            assertEquals( 2, SuspiciousIdentityLockHome.lock( Arrays.asList( created.get( 0 ).getId( ), created.get( 1 ).getId( ) ), now, lockEndDate,
+                    AUTHOR_TYPE, AUTHOR_NAME_1 ) );
+            assertTrue( SuspiciousIdentityLockHome.lock( created.get( 2 ).getId( ), now, lockEndDate, AUTHOR_TYPE, AUTHOR_NAME_2 ) );
+            assertFalse( "a lock is not taken twice", SuspiciousIdentityLockHome.lock( created.get( 2 ).getId( ), now, lockEndDate, AUTHOR_TYPE,
+                    AUTHOR_NAME_1 ) );
+
+            TransactionManager.beginTransaction( null );
+            final List<String> unlocked;
+            try
+            {
+                unlocked = SuspiciousIdentityLockHome.unlock( Arrays.asList( CUSTOMERID_PREFIX + 0, CUSTOMERID_PREFIX + 2, CUSTOMERID_PREFIX + "Unknown" ),
+                        AUTHOR_TYPE, AUTHOR_NAME_1 );
+                TransactionManager.commitTransaction( null );
+            }
+            catch( final RuntimeException e )
+            {
+                TransactionManager.rollBack( null );
+                throw e;
+            }
+
+            assertEquals( Collections.singletonList( CUSTOMERID_PREFIX + 0 ), unlocked );
+            assertFalse( SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_PREFIX + 0 ).getLock( ).isLocked( ) );
+            assertTrue( SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_PREFIX + 1 ).getLock( ).isLocked( ) );
+            assertTrue( "the lock of another author is kept", SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_PREFIX + 2 ).getLock( ).isLocked( ) );
+            assertTrue( SuspiciousIdentityLockHome.unlock( Collections.emptyList( ), AUTHOR_TYPE, AUTHOR_NAME_1 ).isEmpty( ) );
+        }
+        finally
+        {
+            created.forEach( suspiciousIdentity -> SuspiciousIdentityHome.remove( suspiciousIdentity.getId( ) ) );
+        }
+    }
+}
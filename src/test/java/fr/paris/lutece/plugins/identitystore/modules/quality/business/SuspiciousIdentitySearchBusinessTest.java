@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.business;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.SearchAttribute;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * This is the business class test for the search of SuspiciousIdentity objects page by page, checked against the identity store search
+ */
+public class SuspiciousIdentitySearchBusinessTest extends LuteceTestCase
+{
+    private static final String CUSTOMERID_PREFIX = "SearchCustomerId";
+    private static final int PAGE_SIZE = 2;
+
+    /**
+     * test that reading all the pages gives the suspicious identities of the identity store search, in the (creation date, id) order
+     */
+    public void testSearchAfter( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = DuplicateRuleService.instance( ).findAll( ).stream( ).filter( r -> r != null ).findFirst( ).orElse( null );
+        assertNotNull( "a duplicate rule is required", rule );
+
+        final Timestamp now = Timestamp.from( Instant.now( ) );
+        final List<SuspiciousIdentity> created = new ArrayList<>( );
+        try
+        {
+            /* Two suspicions share the same creation date, to check that the id breaks the tie */
+            created.add( create( rule, CUSTOMERID_PREFIX + 1, now ) );
+            created.add( create( rule, CUSTOMERID_PREFIX + 2, now ) );
+            created.add( create( rule, CUSTOMERID_PREFIX + 3, Timestamp.from( now.toInstant( ).minusSeconds( 1 ) ) ) );
+
+            // Rule code filter
+            final List<SuspiciousIdentity> byRule = readAll( rule.getCode( ), null, null );
+            assertEquals( ids( SuspiciousIdentityHome.getSuspiciousIdentitysList( rule.getCode( ), null, null, null ) ), ids( byRule ) );
+            assertOrdered( byRule );
+            final List<Integer> createdOrder = byRule.stream( ).filter( s -> s.getCustomerId( ).startsWith( CUSTOMERID_PREFIX ) ).map( SuspiciousIdentity::getId )
+                    .collect( Collectors.toList( ) );
+            assertEquals( List.of( created.get( 2 ).getId( ), created.get( 0 ).getId( ), created.get( 1 ).getId( ) ), createdOrder );
+
+            // Rule priority filter
+            assertEquals( ids( SuspiciousIdentityHome.getSuspiciousIdentitysList( null, null, null, rule.getPriority( ) ) ),
+                    ids( readAll( null, null, rule.getPriority( ) ) ) );
+
+            // Attribute filter, exact match
+            final SearchAttribute attribute = new SearchAttribute( );
+            attribute.setKey( "family_name" );
+            attribute.setValue( CUSTOMERID_PREFIX );
+            final List<SearchAttribute> attributes = Collections.singletonList( attribute );
+            assertEquals( ids( SuspiciousIdentityHome.getSuspiciousIdentitysList( rule.getCode( ), attributes, null, null ) ),
+                    ids( readAll( rule.getCode( ), attributes, null ) ) );
+        }
+        finally
+        {
+            created.forEach( suspiciousIdentity -> SuspiciousIdentityHome.remove( suspiciousIdentity.getId( ) ) );
+        }
+    }
+
+    /**
+     * test that reading all the offset pages gives the suspicious identities of the identity store search, in the same order as the cursor pages, and that
+     * the count matches
+     */
+    public void testSearchByOffset( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = DuplicateRuleService.instance( ).findAll( ).stream( ).filter( r -> r != null ).findFirst( ).orElse( null );
+        assertNotNull( "a duplicate rule is required", rule );
+
+        final Timestamp now = Timestamp.from( Instant.now( ) );
+        final List<SuspiciousIdentity> created = new ArrayList<>( );
+        try
+        {
+            created.add( create( rule, CUSTOMERID_PREFIX + 1, now ) );
+            created.add( create( rule, CUSTOMERID_PREFIX + 2, now ) );
+            created.add( create( rule, CUSTOMERID_PREFIX + 3, Timestamp.from( now.toInstant( ).minusSeconds( 1 ) ) ) );
+
+            // Rule code filter
+            final List<SuspiciousIdentity> byRule = readAllByOffset( rule.getCode( ), null, null );
+            final List<SuspiciousIdentity> expected = SuspiciousIdentityHome.getSuspiciousIdentitysList( rule.getCode( ), null, null, null );
+            assertEquals( ids( expected ), ids( byRule ) );
+            assertEquals( expected.size( ), SuspiciousIdentitySearchHome.count( rule.getCode( ), null, null ) );
+            assertEquals( ordered( readAll( rule.getCode( ), null, null ) ), ordered( byRule ) );
+
+            // Rule priority filter
+            final List<SuspiciousIdentity> byPriority = readAllByOffset( null, null, rule.getPriority( ) );
+            assertEquals( ids( SuspiciousIdentityHome.getSuspiciousIdentitysList( null, null, null, rule.getPriority( ) ) ), ids( byPriority ) );
+            assertEquals( byPriority.size( ), SuspiciousIdentitySearchHome.count( null, null, rule.getPriority( ) ) );
+            assertOrdered( byPriority );
+
+            // Attribute filter, exact match
+            final SearchAttribute attribute = new SearchAttribute( );
+            attribute.setKey( "family_name" );
+            attribute.setValue( CUSTOMERID_PREFIX );
+            final List<SearchAttribute> attributes = Collections.singletonList( attribute );
+            final List<SuspiciousIdentity> byAttribute = readAllByOffset( rule.getCode( ), attributes, null );
+            assertEquals( ids( SuspiciousIdentityHome.getSuspiciousIdentitysList( rule.getCode( ), attributes, null, null ) ), ids( byAttribute ) );
+            assertEquals( byAttribute.size( ), SuspiciousIdentitySearchHome.count( rule.getCode( ), attributes, null ) );
+        }
+        finally
+        {
+            created.forEach( suspiciousIdentity -> SuspiciousIdentityHome.remove( suspiciousIdentity.getId( ) ) );
+        }
+    }
+
+    private static SuspiciousIdentity create( final DuplicateRule rule, final String strCustomerId, final Timestamp dateCreate )
+    {
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+        suspiciousIdentity.setCustomerId( strCustomerId );
+        suspiciousIdentity.setIdDuplicateRule( rule.getId( ) );
+        suspiciousIdentity.setDuplicateRuleCode( rule.getCode( ) );
+        suspiciousIdentity.setCreationDate( dateCreate );
+        suspiciousIdentity.setLastUpdateDate( dateCreate );
+        SuspiciousIdentityHome.create( suspiciousIdentity );
+        return suspiciousIdentity;
+    }
+
+    private static List<SuspiciousIdentity> readAll( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority )
+    {
+        final List<SuspiciousIdentity> all = new ArrayList<>( );
+        SuspiciousIdentityCursor cursor = null;
+        List<SuspiciousIdentity> page;
+        do
+        {
+            page = SuspiciousIdentitySearchHome.searchAfter( strRuleCode, attributes, nRulePriority, cursor, PAGE_SIZE );
+            assertTrue( page.size( ) <= PAGE_SIZE );
+            all.addAll( page );
+            cursor = page.isEmpty( ) ? null : SuspiciousIdentityCursor.of( page.get( page.size( ) - 1 ) );
+        }
+        while ( page.size( ) == PAGE_SIZE );
+        return all;
+    }
+
+    private static List<SuspiciousIdentity> readAllByOffset( final String strRuleCode, final List<SearchAttribute> attributes, final Integer nRulePriority )
+    {
+        final List<SuspiciousIdentity> all = new ArrayList<>( );
+        List<SuspiciousIdentity> page;
+        do
+        {
+            page = SuspiciousIdentitySearchHome.search( strRuleCode, attributes, nRulePriority, all.size( ), PAGE_SIZE );
+            assertTrue( page.size( ) <= PAGE_SIZE );
+            all.addAll( page );
+        }
+        while ( page.size( ) == PAGE_SIZE );
+        return all;
+    }
+
+    private static List<Integer> ordered( final List<SuspiciousIdentity> suspiciousIdentities )
+    {
+        return suspiciousIdentities.stream( ).map( SuspiciousIdentity::getId ).collect( Collectors.toList( ) );
+    }
+
+    private static Set<Integer> ids( final List<SuspiciousIdentity> suspiciousIdentities )
+    {
+        return suspiciousIdentities.stream( ).map( SuspiciousIdentity::getId ).collect( Collectors.toSet( ) );
+    }
+
+    private static void assertOrdered( final List<SuspiciousIdentity> suspiciousIdentities )
+    {
+        final List<SuspiciousIdentity> sorted = new ArrayList<>( suspiciousIdentities );
+        sorted.sort( Comparator.comparing( SuspiciousIdentity::getCreationDate ).thenComparing( SuspiciousIdentity::getId ) );
+        assertEquals( sorted, suspiciousIdentities );
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the test class for the background writer of the access log events
+ */
+public class AsyncAccessLoggerTest extends LuteceTestCase
+{
+    /**
+     * test that the events are written in order on the background thread
+     */
+    public void testWriteInBackground( ) throws InterruptedException
+    {
+        final AsyncAccessLogger logger = new AsyncAccessLogger( 10 );
+        final List<Integer> written = Collections.synchronizedList( new ArrayList<>( ) );
+        final List<Thread> threads = Collections.synchronizedList( new ArrayList<>( ) );
+        final CountDownLatch done = new CountDownLatch( 3 );
+        for ( int i = 1; i <= 3; i++ )
+        {
+            final int nEvent = i;
+            logger.write( ( ) -> {
+                written.add( nEvent );
+                threads.add( Thread.currentThread( ) );
+                done.countDown( );
+            } );
+        }
+        assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+        assertEquals( Arrays.asList( 1, 2, 3 ), written );
+        assertFalse( threads.contains( Thread.currentThread( ) ) );
+        logger.shutdown( );
+    }
+
+    /**
+     * test that an event is written on the calling thread instead of being dropped when the queue is full
+     */
+    public void testQueueFull( ) throws InterruptedException
+    {
+        final AsyncAccessLogger logger = new AsyncAccessLogger( 1 );
+        final CountDownLatch writerBusy = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final List<String> written = Collections.synchronizedList( new ArrayList<>( ) );
+        try
+        {
+            logger.write( ( ) -> {
+                writerBusy.countDown( );
+                await( release );
+                written.add( "first" );
+            } );
+            assertTrue( writerBusy.await( 5, TimeUnit.SECONDS ) );
+            logger.write( ( ) -> written.add( "queued" ) );
+
+            final Thread caller = Thread.currentThread( );
+            final List<Thread> overflowThread = new ArrayList<>( );
+            logger.write( ( ) -> {
+                overflowThread.add( Thread.currentThread( ) );
+                written.add( "overflow" );
+            } );
+            assertEquals( Collections.singletonList( caller ), overflowThread );
+            assertEquals( Collections.singletonList( "overflow" ), written );
+        }
+        finally
+        {
+            release.countDown( );
+            logger.shutdown( );
+        }
+        assertEquals( Arrays.asList( "overflow", "first", "queued" ), written );
+    }
+
+    /**
+     * test that the pending events are flushed on shutdown, and that the later events are written on the calling thread
+     */
+    public void testShutdown( )
+    {
+        final AsyncAccessLogger logger = new AsyncAccessLogger( 100 );
+        final List<Integer> written = Collections.synchronizedList( new ArrayList<>( ) );
+        for ( int i = 0; i < 50; i++ )
+        {
+            final int nEvent = i;
+            logger.write( ( ) -> written.add( nEvent ) );
+        }
+        logger.shutdown( );
+        assertEquals( 50, written.size( ) );
+
+        final List<Thread> lateThread = new ArrayList<>( );
+        logger.write( ( ) -> lateThread.add( Thread.currentThread( ) ) );
+        assertEquals( Collections.singletonList( Thread.currentThread( ) ), lateThread );
+    }
+
+    private static void await( final CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
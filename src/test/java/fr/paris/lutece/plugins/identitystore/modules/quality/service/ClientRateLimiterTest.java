@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is the test class for the token bucket rate limiter of the client codes
+ */
+public class ClientRateLimiterTest extends LuteceTestCase
+{
+    private static final String CLIENT_CODE_1 = "TEST_CLIENT_1";
+    private static final String CLIENT_CODE_2 = "TEST_CLIENT_2";
+    private static final String CLIENT_CODE_3 = "TEST_CLIENT_3";
+    private static final String UNKNOWN_CLIENT_CODE = "-";
+
+    /**
+     * test that the tokens are taken until the bucket is empty, then refilled over time
+     */
+    public void testBucket( ) throws InterruptedException
+    {
+        final ClientRateLimiter.Bucket bucket = new ClientRateLimiter.Bucket( 2, 10 );
+        assertEquals( 2, bucket.getCapacity( ) );
+        assertEquals( 0, bucket.tryAcquire( 1 ) );
+        assertEquals( 0, bucket.tryAcquire( 1 ) );
+        assertEquals( 1, bucket.tryAcquire( 1 ) );
+        assertEquals( 2, bucket.getAccepted( ) );
+        assertEquals( 1, bucket.getRejected( ) );
+
+        Thread.sleep( 250 );
+        assertEquals( 0, bucket.tryAcquire( 2 ) );
+        assertEquals( 0, bucket.getAvailable( ) );
+    }
+
+    /**
+     * test that the delay to retry is the time needed to refill the missing tokens
+     */
+    public void testRetryAfter( )
+    {
+        final ClientRateLimiter.Bucket bucket = new ClientRateLimiter.Bucket( 10, 1 );
+        assertEquals( 0, bucket.tryAcquire( 10 ) );
+        final long lRetryAfter = bucket.tryAcquire( 5 );
+        assertTrue( lRetryAfter >= 4 && lRetryAfter <= 5 );
+    }
+
+    /**
+     * test that each known client has its own bucket, and that a request costing more than the capacity only needs a full bucket
+     */
+    public void testKnownClients( )
+    {
+        final ClientRateLimiter rateLimiter = new ClientRateLimiter( true, 10, code -> true, code -> new ClientRateLimiter.Bucket( 2, 1 ) );
+        assertEquals( 0, rateLimiter.tryAcquire( CLIENT_CODE_1, 5 ) );
+        assertTrue( rateLimiter.tryAcquire( CLIENT_CODE_1, 1 ) > 0 );
+        assertEquals( 0, rateLimiter.tryAcquire( CLIENT_CODE_2, 1 ) );
+        assertEquals( new HashSet<>( Arrays.asList( CLIENT_CODE_1, CLIENT_CODE_2, UNKNOWN_CLIENT_CODE ) ), rateLimiter.getBuckets( ).keySet( ) );
+        assertEquals( 1, rateLimiter.getBuckets( ).get( CLIENT_CODE_1 ).getRejected( ) );
+    }
+
+    /**
+     * test that the requests of unknown or blank client codes share a single bucket, and cannot drain the bucket of a known client
+     */
+    public void testUnknownClients( )
+    {
+        final Set<String> knownClients = new HashSet<>( Arrays.asList( CLIENT_CODE_1 ) );
+        final ClientRateLimiter rateLimiter = new ClientRateLimiter( true, 10, knownClients::contains, code -> new ClientRateLimiter.Bucket( 2, 1 ) );
+        assertEquals( 0, rateLimiter.tryAcquire( "forged client code", 1 ) );
+        assertEquals( 0, rateLimiter.tryAcquire( null, 1 ) );
+        assertTrue( rateLimiter.tryAcquire( " ", 1 ) > 0 );
+        assertEquals( 0, rateLimiter.tryAcquire( CLIENT_CODE_1, 2 ) );
+        assertEquals( new HashSet<>( Arrays.asList( CLIENT_CODE_1, UNKNOWN_CLIENT_CODE ) ), rateLimiter.getBuckets( ).keySet( ) );
+        assertEquals( 2, rateLimiter.getBuckets( ).get( UNKNOWN_CLIENT_CODE ).getAccepted( ) );
+    }
+
+    /**
+     * test that the clients beyond the maximum number of buckets share the bucket of the unknown clients
+     */
+    public void testMaxClients( )
+    {
+        final ClientRateLimiter rateLimiter = new ClientRateLimiter( true, 2, code -> true, code -> new ClientRateLimiter.Bucket( 2, 1 ) );
+        rateLimiter.tryAcquire( CLIENT_CODE_1, 1 );
+        rateLimiter.tryAcquire( CLIENT_CODE_2, 1 );
+        rateLimiter.tryAcquire( CLIENT_CODE_3, 1 );
+        assertEquals( new HashSet<>( Arrays.asList( CLIENT_CODE_1, CLIENT_CODE_2, UNKNOWN_CLIENT_CODE ) ), rateLimiter.getBuckets( ).keySet( ) );
+        assertEquals( 1, rateLimiter.getBuckets( ).get( UNKNOWN_CLIENT_CODE ).getAccepted( ) );
+    }
+
+    /**
+     * test that the service contract of a client code denied a bucket is looked up at most once per period, and that no lookup is done once the denied
+     * codes cannot be remembered anymore
+     */
+    public void testDeniedClients( )
+    {
+        final AtomicInteger lookups = new AtomicInteger( );
+        final AtomicLong clock = new AtomicLong( );
+        final ClientRateLimiter rateLimiter = new ClientRateLimiter( true, 10, 2, 1000, code -> {
+            lookups.incrementAndGet( );
+            return CLIENT_CODE_1.equals( code );
+        }, code -> new ClientRateLimiter.Bucket( 100, 1 ), clock::get );
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            rateLimiter.tryAcquire( "forged client code 1", 1 );
+        }
+        assertEquals( 1, lookups.get( ) );
+        clock.addAndGet( TimeUnit.MILLISECONDS.toNanos( 1000 ) );
+        rateLimiter.tryAcquire( "forged client code 1", 1 );
+        assertEquals( 2, lookups.get( ) );
+
+        // The denied codes are full : the new codes share the bucket without lookup until the remembered ones expire
+        rateLimiter.tryAcquire( "forged client code 2", 1 );
+        assertEquals( 3, lookups.get( ) );
+        rateLimiter.tryAcquire( "forged client code 3", 1 );
+        rateLimiter.tryAcquire( CLIENT_CODE_1, 1 );
+        assertEquals( 3, lookups.get( ) );
+        assertEquals( Set.of( UNKNOWN_CLIENT_CODE ), rateLimiter.getBuckets( ).keySet( ) );
+
+        clock.addAndGet( TimeUnit.MILLISECONDS.toNanos( 1000 ) );
+        rateLimiter.tryAcquire( CLIENT_CODE_1, 1 );
+        assertEquals( 4, lookups.get( ) );
+        assertEquals( Set.of( CLIENT_CODE_1, UNKNOWN_CLIENT_CODE ), rateLimiter.getBuckets( ).keySet( ) );
+    }
+
+    /**
+     * test that nothing is limited nor recorded when the rate limit is disabled
+     */
+    public void testDisabled( )
+    {
+        final ClientRateLimiter rateLimiter = new ClientRateLimiter( false, 10, code -> true, code -> new ClientRateLimiter.Bucket( 1, 1 ) );
+        for ( int i = 0; i < 5; i++ )
+        {
+            assertEquals( 0, rateLimiter.tryAcquire( CLIENT_CODE_1, 1 ) );
+        }
+        assertFalse( rateLimiter.isEnabled( ) );
+        assertEquals( Set.of( UNKNOWN_CLIENT_CODE ), rateLimiter.getBuckets( ).keySet( ) );
+    }
+}
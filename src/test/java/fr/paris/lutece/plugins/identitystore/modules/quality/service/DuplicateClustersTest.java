@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * This is the test class for the grouping of suspicions into clusters of duplicates
+ */
+public class DuplicateClustersTest extends LuteceTestCase
+{
+    /**
+     * test that mutual duplicates give a single cluster, anchored on the first suspicion
+     */
+    public void testMutualDuplicates( )
+    {
+        final DuplicateClusters clusters = new DuplicateClusters( );
+        final SuspiciousIdentity suspicionA = suspicion( "A" );
+        clusters.add( suspicionA, Arrays.asList( "B", "C" ) );
+        assertTrue( clusters.contains( "A" ) );
+        assertTrue( clusters.contains( "B" ) );
+        assertTrue( clusters.contains( "C" ) );
+        assertFalse( clusters.contains( "D" ) );
+        clusters.add( suspicion( "C" ), Arrays.asList( "A", "B" ) );
+
+        final List<DuplicateClusters.Cluster> listClusters = clusters.getClusters( );
+        assertEquals( 1, listClusters.size( ) );
+        assertSame( suspicionA, listClusters.get( 0 ).getAnchor( ) );
+        assertEquals( 2, listClusters.get( 0 ).getAnchorDuplicateCount( ) );
+        assertEquals( Arrays.asList( "A", "B", "C" ), listClusters.get( 0 ).getCustomerIds( ) );
+    }
+
+    /**
+     * test that chained duplicates are merged into one cluster, and that unrelated suspicions stay apart
+     */
+    public void testChainedDuplicates( )
+    {
+        final DuplicateClusters clusters = new DuplicateClusters( );
+        final SuspiciousIdentity suspicionA = suspicion( "A" );
+        final SuspiciousIdentity suspicionC = suspicion( "C" );
+        final SuspiciousIdentity suspicionX = suspicion( "X" );
+        clusters.add( suspicionA, Collections.singletonList( "B" ) );
+        clusters.add( suspicionX, Collections.singletonList( "Y" ) );
+        clusters.add( suspicionC, Collections.singletonList( "D" ) );
+        assertEquals( 3, clusters.getClusters( ).size( ) );
+
+        // B and D being duplicates, A, B, C and D form a single component
+        clusters.add( suspicion( "B" ), Arrays.asList( "A", "D" ) );
+
+        final List<DuplicateClusters.Cluster> listClusters = clusters.getClusters( );
+        assertEquals( 2, listClusters.size( ) );
+        assertSame( suspicionA, listClusters.get( 0 ).getAnchor( ) );
+        assertEquals( 1, listClusters.get( 0 ).getAnchorDuplicateCount( ) );
+        assertEquals( new HashSet<>( Arrays.asList( "A", "B", "C", "D" ) ), new HashSet<>( listClusters.get( 0 ).getCustomerIds( ) ) );
+        assertSame( suspicionX, listClusters.get( 1 ).getAnchor( ) );
+        assertEquals( Arrays.asList( "X", "Y" ), listClusters.get( 1 ).getCustomerIds( ) );
+    }
+
+    /**
+     * test a suspicion without duplicates
+     */
+    public void testSingleIdentity( )
+    {
+        final DuplicateClusters clusters = new DuplicateClusters( );
+        clusters.add( suspicion( "A" ), Collections.emptyList( ) );
+
+        final List<DuplicateClusters.Cluster> listClusters = clusters.getClusters( );
+        assertEquals( 1, listClusters.size( ) );
+        assertEquals( 0, listClusters.get( 0 ).getAnchorDuplicateCount( ) );
+        assertEquals( Collections.singletonList( "A" ), listClusters.get( 0 ).getCustomerIds( ) );
+    }
+
+    private static SuspiciousIdentity suspicion( final String strCustomerId )
+    {
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+        suspiciousIdentity.setCustomerId( strCustomerId );
+        return suspiciousIdentity;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchBulkhead.Caller;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the test class for the concurrency limits of the interactive and daemon duplicate searches
+ */
+public class DuplicateSearchBulkheadTest extends LuteceTestCase
+{
+    /**
+     * test that an interactive search waits for a permit, and is rejected once its wait is over
+     */
+    public void testInteractiveWait( ) throws Exception
+    {
+        final DuplicateSearchBulkhead bulkhead = new DuplicateSearchBulkhead( true, 1, 1, 100, 1, 1, 10, 1000 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newSingleThreadExecutor( );
+        try
+        {
+            final Future<Boolean> running = executor.submit( ( ) -> bulkhead.execute( Caller.INTERACTIVE, ( ) -> {
+                started.countDown( );
+                return await( release );
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+
+            assertUnavailable( bulkhead, Caller.INTERACTIVE );
+            release.countDown( );
+            assertTrue( running.get( 5, TimeUnit.SECONDS ) );
+            assertTrue( bulkhead.execute( Caller.INTERACTIVE, ( ) -> true ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * test that an interactive search is rejected at once when the waiting queue is full
+     */
+    public void testInteractiveQueueFull( ) throws Exception
+    {
+        final DuplicateSearchBulkhead bulkhead = new DuplicateSearchBulkhead( true, 1, 0, TimeUnit.SECONDS.toMillis( 5 ), 1, 1, 10, 1000 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newSingleThreadExecutor( );
+        try
+        {
+            executor.submit( ( ) -> bulkhead.execute( Caller.INTERACTIVE, ( ) -> {
+                started.countDown( );
+                return await( release );
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+
+            final long lStart = System.currentTimeMillis( );
+            assertUnavailable( bulkhead, Caller.INTERACTIVE );
+            assertTrue( System.currentTimeMillis( ) - lStart < TimeUnit.SECONDS.toMillis( 5 ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * test that the daemon searches have their own permits, and yield while interactive searches are waiting
+     */
+    public void testDaemonYields( ) throws Exception
+    {
+        final DuplicateSearchBulkhead bulkhead = new DuplicateSearchBulkhead( true, 1, 1, TimeUnit.SECONDS.toMillis( 5 ), 1, 1, 10,
+                TimeUnit.SECONDS.toMillis( 5 ) );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( 3 );
+        try
+        {
+            /* The interactive permits being busy does not hold back the daemons */
+            executor.submit( ( ) -> bulkhead.execute( Caller.INTERACTIVE, ( ) -> {
+                started.countDown( );
+                return await( release );
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            assertTrue( bulkhead.execute( Caller.DAEMON, ( ) -> true ) );
+
+            /* Once an interactive search waits, the daemons yield until it got its permit */
+            final CountDownLatch interactiveDone = new CountDownLatch( 1 );
+            executor.submit( ( ) -> bulkhead.execute( Caller.INTERACTIVE, ( ) -> {
+                interactiveDone.countDown( );
+                return true;
+            } ) );
+            final Future<Boolean> daemon = executor.submit( ( ) -> bulkhead.execute( Caller.DAEMON, ( ) -> interactiveDone.getCount( ) == 0 ) );
+            Thread.sleep( 100 );
+            assertFalse( daemon.isDone( ) );
+
+            release.countDown( );
+            assertTrue( "the daemon search ran after the waiting interactive search", daemon.get( 5, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * test that nothing is limited when the bulkhead is disabled
+     */
+    public void testDisabled( ) throws IdentityStoreException
+    {
+        final DuplicateSearchBulkhead bulkhead = new DuplicateSearchBulkhead( false, 1, 0, 0, 1, 1, 10, 0 );
+        assertTrue( bulkhead.execute( Caller.INTERACTIVE, ( ) -> bulkhead.execute( Caller.INTERACTIVE, ( ) -> true ) ) );
+    }
+
+    private static void assertUnavailable( final DuplicateSearchBulkhead bulkhead, final Caller caller )
+    {
+        try
+        {
+            bulkhead.execute( caller, ( ) -> {
+                fail( "no permit is available" );
+                return null;
+            } );
+            fail( "the search should have been rejected" );
+        }
+        catch( final IdentityStoreException e )
+        {
+            assertEquals( QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE, e.getLocaleMessageKey( ) );
+        }
+    }
+
+    private static boolean await( final CountDownLatch latch )
+    {
+        try
+        {
+            return latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            return false;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.QualifiedIdentitySearchResult;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * This is the test class for the cache of the duplicate searches
+ */
+public class DuplicateSearchCacheTest extends LuteceTestCase
+{
+    private static final String RULE_CODE = "RG_TEST";
+    private static final long TTL = 60000L;
+
+    /**
+     * test that a cached search is served until the identity is updated
+     */
+    public void testIdentityVersion( )
+    {
+        final DuplicateSearchCache cache = new DuplicateSearchCache( 10, TTL );
+        final Identity identity = identity( "CUID1", 1000L );
+        final Map<String, QualifiedIdentitySearchResult> duplicates = duplicates( "CUID2" );
+        assertNull( cache.get( identity, RULE_CODE ) );
+
+        cache.put( identity, RULE_CODE, duplicates );
+        assertSame( duplicates.get( RULE_CODE ), cache.get( identity, RULE_CODE ).get( RULE_CODE ) );
+        assertNull( "other rule", cache.get( identity, "RG_OTHER" ) );
+        assertNull( "updated identity", cache.get( identity( "CUID1", 2000L ), RULE_CODE ) );
+        assertEquals( 1, cache.getHits( ) );
+        assertEquals( 3, cache.getMisses( ) );
+    }
+
+    /**
+     * test that a change of the identity, or of one of its duplicates, invalidates the entry
+     */
+    public void testInvalidate( )
+    {
+        final DuplicateSearchCache cache = new DuplicateSearchCache( 10, TTL );
+        final Identity identity1 = identity( "CUID1", 1000L );
+        final Identity identity3 = identity( "CUID3", 1000L );
+        cache.put( identity1, RULE_CODE, duplicates( "CUID2" ) );
+        cache.put( identity3, RULE_CODE, duplicates( "CUID4" ) );
+
+        cache.invalidate( "CUID2" );
+        assertNull( cache.get( identity1, RULE_CODE ) );
+        assertNotNull( cache.get( identity3, RULE_CODE ) );
+        cache.invalidate( "CUID3" );
+        assertNull( cache.get( identity3, RULE_CODE ) );
+        cache.invalidate( "UNKNOWN" );
+        assertEquals( 2, cache.getInvalidations( ) );
+        assertEquals( 0, cache.getSize( ) );
+    }
+
+    /**
+     * test that the least recently used entry is evicted once the cache is full
+     */
+    public void testEviction( )
+    {
+        final DuplicateSearchCache cache = new DuplicateSearchCache( 2, TTL );
+        final Identity identity1 = identity( "CUID1", 1000L );
+        final Identity identity2 = identity( "CUID2", 1000L );
+        final Identity identity3 = identity( "CUID3", 1000L );
+        cache.put( identity1, RULE_CODE, duplicates( ) );
+        cache.put( identity2, RULE_CODE, duplicates( ) );
+        assertNotNull( cache.get( identity1, RULE_CODE ) );
+        cache.put( identity3, RULE_CODE, duplicates( ) );
+
+        assertEquals( 2, cache.getSize( ) );
+        assertEquals( 1, cache.getEvictions( ) );
+        assertNotNull( cache.get( identity1, RULE_CODE ) );
+        assertNull( cache.get( identity2, RULE_CODE ) );
+        assertNotNull( cache.get( identity3, RULE_CODE ) );
+    }
+
+    /**
+     * test that an entry is not served once expired, and that a zero size disables the cache
+     */
+    public void testExpirationAndDisabled( ) throws InterruptedException
+    {
+        final DuplicateSearchCache cache = new DuplicateSearchCache( 10, 50L );
+        final Identity identity = identity( "CUID1", 1000L );
+        cache.put( identity, RULE_CODE, duplicates( ) );
+        Thread.sleep( 100L );
+        assertNull( cache.get( identity, RULE_CODE ) );
+        assertEquals( 0, cache.getSize( ) );
+
+        final DuplicateSearchCache disabled = new DuplicateSearchCache( 0, TTL );
+        assertFalse( disabled.isEnabled( ) );
+        disabled.put( identity, RULE_CODE, duplicates( ) );
+        assertNull( disabled.get( identity, RULE_CODE ) );
+        assertEquals( 0, disabled.getMisses( ) );
+    }
+
+    private static Identity identity( final String strCustomerId, final long lLastUpdate )
+    {
+        final Identity identity = new Identity( );
+        identity.setCustomerId( strCustomerId );
+        identity.setLastUpdateDate( new Timestamp( lLastUpdate ) );
+        return identity;
+    }
+
+    private static Map<String, QualifiedIdentitySearchResult> duplicates( final String... customerIds )
+    {
+        final QualifiedIdentitySearchResult result = new QualifiedIdentitySearchResult( );
+        for ( final String strCustomerId : customerIds )
+        {
+            final IdentityDto duplicate = new IdentityDto( );
+            duplicate.setCustomerId( strCustomerId );
+            result.getQualifiedIdentities( ).add( duplicate );
+        }
+        return Collections.singletonMap( RULE_CODE, result );
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.service.DuplicateSearchCircuitBreaker.State;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This is the test class for the circuit breaker of the duplicate searches
+ */
+public class DuplicateSearchCircuitBreakerTest extends LuteceTestCase
+{
+    private static final String ERROR_KEY = "test.error";
+
+    /**
+     * test that the circuit opens after the consecutive failures, and then rejects the searches without running them
+     */
+    public void testOpen( ) throws IdentityStoreException
+    {
+        final DuplicateSearchCircuitBreaker breaker = new DuplicateSearchCircuitBreaker( true, 2, 60000 );
+        assertFailed( breaker );
+        assertTrue( breaker.execute( ( ) -> true ) );
+        assertFailed( breaker );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+        assertFailed( breaker );
+        assertEquals( State.OPEN, breaker.getState( ) );
+        assertEquals( 1, breaker.getOpenings( ) );
+
+        final AtomicBoolean run = new AtomicBoolean( );
+        try
+        {
+            breaker.execute( ( ) -> run.getAndSet( true ) );
+            fail( "the circuit is open" );
+        }
+        catch( final IdentityStoreException e )
+        {
+            assertEquals( QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE, e.getLocaleMessageKey( ) );
+        }
+        assertFalse( run.get( ) );
+        assertEquals( 1, breaker.getRejections( ) );
+    }
+
+    /**
+     * test that once the open duration is elapsed, a failed probe opens the circuit again and a successful one closes it
+     */
+    public void testHalfOpenProbe( ) throws Exception
+    {
+        final DuplicateSearchCircuitBreaker breaker = new DuplicateSearchCircuitBreaker( true, 1, 50 );
+        assertFailed( breaker );
+        assertEquals( State.OPEN, breaker.getState( ) );
+
+        Thread.sleep( 100 );
+        assertFailed( breaker );
+        assertEquals( State.OPEN, breaker.getState( ) );
+        assertEquals( 2, breaker.getOpenings( ) );
+
+        Thread.sleep( 100 );
+        assertTrue( breaker.execute( ( ) -> true ) );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+        assertTrue( breaker.execute( ( ) -> true ) );
+        assertEquals( 0, breaker.getRejections( ) );
+    }
+
+    private static void assertFailed( final DuplicateSearchCircuitBreaker breaker )
+    {
+        try
+        {
+            breaker.execute( ( ) -> {
+                throw new IdentityStoreException( "Search failed", ERROR_KEY );
+            } );
+            fail( "the search failed" );
+        }
+        catch( final IdentityStoreException e )
+        {
+            assertEquals( ERROR_KEY, e.getLocaleMessageKey( ) );
+        }
+    }
+}
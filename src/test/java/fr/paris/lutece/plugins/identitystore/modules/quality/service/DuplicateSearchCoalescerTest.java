@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.QualifiedIdentitySearchResult;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This is the test class for the coalescing of identical duplicate searches
+ */
+public class DuplicateSearchCoalescerTest extends LuteceTestCase
+{
+    private static final String RULE_CODE = "RG_TEST";
+    private static final String CUSTOMER_ID = "CoalescerCustomerId";
+
+    /**
+     * test that a search started while an identical one is in flight does not run, and gets its own copy of the result
+     */
+    public void testIdenticalSearchesRunOnce( ) throws Exception
+    {
+        final DuplicateSearchCoalescer<String> coalescer = new DuplicateSearchCoalescer<>( TimeUnit.SECONDS.toMillis( 5 ) );
+        final AtomicInteger runs = new AtomicInteger( );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final Future<Map<String, QualifiedIdentitySearchResult>> leader = executor.submit( ( ) -> coalescer.execute( "key", ( ) -> {
+                runs.incrementAndGet( );
+                started.countDown( );
+                await( release );
+                return result( );
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            final AtomicReference<Thread> followerThread = new AtomicReference<>( );
+            final Future<Map<String, QualifiedIdentitySearchResult>> follower = executor.submit( ( ) -> {
+                followerThread.set( Thread.currentThread( ) );
+                return coalescer.execute( "key", ( ) -> {
+                    runs.incrementAndGet( );
+                    return result( );
+                } );
+            } );
+            waitUntilWaiting( followerThread );
+            assertEquals( 1, coalescer.getInFlightCount( ) );
+            release.countDown( );
+
+            final Map<String, QualifiedIdentitySearchResult> leaderResult = leader.get( 5, TimeUnit.SECONDS );
+            final Map<String, QualifiedIdentitySearchResult> followerResult = follower.get( 5, TimeUnit.SECONDS );
+            assertEquals( 1, runs.get( ) );
+            assertNotSame( leaderResult, followerResult );
+            assertNotSame( leaderResult.get( RULE_CODE ), followerResult.get( RULE_CODE ) );
+            assertEquals( CUSTOMER_ID, followerResult.get( RULE_CODE ).getQualifiedIdentities( ).get( 0 ).getCustomerId( ) );
+            assertEquals( 0, coalescer.getInFlightCount( ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * test that a search joins the identical search in flight in the joined coalescer, and that a search of the joined coalescer does not wait for the
+     * identical search in flight in the joining one
+     */
+    public void testJoinIsOneWay( ) throws Exception
+    {
+        final DuplicateSearchCoalescer<String> interactiveCoalescer = new DuplicateSearchCoalescer<>( TimeUnit.SECONDS.toMillis( 5 ) );
+        final DuplicateSearchCoalescer<String> daemonCoalescer = new DuplicateSearchCoalescer<>( TimeUnit.SECONDS.toMillis( 5 ) );
+        final AtomicInteger runs = new AtomicInteger( );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            // A daemon search waits for the interactive search in flight
+            final Future<Map<String, QualifiedIdentitySearchResult>> interactive = executor.submit( ( ) -> interactiveCoalescer.execute( "key", ( ) -> {
+                runs.incrementAndGet( );
+                started.countDown( );
+                await( release );
+                return result( );
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            final AtomicReference<Thread> daemonThread = new AtomicReference<>( );
+            final Future<Map<String, QualifiedIdentitySearchResult>> daemon = executor.submit( ( ) -> {
+                daemonThread.set( Thread.currentThread( ) );
+                return daemonCoalescer.execute( "key", ( ) -> {
+                    runs.incrementAndGet( );
+                    return result( );
+                }, interactiveCoalescer );
+            } );
+            waitUntilWaiting( daemonThread );
+            assertEquals( 0, daemonCoalescer.getInFlightCount( ) );
+            release.countDown( );
+            assertEquals( CUSTOMER_ID, daemon.get( 5, TimeUnit.SECONDS ).get( RULE_CODE ).getQualifiedIdentities( ).get( 0 ).getCustomerId( ) );
+            interactive.get( 5, TimeUnit.SECONDS );
+            assertEquals( 1, runs.get( ) );
+
+            // An interactive search does not wait for the daemon search in flight
+            final CountDownLatch daemonStarted = new CountDownLatch( 1 );
+            final CountDownLatch daemonRelease = new CountDownLatch( 1 );
+            final Future<Map<String, QualifiedIdentitySearchResult>> slowDaemon = executor.submit( ( ) -> daemonCoalescer.execute( "key", ( ) -> {
+                daemonStarted.countDown( );
+                await( daemonRelease );
+                return result( );
+            }, interactiveCoalescer ) );
+            assertTrue( daemonStarted.await( 5, TimeUnit.SECONDS ) );
+            interactiveCoalescer.execute( "key", ( ) -> {
+                runs.incrementAndGet( );
+                return result( );
+            } );
+            assertEquals( 2, runs.get( ) );
+            daemonRelease.countDown( );
+            slowDaemon.get( 5, TimeUnit.SECONDS );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * test that the result of a search nobody joined is not serialized, and that it is once a search has joined it
+     */
+    public void testSnapshotOnlyForWaiters( ) throws Exception
+    {
+        final DuplicateSearchCoalescer<String> coalescer = new DuplicateSearchCoalescer<>( TimeUnit.SECONDS.toMillis( 5 ) );
+        final AtomicInteger reads = new AtomicInteger( );
+        final Map<String, QualifiedIdentitySearchResult> duplicates = countingReads( reads );
+        assertSame( duplicates, coalescer.execute( "key", ( ) -> duplicates ) );
+        assertEquals( 0, reads.get( ) );
+
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final Future<Map<String, QualifiedIdentitySearchResult>> leader = executor.submit( ( ) -> coalescer.execute( "key", ( ) -> {
+                started.countDown( );
+                await( release );
+                return duplicates;
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            final AtomicReference<Thread> followerThread = new AtomicReference<>( );
+            final Future<Map<String, QualifiedIdentitySearchResult>> follower = executor.submit( ( ) -> {
+                followerThread.set( Thread.currentThread( ) );
+                return coalescer.execute( "key", ( ) -> {
+                    fail( "the search is already in flight" );
+                    return null;
+                } );
+            } );
+            waitUntilWaiting( followerThread );
+            release.countDown( );
+
+            assertSame( duplicates, leader.get( 5, TimeUnit.SECONDS ) );
+            assertEquals( CUSTOMER_ID, follower.get( 5, TimeUnit.SECONDS ).get( RULE_CODE ).getQualifiedIdentities( ).get( 0 ).getCustomerId( ) );
+            assertTrue( reads.get( ) > 0 );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * test that searches with different keys, or started one after the other, run separately
+     */
+    public void testDistinctSearchesRun( ) throws IdentityStoreException
+    {
+        final DuplicateSearchCoalescer<String> coalescer = new DuplicateSearchCoalescer<>( TimeUnit.SECONDS.toMillis( 5 ) );
+        final AtomicInteger runs = new AtomicInteger( );
+        coalescer.execute( "key", ( ) -> coalescer.execute( "other key", ( ) -> {
+            runs.incrementAndGet( );
+            return result( );
+        } ) );
+        coalescer.execute( "key", ( ) -> {
+            runs.incrementAndGet( );
+            return result( );
+        } );
+        assertEquals( 2, runs.get( ) );
+        assertEquals( 0, coalescer.getInFlightCount( ) );
+    }
+
+    /**
+     * test that the failure of the search is thrown to the callers waiting for it, and that the next search runs
+     */
+    public void testFailureIsShared( ) throws Exception
+    {
+        final DuplicateSearchCoalescer<String> coalescer = new DuplicateSearchCoalescer<>( TimeUnit.SECONDS.toMillis( 5 ) );
+        final IdentityStoreException failure = new IdentityStoreException( "Search failed", "" );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final Future<?> leader = executor.submit( ( ) -> coalescer.execute( "key", ( ) -> {
+                started.countDown( );
+                await( release );
+                throw failure;
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            final AtomicReference<Thread> followerThread = new AtomicReference<>( );
+            final Future<?> follower = executor.submit( ( ) -> {
+                followerThread.set( Thread.currentThread( ) );
+                return coalescer.execute( "key", ( ) -> {
+                    fail( "the search is already in flight" );
+                    return null;
+                } );
+            } );
+            waitUntilWaiting( followerThread );
+            release.countDown( );
+
+            assertSame( failure, cause( leader ) );
+            assertSame( failure, cause( follower ) );
+            assertEquals( 0, coalescer.getInFlightCount( ) );
+            assertEquals( RULE_CODE, coalescer.execute( "key", DuplicateSearchCoalescerTest::result ).keySet( ).iterator( ).next( ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * test that a search waiting for the identical search in flight fails once its wait is over, without failing the search in flight
+     */
+    public void testWaitIsBounded( ) throws Exception
+    {
+        final DuplicateSearchCoalescer<String> coalescer = new DuplicateSearchCoalescer<>( 100 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newSingleThreadExecutor( );
+        try
+        {
+            final Future<Map<String, QualifiedIdentitySearchResult>> leader = executor.submit( ( ) -> coalescer.execute( "key", ( ) -> {
+                started.countDown( );
+                await( release );
+                return result( );
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+
+            final long lStart = System.currentTimeMillis( );
+            try
+            {
+                coalescer.execute( "key", ( ) -> {
+                    fail( "the search is already in flight" );
+                    return null;
+                } );
+                fail( "the wait should have timed out" );
+            }
+            catch( final IdentityStoreException e )
+            {
+                assertEquals( QualityRestConstants.PROPERTY_REST_ERROR_SEARCH_UNAVAILABLE, e.getLocaleMessageKey( ) );
+            }
+            assertTrue( System.currentTimeMillis( ) - lStart < TimeUnit.SECONDS.toMillis( 5 ) );
+
+            release.countDown( );
+            assertEquals( CUSTOMER_ID, leader.get( 5, TimeUnit.SECONDS ).get( RULE_CODE ).getQualifiedIdentities( ).get( 0 ).getCustomerId( ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdownNow( );
+        }
+    }
+
+    private static Map<String, QualifiedIdentitySearchResult> result( )
+    {
+        final IdentityDto identity = new IdentityDto( );
+        identity.setCustomerId( CUSTOMER_ID );
+        final QualifiedIdentitySearchResult result = new QualifiedIdentitySearchResult( );
+        result.getQualifiedIdentities( ).add( identity );
+        return Collections.singletonMap( RULE_CODE, result );
+    }
+
+    /**
+     * @return a result counting the reads of its entries, as done by its serialization
+     */
+    private static Map<String, QualifiedIdentitySearchResult> countingReads( final AtomicInteger reads )
+    {
+        return new HashMap<String, QualifiedIdentitySearchResult>( result( ) )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Set<Map.Entry<String, QualifiedIdentitySearchResult>> entrySet( )
+            {
+                reads.incrementAndGet( );
+                return super.entrySet( );
+            }
+        };
+    }
+
+    private static Throwable cause( final Future<?> future ) throws Exception
+    {
+        try
+        {
+            future.get( 5, TimeUnit.SECONDS );
+            fail( "the search should have failed" );
+            return null;
+        }
+        catch( final ExecutionException e )
+        {
+            return e.getCause( );
+        }
+    }
+
+    /**
+     * Waits until the thread of the second search waits for the first one
+     */
+    private static void waitUntilWaiting( final AtomicReference<Thread> thread ) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis( ) + TimeUnit.SECONDS.toMillis( 5 );
+        while ( System.currentTimeMillis( ) < deadline && ( thread.get( ) == null || thread.get( ).getState( ) != Thread.State.WAITING ) )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( Thread.State.WAITING, thread.get( ).getState( ) );
+    }
+
+    private static void await( final CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
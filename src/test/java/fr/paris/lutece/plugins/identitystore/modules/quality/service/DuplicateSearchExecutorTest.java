@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This is the test class for the bounded executor of the duplicate searches
+ */
+public class DuplicateSearchExecutorTest extends LuteceTestCase
+{
+    /**
+     * test that the searches are rejected once the thread and the queue are busy, and accepted again once they are free
+     */
+    public void testSaturation( ) throws InterruptedException
+    {
+        final DuplicateSearchExecutor executor = new DuplicateSearchExecutor( 1, 1, 5, 3 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountDownLatch queuedDone = new CountDownLatch( 1 );
+        try
+        {
+            assertEquals( 5, executor.getTimeout( ) );
+            assertEquals( 3, executor.getRetryAfter( ) );
+            executor.execute( ( ) -> {
+                started.countDown( );
+                await( release );
+            } );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            executor.execute( queuedDone::countDown );
+            try
+            {
+                executor.execute( ( ) -> fail( "the executor is saturated" ) );
+                fail( "the search should have been rejected" );
+            }
+            catch( final RejectedExecutionException e )
+            {
+                // expected
+            }
+
+            release.countDown( );
+            assertTrue( queuedDone.await( 5, TimeUnit.SECONDS ) );
+            final CountDownLatch done = new CountDownLatch( 1 );
+            executor.execute( done::countDown );
+            assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdown( );
+        }
+    }
+
+    /**
+     * test that the shutdown lets the running searches finish, and rejects the new ones
+     */
+    public void testShutdown( ) throws InterruptedException
+    {
+        final DuplicateSearchExecutor executor = new DuplicateSearchExecutor( 1, 1, 5, 1 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final AtomicBoolean finished = new AtomicBoolean( );
+        executor.execute( ( ) -> {
+            started.countDown( );
+            try
+            {
+                Thread.sleep( 100 );
+                finished.set( true );
+            }
+            catch( final InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        } );
+        assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+
+        executor.shutdown( );
+        assertTrue( finished.get( ) );
+        try
+        {
+            executor.execute( ( ) -> fail( "the executor is shut down" ) );
+            fail( "the search should have been rejected" );
+        }
+        catch( final RejectedExecutionException e )
+        {
+            // expected
+        }
+    }
+
+    /**
+     * test that the shutdown interrupts the searches still running after the timeout
+     */
+    public void testShutdownInterruptsAfterTimeout( ) throws InterruptedException
+    {
+        final DuplicateSearchExecutor executor = new DuplicateSearchExecutor( 1, 1, 1, 1 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch interrupted = new CountDownLatch( 1 );
+        executor.execute( ( ) -> {
+            started.countDown( );
+            try
+            {
+                Thread.sleep( TimeUnit.MINUTES.toMillis( 1 ) );
+            }
+            catch( final InterruptedException e )
+            {
+                interrupted.countDown( );
+            }
+        } );
+        assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+
+        executor.shutdown( );
+        assertTrue( interrupted.await( 5, TimeUnit.SECONDS ) );
+    }
+
+    private static void await( final CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
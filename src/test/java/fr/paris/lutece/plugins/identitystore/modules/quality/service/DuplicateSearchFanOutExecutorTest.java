@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This is the test class for the parallel searches of a single request, with a deadline
+ */
+public class DuplicateSearchFanOutExecutorTest extends LuteceTestCase
+{
+    private static final String RULE_CODE_1 = "RG_TEST_1";
+    private static final String RULE_CODE_2 = "RG_TEST_2";
+    private static final String RULE_CODE_3 = "RG_TEST_3";
+
+    /**
+     * test that the searches run in parallel, and that their results are given in the order of the keys
+     */
+    public void testInvokeAll( ) throws ExecutionException, InterruptedException
+    {
+        final DuplicateSearchFanOutExecutor executor = new DuplicateSearchFanOutExecutor( 3, 3 );
+        try
+        {
+            /* Each search waits for the others to be started : they only end if they run in parallel */
+            final CountDownLatch started = new CountDownLatch( 3 );
+            final Map<String, Callable<String>> searches = new LinkedHashMap<>( );
+            for ( final String strRuleCode : Arrays.asList( RULE_CODE_3, RULE_CODE_1, RULE_CODE_2 ) )
+            {
+                searches.put( strRuleCode, ( ) -> {
+                    started.countDown( );
+                    started.await( 5, TimeUnit.SECONDS );
+                    return strRuleCode.toLowerCase( );
+                } );
+            }
+
+            final Pair<Map<String, String>, List<String>> results = executor.invokeAll( searches, TimeUnit.SECONDS.toMillis( 5 ) );
+            assertEquals( Arrays.asList( RULE_CODE_3, RULE_CODE_1, RULE_CODE_2 ), Arrays.asList( results.getLeft( ).keySet( ).toArray( ) ) );
+            assertEquals( RULE_CODE_1.toLowerCase( ), results.getLeft( ).get( RULE_CODE_1 ) );
+            assertTrue( results.getRight( ).isEmpty( ) );
+        }
+        finally
+        {
+            executor.shutdown( );
+        }
+    }
+
+    /**
+     * test that the searches not answered before the deadline are left out, and that the ones still queued are cancelled
+     */
+    public void testDeadline( ) throws ExecutionException, InterruptedException
+    {
+        final DuplicateSearchFanOutExecutor executor = new DuplicateSearchFanOutExecutor( 1, 2 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicBoolean queuedSearchRan = new AtomicBoolean( );
+        try
+        {
+            final Map<String, Callable<String>> searches = new LinkedHashMap<>( );
+            searches.put( RULE_CODE_1, ( ) -> {
+                release.await( 5, TimeUnit.SECONDS );
+                return RULE_CODE_1;
+            } );
+            searches.put( RULE_CODE_2, ( ) -> {
+                queuedSearchRan.set( true );
+                return RULE_CODE_2;
+            } );
+
+            final long lStart = System.currentTimeMillis( );
+            final Pair<Map<String, String>, List<String>> results = executor.invokeAll( searches, 100 );
+            assertTrue( System.currentTimeMillis( ) - lStart < TimeUnit.SECONDS.toMillis( 5 ) );
+            assertTrue( results.getLeft( ).isEmpty( ) );
+            assertEquals( Arrays.asList( RULE_CODE_1, RULE_CODE_2 ), results.getRight( ) );
+
+            release.countDown( );
+            final Pair<Map<String, String>, List<String>> next = executor.invokeAll( Collections.singletonMap( RULE_CODE_3, ( ) -> RULE_CODE_3 ),
+                    TimeUnit.SECONDS.toMillis( 5 ) );
+            assertEquals( RULE_CODE_3, next.getLeft( ).get( RULE_CODE_3 ) );
+            assertFalse( "the queued search has been cancelled", queuedSearchRan.get( ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdown( );
+        }
+    }
+
+    /**
+     * test that the searches that cannot be queued are not run on the calling thread, but reported as not answered in time
+     */
+    public void testSaturation( ) throws ExecutionException, InterruptedException
+    {
+        final DuplicateSearchFanOutExecutor executor = new DuplicateSearchFanOutExecutor( 1, 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicBoolean rejectedSearchRan = new AtomicBoolean( );
+        try
+        {
+            final Map<String, Callable<String>> searches = new LinkedHashMap<>( );
+            searches.put( RULE_CODE_1, ( ) -> {
+                release.await( 5, TimeUnit.SECONDS );
+                return RULE_CODE_1;
+            } );
+            searches.put( RULE_CODE_2, ( ) -> RULE_CODE_2 );
+            searches.put( RULE_CODE_3, ( ) -> {
+                rejectedSearchRan.set( true );
+                release.await( 5, TimeUnit.SECONDS );
+                return RULE_CODE_3;
+            } );
+
+            final long lStart = System.currentTimeMillis( );
+            final Pair<Map<String, String>, List<String>> results = executor.invokeAll( searches, 100 );
+            assertTrue( System.currentTimeMillis( ) - lStart < TimeUnit.SECONDS.toMillis( 5 ) );
+            assertTrue( results.getLeft( ).isEmpty( ) );
+            assertEquals( Arrays.asList( RULE_CODE_1, RULE_CODE_2, RULE_CODE_3 ), results.getRight( ) );
+            assertFalse( "the rejected search has not run", rejectedSearchRan.get( ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdown( );
+        }
+    }
+
+    /**
+     * test that a failing search fails the whole call
+     */
+    public void testFailure( ) throws InterruptedException
+    {
+        final DuplicateSearchFanOutExecutor executor = new DuplicateSearchFanOutExecutor( 2, 2 );
+        final IllegalStateException failure = new IllegalStateException( "Search failed" );
+        try
+        {
+            final Map<String, Callable<String>> searches = new LinkedHashMap<>( );
+            searches.put( RULE_CODE_1, ( ) -> RULE_CODE_1 );
+            searches.put( RULE_CODE_2, ( ) -> {
+                throw failure;
+            } );
+            executor.invokeAll( searches, TimeUnit.SECONDS.toMillis( 5 ) );
+            fail( "the call should have failed" );
+        }
+        catch( final ExecutionException e )
+        {
+            assertSame( failure, e.getCause( ) );
+        }
+        finally
+        {
+            executor.shutdown( );
+        }
+    }
+
+    /**
+     * test that the action runs on each item in parallel, and that its failure is thrown once all the items are submitted
+     */
+    public void testForEach( ) throws ExecutionException, InterruptedException
+    {
+        final DuplicateSearchFanOutExecutor executor = new DuplicateSearchFanOutExecutor( 3, 3 );
+        try
+        {
+            final CountDownLatch started = new CountDownLatch( 3 );
+            final Set<String> done = ConcurrentHashMap.newKeySet( );
+            executor.forEach( Arrays.asList( RULE_CODE_1, RULE_CODE_2, RULE_CODE_3 ), strRuleCode -> {
+                started.countDown( );
+                try
+                {
+                    assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+                }
+                catch( final InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+                done.add( strRuleCode );
+            } );
+            assertEquals( Set.of( RULE_CODE_1, RULE_CODE_2, RULE_CODE_3 ), done );
+
+            final IllegalStateException failure = new IllegalStateException( "Enrichment failed" );
+            try
+            {
+                executor.forEach( Arrays.asList( RULE_CODE_1, RULE_CODE_2 ), strRuleCode -> {
+                    if ( RULE_CODE_2.equals( strRuleCode ) )
+                    {
+                        throw failure;
+                    }
+                } );
+                fail( "the call should have failed" );
+            }
+            catch( final ExecutionException e )
+            {
+                assertSame( failure, e.getCause( ) );
+            }
+        }
+        finally
+        {
+            executor.shutdown( );
+        }
+    }
+
+    /**
+     * test that the searches run on the calling thread once the executor is saturated or shut down
+     */
+    public void testCallerRuns( ) throws ExecutionException, InterruptedException
+    {
+        final DuplicateSearchFanOutExecutor executor = new DuplicateSearchFanOutExecutor( 1, 1 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        try
+        {
+            executor.submit( ( ) -> {
+                started.countDown( );
+                return release.await( 5, TimeUnit.SECONDS );
+            } );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            executor.submit( ( ) -> true );
+
+            final Thread caller = Thread.currentThread( );
+            assertSame( caller, executor.submit( Thread::currentThread ).get( ) );
+            release.countDown( );
+
+            executor.shutdown( );
+            assertSame( caller, executor.submit( Thread::currentThread ).get( ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdown( );
+        }
+    }
+}
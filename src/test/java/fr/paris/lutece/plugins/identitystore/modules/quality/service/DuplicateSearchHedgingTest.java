@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is the test class for the hedging of the duplicate searches
+ */
+public class DuplicateSearchHedgingTest extends LuteceTestCase
+{
+    private static final long MIN_DELAY = 20;
+    private static final int WINDOW_SIZE = 64;
+
+    /**
+     * test that a slow search is hedged, and that the result of the second search is used when it ends first
+     */
+    public void testHedgeWins( ) throws Exception
+    {
+        final DuplicateSearchHedging hedging = warmedUp( 2 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger attempts = new AtomicInteger( );
+        try
+        {
+            assertEquals( "hedge", hedging.execute( ( ) -> attempts.incrementAndGet( ) == 1 ? await( release, "slow" ) : "hedge" ) );
+            assertEquals( 2, attempts.get( ) );
+            assertEquals( 1, hedging.getHedged( ) );
+            // The win is counted by the second search once the result is given
+            final long lDeadline = System.currentTimeMillis( ) + TimeUnit.SECONDS.toMillis( 5 );
+            while ( hedging.getHedgeWins( ) == 0 && System.currentTimeMillis( ) < lDeadline )
+            {
+                Thread.sleep( 10 );
+            }
+            assertEquals( 1, hedging.getHedgeWins( ) );
+        }
+        finally
+        {
+            release.countDown( );
+            hedging.shutdown( );
+        }
+    }
+
+    /**
+     * test that a failure is only reported once both searches failed
+     */
+    public void testBothSearchesFail( )
+    {
+        final DuplicateSearchHedging hedging = warmedUp( 2 );
+        final CountDownLatch hedgeFailed = new CountDownLatch( 1 );
+        final AtomicInteger attempts = new AtomicInteger( );
+        try
+        {
+            hedging.execute( ( ) -> {
+                if ( attempts.incrementAndGet( ) == 1 )
+                {
+                    await( hedgeFailed, null );
+                    throw new IdentityStoreException( "First search failed", "test.error.first" );
+                }
+                hedgeFailed.countDown( );
+                throw new IdentityStoreException( "Second search failed", "test.error.second" );
+            } );
+            fail( "both searches failed" );
+        }
+        catch( final IdentityStoreException e )
+        {
+            assertTrue( e.getLocaleMessageKey( ).startsWith( "test.error." ) );
+            assertEquals( 2, attempts.get( ) );
+        }
+        finally
+        {
+            hedging.shutdown( );
+        }
+    }
+
+    /**
+     * test that when all the threads of the hedging are busy, the search runs on the calling thread, and that a search is not hedged
+     */
+    public void testBusyThreads( ) throws Exception
+    {
+        final DuplicateSearchHedging hedging = warmedUp( 1 );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newSingleThreadExecutor( );
+        try
+        {
+            final Future<String> running = executor.submit( ( ) -> hedging.execute( ( ) -> {
+                started.countDown( );
+                return await( release, "slow" );
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            Thread.sleep( 2 * MIN_DELAY );
+
+            final Thread caller = Thread.currentThread( );
+            assertEquals( "inline", hedging.execute( ( ) -> Thread.currentThread( ) == caller ? "inline" : "pool" ) );
+
+            release.countDown( );
+            assertEquals( "slow", running.get( 5, TimeUnit.SECONDS ) );
+            assertEquals( 0, hedging.getHedged( ) );
+        }
+        finally
+        {
+            release.countDown( );
+            executor.shutdownNow( );
+            hedging.shutdown( );
+        }
+    }
+
+    /**
+     * Creates a hedging whose delay is computed from immediate searches, and is thus the minimum delay
+     */
+    private static DuplicateSearchHedging warmedUp( final int nThreads )
+    {
+        final DuplicateSearchHedging hedging = new DuplicateSearchHedging( true, 50, MIN_DELAY, 1, WINDOW_SIZE, nThreads );
+        try
+        {
+            for ( int i = 0; i < WINDOW_SIZE; i++ )
+            {
+                hedging.execute( ( ) -> true );
+            }
+        }
+        catch( final IdentityStoreException e )
+        {
+            fail( e.getMessage( ) );
+        }
+        assertEquals( MIN_DELAY, hedging.getHedgeDelay( ) );
+        return hedging;
+    }
+
+    private static String await( final CountDownLatch latch, final String strResult )
+    {
+        try
+        {
+            latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        return strResult;
+    }
+}
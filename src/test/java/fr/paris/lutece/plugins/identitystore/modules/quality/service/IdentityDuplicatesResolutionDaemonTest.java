@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.MergeJournalEntry;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.MergeJournalHome;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * This is the test class for the dispatch of the clusters by the resolution daemon
+ */
+public class IdentityDuplicatesResolutionDaemonTest extends LuteceTestCase
+{
+    private static final String RULE_CODE = "RG_TEST";
+    private static final String FAILING_CLUSTER = "CLUSTER_2";
+
+    /**
+     * test that when the 2nd of 3 clusters fails and rolls back its transaction, as the merge services do, the 1st and 3rd clusters are kept
+     */
+    public void testFailingClusterDoesNotRollBackTheOthers( ) throws InterruptedException
+    {
+        final List<String> clusters = Arrays.asList( "CLUSTER_1", FAILING_CLUSTER, "CLUSTER_3" );
+        final Map<String, Integer> journalIds = new ConcurrentHashMap<>( );
+        final List<String> failures = Collections.synchronizedList( new ArrayList<>( ) );
+
+        IdentityDuplicatesResolutionDaemon.runOnWorkers( 1, clusters, cluster -> {
+            TransactionManager.beginTransaction( null );
+            try
+            {
+                final MergeJournalEntry entry = MergeJournalHome.plan( cluster, "PRIMARY", "CANDIDATE", RULE_CODE );
+                journalIds.put( cluster, entry.getId( ) );
+                if ( FAILING_CLUSTER.equals( cluster ) )
+                {
+                    throw new AppException( "Merge failed" );
+                }
+                TransactionManager.commitTransaction( null );
+            }
+            catch( final Exception e )
+            {
+                TransactionManager.rollBack( null );
+                throw e;
+            }
+        }, ( cluster, e ) -> failures.add( cluster ) );
+
+        try
+        {
+            assertEquals( Collections.singletonList( FAILING_CLUSTER ), failures );
+            assertEquals( 3, journalIds.size( ) );
+            final Set<Integer> storedIds = MergeJournalHome.findUnfinished( Timestamp.from( Instant.now( ).plus( Duration.ofMinutes( 1 ) ) ) ).stream( )
+                    .map( MergeJournalEntry::getId ).collect( Collectors.toSet( ) );
+            assertTrue( storedIds.contains( journalIds.get( "CLUSTER_1" ) ) );
+            assertFalse( storedIds.contains( journalIds.get( FAILING_CLUSTER ) ) );
+            assertTrue( storedIds.contains( journalIds.get( "CLUSTER_3" ) ) );
+            assertNull( TransactionManager.getCurrentTransaction( null ) );
+        }
+        finally
+        {
+            journalIds.values( ).forEach( MergeJournalHome::remove );
+        }
+    }
+
+    /**
+     * test that a failure on the dispatching thread does not stop the remaining items
+     */
+    public void testFailureOnDispatchingThread( ) throws InterruptedException
+    {
+        final List<Integer> items = Arrays.asList( 1, 2, 3, 4, 5, 6, 7, 8 );
+        final Set<Integer> processed = ConcurrentHashMap.newKeySet( );
+        final Set<Integer> failures = ConcurrentHashMap.newKeySet( );
+
+        IdentityDuplicatesResolutionDaemon.runOnWorkers( 1, items, item -> {
+            if ( item % 2 == 0 )
+            {
+                throw new IllegalStateException( "Failure of item " + item );
+            }
+            processed.add( item );
+        }, ( item, e ) -> failures.add( item ) );
+
+        assertEquals( Set.of( 1, 3, 5, 7 ), processed );
+        assertEquals( Set.of( 2, 4, 6, 8 ), failures );
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.ResolutionDecision;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This is the test class for the report written by the resolution daemon in plan-only mode
+ */
+public class ResolutionPlanReportTest extends LuteceTestCase
+{
+    private static final String RULE_CODE = "RG_TEST";
+
+    /**
+     * test the format lookup
+     */
+    public void testGetFormat( )
+    {
+        assertEquals( ResolutionPlanReport.Format.NDJSON, ResolutionPlanReport.Format.getFormat( "ndjson" ) );
+        assertEquals( ResolutionPlanReport.Format.CSV, ResolutionPlanReport.Format.getFormat( "CSV" ) );
+        assertEquals( ResolutionPlanReport.Format.CSV, ResolutionPlanReport.Format.getFormat( "xml" ) );
+        assertEquals( ResolutionPlanReport.Format.CSV, ResolutionPlanReport.Format.getFormat( null ) );
+    }
+
+    /**
+     * test the CSV report, with a header line and escaped values
+     */
+    public void testCsvReport( ) throws IOException
+    {
+        final Path directory = Files.createTempDirectory( "resolution-plan" );
+        final Path path;
+        try ( final ResolutionPlanReport report = ResolutionPlanReport.open( directory.toString( ), RULE_CODE, ResolutionPlanReport.Format.CSV ) )
+        {
+            path = report.getPath( );
+            report.write( "CUID,1", RULE_CODE, "PRIMARY", "CANDIDATE \"A\"", ResolutionDecision.MERGE,
+                    Arrays.asList( attribute( "birthplace" ), attribute( "email" ) ), Collections.singletonList( attribute( "family_name" ) ) );
+            report.write( "CUID2", RULE_CODE, "PRIMARY", "CANDIDATE", ResolutionDecision.INELIGIBLE, Collections.emptyList( ), Collections.emptyList( ) );
+        }
+
+        assertEquals( directory, path.getParent( ) );
+        assertTrue( path.getFileName( ).toString( ).endsWith( ".csv" ) );
+        final List<String> lines = Files.readAllLines( path, StandardCharsets.UTF_8 );
+        assertEquals( 3, lines.size( ) );
+        assertEquals( "suspicious_customer_id,rule_code,primary_customer_id,candidate_customer_id,decision,attributes_to_create,attributes_to_override",
+                lines.get( 0 ) );
+        assertEquals( "\"CUID,1\",RG_TEST,PRIMARY,\"CANDIDATE \"\"A\"\"\",MERGE,birthplace|email,family_name", lines.get( 1 ) );
+        assertEquals( "CUID2,RG_TEST,PRIMARY,CANDIDATE,INELIGIBLE,,", lines.get( 2 ) );
+    }
+
+    /**
+     * test the NDJSON report, one JSON object per line
+     */
+    public void testNdjsonReport( ) throws IOException
+    {
+        final Path directory = Files.createTempDirectory( "resolution-plan" );
+        final Path path;
+        try ( final ResolutionPlanReport report = ResolutionPlanReport.open( directory.toString( ), RULE_CODE, ResolutionPlanReport.Format.NDJSON ) )
+        {
+            path = report.getPath( );
+            report.write( "CUID1", RULE_CODE, "PRIMARY", "CANDIDATE", ResolutionDecision.MERGE, Collections.singletonList( attribute( "email" ) ),
+                    Collections.emptyList( ) );
+            report.write( "CUID2", RULE_CODE, "PRIMARY", "CANDIDATE", ResolutionDecision.TASK, Collections.emptyList( ), Collections.emptyList( ) );
+        }
+
+        assertTrue( path.getFileName( ).toString( ).endsWith( ".ndjson" ) );
+        final List<String> lines = Files.readAllLines( path, StandardCharsets.UTF_8 );
+        assertEquals( 2, lines.size( ) );
+
+        final ObjectMapper mapper = new ObjectMapper( );
+        final JsonNode first = mapper.readTree( lines.get( 0 ) );
+        assertEquals( "CUID1", first.get( "suspicious_customer_id" ).asText( ) );
+        assertEquals( RULE_CODE, first.get( "rule_code" ).asText( ) );
+        assertEquals( "PRIMARY", first.get( "primary_customer_id" ).asText( ) );
+        assertEquals( "CANDIDATE", first.get( "candidate_customer_id" ).asText( ) );
+        assertEquals( "MERGE", first.get( "decision" ).asText( ) );
+        assertEquals( 1, first.get( "attributes_to_create" ).size( ) );
+        assertEquals( "email", first.get( "attributes_to_create" ).get( 0 ).asText( ) );
+        assertEquals( 0, first.get( "attributes_to_override" ).size( ) );
+
+        final JsonNode second = mapper.readTree( lines.get( 1 ) );
+        assertEquals( "TASK", second.get( "decision" ).asText( ) );
+    }
+
+    private static AttributeDto attribute( final String strKey )
+    {
+        final AttributeDto attribute = new AttributeDto( );
+        attribute.setKey( strKey );
+        return attribute;
+    }
+}
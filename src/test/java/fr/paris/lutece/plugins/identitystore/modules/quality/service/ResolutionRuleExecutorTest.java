@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This is the test class for the executor running the resolution of each rule on its own thread
+ */
+public class ResolutionRuleExecutorTest extends LuteceTestCase
+{
+    private static final String RULE_CODE_1 = "RG_TEST_1";
+    private static final String RULE_CODE_2 = "RG_TEST_2";
+
+    /**
+     * test that a rule is not started twice, and that a slow rule does not hold back the others
+     */
+    public void testSubmit( ) throws InterruptedException
+    {
+        final ResolutionRuleExecutor executor = new ResolutionRuleExecutor( );
+        try
+        {
+            assertTrue( executor.isIdle( ) );
+            final CountDownLatch started = new CountDownLatch( 1 );
+            final CountDownLatch release = new CountDownLatch( 1 );
+            assertTrue( executor.submit( RULE_CODE_1, ( ) -> {
+                started.countDown( );
+                await( release );
+            } ) );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            assertTrue( executor.isRunning( RULE_CODE_1 ) );
+            assertFalse( executor.isIdle( ) );
+            assertFalse( executor.submit( RULE_CODE_1, ( ) -> fail( "the rule is already running" ) ) );
+
+            final CountDownLatch otherRuleDone = new CountDownLatch( 1 );
+            assertTrue( executor.submit( RULE_CODE_2, otherRuleDone::countDown ) );
+            assertTrue( otherRuleDone.await( 5, TimeUnit.SECONDS ) );
+
+            release.countDown( );
+            waitUntilIdle( executor );
+            assertFalse( executor.isRunning( RULE_CODE_1 ) );
+            final CountDownLatch done = new CountDownLatch( 1 );
+            assertTrue( executor.submit( RULE_CODE_1, done::countDown ) );
+            assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            executor.shutdown( );
+        }
+    }
+
+    /**
+     * test that the shutdown interrupts the running rules and rejects the new ones
+     */
+    public void testShutdown( ) throws InterruptedException
+    {
+        final ResolutionRuleExecutor executor = new ResolutionRuleExecutor( );
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final AtomicBoolean interrupted = new AtomicBoolean( );
+        final CountDownLatch stopped = new CountDownLatch( 1 );
+        assertTrue( executor.submit( RULE_CODE_1, ( ) -> {
+            started.countDown( );
+            try
+            {
+                Thread.sleep( TimeUnit.MINUTES.toMillis( 1 ) );
+            }
+            catch( final InterruptedException e )
+            {
+                interrupted.set( true );
+                Thread.currentThread( ).interrupt( );
+            }
+            stopped.countDown( );
+        } ) );
+        assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+
+        executor.shutdown( );
+        assertTrue( stopped.await( 5, TimeUnit.SECONDS ) );
+        assertTrue( interrupted.get( ) );
+        assertFalse( executor.submit( RULE_CODE_2, ( ) -> fail( "the executor is shut down" ) ) );
+    }
+
+    private static void await( final CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    private static void waitUntilIdle( final ResolutionRuleExecutor executor ) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis( ) + TimeUnit.SECONDS.toMillis( 5 );
+        while ( !executor.isIdle( ) && System.currentTimeMillis( ) < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertTrue( executor.isIdle( ) );
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.QualifiedIdentitySearchResult;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * This is the test class for the merge of the duplicates found by several rules
+ */
+public class SearchDuplicatesServiceTest extends LuteceTestCase
+{
+    /**
+     * test that an identity found by several rules is returned once, in the order it was first found, and that the metadata of all the rules are kept
+     */
+    public void testMergeByCustomerId( )
+    {
+        final Map<String, QualifiedIdentitySearchResult> duplicates = new LinkedHashMap<>( );
+        final QualifiedIdentitySearchResult firstRuleResult = result( "B", "A" );
+        firstRuleResult.getMetadata( ).put( "first_rule", "1" );
+        duplicates.put( "RG_TEST_1", firstRuleResult );
+        final QualifiedIdentitySearchResult secondRuleResult = result( "A", "C", "B" );
+        secondRuleResult.getMetadata( ).put( "second_rule", "2" );
+        duplicates.put( "RG_TEST_2", secondRuleResult );
+        duplicates.put( "RG_TEST_3", result( ) );
+
+        final Map<String, String> metadata = new HashMap<>( );
+        final List<IdentityDto> identities = SearchDuplicatesService.mergeByCustomerId( duplicates, metadata );
+        assertEquals( Arrays.asList( "B", "A", "C" ), identities.stream( ).map( IdentityDto::getCustomerId ).collect( Collectors.toList( ) ) );
+        assertSame( firstRuleResult.getQualifiedIdentities( ).get( 1 ), identities.get( 1 ) );
+        assertEquals( "1", metadata.get( "first_rule" ) );
+        assertEquals( "2", metadata.get( "second_rule" ) );
+    }
+
+    private static QualifiedIdentitySearchResult result( final String... customerIds )
+    {
+        final QualifiedIdentitySearchResult result = new QualifiedIdentitySearchResult( );
+        for ( final String strCustomerId : customerIds )
+        {
+            final IdentityDto identity = new IdentityDto( );
+            identity.setCustomerId( strCustomerId );
+            result.getQualifiedIdentities( ).add( identity );
+        }
+        return result;
+    }
+}
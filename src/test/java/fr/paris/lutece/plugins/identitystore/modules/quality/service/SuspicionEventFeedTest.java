@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionEvent;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * This is the test class for the reading of the suspicion events as a feed
+ */
+public class SuspicionEventFeedTest extends LuteceTestCase
+{
+    private static final long SETTLE_DELAY = 10000;
+
+    private final Map<Integer, SuspicionEvent> _events = new ConcurrentSkipListMap<>( );
+    private final AtomicLong _lClock = new AtomicLong( 1000000 );
+
+    /**
+     * test that a missing sequence number holds back the following events until it appears
+     */
+    public void testGapFilled( )
+    {
+        final SuspicionEventFeed feed = this.feed( );
+        try
+        {
+            this.addEvents( 1, 2, 4 );
+            assertEquals( Arrays.asList( 1, 2 ), ids( feed.read( 0, 10 ) ) );
+            _lClock.addAndGet( SETTLE_DELAY - 1 );
+            assertEquals( Arrays.asList( 1, 2 ), ids( feed.read( 0, 10 ) ) );
+            assertEquals( Arrays.asList( ), ids( feed.read( 2, 10 ) ) );
+
+            this.addEvents( 3 );
+            assertEquals( Arrays.asList( 1, 2, 3, 4 ), ids( feed.read( 0, 10 ) ) );
+        }
+        finally
+        {
+            feed.shutdown( );
+        }
+    }
+
+    /**
+     * test that a missing sequence number is skipped once it has been missing for the settle delay, as measured by the feed, whatever the dates of the
+     * events
+     */
+    public void testGapSkipped( )
+    {
+        final SuspicionEventFeed feed = this.feed( );
+        try
+        {
+            this.addEvents( 1, 3 );
+            assertEquals( Arrays.asList( 1 ), ids( feed.read( 0, 10 ) ) );
+            _lClock.addAndGet( SETTLE_DELAY );
+            assertEquals( Arrays.asList( 1, 3 ), ids( feed.read( 0, 10 ) ) );
+
+            // A new gap is only skipped once it has been missing for the settle delay, even if the previous one was
+            this.addEvents( 5 );
+            assertEquals( Arrays.asList( ), ids( feed.read( 3, 10 ) ) );
+            _lClock.addAndGet( SETTLE_DELAY );
+            assertEquals( Arrays.asList( 5 ), ids( feed.read( 3, 10 ) ) );
+        }
+        finally
+        {
+            feed.shutdown( );
+        }
+    }
+
+    /**
+     * test that the sequence numbers before the oldest retained event are not waited for, when reading from the start or from a purged offset
+     */
+    public void testPurgedEventsSkipped( )
+    {
+        final SuspicionEventFeed feed = this.feed( );
+        try
+        {
+            this.addEvents( 5, 6, 8 );
+            assertEquals( Arrays.asList( 5, 6 ), ids( feed.read( 0, 10 ) ) );
+            assertEquals( Arrays.asList( 5, 6 ), ids( feed.read( 2, 10 ) ) );
+
+            // A gap after a retained event is still waited for
+            assertEquals( Arrays.asList( ), ids( feed.read( 6, 10 ) ) );
+        }
+        finally
+        {
+            feed.shutdown( );
+        }
+    }
+
+    /**
+     * test that a long-poll ends once events can be read, or once the wait is over
+     */
+    public void testAwait( ) throws Exception
+    {
+        final SuspicionEventFeed feed = this.feed( );
+        try
+        {
+            final CompletableFuture<Void> wait = feed.await( 0, 10 );
+            Thread.sleep( 200 );
+            assertFalse( wait.isDone( ) );
+            this.addEvents( 1 );
+            wait.get( 5, TimeUnit.SECONDS );
+
+            final long lStart = System.currentTimeMillis( );
+            feed.await( 1, 0 ).get( 5, TimeUnit.SECONDS );
+            assertTrue( System.currentTimeMillis( ) - lStart < TimeUnit.SECONDS.toMillis( 5 ) );
+        }
+        finally
+        {
+            feed.shutdown( );
+        }
+    }
+
+    private SuspicionEventFeed feed( )
+    {
+        return new SuspicionEventFeed( SETTLE_DELAY, 100, 1, 30, 1000,
+                ( nAfterId, nLimit ) -> _events.values( ).stream( ).filter( event -> event.getId( ) > nAfterId ).limit( nLimit ).collect( Collectors.toList( ) ),
+                ( ) -> _events.keySet( ).stream( ).findFirst( ).orElse( 0 ), _lClock::get );
+    }
+
+    private void addEvents( final int... ids )
+    {
+        for ( final int nId : ids )
+        {
+            final SuspicionEvent event = new SuspicionEvent( );
+            event.setId( nId );
+            _events.put( nId, event );
+        }
+    }
+
+    private static List<Integer> ids( final List<SuspicionEvent> events )
+    {
+        return events.stream( ).map( SuspicionEvent::getId ).collect( Collectors.toList( ) );
+    }
+}
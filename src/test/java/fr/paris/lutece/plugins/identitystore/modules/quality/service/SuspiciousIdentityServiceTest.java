@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.modules.quality.service;
+
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.business.SuspicionCounterHome;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityBulkExcludeRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityCursorSearchRequest;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AuthorType;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.RequestAuthor;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityChangeRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.crud.SuspiciousIdentityDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.test.LuteceTestCase;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This is the test class for the suspicious identity service
+ */
+public class SuspiciousIdentityServiceTest extends LuteceTestCase
+{
+    private static final String CLIENT_CODE = "TEST";
+    private static final String CUSTOMERID_PREFIX = "ServiceCustomerId";
+    private static final int NB_SUSPICIONS = 5;
+    private static final int PAGE_SIZE = 2;
+
+    /**
+     * test that following the cursors reads each suspicious identity once, and that the last page has no next cursor
+     */
+    public void testSearchAfter( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = getRule( );
+        final List<SuspiciousIdentity> created = new ArrayList<>( );
+        try
+        {
+            final Timestamp now = Timestamp.from( Instant.now( ) );
+            for ( int i = 0; i < NB_SUSPICIONS; i++ )
+            {
+                created.add( createSuspicion( rule, CUSTOMERID_PREFIX + i, now ) );
+            }
+
+            final SuspiciousIdentityCursorSearchRequest request = new SuspiciousIdentityCursorSearchRequest( );
+            request.setRuleCode( rule.getCode( ) );
+            request.setSize( PAGE_SIZE );
+            final List<String> readCustomerIds = new ArrayList<>( );
+            String strCursor = null;
+            do
+            {
+                request.setCursor( strCursor );
+                final Pair<List<SuspiciousIdentityDto>, String> page = SuspiciousIdentityService.instance( ).searchAfter( request, CLIENT_CODE, getAuthor( ) );
+                assertTrue( page.getKey( ).size( ) <= PAGE_SIZE );
+                if ( page.getValue( ) != null )
+                {
+                    assertEquals( PAGE_SIZE, page.getKey( ).size( ) );
+                }
+                page.getKey( ).forEach( suspiciousIdentity -> readCustomerIds.add( suspiciousIdentity.getCustomerId( ) ) );
+                strCursor = page.getValue( );
+            }
+            while ( strCursor != null );
+
+            final Set<String> uniqueCustomerIds = new HashSet<>( readCustomerIds );
+            assertEquals( readCustomerIds.size( ), uniqueCustomerIds.size( ) );
+            for ( final SuspiciousIdentity suspiciousIdentity : created )
+            {
+                assertTrue( uniqueCustomerIds.contains( suspiciousIdentity.getCustomerId( ) ) );
+            }
+        }
+        finally
+        {
+            created.forEach( suspiciousIdentity -> SuspiciousIdentityHome.remove( suspiciousIdentity.getId( ) ) );
+        }
+    }
+
+    /**
+     * test that a search with a cursor requires a page size and a well-formed cursor
+     */
+    public void testSearchAfterBadRequest( ) throws IdentityStoreException
+    {
+        final SuspiciousIdentityCursorSearchRequest request = new SuspiciousIdentityCursorSearchRequest( );
+        request.setCursor( "" );
+        try
+        {
+            SuspiciousIdentityService.instance( ).searchAfter( request, CLIENT_CODE, getAuthor( ) );
+            fail( "A page size should be required" );
+        }
+        catch( final RequestFormatException e )
+        {
+            // expected
+        }
+
+        request.setSize( PAGE_SIZE );
+        request.setCursor( "not a cursor!" );
+        try
+        {
+            SuspiciousIdentityService.instance( ).searchAfter( request, CLIENT_CODE, getAuthor( ) );
+            fail( "A malformed cursor should be rejected" );
+        }
+        catch( final RequestFormatException e )
+        {
+            // expected
+        }
+    }
+
+    /**
+     * test that a bulk creation creates all the suspicions, and counts them
+     */
+    public void testCreateAll( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = getRule( );
+        final int nCount = SuspicionCounterHome.count( rule.getId( ) );
+        final List<Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule>> creations = Arrays.asList(
+                creation( CUSTOMERID_PREFIX + "Bulk1", rule ), creation( CUSTOMERID_PREFIX + "Bulk2", rule ) );
+
+        final List<SuspiciousIdentityDto> created = SuspiciousIdentityService.instance( ).createAll( creations, CLIENT_CODE, getAuthor( ) );
+        try
+        {
+            assertEquals( 2, created.size( ) );
+            assertEquals( CUSTOMERID_PREFIX + "Bulk1", created.get( 0 ).getCustomerId( ) );
+            assertEquals( CUSTOMERID_PREFIX + "Bulk2", created.get( 1 ).getCustomerId( ) );
+            assertNotNull( SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_PREFIX + "Bulk1" ) );
+            assertNotNull( SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_PREFIX + "Bulk2" ) );
+            assertEquals( nCount + 2, SuspicionCounterHome.count( rule.getId( ) ) );
+        }
+        finally
+        {
+            removeAll( creations );
+        }
+    }
+
+    /**
+     * test that nothing is created when one of the creations of a bulk fails
+     */
+    public void testCreateAllIsAtomic( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = getRule( );
+        final int nCount = SuspicionCounterHome.count( rule.getId( ) );
+        /* The second creation has no rule and fails once the first one is inserted */
+        final Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule> failingCreation = creation( CUSTOMERID_PREFIX + "Bulk2", rule );
+        final List<Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule>> creations = Arrays.asList(
+                creation( CUSTOMERID_PREFIX + "Bulk1", rule ), Triple.of( failingCreation.getLeft( ), failingCreation.getMiddle( ), null ) );
+        try
+        {
+            SuspiciousIdentityService.instance( ).createAll( creations, CLIENT_CODE, getAuthor( ) );
+            fail( "The bulk creation should fail" );
+        }
+        catch( final IdentityStoreException e )
+        {
+            assertNull( SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_PREFIX + "Bulk1" ) );
+            assertEquals( nCount, SuspicionCounterHome.count( rule.getId( ) ) );
+        }
+        finally
+        {
+            removeAll( creations.subList( 0, 1 ) );
+        }
+    }
+
+    /**
+     * test that a bulk creation skips the identities already suspicious, and creates the others
+     */
+    public void testCreateAllSkipsSuspicious( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = getRule( );
+        final SuspiciousIdentity existing = createSuspicion( rule, CUSTOMERID_PREFIX + "Bulk1", Timestamp.from( Instant.now( ) ) );
+        final int nCount = SuspicionCounterHome.count( rule.getId( ) );
+        final List<Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule>> creations = Arrays.asList(
+                creation( CUSTOMERID_PREFIX + "Bulk1", rule ), creation( CUSTOMERID_PREFIX + "Bulk2", rule ) );
+        try
+        {
+            final List<SuspiciousIdentityDto> created = SuspiciousIdentityService.instance( ).createAll( creations, CLIENT_CODE, getAuthor( ) );
+            assertEquals( 2, created.size( ) );
+            assertNull( created.get( 0 ) );
+            assertEquals( CUSTOMERID_PREFIX + "Bulk2", created.get( 1 ).getCustomerId( ) );
+            assertEquals( existing.getId( ), SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_PREFIX + "Bulk1" ).getId( ) );
+            assertEquals( nCount + 1, SuspicionCounterHome.count( rule.getId( ) ) );
+        }
+        finally
+        {
+            SuspiciousIdentityHome.remove( existing.getId( ) );
+            removeAll( creations.subList( 1, 2 ) );
+        }
+    }
+
+    /**
+     * test that the removal of a suspicion decrements the counter of its rule once, and that the removal of a missing suspicion leaves it unchanged
+     */
+    public void testRemove( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = getRule( );
+        final SuspiciousIdentity existing = createSuspicion( rule, CUSTOMERID_PREFIX + "Remove", Timestamp.from( Instant.now( ) ) );
+        final int nCount = SuspicionCounterHome.count( rule.getId( ) );
+        try
+        {
+            SuspiciousIdentityService.instance( ).remove( CUSTOMERID_PREFIX + "Remove", rule, getAuthor( ) );
+            assertNull( SuspiciousIdentityHome.selectByCustomerID( CUSTOMERID_PREFIX + "Remove" ) );
+            assertEquals( nCount - 1, SuspicionCounterHome.count( rule.getId( ) ) );
+
+            SuspiciousIdentityService.instance( ).remove( CUSTOMERID_PREFIX + "Remove", rule, getAuthor( ) );
+            assertEquals( nCount - 1, SuspicionCounterHome.count( rule.getId( ) ) );
+        }
+        finally
+        {
+            SuspiciousIdentityHome.remove( existing.getId( ) );
+            SuspicionCounterHome.add( rule.getId( ), nCount - SuspicionCounterHome.count( rule.getId( ) ) );
+        }
+    }
+
+    /**
+     * test that a bulk exclusion excludes all the pairs, and that the bulk cancellation restores them
+     */
+    public void testExcludeAllAndCancelExclusions( ) throws IdentityStoreException
+    {
+        final List<Pair<Identity, Identity>> pairs = Arrays.asList( Pair.of( identity( CUSTOMERID_PREFIX + "A" ), identity( CUSTOMERID_PREFIX + "B" ) ),
+                Pair.of( identity( CUSTOMERID_PREFIX + "A" ), identity( CUSTOMERID_PREFIX + "C" ) ) );
+        try
+        {
+            SuspiciousIdentityService.instance( ).excludeAll( new SuspiciousIdentityBulkExcludeRequest( ), pairs, CLIENT_CODE, getAuthor( ) );
+            for ( final Pair<Identity, Identity> pair : pairs )
+            {
+                assertTrue( SuspiciousIdentityHome.excluded( pair.getLeft( ).getCustomerId( ), pair.getRight( ).getCustomerId( ) ) );
+            }
+
+            SuspiciousIdentityService.instance( ).cancelExclusions( new SuspiciousIdentityBulkExcludeRequest( ), pairs, CLIENT_CODE, getAuthor( ) );
+            for ( final Pair<Identity, Identity> pair : pairs )
+            {
+                assertFalse( SuspiciousIdentityHome.excluded( pair.getLeft( ).getCustomerId( ), pair.getRight( ).getCustomerId( ) ) );
+            }
+        }
+        finally
+        {
+            removeExclusions( pairs );
+        }
+    }
+
+    /**
+     * test that nothing is excluded when one of the pairs of a bulk fails
+     */
+    public void testExcludeAllIsAtomic( )
+    {
+        final Pair<Identity, Identity> validPair = Pair.of( identity( CUSTOMERID_PREFIX + "A" ), identity( CUSTOMERID_PREFIX + "B" ) );
+        final List<Pair<Identity, Identity>> pairs = Arrays.asList( validPair, Pair.of( identity( CUSTOMERID_PREFIX + "A" ), null ) );
+        try
+        {
+            SuspiciousIdentityService.instance( ).excludeAll( new SuspiciousIdentityBulkExcludeRequest( ), pairs, CLIENT_CODE, getAuthor( ) );
+            fail( "The bulk exclusion should fail" );
+        }
+        catch( final IdentityStoreException e )
+        {
+            assertFalse( SuspiciousIdentityHome.excluded( validPair.getLeft( ).getCustomerId( ), validPair.getRight( ).getCustomerId( ) ) );
+        }
+        finally
+        {
+            removeExclusions( Arrays.asList( validPair ) );
+        }
+    }
+
+    static DuplicateRule getRule( ) throws IdentityStoreException
+    {
+        final DuplicateRule rule = DuplicateRuleService.instance( ).findAll( ).stream( ).filter( r -> r != null ).findFirst( ).orElse( null );
+        assertNotNull( "a duplicate rule is required", rule );
+        return rule;
+    }
+
+    static SuspiciousIdentity createSuspicion( final DuplicateRule rule, final String strCustomerId, final Timestamp dateCreate )
+    {
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity( );
+        suspiciousIdentity.setCustomerId( strCustomerId );
+        suspiciousIdentity.setIdDuplicateRule( rule.getId( ) );
+        suspiciousIdentity.setDuplicateRuleCode( rule.getCode( ) );
+        suspiciousIdentity.setCreationDate( dateCreate );
+        suspiciousIdentity.setLastUpdateDate( dateCreate );
+        SuspiciousIdentityHome.create( suspiciousIdentity );
+        return suspiciousIdentity;
+    }
+
+    static RequestAuthor getAuthor( )
+    {
+        final RequestAuthor author = new RequestAuthor( );
+        author.setType( AuthorType.admin );
+        author.setName( "test" );
+        return author;
+    }
+
+    static Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule> creation( final String strCustomerId, final DuplicateRule rule )
+    {
+        final Identity identity = new Identity( );
+        identity.setCustomerId( strCustomerId );
+        identity.setLastUpdateDate( Timestamp.from( Instant.now( ) ) );
+
+        final SuspiciousIdentityDto suspiciousIdentity = new SuspiciousIdentityDto( );
+        suspiciousIdentity.setCustomerId( strCustomerId );
+        suspiciousIdentity.setDuplicationRuleCode( rule.getCode( ) );
+        final SuspiciousIdentityChangeRequest request = new SuspiciousIdentityChangeRequest( );
+        request.setSuspiciousIdentity( suspiciousIdentity );
+        return Triple.of( request, identity, rule );
+    }
+
+    private static void removeAll( final List<Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule>> creations )
+    {
+        for ( final Triple<SuspiciousIdentityChangeRequest, Identity, DuplicateRule> creation : creations )
+        {
+            final String strCustomerId = creation.getMiddle( ).getCustomerId( );
+            if ( SuspiciousIdentityHome.selectByCustomerID( strCustomerId ) != null )
+            {
+                SuspiciousIdentityHome.remove( strCustomerId );
+                SuspicionCounterHome.add( creation.getRight( ).getId( ), -1 );
+            }
+        }
+    }
+
+    private static Identity identity( final String strCustomerId )
+    {
+        final Identity identity = new Identity( );
+        identity.setCustomerId( strCustomerId );
+        return identity;
+    }
+
+    private static void removeExclusions( final List<Pair<Identity, Identity>> pairs )
+    {
+        for ( final Pair<Identity, Identity> pair : pairs )
+        {
+            if ( SuspiciousIdentityHome.excluded( pair.getLeft( ).getCustomerId( ), pair.getRight( ).getCustomerId( ) ) )
+            {
+                SuspiciousIdentityHome.removeExcludedIdentities( pair.getLeft( ).getCustomerId( ), pair.getRight( ).getCustomerId( ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package fr.paris.lutece.plugins.identitystore.modules.quality.web.request.duplicate;
+
+import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateBulkSearchRequest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.DuplicateBulkSearchResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.AbstractIdentityStoreRequestTest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreBulkFindDuplicatesRequest;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatusType;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class IdentityStoreBulkFindDuplicatesRequestTest extends AbstractIdentityStoreRequestTest {
+
+    private static final String CUSTOMERID_PREFIX = "BulkUnknownCustomerId";
+
+    @Override
+    public void test_1_RequestOK() throws Exception {
+        final DuplicateRule rule = DuplicateRuleService.instance().findAll().stream().filter(r -> r != null && r.isActive()).findFirst().orElse(null);
+        assertNotNull("an active duplicate rule is required", rule);
+
+        /* A customer ID requested twice is searched once, and each unknown identity gets its own status */
+        final List<String> customerIds = Arrays.asList(CUSTOMERID_PREFIX + 1, CUSTOMERID_PREFIX + 2, CUSTOMERID_PREFIX + 1);
+        final IdentityStoreBulkFindDuplicatesRequest request = new IdentityStoreBulkFindDuplicatesRequest(bulkRequest(customerIds, rule.getCode()),
+                H_CLIENT_CODE, H_APP_CODE, H_AUTHOR_NAME, H_AUTHOR_TYPE);
+        final DuplicateBulkSearchResponse response = (DuplicateBulkSearchResponse) this.executeRequestOK(request, "Unknown identities",
+                ResponseStatusType.BAD_REQUEST);
+        assertEquals(Arrays.asList(CUSTOMERID_PREFIX + 1, CUSTOMERID_PREFIX + 2), new ArrayList<>(response.getResults().keySet()));
+        response.getResults().values().forEach(result -> {
+            assertEquals(ResponseStatusType.NOT_FOUND, result.getStatus().getType());
+            assertTrue(result.getIdentities().isEmpty());
+        });
+    }
+
+    @Override
+    public void test_2_RequestKO() throws Exception {
+        assertBulkSizeRejected(Collections.emptyList(), "Empty bulk");
+
+        final int nMaxSize = AppPropertiesService.getPropertyInt("identitystore-quality.duplicates.bulk.max.size", 500);
+        final List<String> tooMany = new ArrayList<>();
+        for (int i = 0; i <= nMaxSize; i++) {
+            tooMany.add(CUSTOMERID_PREFIX + i);
+        }
+        assertBulkSizeRejected(tooMany, "Oversized bulk");
+    }
+
+    /* The size of the bulk is checked by the constructor, before the request is run */
+    private static void assertBulkSizeRejected(final List<String> customerIds, final String strTestCase) {
+        try {
+            new IdentityStoreBulkFindDuplicatesRequest(bulkRequest(customerIds, "RG_TEST"), H_CLIENT_CODE, H_APP_CODE, H_AUTHOR_NAME, H_AUTHOR_TYPE);
+            fail(strTestCase + " : request was expected to fail, but it was successfull.");
+        } catch (final RequestFormatException e) {
+            assertEquals(strTestCase, QualityRestConstants.PROPERTY_REST_ERROR_BULK_SIZE, e.getLocaleMessageKey());
+        } catch (final IdentityStoreException e) {
+            fail(strTestCase + " : the exception that occured is not of the expected type. Exception message : " + e.getMessage());
+        }
+    }
+
+    private static DuplicateBulkSearchRequest bulkRequest(final List<String> customerIds, final String strRuleCode) {
+        final DuplicateBulkSearchRequest request = new DuplicateBulkSearchRequest();
+        request.setCustomerIds(customerIds);
+        request.setRuleCode(strRuleCode);
+        return request;
+    }
+}
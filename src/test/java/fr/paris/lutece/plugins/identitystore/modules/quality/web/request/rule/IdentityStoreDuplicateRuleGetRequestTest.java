@@ -1,16 +1,55 @@
 package fr.paris.lutece.plugins.identitystore.modules.quality.web.request.rule;
 
 import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.AbstractIdentityStoreRequestTest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreDuplicateRuleGetRequest;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatusType;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.duplicate.DuplicateRuleSummarySearchResponse;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.identitystore.web.exception.ResourceNotFoundException;
 
 public class IdentityStoreDuplicateRuleGetRequestTest extends AbstractIdentityStoreRequestTest {
 
     @Override
     public void test_1_RequestOK() throws Exception {
+        final IdentityStoreDuplicateRuleGetRequest request = this.buildRequest(null);
+        final DuplicateRuleSummarySearchResponse response = (DuplicateRuleSummarySearchResponse) this.executeRequestOK(request, "No If-None-Match header",
+                ResponseStatusType.OK);
+        final String strETag = request.getETag();
+        assertNotNull("No entity tag", strETag);
+        assertFalse(request.isNotModified());
+        assertFalse(response.getDuplicateRuleSummaries().isEmpty());
 
+        this.checkNotModified("\"" + strETag + "\"", "Matching tag", true);
+        this.checkNotModified("W/\"" + strETag + "\"", "Weak matching tag", true);
+        this.checkNotModified("\"other\", W/\"" + strETag + "\"", "Matching tag in a list", true);
+        this.checkNotModified("*", "Any tag", true);
+        this.checkNotModified("\"other\"", "Non-matching tag", false);
+        this.checkNotModified(strETag, "Unquoted tag", false);
+        this.checkNotModified("W/\"other\"", "Non-matching weak tag", false);
+        this.checkNotModified("  ", "Blank header", false);
     }
 
     @Override
     public void test_2_RequestKO() throws Exception {
+        this.executeRequestKO(new IdentityStoreDuplicateRuleGetRequest(-1, "*", H_CLIENT_CODE, H_APP_CODE, H_AUTHOR_NAME, H_AUTHOR_TYPE),
+                "No rule for the priority", ResourceNotFoundException.class, Constants.PROPERTY_REST_ERROR_NO_DUPLICATE_RULE_FOUND);
+    }
+
+    private void checkNotModified(final String strIfNoneMatch, final String strTestCase, final boolean bExpectedNotModified) throws IdentityStoreException {
+        final IdentityStoreDuplicateRuleGetRequest request = this.buildRequest(strIfNoneMatch);
+        final DuplicateRuleSummarySearchResponse response = (DuplicateRuleSummarySearchResponse) this.executeRequestOK(request, strTestCase,
+                ResponseStatusType.OK);
+        assertEquals(strTestCase + " : unexpected not modified status", bExpectedNotModified, request.isNotModified());
+        if (bExpectedNotModified) {
+            assertTrue(strTestCase + " : the rules should not be sent", response.getDuplicateRuleSummaries() == null
+                    || response.getDuplicateRuleSummaries().isEmpty());
+        } else {
+            assertFalse(strTestCase + " : the rules should be sent", response.getDuplicateRuleSummaries().isEmpty());
+        }
+    }
 
+    private IdentityStoreDuplicateRuleGetRequest buildRequest(final String strIfNoneMatch) throws IdentityStoreException {
+        return new IdentityStoreDuplicateRuleGetRequest(null, strIfNoneMatch, H_CLIENT_CODE, H_APP_CODE, H_AUTHOR_NAME, H_AUTHOR_TYPE);
     }
 }
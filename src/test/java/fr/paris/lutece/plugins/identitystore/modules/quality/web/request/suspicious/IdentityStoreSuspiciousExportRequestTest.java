@@ -0,0 +1,98 @@
+package fr.paris.lutece.plugins.identitystore.modules.quality.web.request.suspicious;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentity;
+import fr.paris.lutece.plugins.identitystore.business.duplicates.suspicions.SuspiciousIdentityHome;
+import fr.paris.lutece.plugins.identitystore.business.rules.duplicate.DuplicateRule;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.QualityRestConstants;
+import fr.paris.lutece.plugins.identitystore.modules.quality.rs.dto.SuspiciousIdentityExportResponse;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.AbstractIdentityStoreRequestTest;
+import fr.paris.lutece.plugins.identitystore.modules.quality.web.request.IdentityStoreSuspiciousExportRequest;
+import fr.paris.lutece.plugins.identitystore.service.duplicate.DuplicateRuleService;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.ResponseStatusType;
+import fr.paris.lutece.plugins.identitystore.web.exception.RequestFormatException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class IdentityStoreSuspiciousExportRequestTest extends AbstractIdentityStoreRequestTest {
+
+    private static final String CUSTOMERID_PREFIX = "ExportCustomerId";
+
+    @Override
+    public void test_1_RequestOK() throws Exception {
+        final DuplicateRule rule = DuplicateRuleService.instance().findAll().stream().filter(r -> r != null).findFirst().orElse(null);
+        assertNotNull("a duplicate rule is required", rule);
+
+        /* The suspicions are created in the future so that no other suspicion falls in the exported period */
+        final Instant start = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        final List<SuspiciousIdentity> created = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                created.add(createSuspicion(rule, CUSTOMERID_PREFIX + i, Timestamp.from(start.plusSeconds(i))));
+            }
+
+            final String strDateFrom = start.toString();
+            final String strDateTo = start.plusSeconds(2).toString();
+            final IdentityStoreSuspiciousExportRequest request = new IdentityStoreSuspiciousExportRequest(rule.getCode(), strDateFrom, strDateTo, H_CLIENT_CODE,
+                    H_APP_CODE, H_AUTHOR_NAME, H_AUTHOR_TYPE);
+            final SuspiciousIdentityExportResponse response = (SuspiciousIdentityExportResponse) this.executeRequestOK(request, "Export with date range",
+                    ResponseStatusType.OK);
+
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final AtomicBoolean closed = new AtomicBoolean();
+            response.getOutput().write(new FilterOutputStream(content) {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            });
+            assertFalse("the output stream must be left open", closed.get());
+
+            final String[] lines = content.toString(StandardCharsets.UTF_8.name()).split("\n");
+            assertEquals("date_to is exclusive", 2, lines.length);
+            final ObjectMapper mapper = new ObjectMapper();
+            final List<String> customerIds = new ArrayList<>();
+            for (final String line : lines) {
+                final JsonNode suspicion = mapper.readTree(line);
+                customerIds.add(suspicion.get("customer_id").asText());
+            }
+            assertEquals("oldest first", Arrays.asList(CUSTOMERID_PREFIX + 0, CUSTOMERID_PREFIX + 1), customerIds);
+        } finally {
+            created.forEach(suspiciousIdentity -> SuspiciousIdentityHome.remove(suspiciousIdentity.getId()));
+        }
+
+        final IdentityStoreSuspiciousExportRequest dayRequest = new IdentityStoreSuspiciousExportRequest(null, "2024-01-01", "2024-01-02", H_CLIENT_CODE,
+                H_APP_CODE, H_AUTHOR_NAME, H_AUTHOR_TYPE);
+        this.executeRequestOK(dayRequest, "Export with days", ResponseStatusType.OK);
+    }
+
+    @Override
+    public void test_2_RequestKO() throws Exception {
+        for (final String strDate : Arrays.asList("2024-13-01", "yesterday", "2024-01-01T25:00:00Z")) {
+            final IdentityStoreSuspiciousExportRequest request = new IdentityStoreSuspiciousExportRequest(null, strDate, null, H_CLIENT_CODE, H_APP_CODE,
+                    H_AUTHOR_NAME, H_AUTHOR_TYPE);
+            this.executeRequestKO(request, "Malformed date " + strDate, RequestFormatException.class, QualityRestConstants.PROPERTY_REST_ERROR_INVALID_DATE);
+        }
+    }
+
+    private static SuspiciousIdentity createSuspicion(final DuplicateRule rule, final String strCustomerId, final Timestamp dateCreate) {
+        final SuspiciousIdentity suspiciousIdentity = new SuspiciousIdentity();
+        suspiciousIdentity.setCustomerId(strCustomerId);
+        suspiciousIdentity.setIdDuplicateRule(rule.getId());
+        suspiciousIdentity.setDuplicateRuleCode(rule.getCode());
+        suspiciousIdentity.setCreationDate(dateCreate);
+        suspiciousIdentity.setLastUpdateDate(dateCreate);
+        SuspiciousIdentityHome.create(suspiciousIdentity);
+        return suspiciousIdentity;
+    }
+}